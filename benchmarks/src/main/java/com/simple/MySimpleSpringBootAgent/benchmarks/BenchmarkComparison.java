@@ -0,0 +1,124 @@
+package com.simple.MySimpleSpringBootAgent.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compare a JMH JSON result (-rf json) against the checked-in baseline
+ *
+ * Prints a markdown table per benchmark and size with the throughput and allocation
+ * (gc.alloc.rate.norm, bytes/op) deltas. A row is a regression when throughput drops by
+ * more than the threshold beyond the combined error margins, or allocation per op grows
+ * by more than the threshold. Exits with status 1 when any row regressed.
+ *
+ * Usage: BenchmarkComparison baseline.json current.json [threshold-percent] [report.md]
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+    private static final double MIN_ALLOC_DELTA_BYTES = 256;
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison baseline.json current.json [threshold-percent] [report.md]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+
+        StringBuilder report = new StringBuilder()
+                .append("| Benchmark | Size | Baseline ops/s | Current ops/s | Δ ops/s | Baseline B/op | Current B/op | Δ B/op | Status |\n")
+                .append("|---|---|---:|---:|---:|---:|---:|---:|---|\n");
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                report.append(row(now, null, "NEW"));
+                continue;
+            }
+
+            boolean slower = now.score() < before.score() * (1 - threshold / 100)
+                    && before.score() - now.score() > before.error() + now.error();
+            boolean allocates = !Double.isNaN(before.allocPerOp()) && !Double.isNaN(now.allocPerOp())
+                    && now.allocPerOp() > before.allocPerOp() * (1 + threshold / 100)
+                    && now.allocPerOp() - before.allocPerOp() > MIN_ALLOC_DELTA_BYTES;
+            String status = slower || allocates
+                    ? "REGRESSION" + (slower ? " (throughput)" : "") + (allocates ? " (allocation)" : "")
+                    : "ok";
+            if (slower || allocates) {
+                regressions++;
+            }
+            report.append(row(now, before, status));
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                report.append(row(baseline.get(key), null, "MISSING"));
+            }
+        }
+        report.append(String.format(Locale.ROOT, "%n%d of %d benchmarks regressed (threshold %.0f%%)%n",
+                regressions, current.size(), threshold));
+
+        System.out.print(report);
+        if (args.length > 3) {
+            Files.writeString(Path.of(args[3]), report);
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static String row(Result now, Result before, String status) {
+        return String.format(Locale.ROOT, "| %s | %s | %s | %s | %s | %s | %s | %s | %s |%n",
+                now.benchmark(), now.size(),
+                before != null ? format(before.score()) : "-", format(now.score()),
+                before != null ? delta(before.score(), now.score()) : "-",
+                before != null ? format(before.allocPerOp()) : "-", format(now.allocPerOp()),
+                before != null ? delta(before.allocPerOp(), now.allocPerOp()) : "-",
+                status);
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        return value >= 100 ? String.format(Locale.ROOT, "%,.0f", value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String delta(double before, double now) {
+        if (Double.isNaN(before) || Double.isNaN(now) || before == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (now - before) * 100 / before);
+    }
+
+    private static Map<String, Result> read(String file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(new File(file))) {
+            String benchmark = node.path("benchmark").asText();
+            benchmark = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            JsonNode params = node.path("params");
+            String size = params.path("size").asText(params.path("page").asText("-"));
+            JsonNode primary = node.path("primaryMetric");
+            JsonNode alloc = node.path("secondaryMetrics").path(ALLOC_METRIC);
+            results.put(benchmark + "|" + size, new Result(benchmark, size,
+                    primary.path("score").asDouble(), primary.path("scoreError").asDouble(0),
+                    alloc.isMissingNode() ? Double.NaN : alloc.path("score").asDouble()));
+        }
+        return results;
+    }
+
+    private record Result(String benchmark, String size, double score, double error, double allocPerOp) {
+    }
+}
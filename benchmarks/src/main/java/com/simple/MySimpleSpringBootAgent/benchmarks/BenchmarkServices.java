@@ -0,0 +1,43 @@
+package com.simple.MySimpleSpringBootAgent.benchmarks;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.service.BpeTokenCounter;
+import com.simple.MySimpleSpringBootAgent.service.CompiledSelectorCache;
+import com.simple.MySimpleSpringBootAgent.service.HtmlDocumentCache;
+import com.simple.MySimpleSpringBootAgent.service.HtmlMinificationService;
+import com.simple.MySimpleSpringBootAgent.service.HtmlPreprocessor;
+import com.simple.MySimpleSpringBootAgent.service.HtmlUtilityService;
+import com.simple.MySimpleSpringBootAgent.service.LocatorMetrics;
+import com.simple.MySimpleSpringBootAgent.service.PageSourceDecoder;
+import com.simple.MySimpleSpringBootAgent.service.TokenCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+
+/**
+ * The services under test, wired by hand with default configuration
+ * The document cache is disabled so every parse+clean invocation does the full work
+ */
+final class BenchmarkServices {
+
+    final HtmlProcessingConfig config = new HtmlProcessingConfig();
+    final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final LocatorMetrics metrics = new LocatorMetrics(meterRegistry);
+    final TokenCounter tokenCounter =
+            new BpeTokenCounter(Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE));
+    final HtmlUtilityService htmlUtilityService = new HtmlUtilityService(tokenCounter);
+    final HtmlMinificationService minificationService = new HtmlMinificationService();
+    final HtmlPreprocessor htmlPreprocessor;
+    final CompiledSelectorCache selectorCache;
+
+    BenchmarkServices() {
+        config.setDocumentCacheEnabled(false);
+        htmlPreprocessor = new HtmlPreprocessor(config,
+                new HtmlDocumentCache(config, htmlUtilityService, meterRegistry, List.of()),
+                new PageSourceDecoder(config), meterRegistry, metrics);
+        selectorCache = new CompiledSelectorCache(config, meterRegistry);
+    }
+}
@@ -0,0 +1,116 @@
+package com.simple.MySimpleSpringBootAgent.benchmarks;
+
+import com.simple.MySimpleSpringBootAgent.service.DomIndex;
+import com.simple.MySimpleSpringBootAgent.service.DomQueryContext;
+import com.simple.MySimpleSpringBootAgent.service.DomQueryTools;
+import dev.langchain4j.invocation.InvocationParameters;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every DomQueryTools @Tool method against one preprocessed page, plus the per-document
+ * index build the tools rely on
+ *
+ * The index and the compiled selectors are built in setup, as they are after the first
+ * tool call of a conversation; buildIndex measures that one-off cost separately. Every
+ * call gets a fresh DomQueryContext, so it is evaluated rather than answered from the
+ * conversation's memoized results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DomQueryToolsBenchmark {
+
+    private static final String INDEXED_CSS = "input[name='q']";
+    private static final String COMPLEX_CSS = "form.search > input[type=search]";
+    private static final String XPATH = "//form[@id='search-form']//input[@name='q']";
+
+    @Param({"10KB", "100KB", "1MB", "10MB"})
+    public String size;
+
+    private Document doc;
+    private DomQueryTools tools;
+    private DomIndex index;
+    private String targetHandle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkServices services = new BenchmarkServices();
+        doc = services.htmlPreprocessor.preprocessHtml(PageCorpus.page(PageCorpus.parseSize(size)), "setup");
+        tools = new DomQueryTools(services.selectorCache, services.metrics);
+        index = DomIndex.build(doc);
+
+        // Sanity check and warm the selector caches
+        if (tools.findById(PageCorpus.TARGET_ID, parameters()).equals("Not found")
+                || !tools.findByXPath(XPATH, parameters()).startsWith("Found 1 ")) {
+            throw new IllegalStateException("Benchmark page does not contain the target element");
+        }
+        tools.findByCss(COMPLEX_CSS, parameters());
+        targetHandle = "e" + index.positionOf(index.byId(PageCorpus.TARGET_ID));
+    }
+
+    private InvocationParameters parameters() {
+        return DomQueryContext.invocationParameters(doc, index);
+    }
+
+    @Benchmark
+    public DomIndex buildIndex() {
+        return DomIndex.build(doc);
+    }
+
+    @Benchmark
+    public String findById() {
+        return tools.findById(PageCorpus.TARGET_ID, parameters());
+    }
+
+    @Benchmark
+    public String findByCssIndexed() {
+        return tools.findByCss(INDEXED_CSS, parameters());
+    }
+
+    @Benchmark
+    public String findByCssComplex() {
+        return tools.findByCss(COMPLEX_CSS, parameters());
+    }
+
+    @Benchmark
+    public String findByXPath() {
+        return tools.findByXPath(XPATH, parameters());
+    }
+
+    @Benchmark
+    public String findByText() {
+        return tools.findByText(PageCorpus.TARGET_TEXT, parameters());
+    }
+
+    @Benchmark
+    public String findByAttribute() {
+        return tools.findByAttribute("data-testid", PageCorpus.TARGET_TEST_ID, parameters());
+    }
+
+    @Benchmark
+    public String getAllInteractiveElements() {
+        return tools.getAllInteractiveElements(parameters());
+    }
+
+    @Benchmark
+    public String getElement() {
+        return tools.getElement(targetHandle, parameters());
+    }
+}
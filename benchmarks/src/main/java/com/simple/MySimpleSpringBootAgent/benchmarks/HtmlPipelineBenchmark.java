@@ -0,0 +1,71 @@
+package com.simple.MySimpleSpringBootAgent.benchmarks;
+
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML pipeline stages: parse+clean, minify, truncate and token counting
+ *
+ * minify / truncate / token benchmarks run on the cleaned page, which is what they
+ * see in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HtmlPipelineBenchmark {
+
+    @Param({"10KB", "100KB", "1MB", "10MB"})
+    public String size;
+
+    private BenchmarkServices services;
+    private String rawHtml;
+    private String cleanedHtml;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new BenchmarkServices();
+        rawHtml = PageCorpus.page(PageCorpus.parseSize(size));
+        cleanedHtml = services.htmlPreprocessor.preprocessHtml(rawHtml, "setup").html();
+    }
+
+    @Benchmark
+    public Document parseAndClean() {
+        return services.htmlPreprocessor.preprocessHtml(rawHtml, "benchmark");
+    }
+
+    @Benchmark
+    public String minify() {
+        return services.minificationService.minify(cleanedHtml);
+    }
+
+    @Benchmark
+    public String truncate() {
+        return services.htmlUtilityService.truncateSafely(cleanedHtml, services.config.getMaxOutputSize());
+    }
+
+    @Benchmark
+    public String truncateToTokens() {
+        return services.htmlUtilityService.truncateToTokens(cleanedHtml, services.config.getMaxPromptHtmlTokens());
+    }
+
+    @Benchmark
+    public int countTokens() {
+        return services.htmlUtilityService.countTokens(cleanedHtml);
+    }
+}
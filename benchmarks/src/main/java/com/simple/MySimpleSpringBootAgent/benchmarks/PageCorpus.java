@@ -0,0 +1,119 @@
+package com.simple.MySimpleSpringBootAgent.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic pages for the benchmarks
+ *
+ * Pages look like what Selenium's getPageSource() returns for a typical web app: inline
+ * scripts and styles, comments, navigation, product cards, forms and data tables. The same
+ * size always yields the same page. The element the tool benchmarks look for (the search
+ * form, see TARGET_*) is placed at the end, so linear scans pay for the whole page.
+ */
+public final class PageCorpus {
+
+    public static final String TARGET_ID = "search-input";
+    public static final String TARGET_TEST_ID = "search-submit";
+    public static final String TARGET_TEXT = "Search catalogue";
+
+    private static final String[] WORDS = {
+            "account", "basket", "checkout", "delivery", "discount", "order", "product", "review",
+            "shipping", "stock", "voucher", "wishlist", "catalogue", "customer", "invoice", "return"};
+
+    private PageCorpus() {
+    }
+
+    /**
+     * Parse sizes like "10KB" or "10MB" (binary units)
+     */
+    public static int parseSize(String size) {
+        String s = size.trim().toUpperCase(Locale.ROOT);
+        if (s.endsWith("MB")) {
+            return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024 * 1024;
+        }
+        if (s.endsWith("KB")) {
+            return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(s);
+    }
+
+    /**
+     * Generate a page of roughly targetChars characters
+     */
+    public static String page(int targetChars) {
+        Random random = new Random(42);
+        StringBuilder html = new StringBuilder(targetChars + 4096);
+        html.append("<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"utf-8\"><title>Shop</title>")
+                .append("<style>.card{display:flex;margin:4px}.btn{padding:2px 8px}.hidden{display:none}</style>")
+                .append("<script>window.__STATE__={\"user\":null,\"flags\":[1,2,3]};</script>")
+                .append("</head><body><!-- header -->")
+                .append("<header class=\"site-header\"><nav class=\"main-nav\" aria-label=\"Main\">");
+        for (int i = 0; i < 12; i++) {
+            html.append("<a class=\"nav-link\" href=\"/c/").append(i).append("\">").append(word(random)).append("</a>");
+        }
+        html.append("</nav></header><main id=\"content\">");
+
+        int section = 0;
+        while (html.length() < targetChars) {
+            switch (section % 4) {
+                case 0 -> cards(html, random, section);
+                case 1 -> form(html, random, section);
+                case 2 -> table(html, random, section);
+                default -> html.append("<!-- lazy block ").append(section).append(" -->")
+                        .append("<script>track('block-").append(section).append("', {ts: Date.now()});</script>")
+                        .append("<noscript><img src=\"/pixel?b=").append(section).append("\"></noscript>");
+            }
+            section++;
+        }
+
+        html.append("<form id=\"search-form\" class=\"search\" role=\"search\">")
+                .append("<label for=\"").append(TARGET_ID).append("\">").append(TARGET_TEXT).append("</label>")
+                .append("<input id=\"").append(TARGET_ID).append("\" name=\"q\" type=\"search\" placeholder=\"Search\">")
+                .append("<button type=\"submit\" class=\"btn btn-primary\" data-testid=\"").append(TARGET_TEST_ID)
+                .append("\">Go</button></form>")
+                .append("</main><footer class=\"site-footer\"><p>&copy; Shop</p></footer></body></html>");
+        return html.toString();
+    }
+
+    private static void cards(StringBuilder html, Random random, int section) {
+        html.append("<section class=\"products\" data-section=\"").append(section).append("\">");
+        for (int i = 0; i < 8; i++) {
+            String id = section + "-" + i;
+            html.append("<div class=\"card product-card\" data-testid=\"product-").append(id).append("\">")
+                    .append("<img src=\"/img/").append(id).append(".jpg\" alt=\"").append(word(random)).append("\">")
+                    .append("<h3 class=\"title\">").append(word(random)).append(' ').append(word(random)).append("</h3>")
+                    .append("<p class=\"price\">").append(random.nextInt(10000) / 100.0).append("</p>")
+                    .append("<button class=\"btn add-to-cart\" data-sku=\"").append(id).append("\">Add to basket</button>")
+                    .append("<a class=\"details\" href=\"/p/").append(id).append("\">Details</a></div>");
+        }
+        html.append("</section>");
+    }
+
+    private static void form(StringBuilder html, Random random, int section) {
+        html.append("<form class=\"inline-form\" action=\"/f/").append(section).append("\" method=\"post\">");
+        for (int i = 0; i < 4; i++) {
+            String name = word(random) + "_" + section + "_" + i;
+            html.append("<div class=\"field\"><label for=\"f").append(section).append('-').append(i).append("\">")
+                    .append(word(random)).append("</label>")
+                    .append("<input id=\"f").append(section).append('-').append(i).append("\" name=\"").append(name)
+                    .append("\" type=\"text\" aria-label=\"").append(word(random)).append("\"></div>");
+        }
+        html.append("<select name=\"choice").append(section).append("\"><option>one</option><option>two</option></select>")
+                .append("<textarea name=\"notes").append(section).append("\"></textarea>")
+                .append("<button type=\"submit\" class=\"btn\">Save ").append(word(random)).append("</button></form>");
+    }
+
+    private static void table(StringBuilder html, Random random, int section) {
+        html.append("<table class=\"data\"><thead><tr><th>Item</th><th>Qty</th><th>Total</th></tr></thead><tbody>");
+        for (int i = 0; i < 6; i++) {
+            html.append("<tr><td>").append(word(random)).append("</td><td>").append(random.nextInt(20))
+                    .append("</td><td>").append(random.nextInt(5000)).append("</td></tr>");
+        }
+        html.append("</tbody></table>");
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,153 @@
+package com.simple.MySimpleSpringBootAgent.benchmarks;
+
+import com.simple.MySimpleSpringBootAgent.service.DomIndex;
+import com.simple.MySimpleSpringBootAgent.service.ToolOutputFormatter;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tool result encoding: the compact ToolOutputFormatter against the former
+ * String.format-per-element listing, on the test-scenarios.sh pages (S1-S6) and a
+ * 100KB corpus page
+ *
+ * Each operation lists the page's elements the way a tool result does (at most 50).
+ * JMH measures the CPU side; run the class itself for the token side:
+ *
+ *   java -cp target/benchmarks.jar com.simple.MySimpleSpringBootAgent.benchmarks.ToolOutputBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ToolOutputBenchmark {
+
+    private static final int LIMIT = 50;
+
+    // Pages of test-scenarios.sh
+    private static final Map<String, String> SCENARIOS = Map.of(
+            "S1", "<html><body><input id=\"search\" name=\"q\" /></body></html>",
+            "S2", "<html><body><input id=\"search\" name=\"q\" class=\"search-input\" /></body></html>",
+            "S3", "<html><body><div class=\"nav-menu\" id=\"mainNav\"><a href=\"/home\">Home</a></div></body></html>",
+            "S4", "<html><body><button id=\"login-btn\" name=\"loginButton\" class=\"btn-primary\">Login</button></body></html>",
+            "S5", "<html><body><div data-testid=\"user-menu\"><button id=\"profile-btn\">Profile</button>"
+                    + "<button id=\"logout-btn\">Logout</button></div></body></html>",
+            "S6", "<html><body><div class=\"class1 class2\"><input type=\"text\" id=\"field1\" name=\"textField\" /></div></body></html>");
+
+    @Param({"S1", "S2", "S3", "S4", "S5", "S6", "100KB"})
+    public String page;
+
+    private Elements elements;
+    private DomIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        setUp(new BenchmarkServices());
+    }
+
+    private void setUp(BenchmarkServices services) {
+        String html = SCENARIOS.get(page);
+        if (html == null) {
+            html = PageCorpus.page(PageCorpus.parseSize(page));
+        }
+        Document doc = services.htmlPreprocessor.preprocessHtml(html, "setup");
+        index = DomIndex.build(doc);
+        elements = doc.body().getAllElements();
+        elements.remove(0); // body itself
+    }
+
+    @Benchmark
+    public String legacyFormat() {
+        return LegacyFormat.formatElements(elements, LIMIT);
+    }
+
+    @Benchmark
+    public String compactFormat() {
+        return ToolOutputFormatter.formatElements(elements, LIMIT, index);
+    }
+
+    /**
+     * Print chars and cl100k_base tokens per tool result, former against compact encoding
+     */
+    public static void main(String[] args) {
+        BenchmarkServices services = new BenchmarkServices();
+        int legacyTotal = 0;
+        int compactTotal = 0;
+        System.out.println("| Page | Legacy chars | Compact chars | Legacy tokens | Compact tokens | Saved |");
+        System.out.println("|------|-------------:|--------------:|--------------:|---------------:|------:|");
+        for (String page : new String[]{"S1", "S2", "S3", "S4", "S5", "S6", "100KB"}) {
+            ToolOutputBenchmark benchmark = new ToolOutputBenchmark();
+            benchmark.page = page;
+            benchmark.setUp(services);
+            String legacy = benchmark.legacyFormat();
+            String compact = benchmark.compactFormat();
+            int legacyTokens = services.tokenCounter.countTokens(legacy);
+            int compactTokens = services.tokenCounter.countTokens(compact);
+            if (SCENARIOS.containsKey(page)) {
+                legacyTotal += legacyTokens;
+                compactTotal += compactTokens;
+            }
+            System.out.printf(Locale.ROOT, "| %s | %d | %d | %d | %d | %.0f%% |%n", page, legacy.length(), compact.length(),
+                    legacyTokens, compactTokens, 100.0 * (legacyTokens - compactTokens) / legacyTokens);
+        }
+        System.out.printf(Locale.ROOT, "| S1-S6 | | | %d | %d | %.0f%% |%n", legacyTotal, compactTotal,
+                100.0 * (legacyTotal - compactTotal) / legacyTotal);
+    }
+
+    /**
+     * The listing DomQueryTools produced before ToolOutputFormatter
+     */
+    private static final class LegacyFormat {
+
+        private static String formatElement(Element el) {
+            String text = el.text();
+            String truncatedText = text.length() > 50 ? text.substring(0, 50) + "..." : text;
+
+            return String.format("<%s id=\"%s\" class=\"%s\" name=\"%s\" data-testid=\"%s\">%s</%s>",
+                    el.tagName(),
+                    el.id(),
+                    el.className(),
+                    el.attr("name"),
+                    el.attr("data-testid"),
+                    truncatedText,
+                    el.tagName());
+        }
+
+        private static String formatElements(Elements elements, int limit) {
+            if (elements.isEmpty()) {
+                return "No elements found";
+            }
+
+            String formatted = elements.stream()
+                    .limit(limit)
+                    .map(LegacyFormat::formatElement)
+                    .collect(Collectors.joining("\n"));
+
+            if (elements.size() > limit) {
+                formatted += String.format("\n... and %d more elements", elements.size() - limit);
+            }
+
+            return String.format("Found %d elements:\n%s",
+                    Math.min(elements.size(), limit), formatted);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.simple.MySimpleSpringBootAgent.aiservice;
 
 import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import dev.langchain4j.invocation.InvocationParameters;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
@@ -16,14 +17,9 @@ import dev.langchain4j.service.spring.AiService;
 public interface LocatorAnalyzerAI {
 
     /**
-     * Analyze a failed Selenium locator and suggest alternatives across all locator types
-     *
-     * @param failedLocator The locator that failed (any Selenium type)
-     * @param htmlContent The HTML source code to analyze
-     * @param pageUrl The URL of the page (optional, for context)
-     * @return Structured analysis with suggestions for ID, Name, Class, Tag, LinkText, CSS, and XPath
+     * System prompt, shared with LocatorAnalyzerStreamingAI
      */
-    @SystemMessage("""
+    String SYSTEM_PROMPT = """
             You are an expert Selenium automation engineer with DOM querying capabilities.
 
             AVAILABLE TOOLS (use these to analyze the HTML):
@@ -33,8 +29,17 @@ public interface LocatorAnalyzerAI {
             - getAllInteractiveElements(): List all clickable/input elements
             - findByText(text): Search by visible text content
             - findByAttribute(name, value): Search by any attribute
+            - getElement(handle): All attributes and ancestors of one element from an earlier result
+            Results list one element per line as `e42 <tag id="..." class="...">text`; only
+            non-empty attributes are shown and e42 is the element's handle for getElement
+            A result "Same as previous result #n (...)" means the n-th tool call of this
+            conversation already returned exactly this; reuse it instead of calling again
 
             ANALYSIS STRATEGY:
+            0. Start from the candidate excerpt in the request: the best-matching elements
+               with a little surrounding context (not the whole page). If the target is
+               there, verify your locator with one tool call instead of exploring
+
             1. First, try the failed locator directly with findByXPath() or findByCss()
                - Understand WHY it failed (syntax error vs no matches)
 
@@ -72,13 +77,20 @@ public interface LocatorAnalyzerAI {
             - Alternative locators for all applicable types
             - Explanation: WHY this strategy is best
             - Warnings: Any concerns (brittleness, dynamic IDs, etc.)
-            """)
-    @UserMessage("""
+            """;
+
+    /**
+     * User prompt template, shared with LocatorAnalyzerStreamingAI
+     */
+    String USER_PROMPT = """
             A Selenium test failed with this locator:
             Locator: {{failedLocator}}
             Element description: {{elementDescription}}
             Page URL: {{pageUrl}}
 
+            Candidate elements (pruned excerpt of the page, best match first):
+            {{pageExcerpt}}
+
             Please:
             1. Use tools to understand why the locator failed
             2. Find the target element using available tools
@@ -94,9 +106,24 @@ public interface LocatorAnalyzerAI {
             - By.xpath (least preferred, brittle)
 
             Return structured JSON with all applicable locator types filled in.
-            """)
+            """;
+
+    /**
+     * Analyze a failed Selenium locator and suggest alternatives across all locator types
+     *
+     * @param failedLocator The locator that failed (any Selenium type)
+     * @param htmlContent The HTML source code to analyze
+     * @param pageUrl The URL of the page (optional, for context)
+     * @param pageExcerpt Pruned HTML of the best candidate elements (see CandidateExcerptBuilder)
+     * @param parameters Invocation-scoped DomQueryContext the tools query (see DomQueryContext)
+     * @return Structured analysis with suggestions for ID, Name, Class, Tag, LinkText, CSS, and XPath
+     */
+    @SystemMessage(SYSTEM_PROMPT)
+    @UserMessage(USER_PROMPT)
     LocatorAnalysisResult analyzeLocator(
             @V("failedLocator") String failedLocator,
             @V("elementDescription") String elementDescription,
-            @V("pageUrl") String pageUrl);
+            @V("pageUrl") String pageUrl,
+            @V("pageExcerpt") String pageExcerpt,
+            InvocationParameters parameters);
 }
@@ -0,0 +1,40 @@
+package com.simple.MySimpleSpringBootAgent.aiservice;
+
+import dev.langchain4j.invocation.InvocationParameters;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import dev.langchain4j.service.spring.AiService;
+
+/**
+ * Streaming variant of LocatorAnalyzerAI
+ * Same prompts and DomQueryTools, but tokens and tool executions are delivered as they happen
+ *
+ * A TokenStream carries no structured-output instructions, so the caller passes the
+ * JSON format instructions of LocatorAnalysisResult and parses the final text itself.
+ */
+@AiService(tools = "domQueryTools")
+public interface LocatorAnalyzerStreamingAI {
+
+    /**
+     * Stream the analysis of a failed Selenium locator
+     *
+     * @param failedLocator The locator that failed (any Selenium type)
+     * @param elementDescription Description of the target element
+     * @param pageUrl The URL of the page (optional, for context)
+     * @param pageExcerpt Pruned HTML of the best candidate elements (see CandidateExcerptBuilder)
+     * @param formatInstructions JSON format instructions for LocatorAnalysisResult
+     * @param parameters Invocation-scoped DomQueryContext the tools query (see DomQueryContext)
+     * @return Token stream; nothing is sent to the model until start() is called
+     */
+    @SystemMessage(LocatorAnalyzerAI.SYSTEM_PROMPT)
+    @UserMessage(LocatorAnalyzerAI.USER_PROMPT + "\n{{formatInstructions}}")
+    TokenStream analyzeLocator(
+            @V("failedLocator") String failedLocator,
+            @V("elementDescription") String elementDescription,
+            @V("pageUrl") String pageUrl,
+            @V("pageExcerpt") String pageExcerpt,
+            @V("formatInstructions") String formatInstructions,
+            InvocationParameters parameters);
+}
@@ -0,0 +1,23 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors used to run locator analyses off the request thread
+ * Concurrency is bounded by the callers (e.g. batch maxParallelism), not by the pool
+ *
+ * Analyses spend almost all their time blocked on the LLM, so each task gets its own
+ * virtual thread instead of holding a platform thread for the whole conversation.
+ */
+@Configuration
+public class AnalysisExecutorConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService analysisExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("locator-analysis-", 0).factory());
+    }
+}
@@ -0,0 +1,17 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Externalized configuration for batch locator analysis
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.batch")
+public class BatchAnalysisConfig {
+
+    private int maxParallelism = 4; // concurrent analyses per batch request
+    private int maxLocators = 50;
+}
@@ -0,0 +1,23 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Externalized configuration for the locator healing history
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.healing-history")
+public class HealingHistoryConfig {
+
+    private boolean enabled = true;
+    private String path = "data/locator-healing-history.dat";
+    private Duration ttl = Duration.ofDays(90); // entries not re-verified for this long are forgotten
+    private Duration pruneAfter = Duration.ofDays(30); // default age cutoff of DELETE /api/locators/history
+    private long maxBytes = 16L * 1024 * 1024; // compaction threshold
+    private Duration flushInterval = Duration.ofMinutes(1); // hit counts are kept in memory and written this often
+}
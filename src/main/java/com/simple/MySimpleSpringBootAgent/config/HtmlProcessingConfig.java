@@ -17,6 +17,29 @@ public class HtmlProcessingConfig {
     private int maxOutputSize = 51200; // 50KB
     private int earlyReturnSize = 51200; // Return early if already small
 
+    // Token budgeting: encoding (blank = derive from each chat model, "heuristic" = no vocabulary)
+    // and the token budget for page HTML in the prompt (candidate excerpt)
+    private String tokenEncoding = "";
+    private int maxPromptHtmlTokens = 2048;
+
+    // Streaming upload limits (compressed wire size, decoded size - guards against zip bombs)
+    private long maxUploadBytes = 32L * 1024 * 1024;
+    private long maxDecodedBytes = 64L * 1024 * 1024;
+
+    // 1 in N ingestions on virtual threads is run on a platform thread to measure its allocation (0 = never)
+    private int allocationSampleRate = 16;
+
+    // Preprocessed document cache settings
+    private boolean documentCacheEnabled = true;
+    private long documentCacheMaxWeight = 256L * 1024 * 1024; // estimated heap retained by parsed documents
+    private int documentCacheExpireMinutes = 30;
+
+    // Per-document derived structures (DOM index, XPath view); they pin their document, so bound them
+    private int derivedCacheMaxDocuments = 64;
+
+    // Compiled CSS selector / XPath cache (shared across requests, includes invalid expressions)
+    private int selectorCacheMaxSize = 1000;
+
     // Candidate discovery settings
     private int maxCandidates = 5;
     private int tierOneScore = 100;
@@ -24,6 +47,11 @@ public class HtmlProcessingConfig {
     private int tierThreeScore = 50;
     private int tierFourScore = 25;
 
+    // Deterministic fast path (skips the LLM when one candidate clearly wins)
+    private boolean fastPathEnabled = true;
+    private int fastPathConfidenceThreshold = 85;
+    private double fuzzyMatchThreshold = 0.85;
+
     // DOM pruning settings
     private int maxParentDepth = 3;
     private int maxSiblingCount = 2;
@@ -0,0 +1,23 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Externalized configuration for asynchronous analysis jobs
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.jobs")
+public class JobQueueConfig {
+
+    private int workers = 4; // analyses running concurrently
+    private int queueCapacity = 100; // jobs waiting for a worker before submissions are rejected
+    private long maxPendingBytes = 256L * 1024 * 1024; // page source held by queued and running jobs before submissions are rejected
+    private Duration resultTtl = Duration.ofMinutes(30); // how long finished jobs stay pollable, counted from completion
+    private int maxWaitSeconds = 60; // upper bound for long-poll waits
+    private int minRetryAfterSeconds = 5; // Retry-After floor when the queue is full
+}
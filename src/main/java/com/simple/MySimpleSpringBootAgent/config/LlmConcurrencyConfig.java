@@ -0,0 +1,27 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Externalized configuration for the adaptive LLM concurrency limit (one limiter per backend URL)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.llm-concurrency")
+public class LlmConcurrencyConfig {
+
+    private boolean enabled = true;
+    private int initialLimit = 4; // concurrent LLM conversations per backend before any latency is observed
+    private int minLimit = 1;
+    private int maxLimit = 32;
+    private Duration maxQueueWait = Duration.ofSeconds(30); // wait for a slot this long, then reject (0 = fail fast)
+    private Duration coalescedMaxWait = Duration.ofMinutes(5); // identical requests wait this long for the in-flight LLM call, then get 503
+    private double rttTolerance = 2.0; // latency may grow this much over the baseline before the limit shrinks
+    private double smoothing = 0.2; // weight of each new limit estimate
+    private double backoffRatio = 0.9; // limit multiplier after a timeout or overload error
+    private int baselineWindow = 100; // samples averaged into the long-term (baseline) latency
+}
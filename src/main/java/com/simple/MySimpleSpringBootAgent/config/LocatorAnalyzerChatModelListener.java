@@ -1,100 +1,218 @@
 package com.simple.MySimpleSpringBootAgent.config;
 
+import com.simple.MySimpleSpringBootAgent.dto.LlmTelemetryEvent;
+import com.simple.MySimpleSpringBootAgent.jfr.LlmRoundTripEvent;
+import com.simple.MySimpleSpringBootAgent.service.LlmTelemetrySink;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
 import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
 import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Listener for all ChatModel interactions in the Locator Analyzer service
- * Provides centralized logging, monitoring, and debugging capabilities
  * Monitors ALL locator type analysis (ID, Name, ClassName, TagName, LinkText, CSS, XPath)
+ *
+ * Each round trip becomes a request event and a response (or error) event in
+ * LlmTelemetrySink - ids, sizes, token counts and durations, written off the request
+ * thread. Prompt and response text is attached only for sampled calls. While a JFR
+ * recording enables it, each round trip is also a locator.LlmRoundTrip event.
+ *
+ * Metrics (one sample per LLM round trip, i.e. per tool-calling step):
+ * - llm.request{model, finish_reason}: latency; finish_reason is "error" for failed calls
+ * - llm.tokens{model, type=input|output}: token usage reported by the provider
+ * - llm.errors{model, exception}: failed calls
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class LocatorAnalyzerChatModelListener implements ChatModelListener {
 
+    private static final String START_NANOS = "locator.llm.startNanos";
+    private static final String REQUEST_ID = "locator.llm.requestId";
+    private static final String SAMPLED = "locator.llm.sampled";
+    private static final String JFR_EVENT = "locator.llm.jfrEvent";
+
+    private final MeterRegistry meterRegistry;
+    private final LlmTelemetrySink telemetry;
+    private final AtomicLong requestSequence = new AtomicLong();
+
     @Override
     public void onRequest(ChatModelRequestContext requestContext) {
+        var attributes = requestContext.attributes();
         var request = requestContext.chatRequest();
-        var params = request.parameters();
-
-        log.info("=".repeat(80));
-        log.info("LLM REQUEST - Locator Analysis");
-        log.info("=".repeat(80));
-        log.info("Model: {}", params.modelName());
-        log.info("Messages: {}", request.messages().size());
-
-        request.messages().forEach(message -> {
-            String messageText = switch (message) {
-                case dev.langchain4j.data.message.UserMessage um -> um.singleText();
-                case dev.langchain4j.data.message.SystemMessage sm -> sm.text();
-                case dev.langchain4j.data.message.AiMessage am -> am.text();
-                case dev.langchain4j.data.message.ToolExecutionResultMessage tm -> tm.text();
-                default -> message.toString();
-            };
-            log.info("  - {}: {}", message.type(), truncate(messageText, 200));
-        });
-
-        if (params.temperature() != null) {
-            log.info("Temperature: {}", params.temperature());
+        String requestId = "llm-" + requestSequence.incrementAndGet();
+        boolean sampled = telemetry.samplePayload();
+        attributes.put(START_NANOS, System.nanoTime());
+        attributes.put(REQUEST_ID, requestId);
+        attributes.put(SAMPLED, sampled);
+
+        int promptChars = 0;
+        for (ChatMessage message : request.messages()) {
+            String text = messageText(message);
+            promptChars += text != null ? text.length() : 0;
         }
-        if (params.maxOutputTokens() != null) {
-            log.info("Max Tokens: {}", params.maxOutputTokens());
+
+        String model = modelName(request);
+        LlmRoundTripEvent jfrEvent = LlmRoundTripEvent.startIfEnabled(
+                requestId, model, request.messages().size(), promptChars);
+        if (jfrEvent != null) {
+            attributes.put(JFR_EVENT, jfrEvent);
         }
 
-        log.info("=".repeat(80));
+        telemetry.record(LlmTelemetryEvent.builder()
+                .type("request")
+                .timestamp(System.currentTimeMillis())
+                .requestId(requestId)
+                .model(model)
+                .messageCount(request.messages().size())
+                .promptChars(promptChars)
+                .payload(sampled ? telemetry.capPayload(transcript(request)) : null)
+                .build());
     }
 
     @Override
     public void onResponse(ChatModelResponseContext responseContext) {
+        var attributes = responseContext.attributes();
         var response = responseContext.chatResponse();
+        var metadata = response.metadata();
+        String model = metadata != null && metadata.modelName() != null
+                ? metadata.modelName()
+                : modelName(responseContext.chatRequest());
+        String finishReason = metadata != null && metadata.finishReason() != null
+                ? metadata.finishReason().name().toLowerCase(Locale.ROOT)
+                : "unknown";
+        Integer inputTokens = metadata != null && metadata.tokenUsage() != null
+                ? metadata.tokenUsage().inputTokenCount() : null;
+        Integer outputTokens = metadata != null && metadata.tokenUsage() != null
+                ? metadata.tokenUsage().outputTokenCount() : null;
+        Long durationNanos = elapsedNanos(attributes.get(START_NANOS));
+
+        recordLatency(durationNanos, model, finishReason);
+        recordTokens(model, "input", inputTokens);
+        recordTokens(model, "output", outputTokens);
 
-        log.info("=".repeat(80));
-        log.info("LLM RESPONSE - Locator Analysis");
-        log.info("=".repeat(80));
+        AiMessage aiMessage = response.aiMessage();
+        String text = aiMessage != null ? aiMessage.text() : null;
+        int toolRequests = aiMessage != null && aiMessage.hasToolExecutionRequests()
+                ? aiMessage.toolExecutionRequests().size() : 0;
+        if (attributes.get(JFR_EVENT) instanceof LlmRoundTripEvent jfrEvent) {
+            jfrEvent.finish(finishReason, inputTokens, outputTokens, toolRequests);
+        }
+
+        telemetry.record(LlmTelemetryEvent.builder()
+                .type("response")
+                .timestamp(System.currentTimeMillis())
+                .requestId((String) attributes.get(REQUEST_ID))
+                .model(model)
+                .responseChars(text != null ? text.length() : 0)
+                .toolRequests(toolRequests)
+                .inputTokens(inputTokens)
+                .outputTokens(outputTokens)
+                .finishReason(finishReason)
+                .durationMillis(toMillis(durationNanos))
+                .payload(Boolean.TRUE.equals(attributes.get(SAMPLED)) && aiMessage != null
+                        ? telemetry.capPayload(aiMessage.toString()) : null)
+                .build());
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        var attributes = errorContext.attributes();
+        Throwable error = errorContext.error();
+        String model = modelName(errorContext.chatRequest());
+        Long durationNanos = elapsedNanos(attributes.get(START_NANOS));
 
-        if (response.aiMessage() != null) {
-            log.info("Response: {}", truncate(response.aiMessage().text(), 500));
+        recordLatency(durationNanos, model, "error");
+        meterRegistry.counter("llm.errors",
+                "model", model,
+                "exception", error.getClass().getSimpleName()).increment();
+        if (attributes.get(JFR_EVENT) instanceof LlmRoundTripEvent jfrEvent) {
+            jfrEvent.fail(error);
         }
 
-        if (response.metadata() != null && response.metadata().tokenUsage() != null) {
-            var tokenUsage = response.metadata().tokenUsage();
-            log.info("Token Usage:");
-            log.info("  - Input: {}", tokenUsage.inputTokenCount());
-            log.info("  - Output: {}", tokenUsage.outputTokenCount());
-            log.info("  - Total: {}", tokenUsage.totalTokenCount());
+        telemetry.record(LlmTelemetryEvent.builder()
+                .type("error")
+                .timestamp(System.currentTimeMillis())
+                .requestId((String) attributes.get(REQUEST_ID))
+                .model(model)
+                .durationMillis(toMillis(durationNanos))
+                .error(error.getClass().getSimpleName() + ": " + error.getMessage())
+                .build());
+
+        // Failures stay visible in the application log; the stack trace only at debug
+        log.warn("LLM call {} to {} failed: {}", attributes.get(REQUEST_ID), model, error.getMessage());
+        log.debug("LLM call failure", error);
+    }
+
+    private void recordLatency(Long durationNanos, String model, String finishReason) {
+        if (durationNanos != null) {
+            Timer.builder("llm.request")
+                    .tag("model", model)
+                    .tag("finish_reason", finishReason)
+                    .register(meterRegistry)
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
         }
+    }
 
-        if (response.metadata() != null && response.metadata().finishReason() != null) {
-            log.info("Finish Reason: {}", response.metadata().finishReason());
+    private void recordTokens(String model, String type, Integer count) {
+        if (count != null) {
+            DistributionSummary.builder("llm.tokens")
+                    .baseUnit("tokens")
+                    .tag("model", model)
+                    .tag("type", type)
+                    .register(meterRegistry)
+                    .record(count);
         }
+    }
 
-        log.info("=".repeat(80));
+    private static Long elapsedNanos(Object startNanos) {
+        return startNanos instanceof Long start ? System.nanoTime() - start : null;
     }
 
-    @Override
-    public void onError(ChatModelErrorContext errorContext) {
-        log.error("=".repeat(80));
-        log.error("LLM ERROR - Locator Analysis");
-        log.error("=".repeat(80));
-        log.error("Request: {}", errorContext.chatRequest());
-        log.error("Error: {}", errorContext.error().getMessage(), errorContext.error());
-        log.error("=".repeat(80));
+    private static Long toMillis(Long nanos) {
+        return nanos != null ? TimeUnit.NANOSECONDS.toMillis(nanos) : null;
+    }
+
+    private static String modelName(ChatRequest request) {
+        return request != null && request.parameters() != null && request.parameters().modelName() != null
+                ? request.parameters().modelName()
+                : "unknown";
     }
 
     /**
-     * Truncate long strings for logging
+     * Sampled prompt: one "TYPE: text" line per message
      */
-    private String truncate(String text, int maxLength) {
-        if (text == null) {
-            return null;
+    private static String transcript(ChatRequest request) {
+        StringBuilder out = new StringBuilder();
+        for (ChatMessage message : request.messages()) {
+            out.append(message.type()).append(": ").append(messageText(message)).append('\n');
         }
-        if (text.length() <= maxLength) {
-            return text;
-        }
-        return text.substring(0, maxLength) + "... (truncated)";
+        return out.toString();
+    }
+
+    private static String messageText(ChatMessage message) {
+        return switch (message) {
+            case UserMessage um -> um.hasSingleText() ? um.singleText() : um.toString();
+            case SystemMessage sm -> sm.text();
+            case AiMessage am -> am.text();
+            case ToolExecutionResultMessage tm -> tm.text();
+            default -> message.toString();
+        };
     }
 }
@@ -0,0 +1,17 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Externalized configuration for checking suggested locators against the page before responding
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.verification")
+public class LocatorVerificationConfig {
+
+    private boolean enabled = true;
+    private boolean followUpWhenNoneValid = true; // re-run the analysis once when the element was reported found but no suggested locator matches the page
+}
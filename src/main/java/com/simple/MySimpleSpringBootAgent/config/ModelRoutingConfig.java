@@ -0,0 +1,43 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Externalized configuration for tiered model routing (LocatorModelRouter)
+ *
+ * Tiers are OpenAI-compatible chat endpoints, cheapest first. Disabled or without tiers,
+ * every analysis goes to the langchain4j.open-ai.chat-model.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.routing")
+public class ModelRoutingConfig {
+
+    private boolean enabled = false;
+    private List<Tier> tiers = new ArrayList<>();
+    private int minConfidence = 70; // answers below this confidence go to the next tier
+    private boolean escalateWhenNotFound = true; // elementFound=false goes to the next tier
+
+    @Data
+    public static class Tier {
+
+        private String name; // metrics tag; defaults to the model name
+        private String baseUrl;
+        private String apiKey = "not-needed";
+        private String modelName;
+        private Double temperature;
+        private Integer maxTokens;
+        private Duration timeout = Duration.ofSeconds(300);
+        private String tokenEncoding; // prompt budget vocabulary; blank = html.processing.token-encoding or the model's own
+
+        public String label() {
+            return name != null && !name.isBlank() ? name : modelName;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Externalized configuration for page sessions (baseline page + snapshots sent as deltas)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.page-sessions")
+public class PageSessionConfig {
+
+    private boolean enabled = true;
+    private long maxRetainedBytes = 256L * 1024 * 1024; // estimated heap of baselines (source, DOM, index) across all sessions
+    private Duration idleTimeout = Duration.ofMinutes(30);
+    private double maxReparsedFraction = 0.5; // reparse the whole page when edited subtrees exceed this share of it
+    private int maxEdits = 10_000;
+}
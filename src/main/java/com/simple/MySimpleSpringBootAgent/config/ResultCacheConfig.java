@@ -0,0 +1,21 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Externalized configuration for the persistent LLM answer cache
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.result-cache")
+public class ResultCacheConfig {
+
+    private boolean enabled = true;
+    private String path = "data/locator-result-cache.dat";
+    private Duration ttl = Duration.ofDays(7);
+    private long maxBytes = 64L * 1024 * 1024; // compaction threshold
+}
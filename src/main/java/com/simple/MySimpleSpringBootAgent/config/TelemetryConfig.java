@@ -0,0 +1,22 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Externalized configuration for structured LLM telemetry (LlmTelemetrySink)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "locator.telemetry")
+public class TelemetryConfig {
+
+    private boolean enabled = true;
+    private int bufferCapacity = 8192; // events held for the writer (rounded up to a power of two); overflow is dropped
+    private Duration flushInterval = Duration.ofMillis(500); // how often the writer drains the buffer
+    private double payloadSampleRate = 0.0; // fraction of LLM calls whose prompt/response text is captured
+    private int maxPayloadChars = 4000; // cap on captured text per event
+}
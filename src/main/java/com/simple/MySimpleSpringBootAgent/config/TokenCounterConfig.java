@@ -0,0 +1,39 @@
+package com.simple.MySimpleSpringBootAgent.config;
+
+import com.simple.MySimpleSpringBootAgent.service.TokenCounter;
+import com.simple.MySimpleSpringBootAgent.service.TokenCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Token counters for the configured chat models
+ *
+ * html.processing.token-encoding selects the vocabulary:
+ * - blank: each model's own encoding when jtokkit knows the model name, else cl100k_base
+ *   (local models such as Qwen or Llama use their own BPE vocabularies of similar density)
+ * - an encoding name (cl100k_base, o200k_base, p50k_base, r50k_base)
+ * - "heuristic": no vocabulary, see HeuristicTokenCounter
+ * Routing tiers can override it per model (locator.routing.tiers[n].token-encoding).
+ */
+@Slf4j
+@Configuration
+public class TokenCounterConfig {
+
+    @Bean
+    public TokenCounters tokenCounters(HtmlProcessingConfig config) {
+        return new TokenCounters(config.getTokenEncoding());
+    }
+
+    /**
+     * Counter for langchain4j.open-ai.chat-model, the default for HtmlUtilityService
+     */
+    @Bean
+    public TokenCounter tokenCounter(TokenCounters tokenCounters,
+                                     @Value("${langchain4j.open-ai.chat-model.model-name:}") String modelName) {
+        TokenCounter counter = tokenCounters.forModel(modelName);
+        log.info("Token budgeting uses {} for model '{}'", counter.name(), modelName);
+        return counter;
+    }
+}
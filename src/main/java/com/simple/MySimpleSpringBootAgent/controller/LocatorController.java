@@ -1,26 +1,47 @@
 package com.simple.MySimpleSpringBootAgent.controller;
 
-import com.simple.MySimpleSpringBootAgent.aiservice.LocatorAnalyzerAI;
-import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simple.MySimpleSpringBootAgent.dto.BatchLocatorAnalysisRequest;
 import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
 import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
-import com.simple.MySimpleSpringBootAgent.service.DomQueryTools;
+import com.simple.MySimpleSpringBootAgent.dto.ToolInvocationEvent;
+import com.simple.MySimpleSpringBootAgent.service.AnalysisStreamListener;
+import com.simple.MySimpleSpringBootAgent.service.LocatorAnalysisService;
 import com.simple.MySimpleSpringBootAgent.service.HtmlPreprocessor;
+import com.simple.MySimpleSpringBootAgent.service.LlmSaturatedException;
+import com.simple.MySimpleSpringBootAgent.service.LocatorBatchAnalysisService;
+import com.simple.MySimpleSpringBootAgent.service.LocatorMetrics;
+import com.simple.MySimpleSpringBootAgent.service.PageSourceDecoder;
+import com.simple.MySimpleSpringBootAgent.service.PageSourceException;
 import com.simple.MySimpleSpringBootAgent.service.LocatorRequestValidator;
 import com.simple.MySimpleSpringBootAgent.service.LocatorResponseMapper;
+import com.simple.MySimpleSpringBootAgent.service.LocatorStreamingAnalysisService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * REST Controller for general Selenium locator analysis
  * Supports ALL Selenium locator types: ID, Name, ClassName, TagName, LinkText, CSS, XPath
- * Analyzes failed locators and suggests alternatives using AI
+ * Analyzes failed locators and suggests alternatives (deterministic fast path, then AI)
  * 
  * Refactored to follow Single Responsibility Principle - only handles HTTP concerns
  */
@@ -30,11 +51,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LocatorController {
 
-    private final LocatorAnalyzerAI locatorAnalyzerAI;
+    private final LocatorAnalysisService analysisService;
+    private final LocatorBatchAnalysisService batchAnalysisService;
+    private final LocatorStreamingAnalysisService streamingAnalysisService;
     private final HtmlPreprocessor htmlPreprocessor;
-    private final DomQueryTools domQueryTools;
+    private final PageSourceDecoder pageSourceDecoder;
     private final LocatorRequestValidator requestValidator;
     private final LocatorResponseMapper responseMapper;
+    private final ObjectMapper objectMapper;
+    private final LocatorMetrics metrics;
 
     /**
      * Health check endpoint
@@ -100,58 +125,310 @@ public class LocatorController {
 
         try {
             // Validate request using dedicated validator
-            if (!requestValidator.isValid(request)) {
-                String errorMessage = String.join("; ", requestValidator.validate(request));
+            List<String> errors = metrics.timeStage("validation", () -> requestValidator.validate(request));
+            if (!errors.isEmpty()) {
+                String errorMessage = String.join("; ", errors);
                 return ResponseEntity.badRequest()
                         .body(responseMapper.createErrorResponse(errorMessage));
             }
 
-            // Apply HTML preprocessing - returns Jsoup Document
-            Document doc = htmlPreprocessor.preprocessHtml(
-                    request.getHtmlContent(),
-                    request.getLocator()
-            );
+            // Fast path, then LLM analysis with tool calling
+            LocatorAnalysisResponse response = analysisService.analyze(request);
 
-            log.info("HTML preprocessed: {} -> {} bytes",
-                    request.getHtmlContent().length(),
-                    doc.html().length());
+            log.info("Locator analysis: elementFound={}, recommended={} (type={}), confidence={}",
+                    response.getElementFound(),
+                    response.getRecommendedLocator(),
+                    response.getRecommendedLocatorType(),
+                    response.getConfidence());
 
-            // Set document for tool querying (thread-safe via ThreadLocal)
-            domQueryTools.setDocument(doc);
-
-            try {
-                // Call AI service with tool calling enabled
-                String pageUrl = request.getPageUrl() != null ? request.getPageUrl() : "";
-                String elementDescription = request.getElementDescription() != null
-                        ? request.getElementDescription()
-                        : "target element";
-
-                LocatorAnalysisResult aiResult = locatorAnalyzerAI.analyzeLocator(
-                        request.getLocator(),
-                        elementDescription,
-                        pageUrl
-                );
-
-                // Convert to response format using dedicated mapper
-                LocatorAnalysisResponse response = responseMapper.toResponse(aiResult);
-
-                log.info("Locator analysis: elementFound={}, recommended={} (type={}), confidence={}",
-                        response.getElementFound(),
-                        response.getRecommendedLocator(),
-                        response.getRecommendedLocatorType(),
-                        response.getConfidence());
-
-                return ResponseEntity.ok(response);
-
-            } finally {
-                // Clean up thread-local document
-                domQueryTools.clearDocument();
-            }
+            return ResponseEntity.ok(response);
 
+        } catch (LlmSaturatedException e) {
+            metrics.recordError("analyze", e);
+            return saturated(e);
         } catch (Exception e) {
+            metrics.recordError("analyze", e);
             log.error("Error processing locator analysis request: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError()
                     .body(responseMapper.createErrorResponse("Internal server error: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Analyze a failed locator and stream progress as Server-Sent Events
+     * POST /api/locators/analyze/stream (same body as /analyze)
+     *
+     * Events:
+     * - queued: sent as soon as the request is accepted; the analysis runs in the background
+     * - tool:   {"tool", "arguments", "matchCount"} for each DomQueryTools call
+     * - token:  partial LLM output
+     * - result: the final LocatorAnalysisResponse (sent immediately for fast-path/cached answers)
+     * - error:  error LocatorAnalysisResponse
+     * Closing the connection cancels the analysis and the LLM stream.
+     */
+    @PostMapping(value = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeStream(@RequestBody LocatorAnalysisRequest request) {
+        log.info("Received streaming analysis request for locator: {}", request.getLocator());
+
+        SseEmitter emitter = new SseEmitter();
+        SseAnalysisListener listener = new SseAnalysisListener(emitter);
+        emitter.onCompletion(listener::cancel);
+        emitter.onTimeout(listener::cancel);
+        emitter.onError(error -> listener.cancel());
+
+        List<String> errors = metrics.timeStage("validation", () -> requestValidator.validate(request));
+        if (!errors.isEmpty()) {
+            listener.onError(responseMapper.createErrorResponse(String.join("; ", errors)));
+            return emitter;
+        }
+
+        try {
+            streamingAnalysisService.analyze(request, listener);
+        } catch (Exception e) {
+            metrics.recordError("stream", e);
+            log.error("Error queueing streamed analysis: {}", e.getMessage(), e);
+            listener.onError(responseMapper.createErrorResponse("Internal server error: " + e.getMessage()));
+        }
+        return emitter;
+    }
+
+    /**
+     * Analyze a failed locator against an uploaded page source file
+     * POST /api/locators/analyze/upload (multipart/form-data)
+     *
+     * The "page" part may be plain HTML or gzip/deflate compressed (detected from magic bytes).
+     * It is decoded and parsed as a stream - the page never becomes a String.
+     */
+    @PostMapping(value = "/analyze/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<LocatorAnalysisResponse> analyzeUpload(
+            @RequestPart("page") MultipartFile page,
+            @RequestParam("locator") String locator,
+            @RequestParam(value = "elementDescription", required = false) String elementDescription,
+            @RequestParam(value = "pageUrl", required = false) String pageUrl,
+            @RequestParam(value = "charset", required = false) String charset,
+            @RequestParam(value = "encoding", required = false) String encoding) {
+        log.info("Received upload analysis request for locator: {} ({} bytes)", locator, page.getSize());
+
+        try (InputStream in = page.getInputStream()) {
+            return analyzeUploaded(pageSourceDecoder.readWireBytes(in), encoding, charset,
+                    locator, elementDescription, pageUrl);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse("Cannot read upload: " + e.getMessage()));
+        } catch (PageSourceException e) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Analyze a failed locator against a raw page source request body
+     * POST /api/locators/analyze/raw?locator=...
+     *
+     * Send the page as text/html or application/octet-stream, optionally with
+     * Content-Encoding: gzip | deflate. The charset is taken from Content-Type when given.
+     */
+    @PostMapping(value = "/analyze/raw", consumes = {MediaType.TEXT_HTML_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<LocatorAnalysisResponse> analyzeRaw(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) MediaType contentType,
+            @RequestParam("locator") String locator,
+            @RequestParam(value = "elementDescription", required = false) String elementDescription,
+            @RequestParam(value = "pageUrl", required = false) String pageUrl) {
+        log.info("Received raw analysis request for locator: {}", locator);
+
+        String charset = contentType != null && contentType.getCharset() != null
+                ? contentType.getCharset().name()
+                : null;
+        try {
+            return analyzeUploaded(pageSourceDecoder.readWireBytes(body), contentEncoding, charset,
+                    locator, elementDescription, pageUrl);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse("Cannot read request body: " + e.getMessage()));
+        } catch (PageSourceException e) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse(e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<LocatorAnalysisResponse> analyzeUploaded(byte[] wireBytes, String encoding, String charset,
+                                                                     String locator, String elementDescription,
+                                                                     String pageUrl) {
+        LocatorAnalysisRequest request = LocatorAnalysisRequest.builder()
+                .locator(locator)
+                .elementDescription(elementDescription)
+                .pageUrl(pageUrl)
+                .build();
+        List<String> errors = metrics.timeStage("validation",
+                () -> requestValidator.validateUpload(request, wireBytes.length));
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse(String.join("; ", errors)));
+        }
+
+        try {
+            Document doc = htmlPreprocessor.preprocessUpload(wireBytes, encoding, charset, locator);
+            LocatorAnalysisResponse response = analysisService.analyze(doc, locator, elementDescription, pageUrl);
+
+            log.info("Locator analysis: elementFound={}, recommended={} (type={}), confidence={}",
+                    response.getElementFound(),
+                    response.getRecommendedLocator(),
+                    response.getRecommendedLocatorType(),
+                    response.getConfidence());
+
+            return ResponseEntity.ok(response);
+
+        } catch (PageSourceException e) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse(e.getMessage()));
+        } catch (LlmSaturatedException e) {
+            metrics.recordError("upload", e);
+            return saturated(e);
+        } catch (Exception e) {
+            metrics.recordError("upload", e);
+            log.error("Error processing uploaded locator analysis request: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(responseMapper.createErrorResponse("Internal server error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 503 for an analysis turned away by the LLM concurrency limit
+     */
+    private ResponseEntity<LocatorAnalysisResponse> saturated(LlmSaturatedException e) {
+        log.warn("Locator analysis rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(responseMapper.createErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * Analyze many failed locators against one page
+     * POST /api/locators/analyze/batch
+     *
+     * The page is parsed once; analyses run concurrently (locator.batch.max-parallelism) and the
+     * response is a JSON array streamed in completion order - each element carries its request index.
+     */
+    @PostMapping("/analyze/batch")
+    public ResponseEntity<StreamingResponseBody> analyzeBatch(@RequestBody BatchLocatorAnalysisRequest request) {
+        List<String> errors = metrics.timeStage("validation", () -> requestValidator.validate(request));
+        if (!errors.isEmpty()) {
+            LocatorAnalysisResponse error = responseMapper.createErrorResponse(String.join("; ", errors));
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> writeJson(out, error));
+        }
+
+        log.info("Received batch analysis request for {} locators", request.getLocators().size());
+
+        StreamingResponseBody body = out -> {
+            out.write('[');
+            boolean[] first = {true};
+            batchAnalysisService.analyzeBatch(request, item -> {
+                try {
+                    if (!first[0]) {
+                        out.write(',');
+                    }
+                    first[0] = false;
+                    writeJson(out, item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.write(']');
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private void writeJson(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Adapts analysis progress to SSE events; a failed send means the client is gone
+     */
+    private static final class SseAnalysisListener implements AnalysisStreamListener {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final List<Runnable> cancelActions = new CopyOnWriteArrayList<>();
+
+        private SseAnalysisListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onQueued() {
+            send("queued", "");
+        }
+
+        @Override
+        public void onToolInvocation(ToolInvocationEvent event) {
+            send("tool", event);
+        }
+
+        @Override
+        public void onToken(String token) {
+            send("token", token);
+        }
+
+        @Override
+        public void onResult(LocatorAnalysisResponse response) {
+            if (send("result", response)) {
+                emitter.complete();
+            }
+        }
+
+        @Override
+        public void onError(LocatorAnalysisResponse errorResponse) {
+            if (send("error", errorResponse)) {
+                emitter.complete();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        @Override
+        public void onCancel(Runnable action) {
+            cancelActions.add(action);
+            if (cancelled.get() && cancelActions.remove(action)) {
+                action.run();
+            }
+        }
+
+        private void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                for (Runnable action : cancelActions) {
+                    if (cancelActions.remove(action)) {
+                        action.run();
+                    }
+                }
+            }
+        }
+
+        private boolean send(String name, Object data) {
+            if (cancelled.get()) {
+                return false;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("SSE client gone, dropping '{}' event: {}", name, e.getMessage());
+                cancel();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.simple.MySimpleSpringBootAgent.controller;
+
+import com.simple.MySimpleSpringBootAgent.dto.HealingHistoryEntry;
+import com.simple.MySimpleSpringBootAgent.service.LocatorHealingHistory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * REST Controller for the locator healing history
+ *
+ * GET    /api/locators/history   - export entries, most recently verified first; ?pageUrl= limits to that page's pattern
+ * DELETE /api/locators/history   - prune entries not verified within ?olderThan= (e.g. 30d, P2W; default
+ *                                  locator.healing-history.prune-after) and compact the file
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/locators/history")
+@RequiredArgsConstructor
+public class LocatorHistoryController {
+
+    private final LocatorHealingHistory healingHistory;
+
+    /**
+     * Export the healing history
+     */
+    @GetMapping
+    public List<HealingHistoryEntry> export(@RequestParam(required = false) String pageUrl) {
+        return healingHistory.export(pageUrl);
+    }
+
+    /**
+     * Prune stale entries
+     * Returns the number of pruned and remaining entries, or 400 for an unreadable olderThan
+     */
+    @DeleteMapping
+    public ResponseEntity<LocatorHealingHistory.PruneResult> prune(@RequestParam(required = false) String olderThan) {
+        Duration age;
+        try {
+            age = olderThan != null ? DurationStyle.detectAndParse(olderThan) : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected prune request with olderThan={}", olderThan);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(healingHistory.prune(age));
+    }
+}
@@ -0,0 +1,81 @@
+package com.simple.MySimpleSpringBootAgent.controller;
+
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorJobResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorJobStatus;
+import com.simple.MySimpleSpringBootAgent.service.JobRejectedException;
+import com.simple.MySimpleSpringBootAgent.service.LocatorJobService;
+import com.simple.MySimpleSpringBootAgent.service.LocatorRequestValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * REST Controller for asynchronous locator analysis jobs
+ * For clients whose HTTP timeouts are shorter than a full LLM tool-calling conversation
+ *
+ * POST /api/locators/jobs         - queue an analysis, returns 202 with the job id
+ * GET  /api/locators/jobs/{id}    - poll; ?waitSeconds=N long-polls until the job finishes
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/locators/jobs")
+@RequiredArgsConstructor
+public class LocatorJobController {
+
+    private final LocatorJobService jobService;
+    private final LocatorRequestValidator requestValidator;
+
+    /**
+     * Queue a locator analysis
+     * Returns 202 Accepted, or 503 with Retry-After when the queue is full
+     */
+    @PostMapping
+    public ResponseEntity<LocatorJobResponse> submit(@RequestBody LocatorAnalysisRequest request) {
+        log.info("Received analysis job for locator: {}", request.getLocator());
+
+        if (!requestValidator.isValid(request)) {
+            return ResponseEntity.badRequest()
+                    .body(LocatorJobResponse.builder()
+                            .error(String.join("; ", requestValidator.validate(request)))
+                            .build());
+        }
+
+        try {
+            LocatorJobResponse job = jobService.submit(request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/locators/jobs/" + job.getJobId()))
+                    .body(job);
+
+        } catch (JobRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(LocatorJobResponse.builder().error(e.getMessage()).build());
+        }
+    }
+
+    /**
+     * Job status and, once finished, its result
+     *
+     * @param waitSeconds Long-poll: wait up to this many seconds for the job to finish (0 = return immediately)
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<LocatorJobResponse> get(@PathVariable String jobId,
+                                                  @RequestParam(defaultValue = "0") long waitSeconds) {
+        return jobService.get(jobId, Duration.ofSeconds(Math.max(0, waitSeconds)))
+                .map(job -> {
+                    boolean finished = job.getStatus() == LocatorJobStatus.COMPLETED
+                            || job.getStatus() == LocatorJobStatus.FAILED;
+                    return finished
+                            ? ResponseEntity.ok(job)
+                            : ResponseEntity.accepted().body(job);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
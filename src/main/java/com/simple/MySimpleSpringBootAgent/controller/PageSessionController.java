@@ -0,0 +1,128 @@
+package com.simple.MySimpleSpringBootAgent.controller;
+
+import com.simple.MySimpleSpringBootAgent.dto.DeltaAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.PageSessionRequest;
+import com.simple.MySimpleSpringBootAgent.dto.PageSessionResponse;
+import com.simple.MySimpleSpringBootAgent.service.LlmSaturatedException;
+import com.simple.MySimpleSpringBootAgent.service.LocatorAnalysisService;
+import com.simple.MySimpleSpringBootAgent.service.LocatorMetrics;
+import com.simple.MySimpleSpringBootAgent.service.LocatorRequestValidator;
+import com.simple.MySimpleSpringBootAgent.service.LocatorResponseMapper;
+import com.simple.MySimpleSpringBootAgent.service.PageSessionService;
+import com.simple.MySimpleSpringBootAgent.service.StaleBaselineException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * REST Controller for page sessions: register a page once, then analyze snapshots sent as edits
+ *
+ * POST   /api/locators/sessions                - register a baseline page, returns 201 with sessionId and baseHash
+ * POST   /api/locators/sessions/{id}/analyze   - analyze a failed locator against baseline + edits
+ * DELETE /api/locators/sessions/{id}           - end the session
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/locators/sessions")
+@RequiredArgsConstructor
+public class PageSessionController {
+
+    private final PageSessionService sessionService;
+    private final LocatorAnalysisService analysisService;
+    private final LocatorRequestValidator requestValidator;
+    private final LocatorResponseMapper responseMapper;
+    private final LocatorMetrics metrics;
+
+    /**
+     * Register a baseline page
+     * Returns 201 Created, or 404 when page sessions are disabled
+     */
+    @PostMapping
+    public ResponseEntity<PageSessionResponse> register(@RequestBody PageSessionRequest request) {
+        if (request == null || !StringUtils.hasText(request.getHtmlContent())) {
+            return ResponseEntity.badRequest()
+                    .body(PageSessionResponse.builder().error("HTML content is required").build());
+        }
+
+        return sessionService.register(request.getHtmlContent())
+                .map(session -> ResponseEntity.created(URI.create("/api/locators/sessions/" + session.getSessionId()))
+                        .body(session))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(PageSessionResponse.builder().error("Page sessions are disabled").build()));
+    }
+
+    /**
+     * Analyze a failed locator against the session baseline with the request's edits applied
+     * Returns 404 for an unknown or expired session (register the page again), 409 when the
+     * edits were made against another baseline
+     */
+    @PostMapping("/{sessionId}/analyze")
+    public ResponseEntity<LocatorAnalysisResponse> analyze(@PathVariable String sessionId,
+                                                           @RequestBody DeltaAnalysisRequest request) {
+        log.info("Received session analysis request for locator: {}", request != null ? request.getLocator() : null);
+
+        List<String> errors = requestValidator.validate(request);
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse(String.join("; ", errors)));
+        }
+
+        try {
+            Optional<Document> doc = sessionService.snapshot(sessionId, request.getBaseHash(), request.getEdits(),
+                    request.getLocator());
+            if (doc.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(responseMapper.createErrorResponse("Unknown or expired session " + sessionId));
+            }
+
+            LocatorAnalysisResponse response = analysisService.analyze(doc.get(), request.getLocator(),
+                    request.getElementDescription(), request.getPageUrl());
+
+            log.info("Locator analysis: elementFound={}, recommended={} (type={}), confidence={}",
+                    response.getElementFound(),
+                    response.getRecommendedLocator(),
+                    response.getRecommendedLocatorType(),
+                    response.getConfidence());
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(responseMapper.createErrorResponse(e.getMessage()));
+        } catch (StaleBaselineException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(responseMapper.createErrorResponse(e.getMessage()));
+        } catch (LlmSaturatedException e) {
+            metrics.recordError("session", e);
+            log.warn("Locator analysis rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(responseMapper.createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            metrics.recordError("session", e);
+            log.error("Error processing session locator analysis request: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(responseMapper.createErrorResponse("Internal server error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * End a session
+     */
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> close(@PathVariable String sessionId) {
+        return sessionService.close(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One element of the streamed batch response
+ * Items are emitted in completion order; index refers to the position in the request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLocatorAnalysisItem {
+
+    /**
+     * Position of the locator in the request's locators list
+     */
+    private int index;
+
+    /**
+     * The failed locator this item answers
+     */
+    private String locator;
+
+    /**
+     * Analysis result for this locator
+     */
+    private LocatorAnalysisResponse response;
+
+    /**
+     * Time spent on this locator in milliseconds
+     */
+    private long elapsedMs;
+}
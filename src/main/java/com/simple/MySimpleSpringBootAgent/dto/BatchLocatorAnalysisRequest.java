@@ -0,0 +1,34 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for analyzing many failed locators against a single page
+ * The page is parsed and preprocessed once for all locators
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLocatorAnalysisRequest {
+
+    /**
+     * The HTML content of the page, shared by all locators
+     */
+    private String htmlContent;
+
+    /**
+     * Current page URL (optional, for context)
+     */
+    private String pageUrl;
+
+    /**
+     * Failed locators with their element descriptions
+     */
+    private List<LocatorQuery> locators;
+}
@@ -0,0 +1,43 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO analyzing a failed locator against a snapshot sent as edits to the session baseline
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeltaAnalysisRequest {
+
+    /**
+     * Content hash of the baseline the edits are relative to (from the session registration)
+     */
+    private String baseHash;
+
+    /**
+     * Changes against the baseline source, in source order and not overlapping; empty = the baseline itself
+     */
+    private List<DomEdit> edits;
+
+    /**
+     * The locator that failed (XPath, CSS selector, etc.)
+     */
+    private String locator;
+
+    /**
+     * Current page URL (optional, for context)
+     */
+    private String pageUrl;
+
+    /**
+     * Description of the target element (e.g., "search box", "login button")
+     */
+    private String elementDescription;
+}
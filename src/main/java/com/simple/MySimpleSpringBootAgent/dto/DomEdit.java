@@ -0,0 +1,32 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One change of a page snapshot relative to its session's baseline page source
+ * Offsets are UTF-16 code units into the baseline source (Java / JavaScript string indexes)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DomEdit {
+
+    /**
+     * Start of the replaced range (inclusive)
+     */
+    private int start;
+
+    /**
+     * End of the replaced range (exclusive); equal to start for an insertion
+     */
+    private int end;
+
+    /**
+     * Replacement text; empty for a deletion
+     */
+    private String text;
+}
@@ -0,0 +1,53 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One healed locator: the replacement that worked for a failed locator on a family of pages
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealingHistoryEntry {
+
+    /**
+     * Page URL pattern: host and path, with id-like path segments replaced by *
+     */
+    private String pageUrlPattern;
+
+    /**
+     * The failed locator, canonicalized
+     */
+    private String failedLocator;
+
+    /**
+     * Replacement locator type (ID, NAME, CLASS_NAME, TAG_NAME, LINK_TEXT, PARTIAL_LINK_TEXT, CSS_SELECTOR, XPATH)
+     */
+    private String replacementType;
+
+    /**
+     * The replacement locator string
+     */
+    private String replacement;
+
+    /**
+     * Number of requests answered from this entry
+     */
+    private long hitCount;
+
+    /**
+     * When the replacement was first recorded
+     */
+    private Instant firstSeenAt;
+
+    /**
+     * When the replacement last resolved uniquely on a page
+     */
+    private Instant lastVerifiedAt;
+}
@@ -0,0 +1,75 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Structured telemetry record of one LLM round trip (request, response or error)
+ * Written as one JSON line by LlmTelemetrySink; absent fields are omitted
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LlmTelemetryEvent {
+
+    /**
+     * request, response or error
+     */
+    private String type;
+
+    /**
+     * Epoch milliseconds when the event was recorded
+     */
+    private long timestamp;
+
+    /**
+     * Correlates the request event with its response or error
+     */
+    private String requestId;
+
+    private String model;
+
+    /**
+     * Messages sent (request events)
+     */
+    private Integer messageCount;
+
+    /**
+     * Characters of message text sent (request events)
+     */
+    private Integer promptChars;
+
+    /**
+     * Characters of text received (response events)
+     */
+    private Integer responseChars;
+
+    /**
+     * Tool calls requested by the model (response events)
+     */
+    private Integer toolRequests;
+
+    private Integer inputTokens;
+    private Integer outputTokens;
+    private String finishReason;
+
+    /**
+     * Round-trip time in milliseconds (response and error events)
+     */
+    private Long durationMillis;
+
+    /**
+     * Exception class and message (error events)
+     */
+    private String error;
+
+    /**
+     * Prompt or response text, only for sampled calls (locator.telemetry.payload-sample-rate)
+     */
+    private String payload;
+}
@@ -97,6 +97,16 @@ public class LocatorAnalysisResponse {
      */
     private String warnings;
 
+    /**
+     * Suggested locators checked against the page, most robust first
+     */
+    private List<LocatorVerification> verifiedLocators;
+
+    /**
+     * Suggested locators dropped because they match nothing on the page or do not parse
+     */
+    private List<LocatorVerification> rejectedLocators;
+
     /**
      * Full LLM response for debugging
      */
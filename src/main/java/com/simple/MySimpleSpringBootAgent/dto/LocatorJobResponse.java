@@ -0,0 +1,41 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Status of an asynchronous analysis job
+ * result is present once the job is COMPLETED, error once it FAILED
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LocatorJobResponse {
+
+    private String jobId;
+
+    private LocatorJobStatus status;
+
+    private Instant submittedAt;
+
+    private Instant startedAt;
+
+    private Instant completedAt;
+
+    /**
+     * Analysis result (COMPLETED only)
+     */
+    private LocatorAnalysisResponse result;
+
+    /**
+     * Failure or rejection reason
+     */
+    private String error;
+}
@@ -0,0 +1,11 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+/**
+ * Lifecycle of an asynchronous analysis job
+ */
+public enum LocatorJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
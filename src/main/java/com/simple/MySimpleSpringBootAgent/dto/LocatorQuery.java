@@ -0,0 +1,26 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One failed locator inside a batch analysis request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocatorQuery {
+
+    /**
+     * The locator that failed (XPath, CSS selector, etc.)
+     */
+    private String locator;
+
+    /**
+     * Description of the target element (e.g., "search box", "login button")
+     */
+    private String elementDescription;
+}
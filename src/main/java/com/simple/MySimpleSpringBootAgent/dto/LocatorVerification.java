@@ -0,0 +1,49 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One suggested locator checked against the analyzed page
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LocatorVerification {
+
+    /**
+     * Locator type (ID, NAME, CLASS_NAME, TAG_NAME, LINK_TEXT, PARTIAL_LINK_TEXT, CSS_SELECTOR, XPATH)
+     */
+    private String type;
+
+    /**
+     * The locator string
+     */
+    private String locator;
+
+    /**
+     * Number of elements the locator matches on the page
+     */
+    private int matchCount;
+
+    /**
+     * Whether the locator matches exactly one element
+     */
+    private boolean unique;
+
+    /**
+     * Robustness score 0-100: locator type, anchoring on stable attributes, penalties for
+     * positions, absolute paths, generated-looking values and ambiguity
+     */
+    private int robustness;
+
+    /**
+     * Why the locator could not be evaluated (invalid syntax, compound class name, ...)
+     */
+    private String error;
+}
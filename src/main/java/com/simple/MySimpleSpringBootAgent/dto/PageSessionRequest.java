@@ -0,0 +1,21 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request DTO registering a baseline page for a session
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageSessionRequest {
+
+    /**
+     * The baseline HTML content of the page (driver.getPageSource())
+     */
+    private String htmlContent;
+}
@@ -0,0 +1,40 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A registered page session
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PageSessionResponse {
+
+    private String sessionId;
+
+    /**
+     * Content hash of the baseline source; snapshots name it so edits are never applied to another page
+     */
+    private String baseHash;
+
+    /**
+     * Length of the baseline source, the coordinate space of DomEdit offsets
+     */
+    private Integer sourceLength;
+
+    /**
+     * Elements of the preprocessed baseline
+     */
+    private Integer elements;
+
+    /**
+     * Rejection reason
+     */
+    private String error;
+}
@@ -0,0 +1,31 @@
+package com.simple.MySimpleSpringBootAgent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress event for one DomQueryTools call made by the LLM during a streamed analysis
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolInvocationEvent {
+
+    /**
+     * Tool method name (e.g. findByXPath)
+     */
+    private String tool;
+
+    /**
+     * Tool arguments as sent by the LLM (JSON object)
+     */
+    private String arguments;
+
+    /**
+     * Number of matching elements, or -1 when the tool reported an error
+     */
+    private int matchCount;
+}
@@ -0,0 +1,51 @@
+package com.simple.MySimpleSpringBootAgent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one DomQueryTools call made by the LLM
+ */
+@Name("locator.DomTool")
+@Label("DOM Tool Call")
+@Category({"Locator Analyzer", "Tools"})
+@Description("A DomQueryTools invocation during an LLM conversation")
+@StackTrace(false)
+public class DomToolEvent extends Event {
+
+    @Label("Tool")
+    private String tool;
+
+    @Label("Argument Length")
+    @Description("Characters of the tool arguments")
+    private int argumentChars;
+
+    @Label("Result Count")
+    @Description("Matching elements, or -1 when the tool reported an error")
+    private int resultCount;
+
+    /**
+     * Start timing a tool call
+     */
+    public static DomToolEvent start(String tool) {
+        DomToolEvent event = new DomToolEvent();
+        event.tool = tool;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commit the event when a recording wants it
+     */
+    public void finish(String argument, int resultCount) {
+        if (shouldCommit()) {
+            this.argumentChars = argument != null ? argument.length() : 0;
+            this.resultCount = resultCount;
+            commit();
+        }
+    }
+}
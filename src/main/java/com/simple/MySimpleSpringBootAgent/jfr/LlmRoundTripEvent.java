@@ -0,0 +1,91 @@
+package com.simple.MySimpleSpringBootAgent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one LLM round trip, from the chat model listener's request to its response or error
+ * Streaming responses commit on the thread that receives the last token
+ */
+@Name("locator.LlmRoundTrip")
+@Label("LLM Round Trip")
+@Category({"Locator Analyzer", "LLM"})
+@Description("One chat model request/response, i.e. one step of a tool-calling conversation")
+@StackTrace(false)
+public class LlmRoundTripEvent extends Event {
+
+    @Label("Request Id")
+    @Description("Same id as in the locator.telemetry log")
+    private String requestId;
+
+    @Label("Model")
+    private String model;
+
+    @Label("Messages")
+    private int messageCount;
+
+    @Label("Prompt Length")
+    @Description("Characters of message text sent")
+    private int promptChars;
+
+    @Label("Finish Reason")
+    @Description("Provider finish reason, or error")
+    private String finishReason;
+
+    @Label("Input Tokens")
+    private int inputTokens;
+
+    @Label("Output Tokens")
+    private int outputTokens;
+
+    @Label("Tool Requests")
+    private int toolRequests;
+
+    @Label("Error")
+    private String error;
+
+    /**
+     * Start timing a round trip, or null when no recording wants these events
+     * (the listener keeps the event in the request attributes until the response)
+     */
+    public static LlmRoundTripEvent startIfEnabled(String requestId, String model, int messageCount, int promptChars) {
+        LlmRoundTripEvent event = new LlmRoundTripEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.requestId = requestId;
+        event.model = model;
+        event.messageCount = messageCount;
+        event.promptChars = promptChars;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commit a completed round trip
+     */
+    public void finish(String finishReason, Integer inputTokens, Integer outputTokens, int toolRequests) {
+        if (shouldCommit()) {
+            this.finishReason = finishReason;
+            this.inputTokens = inputTokens != null ? inputTokens : 0;
+            this.outputTokens = outputTokens != null ? outputTokens : 0;
+            this.toolRequests = toolRequests;
+            commit();
+        }
+    }
+
+    /**
+     * Commit a failed round trip
+     */
+    public void fail(Throwable error) {
+        if (shouldCommit()) {
+            this.finishReason = "error";
+            this.error = error.getClass().getSimpleName() + ": " + error.getMessage();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.simple.MySimpleSpringBootAgent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one locator analysis, from the preprocessed document to the response
+ * Preprocessing of the page precedes it as locator.Preprocessing events on the same thread
+ */
+@Name("locator.Analysis")
+@Label("Locator Analysis")
+@Category({"Locator Analyzer", "Analysis"})
+@Description("One failed-locator analysis: fast path, answer cache or LLM conversation")
+@StackTrace(false)
+public class LocatorAnalysisEvent extends Event {
+
+    @Label("Mode")
+    @Description("blocking or streaming")
+    private String mode;
+
+    @Label("Locator")
+    private String locator;
+
+    @Label("Resolution")
+    @Description("history, fast_path, cache, llm, coalesced, error or cancelled")
+    private String resolution;
+
+    /**
+     * Start timing an analysis
+     */
+    public static LocatorAnalysisEvent start(String mode, String locator) {
+        LocatorAnalysisEvent event = new LocatorAnalysisEvent();
+        event.mode = mode;
+        event.locator = locator;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commit the event when a recording wants it
+     */
+    public void finish(String resolution) {
+        if (shouldCommit()) {
+            this.resolution = resolution;
+            commit();
+        }
+    }
+}
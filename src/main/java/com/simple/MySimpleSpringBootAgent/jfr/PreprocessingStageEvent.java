@@ -0,0 +1,60 @@
+package com.simple.MySimpleSpringBootAgent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one HTML preprocessing stage (parse, clean, ...)
+ * Only cache misses do this work, so cache hits produce no events
+ */
+@Name("locator.Preprocessing")
+@Label("HTML Preprocessing Stage")
+@Category({"Locator Analyzer", "Preprocessing"})
+@Description("Parsing or cleaning a page source")
+@StackTrace(false)
+public class PreprocessingStageEvent extends Event {
+
+    @Label("Stage")
+    @Description("parse, decode+parse or clean")
+    private String stage;
+
+    @Label("Path")
+    @Description("json (HTML in the request body), upload (streamed bytes) or prompt")
+    private String path;
+
+    @Label("Input Size")
+    @DataAmount
+    private long inputBytes;
+
+    @Label("Output Size")
+    @Description("Size after the stage (estimated for clean)")
+    @DataAmount
+    private long outputBytes;
+
+    /**
+     * Start timing a stage
+     */
+    public static PreprocessingStageEvent start(String stage, String path) {
+        PreprocessingStageEvent event = new PreprocessingStageEvent();
+        event.stage = stage;
+        event.path = path;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commit the event when a recording wants it
+     */
+    public void finish(long inputBytes, long outputBytes) {
+        if (shouldCommit()) {
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LlmConcurrencyConfig;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit for one LLM backend, sized from observed latency (gradient algorithm)
+ *
+ * Every completed call is a latency sample. A slow-moving baseline (exponential average
+ * over baselineWindow samples) stands for the backend's unloaded latency; the limit is
+ * moved toward limit * gradient + sqrt(limit), where gradient = rttTolerance * baseline / rtt,
+ * clamped to [0.5, 1]:
+ * - latency within tolerance of the baseline: gradient 1, the limit grows by about sqrt(limit)
+ * - latency rising (requests queueing inside the backend): gradient below 1, the limit shrinks
+ * Samples taken while less than half the limit was in use say nothing about capacity and
+ * only update the baseline. Timeouts and overload errors cut the limit by backoffRatio.
+ *
+ * Callers over the limit wait for a slot up to maxQueueWait and are then rejected.
+ *
+ * State changes happen under the lock; the fields the gauges read are volatile so the
+ * metrics thread sees current values without taking it.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    private final LlmConcurrencyConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final double baselineAlpha;
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private double baselineRttNanos;
+    private volatile long rejected;
+
+    AdaptiveConcurrencyLimiter(LlmConcurrencyConfig config) {
+        this.config = config;
+        this.limit = clamp(config.getInitialLimit());
+        this.baselineAlpha = 2.0 / (Math.max(1, config.getBaselineWindow()) + 1);
+    }
+
+    /**
+     * Take a slot, waiting up to maxWait for one to free up
+     *
+     * @throws LlmSaturatedException when no slot freed up in time
+     */
+    Permit acquire(Duration maxWait) {
+        long remaining = Math.max(0, maxWait.toNanos());
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected++;
+                        throw new LlmSaturatedException(
+                                "LLM backend is at its concurrency limit (" + (int) limit + " in flight)",
+                                retryAfterSeconds());
+                    }
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LlmSaturatedException("Interrupted while waiting for an LLM slot", retryAfterSeconds());
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            return new LimiterPermit(System.nanoTime(), inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    int waiting() {
+        return waiting;
+    }
+
+    long rejected() {
+        return rejected;
+    }
+
+    private void release(LimiterPermit permit, Outcome outcome) {
+        long rtt = System.nanoTime() - permit.startNanos;
+        lock.lock();
+        try {
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> onSample(rtt, permit.inFlightAtStart);
+                case DROPPED -> limit = clamp(limit * config.getBackoffRatio());
+                case IGNORED -> {
+                }
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(long rttNanos, int inFlightAtStart) {
+        baselineRttNanos = baselineRttNanos == 0
+                ? rttNanos
+                : baselineRttNanos + baselineAlpha * (rttNanos - baselineRttNanos);
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * baselineRttNanos / Math.max(1, rttNanos)));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = clamp((1 - config.getSmoothing()) * limit + config.getSmoothing() * estimate);
+    }
+
+    private double clamp(double value) {
+        return Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), value));
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(baselineRttNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private enum Outcome { SUCCESS, DROPPED, IGNORED }
+
+    /**
+     * A taken slot; exactly one of the release methods takes effect, later calls are no-ops
+     */
+    interface Permit {
+
+        /**
+         * Permit of an unlimited backend
+         */
+        Permit NONE = new Permit() {
+            @Override
+            public void success() {
+            }
+
+            @Override
+            public void dropped() {
+            }
+
+            @Override
+            public void ignore() {
+            }
+        };
+
+        /**
+         * The call completed; its latency is a sample
+         */
+        void success();
+
+        /**
+         * The call timed out or the backend reported overload
+         */
+        void dropped();
+
+        /**
+         * The call ended without telling anything about capacity (cancelled, bad output, ...)
+         */
+        void ignore();
+    }
+
+    private final class LimiterPermit implements Permit {
+
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private LimiterPermit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        @Override
+        public void success() {
+            releaseOnce(Outcome.SUCCESS);
+        }
+
+        @Override
+        public void dropped() {
+            releaseOnce(Outcome.DROPPED);
+        }
+
+        @Override
+        public void ignore() {
+            releaseOnce(Outcome.IGNORED);
+        }
+
+        private void releaseOnce(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                release(this, outcome);
+            }
+        }
+    }
+}
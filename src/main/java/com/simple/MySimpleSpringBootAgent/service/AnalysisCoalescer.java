@@ -0,0 +1,191 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LlmConcurrencyConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical concurrent LLM analyses
+ *
+ * A flight is identified by the answer cache key (canonical locator, normalized description,
+ * DOM layout fingerprint), the page URL and the preprocessed document itself. The layout
+ * fingerprint ignores text, so the document instance is what makes requests identical:
+ * the same page source resolves to the same shared document in HtmlDocumentCache. The
+ * first request runs the LLM conversation; requests arriving while it is in flight wait
+ * for the same result instead of starting their own. The flight is released as soon as
+ * the leader finishes - later requests are served by the answer cache.
+ *
+ * A failure of the leader is handed to every waiting request, except when the leader was
+ * interrupted (e.g. a batch cancelling its outstanding analyses): its followers still want
+ * an answer, so the flight is dropped and one of them runs the call instead. Followers wait
+ * at most locator.llm-concurrency.coalesced-max-wait and then fail with LlmSaturatedException.
+ *
+ * Metrics:
+ * - locator.llm.coalesced: requests answered by another request's LLM call (calls saved)
+ * - locator.llm.inflight: distinct analyses currently waiting on the LLM
+ */
+@Slf4j
+@Service
+public class AnalysisCoalescer {
+
+    private final LlmConcurrencyConfig config;
+    private final Map<FlightKey, CompletableFuture<LocatorAnalysisResult>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public AnalysisCoalescer(LlmConcurrencyConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.coalescedCounter = Counter.builder("locator.llm.coalesced")
+                .description("Analyses answered by an identical in-flight LLM call")
+                .register(meterRegistry);
+        Gauge.builder("locator.llm.inflight", inFlight, Map::size)
+                .description("Distinct analyses currently waiting on the LLM")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the LLM call for an analysis, or wait for the identical call already in flight
+     *
+     * @param doc The preprocessed (shared) document analyzed
+     * @param answerKey Answer cache key of the analysis
+     * @param pageUrl Page URL of the request (optional)
+     * @param llmCall The LLM conversation; only run when no identical one is in flight
+     * @return The result, and whether it came from another request's call
+     * @throws LlmSaturatedException when the identical call did not finish within coalesced-max-wait
+     */
+    public Flight execute(Document doc, String answerKey, String pageUrl, Supplier<LocatorAnalysisResult> llmCall) {
+        FlightKey key = new FlightKey(doc, answerKey, pageUrl);
+        while (true) {
+            CompletableFuture<LocatorAnalysisResult> leader = new CompletableFuture<>();
+            CompletableFuture<LocatorAnalysisResult> existing = inFlight.putIfAbsent(key, leader);
+            if (existing == null) {
+                return lead(key, leader, llmCall);
+            }
+            try {
+                return new Flight(await(key, existing), true);
+            } catch (LeaderInterruptedException e) {
+                log.info("Leader of analysis {} was interrupted, taking over", key.answerKey());
+            }
+        }
+    }
+
+    private Flight lead(FlightKey key, CompletableFuture<LocatorAnalysisResult> leader,
+                        Supplier<LocatorAnalysisResult> llmCall) {
+        try {
+            LocatorAnalysisResult result = llmCall.get();
+            leader.complete(result);
+            return new Flight(result, false);
+        } catch (RuntimeException | Error e) {
+            if (interrupted(e)) {
+                // Dropped before the followers are told, so the one taking over can start a new flight
+                inFlight.remove(key, leader);
+                leader.completeExceptionally(new LeaderInterruptedException());
+            } else {
+                leader.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    /**
+     * Wait for an identical call already in flight, without ever becoming the leader
+     * (for callers that cannot guarantee to complete a flight, e.g. cancellable streams)
+     *
+     * @return The shared result, or null when nothing identical is in flight
+     * @throws LlmSaturatedException when the identical call did not finish within coalesced-max-wait
+     */
+    public LocatorAnalysisResult joinIfInFlight(Document doc, String answerKey, String pageUrl) {
+        FlightKey key = new FlightKey(doc, answerKey, pageUrl);
+        CompletableFuture<LocatorAnalysisResult> existing = inFlight.get(key);
+        if (existing == null) {
+            return null;
+        }
+        try {
+            return await(key, existing);
+        } catch (LeaderInterruptedException e) {
+            return null;
+        }
+    }
+
+    private LocatorAnalysisResult await(FlightKey key, CompletableFuture<LocatorAnalysisResult> flight) {
+        coalescedCounter.increment();
+        log.info("Joining in-flight analysis {}", key.answerKey());
+        try {
+            return flight.get(config.getCoalescedMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IllegalStateException("In-flight analysis was cancelled", e);
+        } catch (TimeoutException e) {
+            // The leader's answer lands in the answer cache, so a retry soon is likely to be served from there
+            throw new LlmSaturatedException("Identical analysis still running after "
+                    + config.getCoalescedMaxWait().toSeconds() + "s", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmSaturatedException("Interrupted while waiting for an identical analysis", 1);
+        }
+    }
+
+    /**
+     * Whether the leader's call failed because its thread was interrupted or its work cancelled,
+     * rather than because the analysis itself failed
+     */
+    private static boolean interrupted(Throwable failure) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException || t instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handed to the followers of an interrupted leader; never leaves this class
+     */
+    private static final class LeaderInterruptedException extends RuntimeException {
+
+        LeaderInterruptedException() {
+            super("Leader interrupted", null, false, false);
+        }
+    }
+
+    /**
+     * Identity of a flight; documents compare by identity
+     */
+    private record FlightKey(Document doc, String answerKey, String pageUrl) {
+    }
+
+    /**
+     * Outcome of execute
+     *
+     * @param result The analysis result
+     * @param coalesced true when another request's LLM call produced it
+     */
+    public record Flight(LocatorAnalysisResult result, boolean coalesced) {
+    }
+}
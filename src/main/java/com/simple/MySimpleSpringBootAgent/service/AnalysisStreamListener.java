@@ -0,0 +1,34 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.ToolInvocationEvent;
+
+/**
+ * Receives the progress of a streamed locator analysis
+ * Callbacks may arrive on LLM client threads; exactly one of onResult / onError ends the stream
+ */
+public interface AnalysisStreamListener {
+
+    /**
+     * The analysis was accepted and will run in the background
+     */
+    void onQueued();
+
+    void onToolInvocation(ToolInvocationEvent event);
+
+    void onToken(String token);
+
+    void onResult(LocatorAnalysisResponse response);
+
+    void onError(LocatorAnalysisResponse errorResponse);
+
+    /**
+     * True once the client has gone away; the analysis is then abandoned
+     */
+    boolean isCancelled();
+
+    /**
+     * Run an action once the client goes away; runs it right away when it already has
+     */
+    void onCancel(Runnable action);
+}
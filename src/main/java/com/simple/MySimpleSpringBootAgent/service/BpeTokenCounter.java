@@ -0,0 +1,41 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+
+/**
+ * Token counter backed by a local BPE vocabulary (jtokkit)
+ *
+ * Special-token markers in page content are encoded as ordinary text, so HTML that
+ * happens to contain e.g. "<|endoftext|>" is counted instead of rejected.
+ */
+public class BpeTokenCounter implements TokenCounter {
+
+    private final Encoding encoding;
+
+    public BpeTokenCounter(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String name() {
+        return encoding.getName();
+    }
+
+    @Override
+    public int countTokens(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokensOrdinary(text);
+    }
+
+    @Override
+    public int prefixLengthWithin(String text, int maxTokens) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        if (maxTokens <= 0) {
+            return 0;
+        }
+        EncodingResult result = encoding.encodeOrdinary(text, maxTokens);
+        return result.isTruncated() ? result.getLastProcessedCharacterIndex() + 1 : text.length();
+    }
+}
@@ -0,0 +1,233 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service responsible for the pruned page excerpt sent with the prompt
+ *
+ * Ranks elements against the failed locator (LocatorFastPathResolver scoring) and renders
+ * only the top maxCandidates subtrees, each with bounded context:
+ * - up to maxParentDepth ancestors (opening tags only)
+ * - up to maxSiblingCount siblings on each side, rendered shallow
+ * - the candidate itself down to maxChildDepth levels, keeping maxChildrenPreserved children per level
+ *
+ * Long attribute values and texts are shortened, and the whole excerpt is capped at
+ * maxPromptHtmlTokens, counted with the tokenizer of the model it is sent to. The model
+ * starts from a few hundred bytes of relevant markup instead of discovering the page
+ * through tool calls.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CandidateExcerptBuilder {
+
+    static final String NO_CANDIDATES = "(no elements matched the locator hints - use the tools to explore the page)";
+
+    private static final Set<String> CONTEXT_STOP_TAGS = Set.of("html", "body", "#root");
+    private static final int MAX_VALUE_LENGTH = 80;
+    private static final String INDENT = "  ";
+
+    private final HtmlProcessingConfig config;
+    private final LocatorHintParser hintParser;
+    private final LocatorFastPathResolver fastPathResolver;
+    private final HtmlUtilityService htmlUtilityService;
+
+    /**
+     * Build the excerpt for a failed locator
+     *
+     * @param doc The preprocessed document
+     * @param locator The failed locator
+     * @param elementDescription Description of the target element (may be null)
+     * @return Compact HTML of the best candidates with context, or a hint to use the tools
+     */
+    public String build(Document doc, String locator, String elementDescription) {
+        return build(doc, locator, elementDescription, htmlUtilityService.tokenCounter());
+    }
+
+    /**
+     * Build the excerpt for a failed locator, budgeted for a specific model
+     *
+     * @param doc The preprocessed document
+     * @param locator The failed locator
+     * @param elementDescription Description of the target element (may be null)
+     * @param tokenCounter Token counter of the model the excerpt is sent to
+     * @return Compact HTML of the best candidates with context, or a hint to use the tools
+     */
+    public String build(Document doc, String locator, String elementDescription, TokenCounter tokenCounter) {
+        List<LocatorFastPathResolver.ScoredCandidate> candidates =
+                fastPathResolver.rankCandidates(doc, locator, hintParser.parse(locator), elementDescription);
+        if (candidates.isEmpty()) {
+            return NO_CANDIDATES;
+        }
+
+        // Candidates are labelled where they appear; one that already showed up in an
+        // earlier candidate's context (e.g. a sibling) is not rendered a second time
+        Map<Element, Integer> ranks = new IdentityHashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            ranks.putIfAbsent(candidates.get(i).element(), i);
+        }
+
+        StringBuilder excerpt = new StringBuilder();
+        Set<Element> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+        int rendered = 0;
+        int tokens = 0;
+        for (LocatorFastPathResolver.ScoredCandidate candidate : candidates) {
+            if (shown.contains(candidate.element())) {
+                continue;
+            }
+
+            StringBuilder snippet = new StringBuilder();
+            Set<Element> snippetElements = Collections.newSetFromMap(new IdentityHashMap<>());
+            renderWithContext(candidate.element(), new RenderContext(snippet, snippetElements, ranks, candidates));
+
+            int snippetTokens = htmlUtilityService.countTokens(snippet.toString(), tokenCounter);
+            if (rendered > 0 && tokens + snippetTokens > config.getMaxPromptHtmlTokens()) {
+                break;
+            }
+            excerpt.append(snippet);
+            shown.addAll(snippetElements);
+            tokens += snippetTokens;
+            rendered++;
+        }
+
+        // Only the best candidate's block can exceed the budget on its own
+        String result = tokens > config.getMaxPromptHtmlTokens()
+                ? htmlUtilityService.truncateToTokens(excerpt.toString(), config.getMaxPromptHtmlTokens(), tokenCounter)
+                : excerpt.toString();
+        log.debug("Candidate excerpt for {}: {} context blocks, ~{} tokens",
+                locator, rendered, Math.min(tokens, config.getMaxPromptHtmlTokens()));
+        return result;
+    }
+
+    private void renderWithContext(Element target, RenderContext ctx) {
+        StringBuilder out = ctx.out();
+        List<Element> ancestors = new ArrayList<>();
+        for (Element parent = target.parent();
+             parent != null && ancestors.size() < config.getMaxParentDepth() && !CONTEXT_STOP_TAGS.contains(parent.normalName());
+             parent = parent.parent()) {
+            ancestors.add(0, parent);
+        }
+
+        int level = 0;
+        for (Element ancestor : ancestors) {
+            indent(out, level++).append(openTag(ancestor)).append('\n');
+        }
+
+        Element parent = target.parent();
+        if (parent != null && !ancestors.isEmpty()) {
+            List<Element> siblings = parent.children();
+            int position = target.elementSiblingIndex();
+            int from = Math.max(0, position - config.getMaxSiblingCount());
+            int to = Math.min(siblings.size(), position + config.getMaxSiblingCount() + 1);
+
+            omitted(out, level, from, "earlier sibling");
+            for (int i = from; i < to; i++) {
+                Element sibling = siblings.get(i);
+                renderElement(sibling, ctx, level, ctx.isCandidate(sibling) ? config.getMaxChildDepth() : 0);
+            }
+            omitted(out, level, siblings.size() - to, "later sibling");
+        } else {
+            renderElement(target, ctx, level, config.getMaxChildDepth());
+        }
+
+        for (int i = ancestors.size() - 1; i >= 0; i--) {
+            indent(out, --level).append("</").append(ancestors.get(i).tagName()).append(">\n");
+        }
+    }
+
+    /**
+     * Render an element with its own text, descending childDepth more levels
+     */
+    private void renderElement(Element el, RenderContext ctx, int level, int childDepth) {
+        StringBuilder out = ctx.out();
+        ctx.elements().add(el);
+        Integer rank = ctx.ranks().get(el);
+        if (rank != null) {
+            indent(out, level).append("<!-- candidate ").append(rank + 1)
+                    .append(", score ").append(ctx.candidates().get(rank).score()).append(" -->\n");
+        }
+        indent(out, level).append(openTag(el));
+
+        String text = shorten(el.ownText());
+        if (!text.isEmpty()) {
+            out.append(escape(text, false));
+        }
+        if (el.tag().isEmpty()) {
+            out.append('\n');
+            return;
+        }
+
+        List<Element> children = el.children();
+        if (children.isEmpty() || childDepth <= 0) {
+            if (!children.isEmpty()) {
+                out.append("<!-- ").append(children.size()).append(" child elements -->");
+            }
+            out.append("</").append(el.tagName()).append(">\n");
+            return;
+        }
+
+        out.append('\n');
+        int preserved = Math.min(children.size(), config.getMaxChildrenPreserved());
+        for (int i = 0; i < preserved; i++) {
+            renderElement(children.get(i), ctx, level + 1, childDepth - 1);
+        }
+        omitted(out, level + 1, children.size() - preserved, "more child element");
+        indent(out, level).append("</").append(el.tagName()).append(">\n");
+    }
+
+    private String openTag(Element el) {
+        StringBuilder tag = new StringBuilder("<").append(el.tagName());
+        for (Attribute attr : el.attributes()) {
+            tag.append(' ').append(attr.getKey());
+            if (!attr.getValue().isEmpty()) {
+                tag.append("=\"").append(escape(shorten(attr.getValue()), true)).append('"');
+            }
+        }
+        return tag.append('>').toString();
+    }
+
+    private static void omitted(StringBuilder out, int level, int count, String what) {
+        if (count > 0) {
+            indent(out, level).append("<!-- ").append(count).append(' ').append(what)
+                    .append(count == 1 ? "" : "s").append(" omitted -->\n");
+        }
+    }
+
+    private static StringBuilder indent(StringBuilder out, int level) {
+        return out.append(INDENT.repeat(Math.max(0, level)));
+    }
+
+    private static String shorten(String value) {
+        String collapsed = value.trim().replaceAll("\\s+", " ");
+        return collapsed.length() > MAX_VALUE_LENGTH ? collapsed.substring(0, MAX_VALUE_LENGTH) + "..." : collapsed;
+    }
+
+    /**
+     * Output and bookkeeping of one context block
+     */
+    private record RenderContext(StringBuilder out, Set<Element> elements, Map<Element, Integer> ranks,
+                                 List<LocatorFastPathResolver.ScoredCandidate> candidates) {
+
+        boolean isCandidate(Element el) {
+            return ranks.containsKey(el);
+        }
+    }
+
+    private static String escape(String value, boolean attribute) {
+        String escaped = value.replace("&", "&amp;").replace("<", "&lt;");
+        return attribute ? escaped.replace("\"", "&quot;") : escaped;
+    }
+}
@@ -0,0 +1,205 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.helper.W3CDom;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.jsoup.select.Selector;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shared cache of compiled CSS selectors and XPath expressions
+ *
+ * - CSS: Jsoup Evaluators (thread-safe, reusable) keyed by selector string
+ * - XPath: compiled XPathExpressions keyed by expression; these are not thread-safe,
+ *   so each entry keeps a small pool and concurrent callers borrow their own instance
+ * - Invalid expressions are cached too, with the parser's error message, so the
+ *   LLM repeating a broken locator does not re-run the parser
+ *
+ * Jsoup evaluates XPath against a W3C DOM copy of the page, which it rebuilds on every
+ * selectXpath() call. The copy is built once per document here and reused until the
+ * document leaves HtmlDocumentCache; W3C DOM reads are not thread-safe, so evaluation
+ * on one copy is serialized.
+ *
+ * Stage timings: dom.selector.stage{kind=css|xpath, stage=compile|convert|evaluate}
+ * (compile includes the cache lookup, so hits show up as near-zero samples).
+ */
+@Slf4j
+@Service
+public class CompiledSelectorCache implements HtmlDocumentCache.EvictionListener {
+
+    private static final int MAX_POOLED_EXPRESSIONS = 4;
+
+    private final Cache<String, CompiledCss> cssCache;
+    private final Cache<String, CompiledXPath> xpathCache;
+    private final Cache<Document, XPathView> xpathViews;
+    private final MeterRegistry meterRegistry;
+
+    public CompiledSelectorCache(HtmlProcessingConfig config, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.cssCache = Caffeine.newBuilder()
+                .maximumSize(config.getSelectorCacheMaxSize())
+                .recordStats()
+                .build();
+        this.xpathCache = Caffeine.newBuilder()
+                .maximumSize(config.getSelectorCacheMaxSize())
+                .recordStats()
+                .build();
+        // A W3C copy references its source nodes, so weak keys alone never release it
+        this.xpathViews = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(config.getDerivedCacheMaxDocuments())
+                .expireAfterAccess(Duration.ofMinutes(config.getDocumentCacheExpireMinutes()))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cssCache, "dom.selector.css");
+        CaffeineCacheMetrics.monitor(meterRegistry, xpathCache, "dom.selector.xpath");
+    }
+
+    /**
+     * Select elements with a CSS selector, compiling it at most once
+     *
+     * @throws Selector.SelectorParseException when the selector is invalid (also for cached failures)
+     */
+    public Elements select(Document doc, String selector) {
+        CompiledCss compiled = timed("css", "compile", () -> cssCache.get(selector, CompiledSelectorCache::compileCss));
+        if (compiled.error() != null) {
+            throw new Selector.SelectorParseException(compiled.error());
+        }
+        return timed("css", "evaluate", () -> doc.select(compiled.evaluator()));
+    }
+
+    /**
+     * Select elements with an XPath expression, compiling it at most once per concurrent user
+     *
+     * @throws Selector.SelectorParseException when the expression is invalid or cannot be evaluated
+     */
+    public Elements selectXpath(Document doc, String xpath) {
+        CompiledXPath compiled = timed("xpath", "compile", () -> xpathCache.get(xpath, CompiledSelectorCache::compileXPath));
+        if (compiled.error() != null) {
+            throw new Selector.SelectorParseException(compiled.error());
+        }
+
+        XPathView view = timed("xpath", "convert", () -> xpathViews.get(doc, CompiledSelectorCache::toW3c));
+        XPathExpression expression = compiled.borrow();
+        try {
+            return timed("xpath", "evaluate", () -> view.evaluate(expression, xpath));
+        } finally {
+            compiled.release(expression);
+        }
+    }
+
+    @Override
+    public void evicted(Document doc) {
+        xpathViews.invalidate(doc);
+    }
+
+    private <T> T timed(String kind, String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            Timer.builder("dom.selector.stage")
+                    .tag("kind", kind)
+                    .tag("stage", stage)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static CompiledCss compileCss(String selector) {
+        try {
+            return new CompiledCss(QueryParser.parse(selector), null);
+        } catch (Selector.SelectorParseException | IllegalArgumentException e) {
+            // SelectorParseException is an IllegalStateException, Jsoup's ValidationException an IllegalArgumentException
+            log.debug("Caching invalid CSS selector '{}': {}", selector, e.getMessage());
+            return new CompiledCss(null, e.getMessage());
+        }
+    }
+
+    private static CompiledXPath compileXPath(String xpath) {
+        try {
+            CompiledXPath compiled = new CompiledXPath(xpath, new ConcurrentLinkedQueue<>(), null);
+            compiled.release(newExpression(xpath));
+            return compiled;
+        } catch (XPathExpressionException | IllegalArgumentException e) {
+            String message = String.format("Could not evaluate XPath query [%s]: %s", xpath, e.getMessage());
+            log.debug("Caching invalid XPath: {}", message);
+            return new CompiledXPath(xpath, null, message);
+        }
+    }
+
+    private static XPathExpression newExpression(String xpath) throws XPathExpressionException {
+        if (xpath.isBlank()) {
+            throw new IllegalArgumentException("XPath must not be empty");
+        }
+        return XPathFactory.newInstance().newXPath().compile(xpath);
+    }
+
+    private static XPathView toW3c(Document doc) {
+        W3CDom w3c = new W3CDom().namespaceAware(false);
+        org.w3c.dom.Document w3cDoc = w3c.fromJsoup(doc);
+        return new XPathView(w3c, w3c.contextNode(w3cDoc), new ReentrantLock());
+    }
+
+    private record CompiledCss(Evaluator evaluator, String error) {
+    }
+
+    private record CompiledXPath(String xpath, Queue<XPathExpression> pool, String error) {
+
+        XPathExpression borrow() {
+            XPathExpression pooled = pool.poll();
+            if (pooled != null) {
+                return pooled;
+            }
+            try {
+                return newExpression(xpath); // already validated, only compiled again under concurrency
+            } catch (XPathExpressionException e) {
+                throw new Selector.SelectorParseException(e.getMessage());
+            }
+        }
+
+        void release(XPathExpression expression) {
+            if (pool.size() < MAX_POOLED_EXPRESSIONS) {
+                pool.offer(expression);
+            }
+        }
+    }
+
+    private record XPathView(W3CDom w3c, org.w3c.dom.Node contextNode, ReentrantLock lock) {
+
+        Elements evaluate(XPathExpression expression, String xpath) {
+            lock.lock();
+            try {
+                NodeList nodes = (NodeList) expression.evaluate(contextNode, XPathConstants.NODESET);
+                return new Elements(w3c.sourceNodes(nodes, Element.class));
+            } catch (XPathExpressionException e) {
+                throw new Selector.SelectorParseException(
+                        String.format("Could not evaluate XPath query [%s]: %s", xpath, e.getMessage()));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
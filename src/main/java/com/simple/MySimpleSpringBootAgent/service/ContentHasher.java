@@ -0,0 +1,69 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+/**
+ * Streaming, non-cryptographic 128-bit hash
+ * Two independent multiply/rotate lanes with a MurmurHash3 finalizer - fast enough to
+ * key multi-MB pages and structural fingerprints without building intermediate strings
+ *
+ * Not thread-safe; create one instance per hash.
+ */
+public final class ContentHasher {
+
+    private long h1 = 0x9E3779B97F4A7C15L;
+    private long h2 = 0xC2B2AE3D27D4EB4FL;
+    private long length;
+
+    public ContentHasher update(char c) {
+        h1 = (h1 ^ c) * 0x100000001B3L;
+        h2 = Long.rotateLeft(h2 ^ c, 31) * 0x87C37B91114253D5L;
+        length++;
+        return this;
+    }
+
+    public ContentHasher update(CharSequence content) {
+        if (content != null) {
+            int size = content.length();
+            for (int i = 0; i < size; i++) {
+                update(content.charAt(i));
+            }
+        }
+        return this;
+    }
+
+    public ContentHasher update(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            update((char) (bytes[i] & 0xFF));
+        }
+        return this;
+    }
+
+    public ContentHasher update(int value) {
+        return update((char) (value >>> 16)).update((char) value);
+    }
+
+    /**
+     * Field separator, so ("ab", "c") and ("a", "bc") hash differently
+     */
+    public ContentHasher separator() {
+        return update('\u0000');
+    }
+
+    /**
+     * @return 32 character hex digest
+     */
+    public String hex() {
+        return String.format("%016x%016x", mix64(h1 ^ length), mix64(h2 ^ (length << 32)));
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer
+     */
+    private static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
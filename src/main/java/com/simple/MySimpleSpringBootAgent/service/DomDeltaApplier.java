@@ -0,0 +1,519 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.PageSessionConfig;
+import com.simple.MySimpleSpringBootAgent.dto.DomEdit;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.Range;
+import org.jsoup.parser.Parser;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds page snapshots from a retained baseline and source edits, reparsing only what changed
+ *
+ * The baseline is parsed once with source positions tracked, so every element with an
+ * explicit start and end tag knows its outer source range. For a snapshot:
+ * - edits inside the content of a removed noise node (script, style, noscript, comment)
+ *   that add or remove no markup are dropped - they cannot change the cleaned document
+ * - every other edit is assigned to the deepest element whose outer range contains it;
+ *   an edit falling on that element's child node boundaries replaces just those child
+ *   nodes (or inserts between them), any other edit replaces the whole element.
+ *   Targets nested in other targets are merged into the outer one
+ * - the baseline document is cloned, and each target's edited source is parsed as a
+ *   fragment in its parent's context, cleaned and swapped in for the replaced nodes
+ * - the index is patched from the baseline's (DomIndex.patch): only the new subtrees
+ *   are indexed, postings of everything else are carried over - unless the edits changed
+ *   the own text of a parent, then the snapshot is indexed from scratch
+ * Edits in html or head, or touching the tags of html/head/body, or targets covering
+ * more than maxReparsedFraction of the source, make the whole patched source go through
+ * the normal preprocessing path instead.
+ */
+@Slf4j
+@Component
+public class DomDeltaApplier {
+
+    private static final Set<String> DOCUMENT_SECTIONS = Set.of("html", "head", "body");
+    // Parsing a fragment in these contexts does not follow the insertion modes of a full parse
+    private static final Set<String> UNSAFE_CONTEXTS = Set.of("html", "head");
+    // Source ranges tracked per element (start and end tag, each a Range of two Positions)
+    private static final int TRACKED_RANGES_BYTES = 160;
+
+    private final PageSessionConfig config;
+    private final HtmlPreprocessor htmlPreprocessor;
+    private final DomIndexService domIndexService;
+
+    public DomDeltaApplier(PageSessionConfig config, HtmlPreprocessor htmlPreprocessor,
+                           DomIndexService domIndexService) {
+        this.config = config;
+        this.htmlPreprocessor = htmlPreprocessor;
+        this.domIndexService = domIndexService;
+    }
+
+    /**
+     * Parse, clean and index a baseline page
+     *
+     * @param source The baseline page source
+     * @param locator The failed locator (for logging)
+     */
+    public Baseline baseline(String source, String locator) {
+        List<int[]> noise = new ArrayList<>();
+        Document doc = htmlPreprocessor.preprocessTracked(source, locator, node -> {
+            int[] span = contentSpan(source, node);
+            if (span != null) {
+                noise.add(span);
+            }
+        });
+        DomIndex index = DomIndex.build(doc);
+        domIndexService.adopt(doc, index);
+
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            if (outerRange(index.elementAt(i)) != null) {
+                candidates.add(i);
+            }
+        }
+        candidates.sort(Comparator.comparingInt(i -> outerRange(index.elementAt(i))[0]));
+        int[] positions = candidates.stream().mapToInt(Integer::intValue).toArray();
+        int[] starts = Arrays.stream(positions).map(i -> outerRange(index.elementAt(i))[0]).toArray();
+        return new Baseline(source, doc, index, positions, starts, noise.toArray(new int[0][]));
+    }
+
+    /**
+     * Work out which baseline nodes the edits touch
+     *
+     * @throws IllegalArgumentException for edits out of range, overlapping or out of order
+     */
+    public Plan plan(Baseline base, List<DomEdit> edits) {
+        List<DomEdit> checked = validate(base, edits);
+        List<Target> targets = new ArrayList<>();
+        for (DomEdit edit : checked) {
+            if (insideNoise(base, edit)) {
+                continue;
+            }
+            Element container = base.containerOf(edit.getStart(), edit.getEnd());
+            Target target = null;
+            if (container != null && !UNSAFE_CONTEXTS.contains(container.normalName())) {
+                target = childRun(base, container, edit);
+            }
+            if (target == null && container != null && !DOCUMENT_SECTIONS.contains(container.normalName())
+                    && !UNSAFE_CONTEXTS.contains(container.parent().normalName())) {
+                target = wholeElement(base, container, edit);
+            }
+            if (target == null) {
+                return new Plan(checked, List.of(), true, base.source().length());
+            }
+            targets.add(target);
+        }
+
+        // Outer targets first, then fold every target nested in the one before it
+        targets.sort(Comparator.comparingInt(Target::spanStart).thenComparing(Target::spanEnd, Comparator.reverseOrder()));
+        List<Target> merged = new ArrayList<>();
+        for (Target target : targets) {
+            Target last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && target.spanStart() >= last.spanStart() && target.spanEnd() <= last.spanEnd()) {
+                last.edits().addAll(target.edits());
+            } else {
+                merged.add(target);
+            }
+        }
+        long reparsed = 0;
+        for (Target target : merged) {
+            target.edits().sort(Comparator.comparingInt(DomEdit::getStart));
+            reparsed += target.spanEnd() - target.spanStart();
+            for (DomEdit edit : target.edits()) {
+                reparsed += edit.getText().length() - (edit.getEnd() - edit.getStart());
+            }
+        }
+        merged.sort(Comparator.comparingInt(Target::position));
+
+        boolean full = reparsed > config.getMaxReparsedFraction() * base.source().length();
+        return new Plan(checked, full ? List.of() : merged, full, full ? base.source().length() : reparsed);
+    }
+
+    /**
+     * Build the snapshot by swapping reparsed nodes into a copy of the baseline
+     * Only valid for plans that are neither full nor empty; the result's index is registered
+     *
+     * @return Shared, read-only preprocessed document
+     */
+    public Document applyIncremental(Baseline base, Plan plan) {
+        Document doc = base.document().clone();
+
+        // Resolve every target in the copy before the first swap moves sibling positions
+        List<Element> contexts = new ArrayList<>(plan.targets().size());
+        List<List<Node>> runs = new ArrayList<>(plan.targets().size());
+        List<Node> anchors = new ArrayList<>(plan.targets().size());
+        for (Target target : plan.targets()) {
+            Element context = counterpart(target.context(), doc);
+            List<Node> children = context.childNodes();
+            contexts.add(context);
+            runs.add(new ArrayList<>(children.subList(target.from(), target.to())));
+            anchors.add(target.to() < children.size() ? children.get(target.to()) : null);
+        }
+
+        // In document order: an insertion's anchor may open a later target's run, which is still attached
+        List<DomIndex.Replacement> replacements = new ArrayList<>(plan.targets().size());
+        for (int t = 0; t < plan.targets().size(); t++) {
+            Target target = plan.targets().get(t);
+            List<Node> run = runs.get(t);
+            String source = splice(base.source(), target.spanStart(), target.spanEnd(), target.edits());
+            // A live view of the fragment's temporary parent: copied, since inserting moves the nodes out
+            List<Node> nodes = new ArrayList<>(Parser.parseFragment(source, contexts.get(t), ""));
+            Node anchor = !run.isEmpty() ? run.get(0) : anchors.get(t);
+            for (Node node : nodes) {
+                if (anchor != null) {
+                    anchor.before(node);
+                } else {
+                    contexts.get(t).appendChild(node);
+                }
+            }
+            run.forEach(Node::remove);
+
+            int inserted = 0;
+            for (Node node : nodes) {
+                htmlPreprocessor.clean(node);
+                if (node.parent() != null && node instanceof Element el) {
+                    inserted += el.getAllElements().size();
+                }
+            }
+            replacements.add(new DomIndex.Replacement(target.position(), target.removed(), inserted));
+        }
+
+        // The patch re-indexes only the new nodes: text added to or removed from a context needs a full index
+        boolean contextTextChanged = false;
+        for (int t = 0; t < plan.targets().size() && !contextTextChanged; t++) {
+            contextTextChanged = !contexts.get(t).ownText().equals(plan.targets().get(t).context().ownText());
+        }
+        DomIndex index;
+        if (contextTextChanged) {
+            log.debug("Edits changed the own text of a reparsed node's parent, indexing the snapshot from scratch");
+            index = DomIndex.build(doc);
+        } else {
+            try {
+                index = DomIndex.patch(base.index(), doc, replacements);
+            } catch (IllegalStateException e) {
+                log.warn("Cannot patch the baseline index, indexing the snapshot from scratch: {}", e.getMessage());
+                index = DomIndex.build(doc);
+            }
+        }
+        domIndexService.adopt(doc, index);
+        return doc;
+    }
+
+    /**
+     * The edit as a replacement of whole child nodes of the container, or an insertion between
+     * them - only the edited text is parsed. Null when the edit cuts into a child or the container's tags
+     */
+    private static Target childRun(Baseline base, Element container, DomEdit edit) {
+        int start = edit.getStart();
+        int end = edit.getEnd();
+        int contentStart = container.sourceRange().endPos();
+        int contentEnd = endTagStart(base.source(), container);
+        if (start < contentStart || end > contentEnd) {
+            return null;
+        }
+
+        List<Node> children = container.childNodes();
+        boolean startOnBoundary = start == contentStart;
+        boolean endOnBoundary = end == contentEnd;
+        int from = children.size();
+        int to = children.size();
+        int previousEnd = contentStart;
+        for (int i = 0; i < children.size(); i++) {
+            int[] range = nodeRange(children.get(i));
+            if (range == null || range[0] < previousEnd || (range[0] < start && start < range[1])
+                    || (range[0] < end && end < range[1])) {
+                return null; // untracked or out-of-order child, or one the edit cuts into
+            }
+            startOnBoundary |= range[0] == start || range[1] == start;
+            endOnBoundary |= range[0] == end || range[1] == end;
+            if (from == children.size() && range[0] >= start) {
+                from = i;
+            }
+            if (to == children.size() && range[0] >= end && range[1] > range[0]) {
+                to = i;
+            }
+            previousEnd = range[1];
+        }
+        if (!startOnBoundary || !endOnBoundary) {
+            return null; // inside a removed noise node
+        }
+        to = Math.max(from, to);
+
+        int removed = 0;
+        int position = -1;
+        for (int i = from; i < to; i++) {
+            if (children.get(i) instanceof Element el) {
+                removed += el.getAllElements().size();
+                if (position < 0) {
+                    position = base.index().positionOf(el);
+                }
+            }
+        }
+        if (position < 0) {
+            position = positionAfter(base, container, to);
+        }
+        return new Target(container, from, to, start, end, position, removed, new ArrayList<>(List.of(edit)));
+    }
+
+    /**
+     * The edit as a reparse of the whole element containing it
+     */
+    private static Target wholeElement(Baseline base, Element el, DomEdit edit) {
+        int[] range = outerRange(el);
+        return new Target(el.parent(), el.siblingIndex(), el.siblingIndex() + 1, range[0], range[1],
+                base.index().positionOf(el), el.getAllElements().size(), new ArrayList<>(List.of(edit)));
+    }
+
+    /**
+     * Document-order number the first element inserted before the container's child at childIndex gets
+     */
+    private static int positionAfter(Baseline base, Element container, int childIndex) {
+        List<Node> children = container.childNodes();
+        for (int i = childIndex; i < children.size(); i++) {
+            if (children.get(i) instanceof Element el) {
+                return base.index().positionOf(el);
+            }
+        }
+        for (Element el = container; el != null; el = el.parent()) {
+            Element next = el.nextElementSibling();
+            if (next != null) {
+                return base.index().positionOf(next);
+            }
+        }
+        return base.index().size();
+    }
+
+    /**
+     * The baseline source with all edits applied
+     */
+    public String patchedSource(Baseline base, Plan plan) {
+        return splice(base.source(), 0, base.source().length(), plan.edits());
+    }
+
+    private List<DomEdit> validate(Baseline base, List<DomEdit> edits) {
+        if (edits == null) {
+            return List.of();
+        }
+        if (edits.size() > config.getMaxEdits()) {
+            throw new IllegalArgumentException("Too many edits: " + edits.size() + " (max " + config.getMaxEdits() + ")");
+        }
+        List<DomEdit> checked = new ArrayList<>(edits.size());
+        int previousEnd = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            DomEdit edit = edits.get(i);
+            if (edit == null || edit.getStart() < previousEnd || edit.getEnd() < edit.getStart()
+                    || edit.getEnd() > base.source().length()) {
+                throw new IllegalArgumentException("Edit " + i + " is out of order, overlapping or outside the "
+                        + base.source().length() + " characters of the baseline");
+            }
+            checked.add(new DomEdit(edit.getStart(), edit.getEnd(), edit.getText() != null ? edit.getText() : ""));
+            previousEnd = edit.getEnd();
+        }
+        return checked;
+    }
+
+    /**
+     * Whether the edit only changes the content of a removed noise node without adding or removing markup
+     */
+    private static boolean insideNoise(Baseline base, DomEdit edit) {
+        int[][] noise = base.noise();
+        int lo = 0;
+        int hi = noise.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (noise[mid][0] > edit.getStart()) {
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        if (hi < 0 || edit.getEnd() > noise[hi][1]) {
+            return false;
+        }
+        return noMarkup(edit.getText()) && noMarkup(base.source().substring(edit.getStart(), edit.getEnd()));
+    }
+
+    private static boolean noMarkup(String text) {
+        return text.indexOf('<') < 0 && text.indexOf('>') < 0;
+    }
+
+    /**
+     * Content range of a removed noise node: between the tags of an element, inside a comment's delimiters
+     */
+    private static int[] contentSpan(String source, Node node) {
+        Range range = node.sourceRange();
+        if (!range.isTracked() || range.isImplicit()) {
+            return null;
+        }
+        if (node instanceof Comment) {
+            return range.endPos() - range.startPos() >= 7 ? new int[]{range.startPos() + 4, range.endPos() - 3} : null;
+        }
+        if (node instanceof Element el) {
+            Range end = el.endSourceRange();
+            if (!end.isTracked() || end.isImplicit()) {
+                return null;
+            }
+            int contentEnd = endTagStart(source, el);
+            return contentEnd >= range.endPos() ? new int[]{range.endPos(), contentEnd} : null;
+        }
+        return null;
+    }
+
+    /**
+     * Source start of an element's explicit end tag
+     * Jsoup reports the end tag of raw text elements (script, style, textarea, title) as starting
+     * at their start tag, so it is found back from the end tag's end, which is reported correctly
+     */
+    private static int endTagStart(String source, Element el) {
+        return source.lastIndexOf("</", el.endSourceRange().endPos() - 1);
+    }
+
+    /**
+     * Outer source range of an element written with both its start and end tag, or null
+     */
+    private static int[] outerRange(Element el) {
+        if (el instanceof Document) {
+            return null;
+        }
+        Range start = el.sourceRange();
+        Range end = el.endSourceRange();
+        if (!start.isTracked() || start.isImplicit() || !end.isTracked() || end.isImplicit()) {
+            return null;
+        }
+        return new int[]{start.startPos(), end.endPos()};
+    }
+
+    /**
+     * Source range of a child node: outer range of an element, range of a text node; null when untracked
+     */
+    private static int[] nodeRange(Node node) {
+        if (node instanceof Element el) {
+            return outerRange(el);
+        }
+        Range range = node.sourceRange();
+        return range.isTracked() && !range.isImplicit() ? new int[]{range.startPos(), range.endPos()} : null;
+    }
+
+    /**
+     * The element at the same place in a clone of its document
+     */
+    private static Element counterpart(Element el, Document clone) {
+        List<Integer> path = new ArrayList<>();
+        for (Node node = el; node.parent() != null; node = node.parent()) {
+            path.add(node.siblingIndex());
+        }
+        Node node = clone;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            node = node.childNode(path.get(i));
+        }
+        return (Element) node;
+    }
+
+    private static String splice(String source, int from, int to, List<DomEdit> edits) {
+        StringBuilder sb = new StringBuilder(to - from + 64);
+        int pos = from;
+        for (DomEdit edit : edits) {
+            if (edit.getStart() < from || edit.getEnd() > to) {
+                continue;
+            }
+            sb.append(source, pos, edit.getStart()).append(edit.getText());
+            pos = edit.getEnd();
+        }
+        return sb.append(source, pos, to).toString();
+    }
+
+    /**
+     * A retained baseline page
+     *
+     * @param source The baseline page source
+     * @param document The preprocessed (shared, read-only) baseline document, source positions tracked
+     * @param index Its index
+     * @param positions Document-order numbers of elements with explicit start and end tags, by source start
+     * @param starts Outer source start of each of those elements
+     * @param noise Content spans of removed noise nodes, in source order
+     */
+    public record Baseline(String source, Document document, DomIndex index, int[] positions, int[] starts,
+                           int[][] noise) {
+
+        /**
+         * Estimated heap retained by the baseline: source, tracked document, index and lookup arrays
+         */
+        long estimateRetainedBytes() {
+            return 2L * source.length()
+                    + HtmlDocumentCache.estimateRetainedBytes(document)
+                    + (long) TRACKED_RANGES_BYTES * index.size()
+                    + index.estimateRetainedBytes()
+                    + 8L * positions.length
+                    + 32L * noise.length;
+        }
+
+        /**
+         * Deepest element with explicit tags whose outer source range contains [start, end), or null
+         * (an insertion exactly at an element's edge belongs to its parent)
+         */
+        Element containerOf(int start, int end) {
+            int lo = 0;
+            int hi = starts.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] > start) {
+                    hi = mid - 1;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            for (Element el = hi >= 0 ? index.elementAt(positions[hi]) : null; el != null; el = el.parent()) {
+                int[] range = outerRange(el);
+                if (range != null && range[0] <= start && end <= range[1]
+                        && !(start == end && (start == range[0] || end == range[1]))) {
+                    return el;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * How a snapshot is built
+     *
+     * @param edits The validated edits
+     * @param targets Baseline nodes to reparse, in document order (empty when full or nothing changed)
+     * @param full Whether the whole patched source must be preprocessed
+     * @param reparsedChars Source characters that will be parsed
+     */
+    public record Plan(List<DomEdit> edits, List<Target> targets, boolean full, long reparsedChars) {
+
+        /**
+         * Nothing the cleaned document would show changed; the baseline document is the snapshot
+         */
+        public boolean unchanged() {
+            return !full && targets.isEmpty();
+        }
+    }
+
+    /**
+     * Baseline child nodes to replace with the reparsed, edited source they were parsed from
+     *
+     * @param context Parent of the replaced nodes, also the fragment parsing context
+     * @param from Index of the first replaced child node
+     * @param to Index after the last replaced child node (from = to: insertion before child to)
+     * @param spanStart Source start of the replaced nodes
+     * @param spanEnd Source end of the replaced nodes
+     * @param position Document-order number of the first replaced (or following) element in the baseline
+     * @param removed Elements in the replaced nodes, descendants included
+     * @param edits Edits inside the span, in source order
+     */
+    public record Target(Element context, int from, int to, int spanStart, int spanEnd, int position, int removed,
+                         List<DomEdit> edits) {
+    }
+}
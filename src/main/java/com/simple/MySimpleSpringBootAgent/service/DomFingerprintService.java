@@ -0,0 +1,81 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Service responsible for structural fingerprints of preprocessed documents
+ *
+ * The fingerprint covers element nesting, tag names and the attributes locators are
+ * built from (id, name, class, type, role, data-testid, aria-label). Text content is
+ * ignored, so cosmetic copy changes keep the same fingerprint while layout changes do not.
+ *
+ * Fingerprints are memoized per Document instance (documents are shared via HtmlDocumentCache)
+ * and dropped when the document leaves that cache.
+ */
+@Service
+public class DomFingerprintService implements HtmlDocumentCache.EvictionListener {
+
+    private static final List<String> LOCATOR_ATTRIBUTES =
+            List.of("id", "name", "class", "type", "role", "data-testid", "aria-label");
+
+    private final Cache<Document, String> fingerprints = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Structural fingerprint of the document
+     *
+     * @param doc The preprocessed document
+     * @return 32 character hex fingerprint
+     */
+    public String fingerprint(Document doc) {
+        return fingerprints.get(doc, this::compute);
+    }
+
+    /**
+     * Forget the memoized fingerprint after a document was mutated in place
+     */
+    public void invalidate(Document doc) {
+        fingerprints.invalidate(doc);
+    }
+
+    @Override
+    public void evicted(Document doc) {
+        fingerprints.invalidate(doc);
+    }
+
+    private String compute(Document doc) {
+        ContentHasher hasher = new ContentHasher();
+        NodeTraversor.traverse(new NodeVisitor() {
+            @Override
+            public void head(Node node, int depth) {
+                if (node instanceof Element el) {
+                    hasher.update('<').update(el.normalName()).update(depth);
+                    for (String attr : LOCATOR_ATTRIBUTES) {
+                        String value = el.attr(attr);
+                        if (!value.isEmpty()) {
+                            hasher.separator().update(attr).update('=').update(value);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void tail(Node node, int depth) {
+                if (node instanceof Element) {
+                    hasher.update('>');
+                }
+            }
+        }, doc);
+        return hasher.hex();
+    }
+}
@@ -0,0 +1,503 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted indexes over one preprocessed document
+ *
+ * Built in a single traversal, then read-only. Elements are numbered in document order and
+ * posting lists hold those numbers, so unions are a BitSet merge that comes out de-duplicated
+ * and in document order - the same order Jsoup's own selection returns.
+ *
+ * Lookups follow Jsoup's matching rules so indexed and selector-based answers agree:
+ * - id: exact, case-sensitive
+ * - tag, class, attribute name: case-insensitive
+ * - attribute value: case-insensitive, trimmed (like [attr=value])
+ * - own text: lowercase substring (like :containsOwn), narrowed through a token index
+ *
+ * The document-order number doubles as the element's handle in tool output ("e42"), stable
+ * for as long as the document is cached.
+ */
+public final class DomIndex {
+
+    private static final Pattern TEXT_TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern SIMPLE_COMPOUND = Pattern.compile(
+            "([a-zA-Z][\\w-]*)?((?:#[\\w-]+|\\.[\\w-]+|\\[\\s*[\\w:-]+\\s*(?:=\\s*(?:'[^']*'|\"[^\"]*\"|[^\\]'\"]*?))?\\s*])*)");
+    private static final Pattern COMPOUND_PART = Pattern.compile(
+            "#([\\w-]+)|\\.([\\w-]+)|\\[\\s*([\\w:-]+)\\s*(?:=\\s*('[^']*'|\"[^\"]*\"|[^\\]'\"]*?))?\\s*]");
+    private static final Posting EMPTY = new Posting();
+
+    // Rough retained sizes (compressed oops): per element the array slot and identity map entry
+    // with its boxed position, per key the map entry, key string and posting list header
+    private static final int ELEMENT_BYTES = 40;
+    private static final int KEY_BYTES = 112;
+
+    private final Element[] elements;
+    private final Map<Element, Integer> positions;
+    private final Map<String, Posting> byId = new HashMap<>();
+    private final Map<String, Posting> byTag = new HashMap<>();
+    private final Map<String, Posting> byClass = new HashMap<>();
+    private final Map<String, Posting> byAttribute = new HashMap<>();
+    private final Map<String, Map<String, Posting>> byAttributeValue = new HashMap<>();
+    private final Map<String, Posting> byOwnTextToken = new HashMap<>();
+
+    private DomIndex(Element[] elements) {
+        this.elements = elements;
+        this.positions = new IdentityHashMap<>(elements.length);
+    }
+
+    /**
+     * Index every element of the document
+     */
+    public static DomIndex build(Document doc) {
+        DomIndex index = new DomIndex(doc.getAllElements().toArray(new Element[0]));
+        for (int i = 0; i < index.elements.length; i++) {
+            index.positions.put(index.elements[i], i);
+            index.add(i, index.elements[i]);
+        }
+        return index;
+    }
+
+    /**
+     * Index of a document derived from the indexed one by replacing subtrees (see DomDeltaApplier)
+     *
+     * Postings of untouched elements are carried over with their positions shifted past the
+     * replacements; only the elements of the replacement subtrees are indexed from scratch.
+     *
+     * @param base Index of the original document
+     * @param doc The derived document
+     * @param replacements Replaced subtrees in document order, none inside another
+     * @throws IllegalStateException when the derived document does not line up with the replacements
+     */
+    public static DomIndex patch(DomIndex base, Document doc, List<Replacement> replacements) {
+        DomIndex index = new DomIndex(doc.getAllElements().toArray(new Element[0]));
+        int[] moved = new int[base.elements.length];
+        int shift = 0;
+        int next = 0;
+        for (Replacement r : replacements) {
+            for (; next < r.position(); next++) {
+                moved[next] = next + shift;
+            }
+            for (; next < r.position() + r.removed(); next++) {
+                moved[next] = -1;
+            }
+            shift += r.inserted() - r.removed();
+        }
+        for (; next < moved.length; next++) {
+            moved[next] = next + shift;
+        }
+        if (index.elements.length != base.elements.length + shift) {
+            throw new IllegalStateException("Derived document has " + index.elements.length
+                    + " elements, replacements account for " + (base.elements.length + shift));
+        }
+        for (int i = 0; i < index.elements.length; i++) {
+            index.positions.put(index.elements[i], i);
+        }
+
+        // Index the replacement subtrees on their own, then merge them into the carried-over postings
+        DomIndex inserted = new DomIndex(index.elements);
+        shift = 0;
+        for (Replacement r : replacements) {
+            int start = r.position() + shift;
+            for (int i = start; i < start + r.inserted(); i++) {
+                inserted.add(i, index.elements[i]);
+            }
+            shift += r.inserted() - r.removed();
+        }
+        merge(index.byId, base.byId, inserted.byId, moved);
+        merge(index.byTag, base.byTag, inserted.byTag, moved);
+        merge(index.byClass, base.byClass, inserted.byClass, moved);
+        merge(index.byAttribute, base.byAttribute, inserted.byAttribute, moved);
+        merge(index.byOwnTextToken, base.byOwnTextToken, inserted.byOwnTextToken, moved);
+        for (String key : union(base.byAttributeValue.keySet(), inserted.byAttributeValue.keySet())) {
+            Map<String, Posting> values = new HashMap<>();
+            merge(values, base.byAttributeValue.getOrDefault(key, Map.of()),
+                    inserted.byAttributeValue.getOrDefault(key, Map.of()), moved);
+            if (!values.isEmpty()) {
+                index.byAttributeValue.put(key, values);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Number of indexed elements
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Estimated heap retained by the index itself, not counting the document it points into
+     */
+    long estimateRetainedBytes() {
+        long bytes = (long) ELEMENT_BYTES * elements.length;
+        bytes += estimateRetainedBytes(byId) + estimateRetainedBytes(byTag) + estimateRetainedBytes(byClass)
+                + estimateRetainedBytes(byAttribute) + estimateRetainedBytes(byOwnTextToken);
+        for (Map<String, Posting> values : byAttributeValue.values()) {
+            bytes += KEY_BYTES + estimateRetainedBytes(values);
+        }
+        return bytes;
+    }
+
+    private static long estimateRetainedBytes(Map<String, Posting> postings) {
+        long bytes = 0;
+        for (Map.Entry<String, Posting> entry : postings.entrySet()) {
+            bytes += KEY_BYTES + 2L * entry.getKey().length() + 4L * entry.getValue().positions.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Document-order number of an element of this document, or -1
+     */
+    public int positionOf(Element el) {
+        Integer position = positions.get(el);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Element with this handle ("e" + document-order number), or null
+     */
+    public Element byHandle(String handle) {
+        String h = handle.trim();
+        if (h.length() < 2 || (h.charAt(0) != 'e' && h.charAt(0) != 'E')) {
+            return null;
+        }
+        try {
+            int position = Integer.parseInt(h.substring(1));
+            return position >= 0 && position < elements.length ? elements[position] : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Element with this document-order number
+     */
+    Element elementAt(int position) {
+        return elements[position];
+    }
+
+    /**
+     * First element with this id in document order, or null
+     */
+    public Element byId(String id) {
+        Posting posting = byId.get(id);
+        return posting != null ? elements[posting.get(0)] : null;
+    }
+
+    /**
+     * Elements with any of the given tags, in document order
+     */
+    public Elements byTags(String... tags) {
+        List<Posting> postings = new ArrayList<>(tags.length);
+        for (String tag : tags) {
+            postings.add(byTag.getOrDefault(tag.toLowerCase(Locale.ROOT), EMPTY));
+        }
+        return union(postings);
+    }
+
+    /**
+     * Elements carrying the attribute, optionally with the given value (matched like [attr=value])
+     */
+    public Elements byAttribute(String name, String value) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        Posting posting = value == null || value.isEmpty()
+                ? byAttribute.getOrDefault(key, EMPTY)
+                : byAttributeValue.getOrDefault(key, Map.of()).getOrDefault(normalizeValue(value), EMPTY);
+        return materialize(posting);
+    }
+
+    /**
+     * Elements whose own text contains the text (case-insensitive), like :containsOwn(text)
+     *
+     * @return Matches, or empty when the text has no word characters to look up
+     */
+    public Optional<Elements> byOwnText(String text) {
+        String needle = text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        String longestToken = null;
+        Matcher tokens = TEXT_TOKEN.matcher(needle);
+        while (tokens.find()) {
+            if (longestToken == null || tokens.group().length() > longestToken.length()) {
+                longestToken = tokens.group();
+            }
+        }
+        if (longestToken == null) {
+            return Optional.empty();
+        }
+
+        // The longest query token is a substring of some indexed token of every match
+        List<Posting> postings = new ArrayList<>();
+        for (Map.Entry<String, Posting> e : byOwnTextToken.entrySet()) {
+            if (e.getKey().contains(longestToken)) {
+                postings.add(e.getValue());
+            }
+        }
+
+        Elements matches = new Elements();
+        for (Element el : union(postings)) {
+            if (el.ownText().toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(el);
+            }
+        }
+        return Optional.of(matches);
+    }
+
+    /**
+     * Answer simple CSS selectors from the index: comma-separated compounds of an optional
+     * tag followed by #id, .class, [attr] and [attr=value] parts (e.g. "input, button",
+     * "input[name='q']", "button.primary#go")
+     *
+     * @return Matches in document order, or empty when the selector needs the full Jsoup engine
+     */
+    public Optional<Elements> select(String selector) {
+        List<Posting> groups = new ArrayList<>();
+        for (String compound : selector.split(",", -1)) {
+            Optional<Posting> matches = selectCompound(compound.trim());
+            if (matches.isEmpty()) {
+                return Optional.empty();
+            }
+            groups.add(matches.get());
+        }
+        return Optional.of(union(groups));
+    }
+
+    private Optional<Posting> selectCompound(String compound) {
+        Matcher m = SIMPLE_COMPOUND.matcher(compound);
+        if (compound.isEmpty() || !m.matches()) {
+            return Optional.empty();
+        }
+
+        String tag = m.group(1) != null ? m.group(1).toLowerCase(Locale.ROOT) : null;
+        List<Part> parts = new ArrayList<>();
+        Matcher pm = COMPOUND_PART.matcher(m.group(2));
+        while (pm.find()) {
+            if (pm.group(1) != null) {
+                parts.add(new Part(PartType.ID, pm.group(1), null));
+            } else if (pm.group(2) != null) {
+                parts.add(new Part(PartType.CLASS, pm.group(2).toLowerCase(Locale.ROOT), null));
+            } else {
+                String value = pm.group(4) != null ? normalizeValue(unquote(pm.group(4))) : null;
+                if (value != null && value.isEmpty()) {
+                    return Optional.empty(); // Jsoup rejects empty values; let it report the error
+                }
+                parts.add(new Part(PartType.ATTRIBUTE, pm.group(3).toLowerCase(Locale.ROOT), value));
+            }
+        }
+        if (tag == null && parts.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Start from the smallest posting list, then check the remaining parts per element
+        Posting candidates = tag != null ? byTag.getOrDefault(tag, EMPTY) : null;
+        for (Part part : parts) {
+            Posting posting = posting(part);
+            if (candidates == null || posting.size() < candidates.size()) {
+                candidates = posting;
+            }
+        }
+        if (parts.isEmpty() || (parts.size() == 1 && tag == null)) {
+            return Optional.of(candidates);
+        }
+
+        Posting matches = new Posting();
+        for (int i = 0; i < candidates.size(); i++) {
+            Element el = elements[candidates.get(i)];
+            if ((tag == null || el.normalName().equals(tag)) && parts.stream().allMatch(p -> p.matches(el))) {
+                matches.add(candidates.get(i));
+            }
+        }
+        return Optional.of(matches);
+    }
+
+    private Posting posting(Part part) {
+        return switch (part.type()) {
+            case ID -> byId.getOrDefault(part.name(), EMPTY);
+            case CLASS -> byClass.getOrDefault(part.name(), EMPTY);
+            case ATTRIBUTE -> part.value() == null
+                    ? byAttribute.getOrDefault(part.name(), EMPTY)
+                    : byAttributeValue.getOrDefault(part.name(), Map.of()).getOrDefault(part.value(), EMPTY);
+        };
+    }
+
+    private void add(int position, Element el) {
+        post(byTag, el.normalName(), position);
+
+        String id = el.id();
+        if (!id.isEmpty()) {
+            post(byId, id, position);
+        }
+        for (String className : el.classNames()) {
+            post(byClass, className.toLowerCase(Locale.ROOT), position);
+        }
+        for (Attribute attr : el.attributes()) {
+            String key = attr.getKey().toLowerCase(Locale.ROOT);
+            post(byAttribute, key, position);
+            post(byAttributeValue.computeIfAbsent(key, k -> new HashMap<>()), normalizeValue(attr.getValue()), position);
+        }
+
+        String ownText = el.ownText();
+        if (!ownText.isEmpty()) {
+            Matcher tokens = TEXT_TOKEN.matcher(ownText.toLowerCase(Locale.ROOT));
+            while (tokens.find()) {
+                post(byOwnTextToken, tokens.group(), position);
+            }
+        }
+    }
+
+    /**
+     * Carried-over postings (moved to their new positions, dropped when replaced) merged with fresh ones
+     */
+    private static void merge(Map<String, Posting> target, Map<String, Posting> carried, Map<String, Posting> fresh,
+                              int[] moved) {
+        for (String key : union(carried.keySet(), fresh.keySet())) {
+            Posting merged = Posting.merge(carried.get(key), fresh.get(key), moved);
+            if (merged.size() > 0) {
+                target.put(key, merged);
+            }
+        }
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> keys = new HashSet<>(a);
+        keys.addAll(b);
+        return keys;
+    }
+
+    private static void post(Map<String, Posting> index, String key, int position) {
+        index.computeIfAbsent(key, k -> new Posting()).add(position);
+    }
+
+    /**
+     * Union of posting lists, de-duplicated and in document order
+     */
+    private Elements union(List<Posting> postings) {
+        if (postings.size() == 1) {
+            return materialize(postings.get(0));
+        }
+        BitSet merged = new BitSet(elements.length);
+        for (Posting posting : postings) {
+            for (int i = 0; i < posting.size(); i++) {
+                merged.set(posting.get(i));
+            }
+        }
+        Elements result = new Elements(merged.cardinality());
+        for (int i = merged.nextSetBit(0); i >= 0; i = merged.nextSetBit(i + 1)) {
+            result.add(elements[i]);
+        }
+        return result;
+    }
+
+    private Elements materialize(Posting posting) {
+        Elements result = new Elements(posting.size());
+        for (int i = 0; i < posting.size(); i++) {
+            result.add(elements[posting.get(i)]);
+        }
+        return result;
+    }
+
+    private static String normalizeValue(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && (trimmed.charAt(0) == '\'' || trimmed.charAt(0) == '"')
+                && trimmed.charAt(trimmed.length() - 1) == trimmed.charAt(0)) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    /**
+     * Ascending element positions; appends are in document order and de-duplicated
+     */
+    private static final class Posting {
+
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(int position) {
+            if (size > 0 && positions[size - 1] == position) {
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        int get(int i) {
+            return positions[i];
+        }
+
+        /**
+         * Carried positions mapped through moved (-1 = dropped), merged in order with fresh positions
+         */
+        static Posting merge(Posting carried, Posting fresh, int[] moved) {
+            Posting merged = new Posting();
+            int c = 0;
+            int f = 0;
+            int carriedSize = carried != null ? carried.size : 0;
+            int freshSize = fresh != null ? fresh.size : 0;
+            while (c < carriedSize || f < freshSize) {
+                int next = c < carriedSize ? moved[carried.positions[c]] : -1;
+                if (c < carriedSize && next < 0) {
+                    c++;
+                } else if (f < freshSize && (c >= carriedSize || fresh.positions[f] < next)) {
+                    merged.add(fresh.positions[f++]);
+                } else {
+                    merged.add(next);
+                    c++;
+                }
+            }
+            return merged;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * One replaced subtree
+     *
+     * @param position Original document-order number of the replaced subtree's root
+     * @param removed Elements in the replaced subtree (root included)
+     * @param inserted Elements in the replacement, in document order from position
+     */
+    public record Replacement(int position, int removed, int inserted) {
+    }
+
+    private enum PartType { ID, CLASS, ATTRIBUTE }
+
+    private record Part(PartType type, String name, String value) {
+
+        boolean matches(Element el) {
+            return switch (type) {
+                case ID -> el.id().equals(name);
+                case CLASS -> el.hasClass(name);
+                case ATTRIBUTE -> el.hasAttr(name)
+                        && (value == null || normalizeValue(el.attr(name)).equals(value));
+            };
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Service responsible for per-document inverted indexes (see DomIndex)
+ *
+ * Indexes are built once per Document instance and memoized by identity. An index
+ * references its document's elements (and through them the document), so weak keys
+ * alone would never release it: an index is dropped when its document leaves
+ * HtmlDocumentCache, and entries are also bounded by count and idle time for documents
+ * that never were cached (session baselines, cache disabled).
+ */
+@Slf4j
+@Service
+public class DomIndexService implements HtmlDocumentCache.EvictionListener {
+
+    private final Cache<Document, DomIndex> indexes;
+
+    public DomIndexService(HtmlProcessingConfig config) {
+        this.indexes = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(config.getDerivedCacheMaxDocuments())
+                .expireAfterAccess(Duration.ofMinutes(config.getDocumentCacheExpireMinutes()))
+                .build();
+    }
+
+    /**
+     * Index of the document, building it on first use
+     *
+     * @param doc The preprocessed (shared, read-only) document
+     */
+    public DomIndex indexFor(Document doc) {
+        return indexes.get(doc, this::build);
+    }
+
+    /**
+     * Use an index built elsewhere (e.g. patched from a baseline's index) for the document
+     */
+    public void adopt(Document doc, DomIndex index) {
+        indexes.put(doc, index);
+    }
+
+    /**
+     * Forget the index after a document was mutated in place
+     */
+    public void invalidate(Document doc) {
+        indexes.invalidate(doc);
+    }
+
+    @Override
+    public void evicted(Document doc) {
+        indexes.invalidate(doc);
+    }
+
+    private DomIndex build(Document doc) {
+        long startTime = System.nanoTime();
+        DomIndex index = DomIndex.build(doc);
+        log.debug("Built DOM index of {} elements in {}us", index.size(), (System.nanoTime() - startTime) / 1000);
+        return index;
+    }
+}
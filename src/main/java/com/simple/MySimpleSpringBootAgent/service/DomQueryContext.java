@@ -0,0 +1,138 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import dev.langchain4j.invocation.InvocationParameters;
+import org.jsoup.nodes.Document;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-invocation context for DomQueryTools
+ *
+ * Travels with a single AI service call as an InvocationParameters entry, so tools
+ * resolve the document of the conversation that called them - not of the thread
+ * they happen to run on. This keeps analyses independent of the executing thread
+ * (virtual threads, async tool execution, streaming callbacks).
+ *
+ * It also remembers the tool results of the conversation, so a repeated call is
+ * answered without touching the DOM again (see DomQueryTools).
+ */
+public final class DomQueryContext {
+
+    /**
+     * InvocationParameters key under which the context is stored
+     */
+    public static final String PARAMETER_NAME = "domQueryContext";
+
+    private final Document document;
+    private final DomIndex index;
+    private final AtomicInteger toolCalls = new AtomicInteger();
+    private final AtomicInteger resultNumbers = new AtomicInteger();
+    private final AtomicInteger reusedResults = new AtomicInteger();
+    private final Map<String, ToolResult> resultsByCall = new ConcurrentHashMap<>();
+    private final Map<String, ToolResult> resultsByText = new ConcurrentHashMap<>();
+
+    private DomQueryContext(Document document, DomIndex index) {
+        this.document = document;
+        this.index = index;
+    }
+
+    /**
+     * Create invocation parameters carrying a context for this document
+     *
+     * @param document The preprocessed (shared, read-only) document
+     * @param index Inverted index of the document (see DomIndexService)
+     * @return Parameters to pass to the AI service method
+     */
+    public static InvocationParameters invocationParameters(Document document, DomIndex index) {
+        return InvocationParameters.from(PARAMETER_NAME, new DomQueryContext(document, index));
+    }
+
+    /**
+     * Context carried by the invocation, or null when the caller did not provide one
+     */
+    public static DomQueryContext from(InvocationParameters parameters) {
+        return parameters != null ? parameters.get(PARAMETER_NAME) : null;
+    }
+
+    public Document document() {
+        return document;
+    }
+
+    public DomIndex index() {
+        return index;
+    }
+
+    /**
+     * Count one tool call made by this invocation (tools may run concurrently)
+     */
+    public void recordToolCall() {
+        toolCalls.incrementAndGet();
+    }
+
+    /**
+     * Tool calls made by this invocation so far
+     */
+    public int toolCalls() {
+        return toolCalls.get();
+    }
+
+    /**
+     * Number the next tool result of this conversation (1-based, in call order)
+     */
+    public int nextResultNumber() {
+        return resultNumbers.incrementAndGet();
+    }
+
+    /**
+     * Result of an earlier call of this tool with the same argument, or null
+     */
+    public ToolResult resultOf(String tool, String argument) {
+        return resultsByCall.get(callKey(tool, argument));
+    }
+
+    /**
+     * Remember a computed tool result
+     *
+     * @param indexText Also index the text, so a different call returning the same text can refer to it
+     * @return The earliest result with the same text when indexed, else the new result
+     */
+    public ToolResult remember(int number, String tool, String argument, String text, boolean indexText) {
+        ToolResult result = new ToolResult(number, tool, argument, text);
+        if (indexText) {
+            ToolResult earlier = resultsByText.putIfAbsent(text, result);
+            if (earlier != null) {
+                result = earlier; // repeats of this call refer straight to the first occurrence
+            }
+        }
+        resultsByCall.putIfAbsent(callKey(tool, argument), result);
+        return result;
+    }
+
+    /**
+     * Count a tool call answered from an earlier result
+     */
+    public void recordReusedResult() {
+        reusedResults.incrementAndGet();
+    }
+
+    /**
+     * Tool calls answered from an earlier result so far
+     */
+    public int reusedResults() {
+        return reusedResults.get();
+    }
+
+    private static String callKey(String tool, String argument) {
+        return argument != null ? tool + '\u0000' + argument : tool;
+    }
+
+    /**
+     * A tool result of this conversation
+     *
+     * @param number Position of the call that produced it
+     */
+    public record ToolResult(int number, String tool, String argument, String text) {
+    }
+}
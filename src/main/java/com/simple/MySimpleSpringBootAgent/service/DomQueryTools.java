@@ -2,163 +2,236 @@ package com.simple.MySimpleSpringBootAgent.service;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.invocation.InvocationParameters;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.springframework.stereotype.Component;
 
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * DOM Query Tools for LLM-based locator analysis
  * Provides @Tool methods that allow the LLM to interactively query the HTML DOM
- * Uses ThreadLocal for thread-safe concurrent request handling
+ * The document comes from the DomQueryContext passed with each AI invocation,
+ * so this bean is stateless and safe for any number of concurrent conversations
+ *
+ * Lookups are answered from the document's DomIndex where possible; complex CSS
+ * selectors and XPath are compiled once through CompiledSelectorCache and evaluated
+ * over the whole tree
+ *
+ * Results are memoized per conversation (DomQueryContext): a call repeating an earlier
+ * tool and argument is not evaluated again, and a result identical to an earlier one is
+ * sent as a short "Same as previous result #n" reference instead of the full listing
+ *
+ * Elements are listed compactly with a handle each (see ToolOutputFormatter); getElement
+ * answers for one handle with all attributes and the element's ancestors
+ *
+ * Every invocation is timed per tool and outcome (see LocatorMetrics)
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class DomQueryTools {
 
-    private ThreadLocal<Document> currentDoc = new ThreadLocal<>();
+    private static final Pattern SINGLE_ELEMENT = Pattern.compile("^(?:e\\d+ )?<");
+    private static final Pattern FOUND_COUNT = Pattern.compile("^Found (\\d+) elements:");
+    private static final Pattern MORE_COUNT = Pattern.compile("\\.\\.\\. and (\\d+) more elements$");
+    private static final Pattern SAME_AS_COUNT = Pattern.compile("^Same as previous result #\\d+ .* - (\\d+) elements$");
+    // Results shorter than this are cheaper to repeat than to refer to
+    private static final int MIN_REFERENCED_LENGTH = 120;
+    private static final int MAX_REFERENCED_ARGUMENT_LENGTH = 60;
 
-    /**
-     * Set the HTML document for this thread (thread-safe for concurrent requests)
-     */
-    public void setDocument(Document doc) {
-        this.currentDoc.set(doc);
-    }
-
-    /**
-     * Clear the document after processing
-     */
-    public void clearDocument() {
-        this.currentDoc.remove();
-    }
+    private final CompiledSelectorCache selectorCache;
+    private final LocatorMetrics metrics;
 
     @Tool("Find element by ID. Returns element details if found, 'Not found' otherwise.")
-    public String findById(@P("The element ID to search for") String id) {
-        Document doc = currentDoc.get();
-        if (doc == null) return "Document not set";
-
-        Element el = doc.getElementById(id);
-        if (el != null) {
-            log.debug("Found element by ID: {}", id);
-            return formatElement(el);
-        }
-        log.debug("Element not found by ID: {}", id);
-        return "Not found";
+    public String findById(@P("The element ID to search for") String id, InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        return memoized("findById", id, context, () -> {
+            Element el = context.index().byId(id);
+            if (el != null) {
+                log.debug("Found element by ID: {}", id);
+                return ToolOutputFormatter.formatElement(el, context.index());
+            }
+            log.debug("Element not found by ID: {}", id);
+            return "Not found";
+        });
     }
 
     @Tool("Find elements by CSS selector. Returns matching elements or error message.")
-    public String findByCss(@P("CSS selector to match") String selector) {
-        Document doc = currentDoc.get();
-        if (doc == null) return "Document not set";
-
-        try {
-            Elements els = doc.select(selector);
-            log.debug("CSS selector '{}' found {} elements", selector, els.size());
-            return formatElements(els, 10);
-        } catch (Exception e) {
-            log.warn("Invalid CSS selector: {}", selector, e);
-            return "Invalid selector: " + e.getMessage();
-        }
+    public String findByCss(@P("CSS selector to match") String selector, InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        return memoized("findByCss", selector, context, () -> {
+            try {
+                // Simple selectors (tags, #id, .class, [attr=value] and lists of them) come from the index
+                Elements els = context.index().select(selector)
+                        .orElseGet(() -> selectorCache.select(context.document(), selector));
+                log.debug("CSS selector '{}' found {} elements", selector, els.size());
+                return ToolOutputFormatter.formatElements(els, 10, context.index());
+            } catch (Exception e) {
+                log.warn("Invalid CSS selector: {}", selector, e);
+                return "Invalid selector: " + e.getMessage();
+            }
+        });
     }
 
     @Tool("Find elements by XPath expression. Returns matching elements or error message.")
-    public String findByXPath(@P("XPath expression to evaluate") String xpath) {
-        Document doc = currentDoc.get();
-        if (doc == null) return "Document not set";
-
-        try {
-            Elements els = doc.selectXpath(xpath);
-            log.debug("XPath '{}' found {} elements", xpath, els.size());
-            return formatElements(els, 10);
-        } catch (Exception e) {
-            log.warn("Invalid XPath: {}", xpath, e);
-            return "Invalid XPath: " + e.getMessage();
-        }
+    public String findByXPath(@P("XPath expression to evaluate") String xpath, InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        return memoized("findByXPath", xpath, context, () -> {
+            try {
+                Elements els = selectorCache.selectXpath(context.document(), xpath);
+                log.debug("XPath '{}' found {} elements", xpath, els.size());
+                return ToolOutputFormatter.formatElements(els, 10, context.index());
+            } catch (Exception e) {
+                log.warn("Invalid XPath: {}", xpath, e);
+                return "Invalid XPath: " + e.getMessage();
+            }
+        });
     }
 
     @Tool("Get all interactive elements (inputs, buttons, links, etc.) with their IDs, names, and classes. Limited to first 50 elements.")
-    public String getAllInteractiveElements() {
-        Document doc = currentDoc.get();
-        if (doc == null) return "Document not set";
-
-        Elements els = doc.select("input, button, a, select, textarea");
-        log.debug("Found {} interactive elements", els.size());
-        return formatElements(els, 50);
+    public String getAllInteractiveElements(InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        return memoized("getAllInteractiveElements", null, context, () -> {
+            Elements els = context.index().byTags("input", "button", "a", "select", "textarea");
+            log.debug("Found {} interactive elements", els.size());
+            return ToolOutputFormatter.formatElements(els, 50, context.index());
+        });
     }
 
     @Tool("Search for elements containing specific text. Returns matching elements.")
-    public String findByText(@P("Text content to search for") String text) {
-        Document doc = currentDoc.get();
-        if (doc == null) return "Document not set";
-
-        try {
-            String escapedText = text.replace("\"", "\\\"");
-            Elements els = doc.select(String.format(":containsOwn(%s)", escapedText));
-            log.debug("Text search for '{}' found {} elements", text, els.size());
-            return formatElements(els, 20);
-        } catch (Exception e) {
-            log.warn("Text search failed for: {}", text, e);
-            return "Search failed: " + e.getMessage();
-        }
+    public String findByText(@P("Text content to search for") String text, InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        return memoized("findByText", text, context, () -> {
+            try {
+                Elements els = context.index().byOwnText(text).orElseGet(() -> {
+                    // No word characters to look up in the token index
+                    String escapedText = text.replace("\"", "\\\"");
+                    return context.document().select(String.format(":containsOwn(%s)", escapedText));
+                });
+                log.debug("Text search for '{}' found {} elements", text, els.size());
+                return ToolOutputFormatter.formatElements(els, 20, context.index());
+            } catch (Exception e) {
+                log.warn("Text search failed for: {}", text, e);
+                return "Search failed: " + e.getMessage();
+            }
+        });
     }
 
     @Tool("Get all elements with a specific attribute. Example: data-testid, aria-label, role")
     public String findByAttribute(
             @P("Attribute name") String attrName,
-            @P(value = "Attribute value (optional)", required = false) String attrValue) {
-        Document doc = currentDoc.get();
-        if (doc == null) return "Document not set";
-
-        try {
-            String selector = attrValue != null && !attrValue.isEmpty()
-                    ? String.format("[%s='%s']", attrName, attrValue)
-                    : String.format("[%s]", attrName);
-            Elements els = doc.select(selector);
-            log.debug("Attribute search [{}={}] found {} elements", attrName, attrValue, els.size());
-            return formatElements(els, 20);
-        } catch (Exception e) {
-            return "Search failed: " + e.getMessage();
-        }
+            @P(value = "Attribute value (optional)", required = false) String attrValue,
+            InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        String argument = attrValue != null ? attrName + "=" + attrValue : attrName;
+        return memoized("findByAttribute", argument, context, () -> {
+            try {
+                Elements els = context.index().byAttribute(attrName, attrValue);
+                log.debug("Attribute search [{}={}] found {} elements", attrName, attrValue, els.size());
+                return ToolOutputFormatter.formatElements(els, 20, context.index());
+            } catch (Exception e) {
+                return "Search failed: " + e.getMessage();
+            }
+        });
+    }
+
+    @Tool("Get one element by the handle shown in earlier results (e.g. e42): all its attributes, its text and its nearest ancestors")
+    public String getElement(@P("Element handle, e.g. e42") String handle, InvocationParameters parameters) {
+        DomQueryContext context = DomQueryContext.from(parameters);
+        if (context == null) return "Document not set";
+
+        return memoized("getElement", handle, context, () -> {
+            Element el = context.index().byHandle(handle);
+            if (el == null) {
+                log.debug("No element with handle {}", handle);
+                return "Not found";
+            }
+            return ToolOutputFormatter.formatDetails(el, context.index());
+        });
     }
 
     /**
-     * Format a single element with key attributes
+     * Time a tool call and answer it from the conversation's earlier results where possible
      */
-    private String formatElement(Element el) {
-        String text = el.text();
-        String truncatedText = text.length() > 50 ? text.substring(0, 50) + "..." : text;
-
-        return String.format("<%s id=\"%s\" class=\"%s\" name=\"%s\" data-testid=\"%s\">%s</%s>",
-                el.tagName(),
-                el.id(),
-                el.className(),
-                el.attr("name"),
-                el.attr("data-testid"),
-                truncatedText,
-                el.tagName());
+    private String memoized(String tool, String argument, DomQueryContext context, Supplier<String> work) {
+        return metrics.timeTool(tool, argument, context, () -> {
+            int number = context.nextResultNumber();
+            DomQueryContext.ToolResult earlier = context.resultOf(tool, argument);
+            if (earlier == null) {
+                String result = work.get();
+                earlier = context.remember(number, tool, argument, result, isReferenceable(result));
+                if (earlier.number() == number) {
+                    return result;
+                }
+            }
+            context.recordReusedResult();
+            log.debug("{}({}) repeats result #{}", tool, argument, earlier.number());
+            return isReferenceable(earlier.text()) ? reference(earlier) : earlier.text();
+        });
+    }
+
+    private static boolean isReferenceable(String result) {
+        return result.length() >= MIN_REFERENCED_LENGTH && matchCount(result) >= 0;
+    }
+
+    private static String reference(DomQueryContext.ToolResult earlier) {
+        String argument = earlier.argument();
+        if (argument != null && argument.length() > MAX_REFERENCED_ARGUMENT_LENGTH) {
+            argument = argument.substring(0, MAX_REFERENCED_ARGUMENT_LENGTH) + "...";
+        }
+        return String.format("Same as previous result #%d (%s%s) - %d elements",
+                earlier.number(),
+                earlier.tool(),
+                argument != null ? " " + argument : "",
+                matchCount(earlier.text()));
     }
 
     /**
-     * Format multiple elements with limit
+     * Number of elements a tool result reports, for progress reporting
+     *
+     * @param toolResult Text returned by one of the tools
+     * @return Match count, or -1 when the result is an error message
      */
-    private String formatElements(Elements elements, int limit) {
-        if (elements.isEmpty()) {
-            return "No elements found";
+    public static int matchCount(String toolResult) {
+        if (toolResult == null) {
+            return -1;
+        }
+        if (toolResult.equals("Not found") || toolResult.equals("No elements found")) {
+            return 0;
+        }
+        if (SINGLE_ELEMENT.matcher(toolResult).lookingAt()) {
+            return 1; // single element from findById / getElement
         }
 
-        String formatted = elements.stream()
-                .limit(limit)
-                .map(this::formatElement)
-                .collect(Collectors.joining("\n"));
-
-        if (elements.size() > limit) {
-            formatted += String.format("\n... and %d more elements", elements.size() - limit);
+        Matcher sameAs = SAME_AS_COUNT.matcher(toolResult);
+        if (sameAs.find()) {
+            return Integer.parseInt(sameAs.group(1));
         }
 
-        return String.format("Found %d elements:\n%s",
-                Math.min(elements.size(), limit), formatted);
+        Matcher found = FOUND_COUNT.matcher(toolResult);
+        if (!found.find()) {
+            return -1;
+        }
+        int count = Integer.parseInt(found.group(1));
+        Matcher more = MORE_COUNT.matcher(toolResult);
+        return more.find() ? count + Integer.parseInt(more.group(1)) : count;
     }
 }
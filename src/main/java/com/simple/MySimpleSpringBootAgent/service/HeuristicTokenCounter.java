@@ -0,0 +1,55 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+/**
+ * Vocabulary-free token estimate for models without a known encoding
+ *
+ * Counts runs of letters/digits as one token per 4 chars (rounded up) and every other
+ * non-whitespace char as its own token. Markup punctuation (<, =, ", /) is where
+ * whitespace splitting undercounts minified HTML, and BPE vocabularies mostly encode
+ * it as separate tokens too. Single pass over code points, no allocation.
+ */
+public class HeuristicTokenCounter implements TokenCounter {
+
+    private static final int CHARS_PER_WORD_TOKEN = 4;
+
+    @Override
+    public String name() {
+        return "heuristic";
+    }
+
+    @Override
+    public int countTokens(String text) {
+        return text == null ? 0 : scan(text, Integer.MAX_VALUE)[0];
+    }
+
+    @Override
+    public int prefixLengthWithin(String text, int maxTokens) {
+        return text == null ? 0 : scan(text, maxTokens)[1];
+    }
+
+    /**
+     * @return {tokens counted, chars consumed} - stops before the token that would exceed the budget
+     */
+    private static int[] scan(String text, int maxTokens) {
+        int tokens = 0;
+        int run = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int c = text.codePointAt(i); // a surrogate pair is one char, never split
+            int added;
+            if (Character.isLetterOrDigit(c)) {
+                added = run % CHARS_PER_WORD_TOKEN == 0 ? 1 : 0;
+                run++;
+            } else {
+                run = 0;
+                added = Character.isWhitespace(c) ? 0 : 1;
+            }
+            if (tokens + added > maxTokens) {
+                break;
+            }
+            tokens += added;
+            i += Character.charCount(c);
+        }
+        return new int[]{tokens, i};
+    }
+}
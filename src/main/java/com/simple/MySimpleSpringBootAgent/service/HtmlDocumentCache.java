@@ -0,0 +1,145 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of preprocessed Jsoup Documents
+ * Keyed by a fast hash of the raw HTML and weighted by the estimated heap the parsed DOM retains
+ *
+ * Eviction is Caffeine's W-TinyLFU, so pages that CI sends repeatedly stay hot
+ * while one-off pages are evicted first. Hit/miss/eviction counters are
+ * published to Micrometer under "html.document.cache".
+ *
+ * Structures derived from a cached document (DOM index, XPath view, fingerprint) are
+ * dropped by their EvictionListener when the document leaves the cache, so they never
+ * outlive it. The weight covers the DOM only; derived structures add to it while present.
+ *
+ * Cached documents are shared between concurrent requests and must be treated as
+ * read-only. Jsoup cannot enforce that, so it is a convention: callers that need to
+ * mutate a document must work on doc.clone().
+ */
+@Component
+public class HtmlDocumentCache {
+
+    private static final String CACHE_NAME = "html.document.cache";
+
+    // Rough retained sizes (compressed oops): node object + child list + attributes holder,
+    // per attribute key/value strings, per text node string; chars counted as UTF-16
+    private static final int ELEMENT_BYTES = 160;
+    private static final int ATTRIBUTE_BYTES = 96;
+    private static final int TEXT_NODE_BYTES = 96;
+
+    private final HtmlProcessingConfig config;
+    private final HtmlUtilityService htmlUtilityService;
+    private final Cache<String, CachedDocument> cache;
+
+    public HtmlDocumentCache(HtmlProcessingConfig config,
+                             HtmlUtilityService htmlUtilityService,
+                             MeterRegistry meterRegistry,
+                             List<EvictionListener> evictionListeners) {
+        this.config = config;
+        this.htmlUtilityService = htmlUtilityService;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getDocumentCacheMaxWeight())
+                .weigher((String key, CachedDocument value) -> value.weight())
+                .expireAfterAccess(Duration.ofMinutes(config.getDocumentCacheExpireMinutes()))
+                .executor(Runnable::run) // listeners only invalidate small caches; keeps eviction deterministic
+                .removalListener((String key, CachedDocument value, RemovalCause cause) -> {
+                    if (value != null) {
+                        evictionListeners.forEach(listener -> listener.evicted(value.document()));
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Return the cached document for this HTML, parsing it at most once
+     * Concurrent requests for the same content wait for the same parse
+     *
+     * @param htmlContent The raw HTML content
+     * @param parser Parses and cleans the HTML on a cache miss
+     * @return Shared, read-only preprocessed document
+     */
+    public Document getOrParse(String htmlContent, Function<String, Document> parser) {
+        if (!config.isDocumentCacheEnabled()) {
+            return parser.apply(htmlContent);
+        }
+
+        String key = htmlUtilityService.contentHash(htmlContent);
+        return cache.get(key, k -> CachedDocument.of(parser.apply(htmlContent))).document();
+    }
+
+    /**
+     * Return the cached document for a caller-computed key (e.g. a hash of uploaded bytes)
+     *
+     * @param key Content-addressed key; callers must prefix keys from other key spaces
+     * @param loader Parses and cleans the content on a cache miss
+     * @return Shared, read-only preprocessed document
+     */
+    public Document getOrLoad(String key, Supplier<Document> loader) {
+        if (!config.isDocumentCacheEnabled()) {
+            return loader.get();
+        }
+        return cache.get(key, k -> CachedDocument.of(loader.get())).document();
+    }
+
+    /**
+     * Estimated heap retained by a parsed document: its nodes, attributes and text
+     */
+    static long estimateRetainedBytes(Document doc) {
+        long[] bytes = {0};
+        NodeTraversor.traverse((Node node, int depth) -> {
+            if (node instanceof Element el) {
+                bytes[0] += ELEMENT_BYTES;
+                if (el.attributesSize() > 0) {
+                    for (Attribute attr : el.attributes()) {
+                        bytes[0] += ATTRIBUTE_BYTES + 2L * (attr.getKey().length() + attr.getValue().length());
+                    }
+                }
+            } else if (node instanceof TextNode text) {
+                bytes[0] += TEXT_NODE_BYTES + 2L * text.getWholeText().length();
+            } else {
+                bytes[0] += TEXT_NODE_BYTES;
+            }
+        }, doc);
+        return bytes[0];
+    }
+
+    /**
+     * Told when a document leaves the cache, so it can drop structures derived from it
+     */
+    public interface EvictionListener {
+
+        void evicted(Document doc);
+    }
+
+    /**
+     * Cached document with its estimated retained size (the cache weight)
+     */
+    private record CachedDocument(Document document, int weight) {
+
+        static CachedDocument of(Document document) {
+            return new CachedDocument(document, (int) Math.min(Integer.MAX_VALUE, estimateRetainedBytes(document)));
+        }
+    }
+}
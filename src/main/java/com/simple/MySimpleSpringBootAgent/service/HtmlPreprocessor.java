@@ -1,26 +1,70 @@
 package com.simple.MySimpleSpringBootAgent.service;
 
 import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.jfr.PreprocessingStageEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Simplified HTML preprocessing pipeline for local LLM optimization
  *
  * Refactored to leverage LangChain4j Document Transformers and remove brittle regex-based parsing
  *
  * New pipeline stages:
- * 1. Remove noise elements (scripts, styles) - Jsoup
- * 2. Minification - HtmlCompressor
+ * 1. Remove noise elements (scripts, styles, noscript, comments) - one Jsoup NodeTraversor pass
+ *    that also counts what it keeps, so sizes are reported without re-serializing the page
  *
  * The preprocessed HTML is returned as a Jsoup Document for:
- * - LLM context (via toString or html())
+ * - LLM context (rendered as a candidate excerpt by CandidateExcerptBuilder)
  * - Tool-based DOM querying (via DomQueryTools)
  *
+ * Documents are cached by content hash (HtmlDocumentCache), so the same page source
+ * is parsed and cleaned only once. Returned documents are shared and read-only.
+ *
+ * Uploaded page sources (preprocessUpload) are decoded and parsed as a stream, so a
+ * multi-MB page never exists as a String. To compare both routes, the bytes the ingesting
+ * thread allocates are recorded per path (html.ingest.thread.allocated.bytes). That is
+ * allocation volume, not peak heap: the JVM cannot attribute live heap to a request.
+ * The JVM does not count allocations of virtual threads either, so on virtual threads one
+ * ingestion in allocationSampleRate is handed to a platform thread and measured there
+ * (only when that thread is idle, so sampled requests never queue behind each other).
+ * Both routes are timed as locator.stage{stage=preprocessing}, cache hits included;
+ * each parse/clean on a cache miss is also a locator.Preprocessing JFR event.
+ *
+ * Page session baselines (preprocessTracked) are parsed with source positions tracked,
+ * so DomDeltaApplier can map source edits onto nodes and clean the nodes it reparses.
+ *
  * Target: Reduce HTML size to fit in local LLM context windows (4k-8k tokens)
  */
 @Slf4j
@@ -28,9 +72,18 @@ import org.springframework.util.StringUtils;
 @RequiredArgsConstructor
 public class HtmlPreprocessor {
 
+    private static final Set<String> NOISE_TAGS = Set.of("script", "style", "noscript");
+
     private final HtmlProcessingConfig config;
-    private final HtmlMinificationService minificationService;
-    private final HtmlUtilityService htmlUtilityService;
+    private final HtmlDocumentCache documentCache;
+    private final PageSourceDecoder pageSourceDecoder;
+    private final MeterRegistry meterRegistry;
+    private final LocatorMetrics metrics;
+
+    private final ExecutorService allocationSampler = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("ingest-allocation-sampler").daemon().factory());
+    private final AtomicBoolean samplerBusy = new AtomicBoolean();
+    private final AtomicLong ingestions = new AtomicLong();
 
     /**
      * Preprocess HTML content using simplified pipeline
@@ -41,7 +94,7 @@ public class HtmlPreprocessor {
      *
      * @param htmlContent The original HTML content from driver.getPageSource()
      * @param locator The failed XPath/CSS locator (for logging)
-     * @return Jsoup Document with noise removed, ready for tool-based querying
+     * @return Shared, read-only Jsoup Document with noise removed, ready for tool-based querying
      */
     public Document preprocessHtml(String htmlContent, String locator) {
         if (!StringUtils.hasText(htmlContent)) {
@@ -49,6 +102,105 @@ public class HtmlPreprocessor {
             return new Document("");
         }
 
+        return measureAllocation("json", () -> metrics.timeStage("preprocessing",
+                () -> documentCache.getOrParse(htmlContent, html -> parseAndClean(html, locator))));
+    }
+
+    /**
+     * Preprocess an uploaded (optionally gzip/deflate compressed) page source
+     * The decoded bytes are streamed into Jsoup's parser without building a String
+     *
+     * @param wireBytes The uploaded bytes as received
+     * @param contentEncoding Declared encoding, or null to sniff from magic bytes
+     * @param charset Declared charset, or null to detect from BOM / meta tags
+     * @param locator The failed XPath/CSS locator (for logging)
+     * @return Shared, read-only Jsoup Document with noise removed
+     * @throws PageSourceException when the upload cannot be decoded (encoding, charset, size, corrupt data)
+     */
+    public Document preprocessUpload(byte[] wireBytes, String contentEncoding, String charset, String locator) {
+        // Keyed by the wire bytes, so identical uploads skip decompression and parsing entirely
+        Document doc = measureAllocation("upload", () -> {
+            String key = "upload:" + new ContentHasher().update(wireBytes, 0, wireBytes.length).hex();
+            return metrics.timeStage("preprocessing", () -> documentCache.getOrLoad(key,
+                    () -> parseAndCleanStream(wireBytes, contentEncoding, charset, locator)));
+        });
+
+        summary("html.ingest.wire.bytes", "upload").record(wireBytes.length);
+        return doc;
+    }
+
+    /**
+     * Parse and clean a session baseline with source positions tracked (see DomDeltaApplier)
+     * Not cached: the baseline is retained by its session
+     *
+     * @param htmlContent The original HTML content
+     * @param locator The failed XPath/CSS locator (for logging)
+     * @param removed Receives each noise node as it is removed, its source range intact
+     * @return Cleaned document whose elements know their source ranges
+     */
+    Document preprocessTracked(String htmlContent, String locator, Consumer<Node> removed) {
+        return metrics.timeStage("preprocessing", () -> {
+            long startTime = System.currentTimeMillis();
+            PreprocessingStageEvent parseEvent = PreprocessingStageEvent.start("parse", "session");
+            Document doc = Jsoup.parse(htmlContent, "", Parser.htmlParser().setTrackPosition(true));
+            parseEvent.finish(htmlContent.length(), htmlContent.length());
+
+            PreprocessingStageEvent cleanEvent = PreprocessingStageEvent.start("clean", "session");
+            CleaningFilter filter = new CleaningFilter(removed);
+            NodeTraversor.filter(filter, doc);
+            cleanEvent.finish(htmlContent.length(), filter.retainedBytes);
+
+            summary("html.ingest.cleaned.bytes", "session").record(filter.retainedBytes);
+            log.info("Session baseline preprocessed: {} -> ~{} bytes ({} elements kept, {} noise nodes removed) "
+                            + "in {}ms, locator: {}", htmlContent.length(), filter.retainedBytes, filter.elements,
+                    filter.removedNodes, System.currentTimeMillis() - startTime, locator);
+            return doc;
+        });
+    }
+
+    /**
+     * Remove noise from a subtree parsed into an already cleaned document
+     *
+     * @param root Root of the subtree; attached to a parent, since it may be removed itself
+     */
+    void clean(Node root) {
+        NodeTraversor.filter(new CleaningFilter(null), root);
+    }
+
+    /**
+     * Decode, parse and clean an upload (cache miss path)
+     */
+    private Document parseAndCleanStream(byte[] wireBytes, String contentEncoding, String charset, String locator) {
+        long startTime = System.currentTimeMillis();
+        try (PageSourceDecoder.CountingInputStream in = pageSourceDecoder.decode(wireBytes, contentEncoding)) {
+            PreprocessingStageEvent parseEvent = PreprocessingStageEvent.start("decode+parse", "upload");
+            Document doc = Jsoup.parse(in, charset, "");
+            long decodedSize = in.count();
+            parseEvent.finish(wireBytes.length, decodedSize);
+
+            PreprocessingStageEvent cleanEvent = PreprocessingStageEvent.start("clean", "upload");
+            CleaningStats stats = removeNoiseElements(doc);
+            cleanEvent.finish(decodedSize, stats.retainedBytes());
+
+            summary("html.ingest.decoded.bytes", "upload").record(decodedSize);
+            summary("html.ingest.cleaned.bytes", "upload").record(stats.retainedBytes());
+            log.info("Streamed upload preprocessed: {} wire -> {} decoded -> ~{} cleaned bytes "
+                            + "({} elements kept, {} noise nodes removed) in {}ms, locator: {}",
+                    wireBytes.length, decodedSize, stats.retainedBytes(), stats.elements(),
+                    stats.removedNodes(), System.currentTimeMillis() - startTime, locator);
+
+            return doc;
+        } catch (IOException | UncheckedIOException e) {
+            throw new PageSourceException("Unreadable page source: " + e.getMessage(), e);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            throw new PageSourceException("Unsupported charset: " + charset, e);
+        }
+    }
+
+    /**
+     * Parse and clean HTML (cache miss path)
+     */
+    private Document parseAndClean(String htmlContent, String locator) {
         int originalSize = htmlContent.length();
         log.info("Starting HTML preprocessing: {} bytes, locator: {}", originalSize, locator);
 
@@ -56,17 +208,23 @@ public class HtmlPreprocessor {
 
         try {
             // Parse HTML document
+            PreprocessingStageEvent parseEvent = PreprocessingStageEvent.start("parse", "json");
             Document doc = Jsoup.parse(htmlContent);
+            parseEvent.finish(originalSize, originalSize);
 
             // Remove noise elements (scripts, styles, comments)
-            removeNoiseElements(doc);
+            PreprocessingStageEvent cleanEvent = PreprocessingStageEvent.start("clean", "json");
+            CleaningStats stats = removeNoiseElements(doc);
+            cleanEvent.finish(originalSize, stats.retainedBytes());
 
             long elapsed = System.currentTimeMillis() - startTime;
-            int finalSize = doc.html().length();
+            long finalSize = stats.retainedBytes();
             double percentReduction = ((originalSize - finalSize) * 100.0) / originalSize;
 
-            log.info("Preprocessing complete: {} → {} bytes ({}% reduction) in {}ms",
-                    originalSize, finalSize, String.format("%.1f", percentReduction), elapsed);
+            summary("html.ingest.cleaned.bytes", "json").record(finalSize);
+            log.info("Preprocessing complete: {} → ~{} bytes ({}% reduction, {} elements kept, {} noise nodes removed) in {}ms",
+                    originalSize, finalSize, String.format("%.1f", percentReduction),
+                    stats.elements(), stats.removedNodes(), elapsed);
 
             return doc;
 
@@ -79,42 +237,138 @@ public class HtmlPreprocessor {
 
     /**
      * Remove noise elements from document
-     * Based on original HtmlCleaningService logic but inline for simplicity
+     * Scripts, styles, noscript and comments are dropped in a single traversal, which
+     * measures the retained markup on the way instead of serializing it afterwards
      */
-    private void removeNoiseElements(Document doc) {
-        // Remove scripts, styles, noscript
-        doc.select("script, style, noscript").remove();
-
-        // Remove comments
-        doc.select("*").forEach(el -> {
-            el.childNodes().stream()
-                .filter(node -> node.nodeName().equals("#comment"))
-                .forEach(node -> node.remove());
-        });
+    private CleaningStats removeNoiseElements(Document doc) {
+        CleaningFilter filter = new CleaningFilter(null);
+        NodeTraversor.filter(filter, doc);
 
-        log.debug("Removed noise elements (scripts, styles, comments)");
+        log.debug("Removed {} noise nodes (scripts, styles, comments)", filter.removedNodes);
+        return new CleaningStats(filter.elements, filter.removedNodes, filter.retainedBytes);
     }
 
     /**
-     * Get minified HTML string for LLM context (if needed)
-     * Truncate to max size to ensure it fits in LLM context window
+     * What the cleaning pass kept and removed
      *
-     * @param doc The preprocessed Jsoup document
-     * @return Minified HTML string
+     * @param elements Elements kept
+     * @param removedNodes Noise elements and comments removed (their subtrees are not counted)
+     * @param retainedBytes Approximate size of the kept markup: tags, attributes and text,
+     *                      without entity escaping or pretty-print whitespace
      */
-    public String getMinifiedHtml(Document doc) {
-        try {
-            String html = doc.html();
+    private record CleaningStats(int elements, int removedNodes, long retainedBytes) {
+    }
 
-            // Truncate if too large
-            if (html.length() > config.getMaxOutputSize()) {
-                html = htmlUtilityService.truncateSafely(html, config.getMaxOutputSize());
+    /**
+     * Single-pass noise removal and size accounting
+     */
+    private static final class CleaningFilter implements NodeFilter {
+
+        private final Consumer<Node> removed;
+        private int elements;
+        private int removedNodes;
+        private long retainedBytes;
+
+        private CleaningFilter(Consumer<Node> removed) {
+            this.removed = removed;
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (node instanceof Comment
+                    || node instanceof Element el && NOISE_TAGS.contains(el.normalName())) {
+                removedNodes++;
+                if (removed != null) {
+                    removed.accept(node);
+                }
+                return FilterResult.REMOVE;
             }
 
-            return minificationService.minify(html);
-        } catch (Exception e) {
-            log.error("Minification failed: {}", e.getMessage());
-            return doc.html();
+            if (node instanceof Element el && !(el instanceof Document)) {
+                elements++;
+                // <tag attr="value">...</tag>
+                int tagLength = el.tagName().length();
+                retainedBytes += tagLength + 2L;
+                if (!el.tag().isEmpty()) {
+                    retainedBytes += tagLength + 3L;
+                }
+                for (Attribute attr : el.attributes()) {
+                    retainedBytes += attr.getKey().length() + attr.getValue().length() + 4L;
+                }
+            } else if (node instanceof TextNode text) {
+                retainedBytes += text.getWholeText().length();
+            } else if (node instanceof DataNode data) {
+                retainedBytes += data.getWholeData().length();
+            }
+            return FilterResult.CONTINUE;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        allocationSampler.shutdownNow();
+    }
+
+    /**
+     * Run an ingestion, recording the bytes it allocates when the running thread can be measured
+     * (platform threads always, virtual threads by sampling onto the platform sampler thread)
+     */
+    private Document measureAllocation(String path, Supplier<Document> ingestion) {
+        if (!Thread.currentThread().isVirtual()) {
+            return allocationMeasured(path, ingestion);
+        }
+        int rate = config.getAllocationSampleRate();
+        if (rate <= 0 || ingestions.incrementAndGet() % rate != 0 || !samplerBusy.compareAndSet(false, true)) {
+            return ingestion.get();
+        }
+
+        try {
+            Future<Document> sampled = allocationSampler.submit(() -> allocationMeasured(path, ingestion));
+            try {
+                return sampled.get();
+            } catch (InterruptedException e) {
+                sampled.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while preprocessing", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        } finally {
+            samplerBusy.set(false);
+        }
+    }
+
+    private Document allocationMeasured(String path, Supplier<Document> ingestion) {
+        long allocatedBefore = currentThreadAllocatedBytes();
+        Document doc = ingestion.get();
+        long allocatedAfter = currentThreadAllocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= allocatedBefore) {
+            summary("html.ingest.thread.allocated.bytes", path).record(allocatedAfter - allocatedBefore);
+        }
+        return doc;
+    }
+
+    private DistributionSummary summary(String name, String path) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 when the JVM cannot tell
+     * (JDK 21 reports -1 for virtual threads, see measureAllocation)
+     */
+    private static long currentThreadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
         }
+        return -1;
     }
-}
\ No newline at end of file
+}
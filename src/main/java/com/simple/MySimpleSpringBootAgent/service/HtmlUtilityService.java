@@ -1,15 +1,31 @@
 package com.simple.MySimpleSpringBootAgent.service;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 /**
  * Service responsible for HTML utility operations
  * Follows Single Responsibility Principle - handles truncation and token counting
+ *
+ * Tokens are counted with the configured chat model's tokenizer (see TokenCounterConfig),
+ * or with the counter passed in for another model
  */
 @Service
+@RequiredArgsConstructor
 public class HtmlUtilityService {
 
+    private static final String TRUNCATION_MARKER = "\n<!-- Truncated -->";
+
+    private final TokenCounter tokenCounter;
+
+    /**
+     * The configured chat model's token counter, used when none is passed in
+     */
+    public TokenCounter tokenCounter() {
+        return tokenCounter;
+    }
+
     /**
      * Safely truncate HTML content at tag boundary
      *
@@ -24,22 +40,81 @@ public class HtmlUtilityService {
 
         int tagEnd = html.lastIndexOf("<", maxLength);
         if (tagEnd > maxLength * 0.8) {
-            return html.substring(0, tagEnd) + "\n<!-- Truncated -->";
+            return html.substring(0, tagEnd) + TRUNCATION_MARKER;
+        }
+
+        // Never cut between the two chars of a surrogate pair
+        int end = maxLength > 0 && Character.isLowSurrogate(html.charAt(maxLength)) ? maxLength - 1 : maxLength;
+        return html.substring(0, end) + TRUNCATION_MARKER;
+    }
+
+    /**
+     * Truncate HTML content to a token budget, at a tag boundary when one is close
+     *
+     * @param html The HTML content to truncate
+     * @param maxTokens Token budget, including the truncation marker
+     * @return The HTML unchanged if it fits, otherwise a truncated prefix that does
+     */
+    public String truncateToTokens(String html, int maxTokens) {
+        return truncateToTokens(html, maxTokens, tokenCounter);
+    }
+
+    /**
+     * Truncate HTML content to a token budget in the given model's vocabulary
+     *
+     * @param html The HTML content to truncate
+     * @param maxTokens Token budget, including the truncation marker
+     * @param tokenCounter The model's token counter
+     * @return The HTML unchanged if it fits, otherwise a truncated prefix that does
+     */
+    public String truncateToTokens(String html, int maxTokens, TokenCounter tokenCounter) {
+        if (html == null || html.isEmpty()) {
+            return html;
+        }
+        int fitting = tokenCounter.prefixLengthWithin(html, maxTokens);
+        if (fitting >= html.length()) {
+            return html;
         }
 
-        return html.substring(0, maxLength) + "\n<!-- Truncated -->";
+        int budget = maxTokens - tokenCounter.countTokens(TRUNCATION_MARKER);
+        if (budget <= 0) {
+            return "";
+        }
+        return truncateSafely(html, tokenCounter.prefixLengthWithin(html, budget));
     }
 
     /**
-     * Count tokens in text (simple word-based approximation)
+     * Count tokens in text with the configured model's tokenizer
      *
      * @param text The text to count tokens in
      * @return Number of tokens
      */
     public int countTokens(String text) {
+        return countTokens(text, tokenCounter);
+    }
+
+    /**
+     * Count tokens in text with the given model's tokenizer
+     *
+     * @param text The text to count tokens in
+     * @param tokenCounter The model's token counter
+     * @return Number of tokens
+     */
+    public int countTokens(String text, TokenCounter tokenCounter) {
         if (!StringUtils.hasText(text)) {
             return 0;
         }
-        return text.split("\\s+").length;
+        return tokenCounter.countTokens(text);
+    }
+
+    /**
+     * Compute a fast, non-cryptographic 128-bit hash of the content
+     * Walks the chars directly so multi-MB pages are hashed without copying
+     *
+     * @param content The content to hash
+     * @return 32 character hex string
+     */
+    public String contentHash(CharSequence content) {
+        return new ContentHasher().update(content).hex();
     }
 }
@@ -0,0 +1,20 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the analysis job queue is full
+ * Carries the suggested client back-off for the Retry-After header
+ */
+@Getter
+public class JobRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public JobRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,124 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LlmConcurrencyConfig;
+import dev.langchain4j.exception.RetriableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead in front of the LLM backends: one AdaptiveConcurrencyLimiter per base URL
+ *
+ * A permit covers a whole analysis conversation (every tool round trip included), so
+ * the limit counts concurrent conversations against a backend. Calls over the limit
+ * queue for up to locator.llm-concurrency.max-queue-wait, then fail with
+ * LlmSaturatedException (503 + Retry-After at the API).
+ *
+ * Metrics, tagged with the backend URL:
+ * - llm.concurrency.limit: current limit
+ * - llm.concurrency.inflight: conversations holding a permit
+ * - llm.concurrency.queued: callers waiting for a permit
+ * - llm.concurrency.rejected: callers turned away
+ */
+@Slf4j
+@Service
+public class LlmConcurrencyLimiters {
+
+    private final LlmConcurrencyConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public LlmConcurrencyLimiters(LlmConcurrencyConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run one LLM conversation against a backend under its concurrency limit
+     *
+     * @param backend Base URL of the backend
+     * @param call The conversation
+     * @throws LlmSaturatedException when no permit freed up in time
+     */
+    public <T> T call(String backend, Supplier<T> call) {
+        AdaptiveConcurrencyLimiter.Permit permit = acquire(backend);
+        try {
+            T result = call.get();
+            permit.success();
+            return result;
+        } catch (RuntimeException e) {
+            release(permit, e);
+            throw e;
+        } finally {
+            permit.ignore(); // no-op unless an Error escaped
+        }
+    }
+
+    /**
+     * Take a permit for a conversation whose end is reported asynchronously
+     *
+     * @param backend Base URL of the backend
+     * @throws LlmSaturatedException when no permit freed up in time
+     */
+    AdaptiveConcurrencyLimiter.Permit acquire(String backend) {
+        if (!config.isEnabled()) {
+            return AdaptiveConcurrencyLimiter.Permit.NONE;
+        }
+        return limiters.computeIfAbsent(backend, this::register).acquire(config.getMaxQueueWait());
+    }
+
+    /**
+     * Release a permit after a failed conversation; overload failures shrink the limit
+     */
+    static void release(AdaptiveConcurrencyLimiter.Permit permit, Throwable error) {
+        if (isOverload(error)) {
+            permit.dropped();
+        } else {
+            permit.ignore();
+        }
+    }
+
+    /**
+     * Whether a failure means the backend is overloaded (timeouts, refused connections, 429 / 5xx)
+     */
+    static boolean isOverload(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof RetriableException || t instanceof TimeoutException
+                    || t instanceof HttpTimeoutException || t instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AdaptiveConcurrencyLimiter register(String backend) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        Gauge.builder("llm.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Adaptive concurrency limit of the LLM backend")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        Gauge.builder("llm.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("LLM conversations holding a concurrency permit")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        Gauge.builder("llm.concurrency.queued", limiter, AdaptiveConcurrencyLimiter::waiting)
+                .description("Callers waiting for a concurrency permit")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        FunctionCounter.builder("llm.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::rejected)
+                .description("Callers rejected because the LLM backend was saturated")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        log.info("LLM concurrency limit for {} starts at {}", backend, limiter.limit());
+        return limiter;
+    }
+}
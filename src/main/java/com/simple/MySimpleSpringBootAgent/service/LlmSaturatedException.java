@@ -0,0 +1,20 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an LLM backend is at its concurrency limit and no slot freed up in time
+ * Carries the suggested client back-off for the Retry-After header
+ */
+@Getter
+public class LlmSaturatedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public LlmSaturatedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,130 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simple.MySimpleSpringBootAgent.config.TelemetryConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LlmTelemetryEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous sink for structured LLM telemetry
+ *
+ * Request threads only build a small LlmTelemetryEvent and offer it to a lock-free
+ * ring buffer; a background writer drains the buffer every flush interval and writes
+ * one JSON line per event to the "locator.telemetry" logger. Serialization and log I/O
+ * never run on the request thread, and when the writer falls behind events are dropped
+ * (llm.telemetry.dropped) rather than slowing requests down.
+ *
+ * Prompt and response text is captured only for a sampled fraction of calls
+ * (locator.telemetry.payload-sample-rate), capped at max-payload-chars.
+ *
+ * The writer thread is started once the bean is constructed (@PostConstruct), not from
+ * the constructor, so it never sees a partially initialized sink.
+ */
+@Slf4j
+@Service
+public class LlmTelemetrySink {
+
+    private static final Logger TELEMETRY = LoggerFactory.getLogger("locator.telemetry");
+
+    private final TelemetryConfig config;
+    private final ObjectMapper objectMapper;
+    private final TelemetryRingBuffer<LlmTelemetryEvent> buffer;
+    private final Counter droppedCounter;
+    private volatile Thread writer;
+    private volatile boolean running = true;
+
+    public LlmTelemetrySink(TelemetryConfig config, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.buffer = new TelemetryRingBuffer<>(config.getBufferCapacity());
+
+        this.droppedCounter = Counter.builder("llm.telemetry.dropped")
+                .description("Telemetry events dropped because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("llm.telemetry.buffer.size", buffer, TelemetryRingBuffer::size)
+                .description("Telemetry events waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (config.isEnabled()) {
+            writer = Thread.ofPlatform().name("llm-telemetry-writer").daemon().start(this::writeLoop);
+        }
+    }
+
+    /**
+     * Queue an event for the writer; never blocks
+     */
+    public void record(LlmTelemetryEvent event) {
+        if (config.isEnabled() && !buffer.offer(event)) {
+            droppedCounter.increment();
+        }
+    }
+
+    /**
+     * Decide whether this LLM call captures its prompt and response text
+     */
+    public boolean samplePayload() {
+        double rate = config.getPayloadSampleRate();
+        return config.isEnabled() && rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * Cap captured text at locator.telemetry.max-payload-chars
+     */
+    public String capPayload(String text) {
+        if (text == null || text.length() <= config.getMaxPayloadChars()) {
+            return text;
+        }
+        return text.substring(0, config.getMaxPayloadChars()) + "... (truncated)";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread started = writer;
+        if (started == null) {
+            return;
+        }
+        LockSupport.unpark(started);
+        try {
+            started.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        long intervalNanos = Math.max(1, config.getFlushInterval().toNanos());
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            buffer.drain(this::write);
+        }
+        buffer.drain(this::write);
+    }
+
+    private void write(LlmTelemetryEvent event) {
+        try {
+            TELEMETRY.info(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot serialize telemetry event {}: {}", event.getRequestId(), e.getMessage());
+        } catch (RuntimeException e) {
+            // The writer must outlive any single bad event
+            log.warn("Cannot write telemetry event {}: {}", event.getRequestId(), e.getMessage());
+        }
+    }
+}
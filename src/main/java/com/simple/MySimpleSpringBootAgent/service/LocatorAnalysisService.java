@@ -0,0 +1,184 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LocatorVerificationConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Service orchestrating the locator analysis pipeline
+ *
+ * Pipeline stages:
+ * 1. Preprocess HTML (cached by content hash)
+ * 2. Healing history - a replacement recorded for the locator on this URL pattern that still
+ *    resolves uniquely (LocatorHealingHistory)
+ * 3. Deterministic fast path - answers obvious cases without the LLM
+ * 4. Persistent answer cache - previous LLM result for the same locator and page layout
+ * 5. LLM analysis with DOM tool calling, cheapest model tier first (LocatorModelRouter);
+ *    identical concurrent requests share one call (AnalysisCoalescer)
+ * 6. Verification of every suggested locator against the page (LocatorVerifier); when
+ *    the model reported the element found but none of its locators matches, one follow-up
+ *    analysis is told which ones failed; a unique verified locator is recorded in the
+ *    healing history
+ * 7. Response mapping
+ *
+ * The follow-up is a fresh analysis, not a continuation: the AI services keep no chat
+ * memory, so the prompt and excerpt are sent again with the failed locators appended and
+ * the model may repeat its tool calls. Its cost is timed as
+ * locator.stage{stage=verification_follow_up}. It only runs when the model claimed to have
+ * found the element: a not-found answer has no locator to correct, so the note would tell
+ * the model nothing new (the router already escalates not-found answers to a stronger tier).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LocatorAnalysisService {
+
+    private final LocatorModelRouter modelRouter;
+    private final HtmlPreprocessor htmlPreprocessor;
+    private final LocatorFastPathResolver fastPathResolver;
+    private final LocatorResultCache resultCache;
+    private final DomIndexService domIndexService;
+    private final CandidateExcerptBuilder excerptBuilder;
+    private final LocatorResponseMapper responseMapper;
+    private final LocatorMetrics metrics;
+    private final AnalysisCoalescer coalescer;
+    private final LocatorVerifier verifier;
+    private final LocatorVerificationConfig verificationConfig;
+    private final LocatorHealingHistory healingHistory;
+
+    /**
+     * Preprocess the request HTML and analyze the failed locator
+     *
+     * @param request A validated analysis request
+     * @return Analysis response
+     */
+    public LocatorAnalysisResponse analyze(LocatorAnalysisRequest request) {
+        // Apply HTML preprocessing - returns Jsoup Document
+        Document doc = htmlPreprocessor.preprocessHtml(
+                request.getHtmlContent(),
+                request.getLocator()
+        );
+
+        // Cleaned size is logged by the preprocessor; serializing the document here would walk it again
+        log.info("HTML preprocessed: {} bytes source", request.getHtmlContent().length());
+
+        return analyze(doc, request.getLocator(), request.getElementDescription(), request.getPageUrl());
+    }
+
+    /**
+     * Analyze a failed locator against an already preprocessed document
+     *
+     * @param doc The preprocessed (shared, read-only) document
+     * @param locator The failed locator
+     * @param elementDescription Description of the target element (optional)
+     * @param pageUrl Page URL (optional)
+     * @return Analysis response
+     */
+    public LocatorAnalysisResponse analyze(Document doc, String locator, String elementDescription, String pageUrl) {
+        LocatorMetrics.AnalysisSample sample = metrics.startAnalysis("blocking", locator);
+        String resolution = "error";
+        try {
+            Optional<LocalResolution> local = resolveLocally(doc, locator, elementDescription, pageUrl);
+            if (local.isPresent()) {
+                resolution = local.get().source();
+                return responseMapper.toResponse(verifier.verify(doc, local.get().result()));
+            }
+
+            String cacheKey = resultCache.keyFor(doc, locator, elementDescription);
+
+            // Identical requests already waiting on the LLM share that call's answer
+            AtomicReference<LocatorVerifier.Verification> leaderVerification = new AtomicReference<>();
+            AnalysisCoalescer.Flight flight = coalescer.execute(doc, cacheKey, pageUrl, () -> {
+                // Call AI service with tool calling enabled, cheapest model tier first; the document
+                // travels with each invocation, so the conversation is not tied to the calling thread
+                DomIndex index = domIndexService.indexFor(doc);
+                String description = elementDescription != null ? elementDescription : "target element";
+                // One excerpt per tokenizer: tiers sharing a vocabulary share the excerpt
+                Map<TokenCounter, String> excerpts = new HashMap<>();
+                Function<TokenCounter, String> excerpt = tokenCounter -> excerpts.computeIfAbsent(tokenCounter,
+                        counter -> excerptBuilder.build(doc, locator, elementDescription, counter));
+                LocatorAnalysisResult aiResult = modelRouter.analyze(locator, description,
+                        pageUrl != null ? pageUrl : "", excerpt,
+                        () -> DomQueryContext.invocationParameters(doc, index));
+
+                // Only locators that match the page are cached; one more turn when none does
+                LocatorVerifier.Verification verification = metrics.timeStage("verification",
+                        () -> verifier.verify(doc, aiResult));
+                if (verification.nothingVerified() && Boolean.TRUE.equals(aiResult.getElementFound())
+                        && verificationConfig.isFollowUpWhenNoneValid()) {
+                    log.info("No suggested locator for {} matches the page, asking the model again", locator);
+                    metrics.recordVerificationFollowUp();
+                    String followUpNote = verifier.followUpNote(verification);
+                    Function<TokenCounter, String> followUpExcerpt = excerpt.andThen(text -> text + followUpNote);
+                    LocatorAnalysisResult followUp = metrics.timeStage("verification_follow_up",
+                            () -> modelRouter.analyze(locator, description, pageUrl != null ? pageUrl : "",
+                                    followUpExcerpt, () -> DomQueryContext.invocationParameters(doc, index)));
+                    verification = verifier.verify(doc, followUp);
+                }
+                resultCache.put(cacheKey, verification.result());
+                healingHistory.record(pageUrl, locator, verification);
+                leaderVerification.set(verification);
+                return verification.result();
+            });
+            resolution = flight.coalesced() ? "coalesced" : "llm";
+
+            // Followers check the shared answer against their own document
+            LocatorVerifier.Verification verification = leaderVerification.get();
+            return responseMapper.toResponse(verification != null ? verification : verifier.verify(doc, flight.result()));
+        } finally {
+            metrics.recordAnalysis(sample, resolution);
+        }
+    }
+
+    /**
+     * Answer without the LLM when possible: healing history, deterministic fast path, then the answer cache
+     *
+     * @param doc The preprocessed (shared, read-only) document
+     * @param locator The failed locator
+     * @param elementDescription Description of the target element (optional)
+     * @param pageUrl Page URL (optional, needed for the healing history)
+     * @return The local result with its source, or empty when the LLM is needed
+     */
+    public Optional<LocalResolution> resolveLocally(Document doc, String locator, String elementDescription,
+                                                    String pageUrl) {
+        Optional<LocatorAnalysisResult> healed = healingHistory.lookup(doc, pageUrl, locator);
+        if (healed.isPresent()) {
+            return Optional.of(new LocalResolution(healed.get(), LocalResolution.HISTORY));
+        }
+
+        Optional<LocatorAnalysisResult> fastPath = fastPathResolver.resolve(doc, locator, elementDescription);
+        if (fastPath.isPresent()) {
+            return Optional.of(new LocalResolution(fastPath.get(), LocalResolution.FAST_PATH));
+        }
+
+        Optional<LocatorAnalysisResult> cached = resultCache.get(resultCache.keyFor(doc, locator, elementDescription));
+        if (cached.isPresent()) {
+            log.info("Answer cache hit for locator {}", locator);
+        }
+        return cached.map(result -> new LocalResolution(result, LocalResolution.CACHE));
+    }
+
+    /**
+     * A result found without the LLM
+     *
+     * @param result The analysis result
+     * @param source Where it came from (history, fast_path or cache), used as metrics tag
+     */
+    public record LocalResolution(LocatorAnalysisResult result, String source) {
+
+        static final String HISTORY = "history";
+        static final String FAST_PATH = "fast_path";
+        static final String CACHE = "cache";
+    }
+}
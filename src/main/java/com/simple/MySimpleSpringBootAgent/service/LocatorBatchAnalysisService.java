@@ -0,0 +1,132 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.BatchAnalysisConfig;
+import com.simple.MySimpleSpringBootAgent.dto.BatchLocatorAnalysisItem;
+import com.simple.MySimpleSpringBootAgent.dto.BatchLocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Service responsible for analyzing many failed locators against one page
+ *
+ * The page is preprocessed once and shared (read-only) by all analyses, which run
+ * concurrently up to locator.batch.max-parallelism. Items are handed to the sink in
+ * completion order so the controller can stream them as they finish. When the sink fails
+ * (client gone), analyses still running are cancelled and no further ones are started.
+ */
+@Slf4j
+@Service
+public class LocatorBatchAnalysisService {
+
+    private final BatchAnalysisConfig config;
+    private final HtmlPreprocessor htmlPreprocessor;
+    private final LocatorAnalysisService analysisService;
+    private final LocatorResponseMapper responseMapper;
+    private final ExecutorService analysisExecutor;
+
+    public LocatorBatchAnalysisService(BatchAnalysisConfig config,
+                                       HtmlPreprocessor htmlPreprocessor,
+                                       LocatorAnalysisService analysisService,
+                                       LocatorResponseMapper responseMapper,
+                                       @Qualifier("analysisExecutor") ExecutorService analysisExecutor) {
+        this.config = config;
+        this.htmlPreprocessor = htmlPreprocessor;
+        this.analysisService = analysisService;
+        this.responseMapper = responseMapper;
+        this.analysisExecutor = analysisExecutor;
+    }
+
+    /**
+     * Analyze all locators of a validated batch request
+     *
+     * @param request The batch request
+     * @param sink Receives each item as soon as its analysis finishes (called from the calling thread);
+     *             if it throws, outstanding analyses are cancelled and the exception propagates
+     */
+    public void analyzeBatch(BatchLocatorAnalysisRequest request, Consumer<BatchLocatorAnalysisItem> sink) {
+        List<LocatorQuery> queries = request.getLocators();
+        long startTime = System.currentTimeMillis();
+
+        // Parse and preprocess once for every locator
+        Document doc = htmlPreprocessor.preprocessHtml(request.getHtmlContent(), queries.size() + " batched locators");
+
+        CompletionService<BatchLocatorAnalysisItem> completion = new ExecutorCompletionService<>(analysisExecutor);
+        int parallelism = Math.max(1, config.getMaxParallelism());
+        List<Future<BatchLocatorAnalysisItem>> submitted = new ArrayList<>(queries.size());
+        int next = 0;
+        int inFlight = 0;
+
+        try {
+            while (next < queries.size() || inFlight > 0) {
+                while (inFlight < parallelism && next < queries.size()) {
+                    int index = next++;
+                    submitted.add(completion.submit(() -> analyzeOne(doc, index, queries.get(index), request.getPageUrl())));
+                    inFlight++;
+                }
+
+                Future<BatchLocatorAnalysisItem> done = completion.take();
+                inFlight--;
+                sink.accept(done.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch analysis interrupted", e);
+        } catch (ExecutionException e) {
+            // analyzeOne never throws; this only happens if the executor failed
+            throw new IllegalStateException("Batch analysis failed", e.getCause());
+        } finally {
+            cancelOutstanding(submitted, queries.size());
+        }
+
+        log.info("Batch analysis of {} locators complete in {}ms (parallelism {})",
+                queries.size(), System.currentTimeMillis() - startTime, parallelism);
+    }
+
+    /**
+     * Interrupt analyses still running after the batch stopped early (no-op when all finished)
+     * Requests coalesced onto an interrupted analysis run their own call (AnalysisCoalescer)
+     */
+    private void cancelOutstanding(List<Future<BatchLocatorAnalysisItem>> submitted, int total) {
+        int cancelled = 0;
+        for (Future<BatchLocatorAnalysisItem> future : submitted) {
+            if (future.cancel(true)) {
+                cancelled++;
+            }
+        }
+        if (cancelled > 0 || submitted.size() < total) {
+            log.warn("Batch stopped early: cancelled {} running analyses, {} of {} never started",
+                    cancelled, total - submitted.size(), total);
+        }
+    }
+
+    private BatchLocatorAnalysisItem analyzeOne(Document doc, int index, LocatorQuery query, String pageUrl) {
+        long startTime = System.currentTimeMillis();
+        LocatorAnalysisResponse response;
+        try {
+            response = analysisService.analyze(doc, query.getLocator(), query.getElementDescription(), pageUrl);
+        } catch (Exception e) {
+            log.error("Batch item {} ({}) failed: {}", index, query.getLocator(), e.getMessage(), e);
+            response = responseMapper.createErrorResponse("Internal server error: " + e.getMessage());
+        }
+
+        return BatchLocatorAnalysisItem.builder()
+                .index(index)
+                .locator(query.getLocator())
+                .response(response)
+                .elapsedMs(System.currentTimeMillis() - startTime)
+                .build();
+    }
+}
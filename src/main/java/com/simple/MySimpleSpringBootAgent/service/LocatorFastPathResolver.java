@@ -0,0 +1,294 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Deterministic locator resolver that runs before the LLM
+ *
+ * Parses the failed locator into hints, scores every element against them using the
+ * tier scores and boosts from HtmlProcessingConfig, and answers locally when one
+ * candidate clearly wins (e.g. a one-character typo in an @id).
+ *
+ * Scoring tiers:
+ * - Tier 1: exact id / name / data-testid match, or the failed locator itself resolves uniquely
+ * - Tier 2: fuzzy id / name match (Jaro-Winkler similarity above fuzzyMatchThreshold)
+ * - Tier 3: exact own-text match
+ * - Tier 4: penalty applied when the tag does not match, and ambiguity margin
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LocatorFastPathResolver {
+
+    private static final Set<String> STRONG_ATTRIBUTES = Set.of("data-testid", "data-test", "data-qa", "aria-label");
+    private static final Set<String> SKIPPED_TAGS = Set.of("html", "head", "body", "#root");
+    private static final JaroWinklerSimilarity SIMILARITY = new JaroWinklerSimilarity();
+
+    private final HtmlProcessingConfig config;
+    private final LocatorHintParser hintParser;
+    private final LocatorSuggestionBuilder suggestionBuilder;
+    private final CompiledSelectorCache selectorCache;
+
+    /**
+     * Element with its fast-path score
+     */
+    public record ScoredCandidate(Element element, int score) {
+    }
+
+    /**
+     * Try to resolve the failed locator without calling the LLM
+     *
+     * @param doc The preprocessed document
+     * @param locator The failed locator
+     * @param elementDescription Description of the target element (may be null)
+     * @return Locally built result when confidence passes the threshold, empty otherwise
+     */
+    public Optional<LocatorAnalysisResult> resolve(Document doc, String locator, String elementDescription) {
+        if (!config.isFastPathEnabled()) {
+            return Optional.empty();
+        }
+
+        LocatorHints hints = hintParser.parse(locator);
+        Set<Element> directMatches = directMatches(doc, locator, hints.type());
+        if (hints.isEmpty() && directMatches.isEmpty()) {
+            log.debug("Fast path skipped: no usable hints in locator {}", locator);
+            return Optional.empty();
+        }
+
+        List<String> words = descriptionWords(elementDescription);
+        List<ScoredCandidate> candidates = rank(doc, hints, directMatches, words);
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ScoredCandidate best = candidates.get(0);
+        int confidence = Math.min(100, best.score());
+        if (candidates.size() > 1) {
+            int margin = best.score() - candidates.get(1).score();
+            if (margin < config.getTierFourScore()) {
+                confidence -= config.getTierFourScore() - margin;
+            }
+        }
+
+        if (confidence < config.getFastPathConfidenceThreshold()) {
+            log.debug("Fast path declined: best candidate <{}> scored {} (confidence {} < {})",
+                    best.element().tagName(), best.score(), confidence, config.getFastPathConfidenceThreshold());
+            return Optional.empty();
+        }
+
+        List<String> reasons = new ArrayList<>();
+        if (directMatches.contains(best.element())) {
+            reasons.add("failed locator still resolves uniquely");
+        }
+        score(best.element(), hints, directMatches, words, reasons);
+
+        LocatorAnalysisResult result = suggestionBuilder.build(doc, best.element());
+        result.setConfidence(confidence);
+        result.setExplanation("Resolved locally without LLM: " + String.join(", ", reasons)
+                + ". Recommended " + result.getRecommendedLocatorType() + " as the most stable unique locator.");
+        if (candidates.size() > 1) {
+            result.setWarnings(String.format("%d other candidate(s) scored lower (next best: %d vs %d)",
+                    candidates.size() - 1, candidates.get(1).score(), best.score()));
+        }
+
+        log.info("Fast path resolved {} -> {}={} (confidence {})",
+                locator, result.getRecommendedLocatorType(), result.getRecommendedLocator(), confidence);
+        return Optional.of(result);
+    }
+
+    /**
+     * Score every element against the locator hints and return the top candidates
+     *
+     * @return Up to maxCandidates elements with a positive score, best first
+     */
+    public List<ScoredCandidate> rankCandidates(Document doc, String locator, LocatorHints hints,
+                                                String elementDescription) {
+        return rank(doc, hints, directMatches(doc, locator, hints.type()), descriptionWords(elementDescription));
+    }
+
+    private List<ScoredCandidate> rank(Document doc, LocatorHints hints, Set<Element> directMatches,
+                                       List<String> words) {
+        List<ScoredCandidate> scored = new ArrayList<>();
+        for (Element el : doc.getAllElements()) {
+            if (SKIPPED_TAGS.contains(el.normalName())) {
+                continue;
+            }
+            int score = directMatches.contains(el)
+                    ? config.getTierOneScore() + score(el, hints, directMatches, words, null)
+                    : score(el, hints, directMatches, words, null);
+            if (score > 0) {
+                scored.add(new ScoredCandidate(el, score));
+            }
+        }
+
+        scored.sort(Comparator.comparingInt(ScoredCandidate::score).reversed());
+        return scored.size() > config.getMaxCandidates()
+                ? new ArrayList<>(scored.subList(0, config.getMaxCandidates()))
+                : scored;
+    }
+
+    /**
+     * Score one element; reasons are collected when a list is supplied
+     */
+    private int score(Element el, LocatorHints hints, Set<Element> directMatches,
+                      List<String> descriptionWords, List<String> reasons) {
+        int score = 0;
+
+        score += scoreIdentifier(el.id(), hints.id(), config.getIdMatchBoost(), "id", reasons);
+        score += scoreIdentifier(el.attr("name"), hints.name(), config.getAttributeMatchBoost(), "name", reasons);
+
+        if (!hints.classes().isEmpty()) {
+            int matched = 0;
+            for (String hintClass : hints.classes()) {
+                for (String className : el.classNames()) {
+                    if (className.equals(hintClass) || className.contains(hintClass)) {
+                        matched++;
+                        break;
+                    }
+                }
+            }
+            if (matched > 0) {
+                score += matched * config.getClassMatchBoost();
+                if (matched == hints.classes().size()) {
+                    score += config.getTierFourScore();
+                }
+                note(reasons, "class match (" + matched + "/" + hints.classes().size() + ")");
+            }
+        }
+
+        for (Map.Entry<String, String> attr : hints.attributes().entrySet()) {
+            String actual = el.attr(attr.getKey());
+            if (actual.isEmpty()) {
+                continue;
+            }
+            if (actual.equals(attr.getValue())) {
+                score += STRONG_ATTRIBUTES.contains(attr.getKey())
+                        ? config.getTierOneScore()
+                        : config.getAttributeMatchBoost();
+                note(reasons, "@" + attr.getKey() + " exact match");
+            } else if (actual.toLowerCase(Locale.ROOT).contains(attr.getValue().toLowerCase(Locale.ROOT))) {
+                score += config.getAttributeMatchBoost();
+                note(reasons, "@" + attr.getKey() + " partial match");
+            }
+        }
+
+        if (hints.text() != null) {
+            String ownText = el.ownText().trim();
+            String expected = hints.text().trim();
+            if (!ownText.isEmpty() && !expected.isEmpty()) {
+                if (ownText.equals(expected)) {
+                    score += config.getTierThreeScore() + config.getExactMatchBonus();
+                    note(reasons, "exact text match");
+                } else if (ownText.equalsIgnoreCase(expected)) {
+                    score += config.getTierThreeScore() + config.getExactMatchBonus()
+                            - config.getCaseInsensitiveMatchPenalty();
+                    note(reasons, "case-insensitive text match");
+                } else if (ownText.toLowerCase(Locale.ROOT).contains(expected.toLowerCase(Locale.ROOT))) {
+                    score += config.getContainsMatchScore();
+                    note(reasons, "text contains match");
+                }
+            }
+        }
+
+        if (score > 0 && !descriptionWords.isEmpty() && matchesDescription(el, descriptionWords)) {
+            score += config.getAttributeMatchBoost();
+            note(reasons, "matches element description");
+        }
+
+        if (score > 0 && hints.tag() != null && !hints.tag().equals(el.normalName())
+                && !directMatches.contains(el)) {
+            score -= config.getTierFourScore();
+            note(reasons, "tag differs (<" + el.normalName() + "> vs <" + hints.tag() + ">)");
+        }
+
+        return score;
+    }
+
+    /**
+     * Exact match scores tier one, fuzzy match scores tier two scaled by similarity
+     */
+    private int scoreIdentifier(String actual, String expected, int boost, String label, List<String> reasons) {
+        if (expected == null || actual.isEmpty()) {
+            return 0;
+        }
+        if (actual.equals(expected)) {
+            note(reasons, label + " exact match");
+            return config.getTierOneScore() + boost;
+        }
+        if (actual.equalsIgnoreCase(expected)) {
+            note(reasons, label + " case-insensitive match");
+            return config.getTierOneScore() + boost - config.getCaseInsensitiveMatchPenalty();
+        }
+        double similarity = SIMILARITY.apply(actual.toLowerCase(Locale.ROOT), expected.toLowerCase(Locale.ROOT));
+        if (similarity >= config.getFuzzyMatchThreshold()) {
+            note(reasons, String.format("%s fuzzy match '%s' ~ '%s' (%.2f)", label, actual, expected, similarity));
+            return config.getTierTwoScore() + (int) Math.round(boost * similarity);
+        }
+        return 0;
+    }
+
+    private boolean matchesDescription(Element el, List<String> words) {
+        String haystack = (el.id() + " " + el.attr("name") + " " + el.attr("placeholder") + " "
+                + el.attr("aria-label") + " " + el.ownText()).toLowerCase(Locale.ROOT);
+        for (String word : words) {
+            if (haystack.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> descriptionWords(String elementDescription) {
+        if (!StringUtils.hasText(elementDescription)) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : elementDescription.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (word.length() > 2) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Elements the failed locator still resolves to, if it resolves uniquely
+     */
+    private Set<Element> directMatches(Document doc, String locator, LocatorType type) {
+        try {
+            Elements matches = switch (type) {
+                case XPATH -> selectorCache.selectXpath(doc, locator);
+                case CSS_SELECTOR -> selectorCache.select(doc, locator);
+                default -> new Elements();
+            };
+            return matches.size() == 1 ? Set.of(matches.get(0)) : Set.of();
+        } catch (Exception e) {
+            log.debug("Failed locator does not evaluate locally: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private void note(List<String> reasons, String reason) {
+        if (reasons != null) {
+            reasons.add(reason);
+        }
+    }
+}
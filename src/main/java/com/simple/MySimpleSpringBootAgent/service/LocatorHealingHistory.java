@@ -0,0 +1,410 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simple.MySimpleSpringBootAgent.config.HealingHistoryConfig;
+import com.simple.MySimpleSpringBootAgent.dto.HealingHistoryEntry;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorVerification;
+import com.simple.MySimpleSpringBootAgent.store.AppendOnlyRecordStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent history of healed locators: (page URL pattern, failed locator) -> verified replacement
+ *
+ * Suites hit the same broken locator on the same pages run after run. Once an analysis
+ * produced a replacement that matches exactly one element, it is recorded here; the next
+ * request for that locator on a page of the same pattern is answered by checking the
+ * replacement against the current DOM (one index lookup or compiled selector), without
+ * the LLM. A replacement that no longer resolves uniquely falls through to the normal
+ * pipeline, whose answer then replaces it.
+ *
+ * Backed by an append-only, memory-mapped file (AppendOnlyRecordStore) that survives
+ * restarts. Only record() writes to it synchronously: hits are counted in memory and
+ * flushed every locator.healing-history.flush-interval, before a prune and on shutdown,
+ * so a hit costs no disk write and no global lock. Hits since the last flush are lost
+ * if the process dies.
+ *
+ * Metrics: locator.healing.history{result=hit|stale|miss}, locator.healing.history.entries
+ */
+@Slf4j
+@Service
+public class LocatorHealingHistory {
+
+    private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://");
+    // Path segments naming one record rather than a page: numbers, UUIDs, hashes, slugs ending in an id
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}"
+                    + "|(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{8,}|.*\\d{4,}.*");
+    private static final int HISTORY_CONFIDENCE = 95;
+
+    private final HealingHistoryConfig config;
+    private final LocatorHintParser hintParser;
+    private final LocatorVerifier verifier;
+    private final ObjectMapper objectMapper;
+    private final AppendOnlyRecordStore store;
+    private final Map<String, PendingHits> pendingHits = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter stale;
+    private final Counter misses;
+    private ScheduledExecutorService flusher;
+
+    public LocatorHealingHistory(HealingHistoryConfig config,
+                                 LocatorHintParser hintParser,
+                                 LocatorVerifier verifier,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.config = config;
+        this.hintParser = hintParser;
+        this.verifier = verifier;
+        this.objectMapper = objectMapper;
+        this.store = config.isEnabled()
+                ? new AppendOnlyRecordStore(Path.of(config.getPath()), config.getTtl(), config.getMaxBytes())
+                : null;
+        this.hits = meterRegistry.counter("locator.healing.history", "result", "hit");
+        this.stale = meterRegistry.counter("locator.healing.history", "result", "stale");
+        this.misses = meterRegistry.counter("locator.healing.history", "result", "miss");
+        if (store != null) {
+            Gauge.builder("locator.healing.history.entries", store, AppendOnlyRecordStore::size)
+                    .description("Healed locators in the history")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (store == null) {
+            return;
+        }
+        long intervalMillis = Math.max(1, config.getFlushInterval().toMillis());
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("healing-history-flusher").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flushSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Previous replacement for a failed locator, if it still resolves uniquely on this page
+     *
+     * @param doc The preprocessed (shared, read-only) document
+     * @param pageUrl Page URL; no lookup without one
+     * @param locator The failed locator
+     * @return The replacement as an analysis result, or empty on a miss
+     */
+    public Optional<LocatorAnalysisResult> lookup(Document doc, String pageUrl, String locator) {
+        if (store == null || !StringUtils.hasText(pageUrl)) {
+            return Optional.empty();
+        }
+        String key = keyFor(pageUrl, locator);
+        Optional<HealingHistoryEntry> entry = read(key);
+        if (entry.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        HealingHistoryEntry healed = entry.get();
+        LocatorVerification check = verifier.check(doc, healed.getReplacementType(), healed.getReplacement());
+        if (!check.isUnique()) {
+            stale.increment();
+            log.info("Healed locator {} for {} on {} no longer resolves uniquely ({} matches)",
+                    healed.getReplacement(), locator, healed.getPageUrlPattern(), check.getMatchCount());
+            return Optional.empty();
+        }
+
+        hits.increment();
+        PendingHits pending = pendingHits.merge(key, new PendingHits(1, Instant.now()), PendingHits::plus);
+        healed.setHitCount(healed.getHitCount() + pending.count());
+        healed.setLastVerifiedAt(pending.lastVerifiedAt());
+        log.info("Healing history hit for {} on {} -> {}={} ({} hits)", locator, healed.getPageUrlPattern(),
+                healed.getReplacementType(), healed.getReplacement(), healed.getHitCount());
+        return Optional.of(toResult(healed));
+    }
+
+    /**
+     * Record the outcome of an analysis: its most robust locator that matches exactly one element
+     *
+     * @param pageUrl Page URL; nothing is recorded without one
+     * @param locator The failed locator
+     * @param verification The verified analysis result
+     */
+    public void record(String pageUrl, String locator, LocatorVerifier.Verification verification) {
+        if (store == null || !StringUtils.hasText(pageUrl) || verification == null) {
+            return;
+        }
+        Optional<LocatorVerification> best = verification.verified().stream()
+                .filter(LocatorVerification::isUnique)
+                .findFirst();
+        if (best.isEmpty()) {
+            return;
+        }
+
+        String key = keyFor(pageUrl, locator);
+        Instant now = Instant.now();
+        HealingHistoryEntry fresh = HealingHistoryEntry.builder()
+                .pageUrlPattern(urlPattern(pageUrl))
+                .failedLocator(hintParser.canonicalize(locator))
+                .replacementType(best.get().getType())
+                .replacement(best.get().getLocator())
+                .firstSeenAt(now)
+                .lastVerifiedAt(now)
+                .build();
+        update(key, fresh, previous -> {
+            applyPendingHits(key, previous);
+            boolean sameReplacement = previous.getReplacementType().equals(fresh.getReplacementType())
+                    && previous.getReplacement().equals(fresh.getReplacement());
+            if (!sameReplacement) {
+                previous.setReplacementType(fresh.getReplacementType());
+                previous.setReplacement(fresh.getReplacement());
+                previous.setHitCount(0);
+                previous.setFirstSeenAt(now);
+            }
+            previous.setLastVerifiedAt(now);
+        });
+    }
+
+    /**
+     * All entries, most recently verified first
+     *
+     * @param pageUrl Only entries for this page's URL pattern (optional)
+     */
+    public List<HealingHistoryEntry> export(String pageUrl) {
+        if (store == null) {
+            return List.of();
+        }
+        String pattern = StringUtils.hasText(pageUrl) ? urlPattern(pageUrl) : null;
+        List<HealingHistoryEntry> entries = new ArrayList<>();
+        for (AppendOnlyRecordStore.StoredRecord record : store.records()) {
+            parse(record).filter(e -> pattern == null || pattern.equals(e.getPageUrlPattern())).ifPresent(entry -> {
+                PendingHits pending = pendingHits.get(record.key());
+                if (pending != null) {
+                    entry.setHitCount(entry.getHitCount() + pending.count());
+                    entry.setLastVerifiedAt(pending.lastVerifiedAt());
+                }
+                entries.add(entry);
+            });
+        }
+        return entries;
+    }
+
+    /**
+     * Drop entries not verified within olderThan (default locator.healing-history.prune-after) and compact the file
+     */
+    public PruneResult prune(Duration olderThan) {
+        if (store == null) {
+            return new PruneResult(0, 0);
+        }
+        Instant cutoff = Instant.now().minus(olderThan != null ? olderThan : config.getPruneAfter());
+        flush();
+        int pruned = 0;
+        for (AppendOnlyRecordStore.StoredRecord record : store.records()) {
+            Optional<HealingHistoryEntry> entry = parse(record);
+            if (entry.isEmpty() || entry.get().getLastVerifiedAt() == null
+                    || entry.get().getLastVerifiedAt().isBefore(cutoff)) {
+                store.remove(record.key());
+                pruned++;
+            }
+        }
+        store.compact();
+        log.info("Pruned {} healing history entries not verified since {}", pruned, cutoff);
+        return new PruneResult(pruned, store.size());
+    }
+
+    /**
+     * Write the hits counted since the last flush to the store
+     *
+     * @return Entries updated
+     */
+    public int flush() {
+        if (store == null) {
+            return 0;
+        }
+        int flushed = 0;
+        for (String key : List.copyOf(pendingHits.keySet())) {
+            if (pendingHits.containsKey(key)) {
+                update(key, null, entry -> applyPendingHits(key, entry));
+                flushed++;
+            }
+        }
+        return flushed;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store == null) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+        store.close();
+    }
+
+    private void flushSafely() {
+        try {
+            int flushed = flush();
+            if (flushed > 0) {
+                log.debug("Flushed healing history hits of {} entries", flushed);
+            }
+        } catch (RuntimeException e) {
+            // The flusher must outlive any single failed run
+            log.warn("Failed to flush healing history hits: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Move the hits counted in memory for a key into its entry
+     */
+    private void applyPendingHits(String key, HealingHistoryEntry entry) {
+        PendingHits pending = pendingHits.remove(key);
+        if (pending != null) {
+            entry.setHitCount(entry.getHitCount() + pending.count());
+            entry.setLastVerifiedAt(pending.lastVerifiedAt());
+        }
+    }
+
+    /**
+     * Host and path of a page URL, lower-cased host, without scheme, query and fragment;
+     * id-like path segments become * so /orders/1234/edit and /orders/5678/edit share entries
+     */
+    static String urlPattern(String pageUrl) {
+        String url = SCHEME.matcher(pageUrl.trim()).replaceFirst("");
+        int end = url.length();
+        for (char c : new char[]{'?', '#'}) {
+            int i = url.indexOf(c);
+            if (i >= 0 && i < end) {
+                end = i;
+            }
+        }
+        url = url.substring(0, end);
+
+        int slash = url.indexOf('/');
+        String host = (slash >= 0 ? url.substring(0, slash) : url).toLowerCase(Locale.ROOT);
+        StringBuilder pattern = new StringBuilder(url.length()).append(host);
+        if (slash >= 0) {
+            for (String segment : url.substring(slash + 1).split("/")) {
+                if (!segment.isEmpty()) {
+                    pattern.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "*" : segment);
+                }
+            }
+        }
+        return pattern.toString();
+    }
+
+    private String keyFor(String pageUrl, String locator) {
+        return urlPattern(pageUrl) + '\n' + hintParser.canonicalize(locator);
+    }
+
+    /**
+     * Read-modify-append of one entry; serialized so concurrent writers do not lose updates
+     *
+     * @param initial Entry to write when the key has none; null to write nothing then
+     */
+    private synchronized HealingHistoryEntry update(String key, HealingHistoryEntry initial,
+                                                    Consumer<HealingHistoryEntry> change) {
+        Optional<HealingHistoryEntry> current = read(key);
+        if (current.isEmpty() && initial == null) {
+            pendingHits.remove(key); // the entry is gone (pruned or expired); so are its hits
+            return null;
+        }
+        HealingHistoryEntry entry = current.orElse(initial);
+        if (current.isPresent()) {
+            change.accept(entry);
+        }
+        try {
+            store.put(key, objectMapper.writeValueAsBytes(entry));
+        } catch (Exception e) {
+            log.warn("Failed to record healed locator {}: {}", key, e.getMessage());
+        }
+        return entry;
+    }
+
+    private Optional<HealingHistoryEntry> read(String key) {
+        return store.get(key).flatMap(record -> {
+            Optional<HealingHistoryEntry> entry = parse(record);
+            if (entry.isEmpty()) {
+                store.remove(key);
+            }
+            return entry;
+        });
+    }
+
+    private Optional<HealingHistoryEntry> parse(AppendOnlyRecordStore.StoredRecord record) {
+        try {
+            return Optional.of(objectMapper.readValue(record.payload(), HealingHistoryEntry.class));
+        } catch (Exception e) {
+            log.warn("Unreadable healing history entry {}: {}", record.key(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static LocatorAnalysisResult toResult(HealingHistoryEntry entry) {
+        LocatorAnalysisResult result = new LocatorAnalysisResult();
+        String replacement = entry.getReplacement();
+        switch (entry.getReplacementType()) {
+            case LocatorVerifier.ID -> result.setPrimaryId(replacement);
+            case LocatorVerifier.NAME -> result.setPrimaryName(replacement);
+            case LocatorVerifier.CLASS_NAME -> result.setPrimaryClassName(replacement);
+            case LocatorVerifier.TAG_NAME -> result.setPrimaryTagName(replacement);
+            case LocatorVerifier.LINK_TEXT -> result.setPrimaryLinkText(replacement);
+            case LocatorVerifier.PARTIAL_LINK_TEXT -> result.setPrimaryPartialLinkText(replacement);
+            case LocatorVerifier.CSS_SELECTOR -> result.setPrimaryCssSelector(replacement);
+            case LocatorVerifier.XPATH -> result.setPrimaryXPath(replacement);
+            default -> {
+            }
+        }
+        result.setAlternativeCssSelectors(new ArrayList<>());
+        result.setAlternativeXPaths(new ArrayList<>());
+        result.setElementFound(true);
+        result.setConfidence(HISTORY_CONFIDENCE);
+        result.setRecommendedLocatorType(entry.getReplacementType());
+        result.setRecommendedLocator(replacement);
+        result.setExplanation(String.format(
+                "Resolved from healing history without LLM: %s replaced %s on %s (used %d times, first seen %s)"
+                        + " and still matches exactly one element.",
+                replacement, entry.getFailedLocator(), entry.getPageUrlPattern(), entry.getHitCount(),
+                entry.getFirstSeenAt()));
+        return result;
+    }
+
+    /**
+     * Hits of one entry not yet written to the store
+     */
+    private record PendingHits(long count, Instant lastVerifiedAt) {
+
+        PendingHits plus(PendingHits other) {
+            return new PendingHits(count + other.count,
+                    lastVerifiedAt.isAfter(other.lastVerifiedAt) ? lastVerifiedAt : other.lastVerifiedAt);
+        }
+    }
+
+    /**
+     * Outcome of a prune
+     *
+     * @param pruned Entries removed
+     * @param remaining Entries left
+     */
+    public record PruneResult(int pruned, int remaining) {
+    }
+}
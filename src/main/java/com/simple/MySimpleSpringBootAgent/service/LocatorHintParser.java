@@ -0,0 +1,292 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.dto.LocatorType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service responsible for extracting target hints from a failed XPath/CSS locator
+ * Only the last location step / compound selector is inspected, since that is the target element
+ *
+ * Not a full XPath/CSS parser - it recognises the predicate shapes Selenium suites actually use
+ * (@attr='v', contains(@attr,'v'), text()='v', #id, .class, [attr=v], :contains(v))
+ */
+@Service
+public class LocatorHintParser {
+
+    private static final String TEXT_EXPR = "(?:text\\(\\)|normalize-space\\(\\s*(?:text\\(\\)|\\.)?\\s*\\)|\\.)";
+
+    private static final Pattern XPATH_CONTAINS_ATTR = Pattern.compile(
+            "contains\\(\\s*@([\\w:-]+)\\s*,\\s*(['\"])(.*?)\\2\\s*\\)");
+    private static final Pattern XPATH_ATTR_EQUALS = Pattern.compile(
+            "@([\\w:-]+)\\s*=\\s*(['\"])(.*?)\\2");
+    private static final Pattern XPATH_CONTAINS_TEXT = Pattern.compile(
+            "contains\\(\\s*" + TEXT_EXPR + "\\s*,\\s*(['\"])(.*?)\\1\\s*\\)");
+    private static final Pattern XPATH_TEXT_EQUALS = Pattern.compile(
+            TEXT_EXPR + "\\s*=\\s*(['\"])(.*?)\\1");
+
+    private static final Pattern CSS_TAG = Pattern.compile("^([a-zA-Z][\\w-]*)");
+    private static final Pattern CSS_ID = Pattern.compile("#([\\w-]+)");
+    private static final Pattern CSS_CLASS = Pattern.compile("\\.([\\w-]+)");
+    private static final Pattern CSS_ATTR = Pattern.compile(
+            "\\[\\s*([\\w:-]+)\\s*(?:[~|^$*]?=\\s*(['\"]?)(.*?)\\2\\s*)?]");
+    private static final Pattern CSS_CONTAINS = Pattern.compile(
+            ":contains(?:Own)?\\(\\s*(['\"]?)(.*?)\\1\\s*\\)");
+
+    private static final Pattern PLAIN_TOKEN = Pattern.compile("^[\\w-]+$");
+
+    /**
+     * Detect the syntax of a locator string
+     *
+     * @param locator The locator to inspect
+     * @return XPATH, CSS_SELECTOR, or UNKNOWN for bare values (By.id, By.name, By.linkText)
+     */
+    public LocatorType detectType(String locator) {
+        if (!StringUtils.hasText(locator)) {
+            return LocatorType.UNKNOWN;
+        }
+        String trimmed = locator.trim();
+        if (trimmed.startsWith("/") || trimmed.startsWith("(") || trimmed.startsWith("./")) {
+            return LocatorType.XPATH;
+        }
+        if (PLAIN_TOKEN.matcher(trimmed).matches() || trimmed.indexOf(' ') >= 0
+                && !trimmed.matches(".*[#.\\[>:+~].*")) {
+            return LocatorType.UNKNOWN;
+        }
+        return LocatorType.CSS_SELECTOR;
+    }
+
+    /**
+     * Canonical form of a locator for cache keys
+     * Collapses insignificant whitespace and normalizes string quotes, so
+     * //*[@id="a"] and //*[ @id = 'a' ] produce the same key
+     *
+     * @param locator The locator to canonicalize
+     * @return Canonical locator string (empty for null)
+     */
+    public String canonicalize(String locator) {
+        if (locator == null) {
+            return "";
+        }
+        String trimmed = locator.trim();
+        StringBuilder sb = new StringBuilder(trimmed.length());
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && sb.length() > 0 && !isTight(sb.charAt(sb.length() - 1)) && !isTight(c)) {
+                sb.append(' ');
+            }
+            pendingSpace = false;
+
+            if (c == '\'' || c == '"') {
+                int end = trimmed.indexOf(c, i + 1);
+                if (end < 0) {
+                    sb.append(trimmed, i, trimmed.length());
+                    break;
+                }
+                String literal = trimmed.substring(i + 1, end);
+                char canonicalQuote = literal.indexOf('\'') >= 0 ? '"' : '\'';
+                sb.append(canonicalQuote).append(literal).append(canonicalQuote);
+                i = end;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Characters around which whitespace is insignificant in XPath/CSS
+     */
+    private boolean isTight(char c) {
+        return "[]()=,>+~|".indexOf(c) >= 0;
+    }
+
+    /**
+     * Parse the failed locator into target hints
+     *
+     * @param locator The failed locator (XPath, CSS or bare id/name/link text)
+     * @return Hints for candidate scoring (never null)
+     */
+    public LocatorHints parse(String locator) {
+        LocatorType type = detectType(locator);
+        Builder hints = new Builder();
+
+        switch (type) {
+            case XPATH -> parseXPathStep(lastXPathStep(locator.trim()), hints);
+            case CSS_SELECTOR -> parseCssCompound(lastCssCompound(locator.trim()), hints);
+            default -> {
+                if (StringUtils.hasText(locator)) {
+                    String value = locator.trim();
+                    if (PLAIN_TOKEN.matcher(value).matches()) {
+                        hints.id = value;
+                        hints.name = value;
+                    } else {
+                        hints.text = value;
+                    }
+                }
+            }
+        }
+
+        return new LocatorHints(type, hints.tag, hints.id, hints.name,
+                Set.copyOf(hints.classes), hints.text, Map.copyOf(hints.attributes));
+    }
+
+    private void parseXPathStep(String step, Builder hints) {
+        int bracket = step.indexOf('[');
+        String tagPart = bracket >= 0 ? step.substring(0, bracket) : step;
+        int axis = tagPart.lastIndexOf("::");
+        if (axis >= 0) {
+            tagPart = tagPart.substring(axis + 2);
+        }
+        tagPart = tagPart.trim();
+        if (!tagPart.isEmpty() && !tagPart.equals("*") && PLAIN_TOKEN.matcher(tagPart).matches()) {
+            hints.tag = tagPart.toLowerCase(Locale.ROOT);
+        }
+
+        String predicates = bracket >= 0 ? step.substring(bracket) : "";
+
+        Matcher containsAttr = XPATH_CONTAINS_ATTR.matcher(predicates);
+        while (containsAttr.find()) {
+            hints.attribute(containsAttr.group(1), containsAttr.group(3));
+        }
+        // Drop contains(...) so its inner @attr is not matched again as an equality
+        String equalities = XPATH_CONTAINS_ATTR.matcher(predicates).replaceAll("");
+        Matcher attrEquals = XPATH_ATTR_EQUALS.matcher(equalities);
+        while (attrEquals.find()) {
+            hints.attribute(attrEquals.group(1), attrEquals.group(3));
+        }
+
+        Matcher textEquals = XPATH_TEXT_EQUALS.matcher(predicates);
+        if (textEquals.find()) {
+            hints.text = textEquals.group(2);
+        } else {
+            Matcher containsText = XPATH_CONTAINS_TEXT.matcher(predicates);
+            if (containsText.find()) {
+                hints.text = containsText.group(2);
+            }
+        }
+    }
+
+    private void parseCssCompound(String compound, Builder hints) {
+        Matcher tag = CSS_TAG.matcher(compound);
+        if (tag.find()) {
+            hints.tag = tag.group(1).toLowerCase(Locale.ROOT);
+        }
+
+        Matcher attr = CSS_ATTR.matcher(compound);
+        while (attr.find()) {
+            if (attr.group(3) != null) {
+                hints.attribute(attr.group(1), attr.group(3));
+            }
+        }
+
+        // Strip attribute blocks and pseudo arguments before looking for #id / .class
+        String simple = CSS_ATTR.matcher(compound).replaceAll("");
+        Matcher contains = CSS_CONTAINS.matcher(simple);
+        if (contains.find()) {
+            hints.text = contains.group(2);
+        }
+        simple = simple.replaceAll("\\(.*?\\)", "");
+
+        Matcher id = CSS_ID.matcher(simple);
+        if (id.find()) {
+            hints.id = id.group(1);
+        }
+        Matcher cls = CSS_CLASS.matcher(simple);
+        while (cls.find()) {
+            hints.classes.add(cls.group(1));
+        }
+    }
+
+    /**
+     * Last location step of an XPath, ignoring '/' inside predicates and string literals
+     */
+    private String lastXPathStep(String xpath) {
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < xpath.length(); i++) {
+            char c = xpath.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                start = i + 1;
+            }
+        }
+        String step = xpath.substring(start);
+        // Strip a trailing positional wrapper such as (//a)[2]
+        return step.replaceFirst("^\\(+", "");
+    }
+
+    /**
+     * Last compound selector of a CSS selector, ignoring combinators inside brackets and quotes
+     */
+    private String lastCssCompound(String css) {
+        // Only the first selector of a group is considered
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (depth == 0 && c == ',') {
+                return css.substring(start, i).trim();
+            } else if (depth == 0 && (c == ' ' || c == '>' || c == '+' || c == '~')) {
+                start = i + 1;
+            }
+        }
+        return css.substring(start).trim();
+    }
+
+    /**
+     * Mutable accumulator used while parsing
+     */
+    private static final class Builder {
+        private String tag;
+        private String id;
+        private String name;
+        private String text;
+        private final Set<String> classes = new LinkedHashSet<>();
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+
+        private void attribute(String attrName, String value) {
+            switch (attrName.toLowerCase(Locale.ROOT)) {
+                case "id" -> id = value;
+                case "name" -> name = value;
+                case "class" -> {
+                    for (String token : value.trim().split("\\s+")) {
+                        if (!token.isEmpty()) classes.add(token);
+                    }
+                }
+                default -> attributes.put(attrName.toLowerCase(Locale.ROOT), value);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.dto.LocatorType;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Attribute, text and tag hints extracted from a failed locator
+ * Produced by LocatorHintParser and used to score candidate elements
+ *
+ * @param type Detected locator syntax
+ * @param tag Target tag name, or null for any tag
+ * @param id Expected id attribute
+ * @param name Expected name attribute
+ * @param classes Expected class tokens
+ * @param text Expected text (exact or contained)
+ * @param attributes Other expected attributes (data-testid, type, aria-label, ...)
+ */
+public record LocatorHints(
+        LocatorType type,
+        String tag,
+        String id,
+        String name,
+        Set<String> classes,
+        String text,
+        Map<String, String> attributes) {
+
+    /**
+     * Whether the locator gave us anything to score candidates against
+     */
+    public boolean isEmpty() {
+        return id == null && name == null && classes.isEmpty() && text == null && attributes.isEmpty();
+    }
+}
@@ -0,0 +1,278 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.simple.MySimpleSpringBootAgent.config.JobQueueConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorJobResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorJobStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service running locator analyses as asynchronous jobs
+ *
+ * Jobs go through a bounded queue in front of a fixed number of workers. When the
+ * queue is full, submissions fail fast with a JobRejectedException carrying a
+ * Retry-After estimate instead of piling up threads behind a slow LLM. The queue also
+ * holds the page sources of its jobs, so submissions are rejected the same way once
+ * queued and running jobs hold more than locator.jobs.max-pending-bytes of source.
+ *
+ * Queued and running jobs never expire; a finished job stays pollable for
+ * locator.jobs.result-ttl from the moment it finished.
+ *
+ * Metrics:
+ * - locator.jobs.queue.depth / locator.jobs.active / locator.jobs.pending.bytes - gauges
+ * - locator.jobs.wait - time from submission to a worker picking the job up
+ * - locator.jobs.service - time spent analyzing
+ * - locator.jobs.finished{status} / locator.jobs.rejected - counters
+ */
+@Slf4j
+@Service
+public class LocatorJobService {
+
+    private final JobQueueConfig config;
+    private final LocatorAnalysisService analysisService;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, Job> jobs;
+    private final Timer waitTimer;
+    private final Timer serviceTimer;
+    private final Counter rejectedCounter;
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    public LocatorJobService(JobQueueConfig config,
+                             LocatorAnalysisService analysisService,
+                             MeterRegistry meterRegistry) {
+        this.config = config;
+        this.analysisService = analysisService;
+        this.meterRegistry = meterRegistry;
+
+        int workers = Math.max(1, config.getWorkers());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                Thread.ofVirtual().name("locator-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new FinishedJobExpiry(config.getResultTtl()))
+                .build();
+
+        Gauge.builder("locator.jobs.queue.depth", executor, e -> e.getQueue().size())
+                .description("Analysis jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("locator.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Analysis jobs currently running")
+                .register(meterRegistry);
+        Gauge.builder("locator.jobs.pending.bytes", pendingBytes, AtomicLong::get)
+                .description("Page source held by queued and running analysis jobs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("locator.jobs.wait")
+                .description("Time analysis jobs spend queued")
+                .register(meterRegistry);
+        this.serviceTimer = Timer.builder("locator.jobs.service")
+                .description("Time spent running analysis jobs")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("locator.jobs.rejected")
+                .description("Submissions rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a validated analysis request
+     *
+     * @param request A validated analysis request
+     * @return The QUEUED job
+     * @throws JobRejectedException when the queue is full or holds too much page source
+     */
+    public LocatorJobResponse submit(LocatorAnalysisRequest request) {
+        long sourceBytes = sourceBytes(request);
+        long pending = pendingBytes.addAndGet(sourceBytes);
+        // A single oversized page still runs when nothing else is pending; the validator bounds it
+        if (pending > config.getMaxPendingBytes() && pending > sourceBytes) {
+            pendingBytes.addAndGet(-sourceBytes);
+            throw reject("Analysis queue holds too much page source (" + (pending - sourceBytes) + " bytes pending)");
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), Instant.now());
+        jobs.put(job.id, job);
+        // Taken before the job is handed over, so the caller always sees it QUEUED
+        LocatorJobResponse queued = job.toResponse();
+
+        try {
+            executor.execute(() -> run(job, request, sourceBytes));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            pendingBytes.addAndGet(-sourceBytes);
+            throw reject("Analysis queue is full (" + config.getQueueCapacity() + " jobs waiting)");
+        }
+
+        log.info("Queued analysis job {} for locator {}", job.id, request.getLocator());
+        return queued;
+    }
+
+    /**
+     * Current state of a job, optionally waiting for it to finish (long poll)
+     *
+     * @param jobId The job id returned by submit
+     * @param wait How long to wait for completion; capped at locator.jobs.max-wait-seconds
+     * @return The job, or empty when unknown or expired
+     */
+    public Optional<LocatorJobResponse> get(String jobId, Duration wait) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        Duration maxWait = Duration.ofSeconds(config.getMaxWaitSeconds());
+        Duration effectiveWait = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        if (!effectiveWait.isNegative() && !effectiveWait.isZero()) {
+            try {
+                job.done.await(effectiveWait.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return Optional.of(job.toResponse());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private JobRejectedException reject(String reason) {
+        rejectedCounter.increment();
+        long retryAfter = retryAfterSeconds();
+        log.warn("Rejecting analysis job: {}, retry after {}s", reason, retryAfter);
+        return new JobRejectedException(reason, retryAfter);
+    }
+
+    private void run(Job job, LocatorAnalysisRequest request, long sourceBytes) {
+        job.startedAt = Instant.now();
+        job.status = LocatorJobStatus.RUNNING;
+        waitTimer.record(Duration.between(job.submittedAt, job.startedAt));
+
+        long start = System.nanoTime();
+        LocatorAnalysisResponse result = null;
+        String error = null;
+        try {
+            result = analysisService.analyze(request);
+        } catch (Exception e) {
+            log.error("Analysis job {} failed: {}", job.id, e.getMessage(), e);
+            error = "Internal server error: " + e.getMessage();
+        } finally {
+            pendingBytes.addAndGet(-sourceBytes);
+        }
+        serviceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // Publish result fields before the status so pollers never see a finished job without them
+        job.result = result;
+        job.error = error;
+        job.completedAt = Instant.now();
+        job.status = error == null ? LocatorJobStatus.COMPLETED : LocatorJobStatus.FAILED;
+        meterRegistry.counter("locator.jobs.finished", "status", job.status.name()).increment();
+
+        // Re-put so the expiry sees the finished job and starts its TTL
+        jobs.put(job.id, job);
+        job.done.countDown();
+    }
+
+    private static long sourceBytes(LocatorAnalysisRequest request) {
+        String html = request.getHtmlContent();
+        return html == null ? 0 : 2L * html.length();
+    }
+
+    /**
+     * Time until a queue slot is likely to free up: jobs ahead of the caller
+     * divided by the workers, times the mean service time so far
+     */
+    private long retryAfterSeconds() {
+        double meanServiceSeconds = serviceTimer.mean(TimeUnit.SECONDS);
+        double jobsPerWorker = (double) (executor.getQueue().size() + 1) / executor.getMaximumPoolSize();
+        long estimate = (long) Math.ceil(jobsPerWorker * meanServiceSeconds);
+        return Math.max(config.getMinRetryAfterSeconds(), estimate);
+    }
+
+    /**
+     * Keeps queued and running jobs; finished jobs expire resultTtl after they finished
+     */
+    private static final class FinishedJobExpiry implements Expiry<String, Job> {
+
+        private final long resultTtlNanos;
+
+        private FinishedJobExpiry(Duration resultTtl) {
+            this.resultTtlNanos = resultTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String id, Job job, long currentTime) {
+            return job.finished() ? resultTtlNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, Job job, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, job, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, Job job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Mutable job state; written by the worker, read by pollers
+     */
+    private static final class Job {
+
+        private final String id;
+        private final Instant submittedAt;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile LocatorJobStatus status = LocatorJobStatus.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant completedAt;
+        private volatile LocatorAnalysisResponse result;
+        private volatile String error;
+
+        private Job(String id, Instant submittedAt) {
+            this.id = id;
+            this.submittedAt = submittedAt;
+        }
+
+        private boolean finished() {
+            return status == LocatorJobStatus.COMPLETED || status == LocatorJobStatus.FAILED;
+        }
+
+        private LocatorJobResponse toResponse() {
+            return LocatorJobResponse.builder()
+                    .jobId(id)
+                    .status(status)
+                    .submittedAt(submittedAt)
+                    .startedAt(startedAt)
+                    .completedAt(completedAt)
+                    .result(result)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.jfr.DomToolEvent;
+import com.simple.MySimpleSpringBootAgent.jfr.LocatorAnalysisEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the analysis pipeline
+ *
+ * - locator.stage{stage}: validation, preprocessing, ... of a single request
+ * - locator.tool{tool, outcome}: each DomQueryTools invocation (found / empty / error)
+ * - locator.tool.calls: tool calls the LLM made for one analysis
+ * - locator.tool.reused: tool calls answered from an earlier result of the same conversation
+ * - locator.analysis{mode, resolution}: one analysis (blocking / streaming), resolved by
+ *   history / fast_path / cache / llm / coalesced / error, or cancelled when a streaming client went away
+ * - locator.errors{endpoint, exception}: failed requests
+ * - locator.verification.followups: analyses re-run because no suggested locator matched the page
+ *
+ * Histogram buckets are enabled per meter prefix in application.properties
+ * (management.metrics.distribution.percentiles-histogram.*), so p50/p95/p99 are computed in Prometheus.
+ *
+ * Tool calls and analyses are also emitted as JFR events (locator.DomTool, locator.Analysis),
+ * which cost next to nothing unless a recording enables them.
+ */
+@Component
+@RequiredArgsConstructor
+public class LocatorMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Start timing; pass the sample to one of the record methods
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Time one pipeline stage
+     */
+    public <T> T timeStage(String stage, Supplier<T> work) {
+        Timer.Sample sample = start();
+        try {
+            return work.get();
+        } finally {
+            sample.stop(Timer.builder("locator.stage")
+                    .tag("stage", stage)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Time one tool invocation and count it against the invocation's context
+     *
+     * @param tool Tool method name
+     * @param argument The tool arguments as one string (only its length is recorded)
+     * @param context Context of the calling conversation
+     * @param work The tool body
+     * @return The tool result
+     */
+    public String timeTool(String tool, String argument, DomQueryContext context, Supplier<String> work) {
+        context.recordToolCall();
+        DomToolEvent event = DomToolEvent.start(tool);
+        Timer.Sample sample = start();
+        String outcome = "error";
+        int matches = -1;
+        try {
+            String result = work.get();
+            matches = DomQueryTools.matchCount(result);
+            outcome = matches < 0 ? "error" : matches == 0 ? "empty" : "found";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("locator.tool")
+                    .tag("tool", tool)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            event.finish(argument, matches);
+        }
+    }
+
+    /**
+     * Start timing one analysis; pass the result to recordAnalysis
+     *
+     * @param mode blocking or streaming
+     * @param locator The failed locator (JFR event only)
+     */
+    public AnalysisSample startAnalysis(String mode, String locator) {
+        return new AnalysisSample(mode, start(), LocatorAnalysisEvent.start(mode, locator));
+    }
+
+    /**
+     * Record a finished analysis
+     *
+     * @param sample Sample from startAnalysis
+     * @param resolution history, fast_path, cache, llm, coalesced, error or cancelled
+     */
+    public void recordAnalysis(AnalysisSample sample, String resolution) {
+        sample.timer().stop(Timer.builder("locator.analysis")
+                .tag("mode", sample.mode())
+                .tag("resolution", resolution)
+                .register(meterRegistry));
+        sample.event().finish(resolution);
+    }
+
+    /**
+     * Record how many tools the LLM called while answering one analysis, and how many repeated earlier calls
+     */
+    public void recordToolCalls(DomQueryContext context) {
+        DistributionSummary.builder("locator.tool.calls")
+                .register(meterRegistry)
+                .record(context.toolCalls());
+        meterRegistry.counter("locator.tool.reused").increment(context.reusedResults());
+    }
+
+    /**
+     * Count an analysis re-run because no suggested locator matched the page
+     */
+    public void recordVerificationFollowUp() {
+        meterRegistry.counter("locator.verification.followups").increment();
+    }
+
+    /**
+     * Count a failed request
+     */
+    public void recordError(String endpoint, Throwable error) {
+        meterRegistry.counter("locator.errors",
+                "endpoint", endpoint,
+                "exception", error.getClass().getSimpleName()).increment();
+    }
+
+    /**
+     * An analysis in progress: Micrometer sample plus JFR event
+     */
+    public record AnalysisSample(String mode, Timer.Sample timer, LocatorAnalysisEvent event) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.aiservice.LocatorAnalyzerAI;
+import com.simple.MySimpleSpringBootAgent.config.ModelRoutingConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import dev.langchain4j.invocation.InvocationParameters;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routes LLM analyses through tiers of chat models, cheapest first
+ *
+ * Each tier is an OpenAI-compatible endpoint with the same prompt and DomQueryTools; its
+ * page excerpt is budgeted with the tier model's tokenizer (TokenCounters).
+ * A tier's answer is accepted unless:
+ * - the call failed, or the output does not parse or lacks a recommended locator (invalid)
+ * - elementFound is false (not_found, when locator.routing.escalate-when-not-found)
+ * - confidence is below locator.routing.min-confidence (low_confidence)
+ * in which case the analysis runs again on the next tier. A tier whose backend is saturated
+ * (LlmConcurrencyLimiters) is skipped the same way (saturated). When no tier is acceptable,
+ * the best answer seen is returned (element found first, then highest confidence).
+ *
+ * Without routing (locator.routing.enabled=false or no tiers) the default
+ * LocatorAnalyzerAI bean answers everything.
+ *
+ * Streamed analyses (LocatorStreamingAnalysisService) bypass the tiers and always go to the
+ * streaming chat model: an answer can only be judged once it has been streamed to the client,
+ * too late to escalate it without sending a second, different answer.
+ *
+ * Metrics:
+ * - locator.routing.tier{tier, outcome=accepted|escalated|exhausted|error}: latency per tier
+ *   (exhausted = the last tier was not acceptable either)
+ * - locator.routing.escalations{from, reason}: escalations; divide by the tier's
+ *   call count for the escalation rate
+ */
+@Slf4j
+@Service
+public class LocatorModelRouter {
+
+    private final ModelRoutingConfig config;
+    private final LocatorAnalyzerAI defaultAnalyzer;
+    private final LocatorMetrics metrics;
+    private final MeterRegistry meterRegistry;
+    private final LlmConcurrencyLimiters concurrencyLimiters;
+    private final String defaultBackend;
+    private final TokenCounter defaultTokenCounter;
+    private final List<RoutedTier> tiers;
+
+    @Autowired
+    public LocatorModelRouter(ModelRoutingConfig config,
+                              LocatorAnalyzerAI defaultAnalyzer,
+                              DomQueryTools domQueryTools,
+                              ObjectProvider<ChatModelListener> listeners,
+                              LocatorMetrics metrics,
+                              MeterRegistry meterRegistry,
+                              LlmConcurrencyLimiters concurrencyLimiters,
+                              TokenCounters tokenCounters,
+                              TokenCounter defaultTokenCounter,
+                              @Value("${langchain4j.open-ai.chat-model.base-url}") String defaultBackend) {
+        this(config, defaultAnalyzer, metrics, meterRegistry, concurrencyLimiters, defaultTokenCounter, defaultBackend,
+                config.isEnabled()
+                        ? buildTiers(config.getTiers(), domQueryTools, tokenCounters, listeners.orderedStream().toList())
+                        : List.of());
+    }
+
+    LocatorModelRouter(ModelRoutingConfig config,
+                       LocatorAnalyzerAI defaultAnalyzer,
+                       LocatorMetrics metrics,
+                       MeterRegistry meterRegistry,
+                       LlmConcurrencyLimiters concurrencyLimiters,
+                       TokenCounter defaultTokenCounter,
+                       String defaultBackend,
+                       List<RoutedTier> tiers) {
+        this.config = config;
+        this.defaultAnalyzer = defaultAnalyzer;
+        this.metrics = metrics;
+        this.meterRegistry = meterRegistry;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.defaultBackend = defaultBackend;
+        this.defaultTokenCounter = defaultTokenCounter;
+        this.tiers = List.copyOf(tiers);
+        if (!this.tiers.isEmpty()) {
+            log.info("Model routing enabled: {}", tiers.stream().map(RoutedTier::label).toList());
+        }
+    }
+
+    /**
+     * Analyze with the cheapest tier whose answer is acceptable
+     *
+     * @param locator The failed locator
+     * @param elementDescription Description of the target element
+     * @param pageUrl Page URL
+     * @param pageExcerpt Builds the candidate excerpt within a model's token budget; called once per
+     *                    tier tried, so it should reuse excerpts built for the same counter
+     * @param parameters Creates fresh invocation parameters for each tier's conversation
+     * @return The accepted (or best available) result
+     */
+    public LocatorAnalysisResult analyze(String locator, String elementDescription, String pageUrl,
+                                         Function<TokenCounter, String> pageExcerpt,
+                                         Supplier<InvocationParameters> parameters) {
+        if (tiers.isEmpty()) {
+            return call(defaultBackend, defaultAnalyzer, locator, elementDescription, pageUrl,
+                    pageExcerpt.apply(defaultTokenCounter), parameters.get());
+        }
+
+        LocatorAnalysisResult best = null;
+        for (int i = 0; i < tiers.size(); i++) {
+            RoutedTier tier = tiers.get(i);
+            boolean last = i == tiers.size() - 1;
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            try {
+                LocatorAnalysisResult result = call(tier.backend(), tier.analyzer(), locator, elementDescription, pageUrl,
+                        pageExcerpt.apply(tier.tokenCounter()), parameters.get());
+                String reason = escalationReason(result);
+                if (reason == null) {
+                    outcome = "accepted";
+                    return result;
+                }
+                best = better(best, result);
+                if (last) {
+                    outcome = "exhausted";
+                    return best;
+                }
+                outcome = "escalated";
+                escalate(tier, reason, locator);
+            } catch (RuntimeException e) {
+                if (last) {
+                    if (best != null) {
+                        log.warn("Last tier {} failed for {} ({}), using best earlier answer",
+                                tier.label(), locator, e.getMessage());
+                        return best;
+                    }
+                    throw e;
+                }
+                escalate(tier, e instanceof LlmSaturatedException ? "saturated" : "error", locator);
+                log.debug("Tier {} failed", tier.label(), e);
+            } finally {
+                sample.stop(Timer.builder("locator.routing.tier")
+                        .tag("tier", tier.label())
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }
+        throw new IllegalStateException("No model tier produced an answer"); // unreachable: the last tier returns or throws
+    }
+
+    private LocatorAnalysisResult call(String backend, LocatorAnalyzerAI analyzer, String locator,
+                                       String elementDescription, String pageUrl, String pageExcerpt,
+                                       InvocationParameters parameters) {
+        try {
+            return concurrencyLimiters.call(backend,
+                    () -> analyzer.analyzeLocator(locator, elementDescription, pageUrl, pageExcerpt, parameters));
+        } finally {
+            metrics.recordToolCalls(DomQueryContext.from(parameters));
+        }
+    }
+
+    /**
+     * Why a tier's answer is not good enough, or null to accept it
+     */
+    private String escalationReason(LocatorAnalysisResult result) {
+        if (result == null || !StringUtils.hasText(result.getRecommendedLocatorType())
+                || result.getConfidence() == null
+                || (Boolean.TRUE.equals(result.getElementFound()) && !StringUtils.hasText(result.getRecommendedLocator()))) {
+            return "invalid";
+        }
+        if (config.isEscalateWhenNotFound() && !Boolean.TRUE.equals(result.getElementFound())) {
+            return "not_found";
+        }
+        if (result.getConfidence() < config.getMinConfidence()) {
+            return "low_confidence";
+        }
+        return null;
+    }
+
+    private void escalate(RoutedTier from, String reason, String locator) {
+        meterRegistry.counter("locator.routing.escalations", "from", from.label(), "reason", reason).increment();
+        log.info("Escalating analysis of {} from tier {} ({})", locator, from.label(), reason);
+    }
+
+    private static LocatorAnalysisResult better(LocatorAnalysisResult current, LocatorAnalysisResult candidate) {
+        if (current == null || candidate == null) {
+            return current != null ? current : candidate;
+        }
+        // An invalid answer never replaces a usable one
+        if (!StringUtils.hasText(candidate.getRecommendedLocator()) && StringUtils.hasText(current.getRecommendedLocator())) {
+            return current;
+        }
+        boolean candidateFound = Boolean.TRUE.equals(candidate.getElementFound());
+        boolean currentFound = Boolean.TRUE.equals(current.getElementFound());
+        if (candidateFound != currentFound) {
+            return candidateFound ? candidate : current;
+        }
+        int candidateConfidence = candidate.getConfidence() != null ? candidate.getConfidence() : 0;
+        int currentConfidence = current.getConfidence() != null ? current.getConfidence() : 0;
+        return candidateConfidence > currentConfidence ? candidate : current;
+    }
+
+    private static List<RoutedTier> buildTiers(List<ModelRoutingConfig.Tier> tiers, DomQueryTools domQueryTools,
+                                               TokenCounters tokenCounters, List<ChatModelListener> listeners) {
+        List<RoutedTier> routed = new ArrayList<>();
+        for (ModelRoutingConfig.Tier tier : tiers) {
+            if (!StringUtils.hasText(tier.getBaseUrl()) || !StringUtils.hasText(tier.getModelName())) {
+                throw new IllegalStateException("locator.routing tier '" + tier.label() + "' needs base-url and model-name");
+            }
+            OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                    .baseUrl(tier.getBaseUrl())
+                    .apiKey(tier.getApiKey())
+                    .modelName(tier.getModelName())
+                    .temperature(tier.getTemperature())
+                    .maxTokens(tier.getMaxTokens())
+                    .timeout(tier.getTimeout())
+                    .listeners(listeners)
+                    .build();
+            LocatorAnalyzerAI analyzer = AiServices.builder(LocatorAnalyzerAI.class)
+                    .chatModel(chatModel)
+                    .tools(domQueryTools)
+                    .build();
+            routed.add(new RoutedTier(tier.label(), tier.getBaseUrl(), analyzer,
+                    tokenCounters.forModel(tier.getModelName(), tier.getTokenEncoding())));
+        }
+        return routed;
+    }
+
+    /**
+     * A tier ready to call: its analyzer, the backend it is limited under and its model's token counter
+     */
+    record RoutedTier(String label, String backend, LocatorAnalyzerAI analyzer, TokenCounter tokenCounter) {
+    }
+}
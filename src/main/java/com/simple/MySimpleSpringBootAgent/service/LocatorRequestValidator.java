@@ -1,6 +1,11 @@
 package com.simple.MySimpleSpringBootAgent.service;
 
+import com.simple.MySimpleSpringBootAgent.config.BatchAnalysisConfig;
+import com.simple.MySimpleSpringBootAgent.dto.BatchLocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.DeltaAnalysisRequest;
 import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorQuery;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -12,8 +17,11 @@ import java.util.List;
  * Follows Single Responsibility Principle - only handles validation logic
  */
 @Service
+@RequiredArgsConstructor
 public class LocatorRequestValidator {
 
+    private final BatchAnalysisConfig batchConfig;
+
     /**
      * Validates the locator analysis request
      *
@@ -39,6 +47,32 @@ public class LocatorRequestValidator {
         return errors;
     }
 
+    /**
+     * Validates an analysis request whose page arrives as an upload rather than in htmlContent
+     *
+     * @param request The request to validate (htmlContent is ignored)
+     * @param pageBytes Size of the uploaded page on the wire
+     * @return List of validation error messages (empty if valid)
+     */
+    public List<String> validateUpload(LocatorAnalysisRequest request, long pageBytes) {
+        List<String> errors = new ArrayList<>();
+
+        if (request == null) {
+            errors.add("Request cannot be null");
+            return errors;
+        }
+
+        if (pageBytes <= 0) {
+            errors.add("HTML content is required");
+        }
+
+        if (!StringUtils.hasText(request.getLocator())) {
+            errors.add("Locator is required");
+        }
+
+        return errors;
+    }
+
     /**
      * Check if request is valid
      *
@@ -48,4 +82,66 @@ public class LocatorRequestValidator {
     public boolean isValid(LocatorAnalysisRequest request) {
         return validate(request).isEmpty();
     }
+
+    /**
+     * Validates an analysis request against a page session snapshot
+     *
+     * @param request The request to validate
+     * @return List of validation error messages (empty if valid)
+     */
+    public List<String> validate(DeltaAnalysisRequest request) {
+        List<String> errors = new ArrayList<>();
+
+        if (request == null) {
+            errors.add("Request cannot be null");
+            return errors;
+        }
+
+        if (!StringUtils.hasText(request.getBaseHash())) {
+            errors.add("Baseline hash is required");
+        }
+
+        if (!StringUtils.hasText(request.getLocator())) {
+            errors.add("Locator is required");
+        }
+
+        return errors;
+    }
+
+    /**
+     * Validates a batch analysis request
+     *
+     * @param request The batch request to validate
+     * @return List of validation error messages (empty if valid)
+     */
+    public List<String> validate(BatchLocatorAnalysisRequest request) {
+        List<String> errors = new ArrayList<>();
+
+        if (request == null) {
+            errors.add("Request cannot be null");
+            return errors;
+        }
+
+        if (!StringUtils.hasText(request.getHtmlContent())) {
+            errors.add("HTML content is required");
+        }
+
+        List<LocatorQuery> locators = request.getLocators();
+        if (locators == null || locators.isEmpty()) {
+            errors.add("At least one locator is required");
+            return errors;
+        }
+
+        if (locators.size() > batchConfig.getMaxLocators()) {
+            errors.add("Too many locators: " + locators.size() + " (max " + batchConfig.getMaxLocators() + ")");
+        }
+
+        for (int i = 0; i < locators.size(); i++) {
+            if (locators.get(i) == null || !StringUtils.hasText(locators.get(i).getLocator())) {
+                errors.add("Locator is required at index " + i);
+            }
+        }
+
+        return errors;
+    }
 }
@@ -70,6 +70,19 @@ public class LocatorResponseMapper {
                 .build();
     }
 
+    /**
+     * Convert a verified result, including the per-locator findings
+     *
+     * @param verification Outcome of LocatorVerifier
+     * @return The mapped response DTO
+     */
+    public LocatorAnalysisResponse toResponse(LocatorVerifier.Verification verification) {
+        LocatorAnalysisResponse response = toResponse(verification.result());
+        response.setVerifiedLocators(verification.verified());
+        response.setRejectedLocators(verification.rejected());
+        return response;
+    }
+
     /**
      * Create error response
      *
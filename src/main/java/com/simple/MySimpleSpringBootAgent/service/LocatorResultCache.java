@@ -0,0 +1,111 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simple.MySimpleSpringBootAgent.config.ResultCacheConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.store.AppendOnlyRecordStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Persistent cache of LLM answers (LocatorAnalysisResult)
+ *
+ * Key = hash(canonical locator, normalized element description, structural DOM fingerprint),
+ * so the same broken locator on the same page layout is answered from disk even when
+ * text content changed. Backed by an append-only, memory-mapped file that survives restarts.
+ */
+@Slf4j
+@Service
+public class LocatorResultCache {
+
+    private final ResultCacheConfig config;
+    private final LocatorHintParser hintParser;
+    private final DomFingerprintService fingerprintService;
+    private final ObjectMapper objectMapper;
+    private final AppendOnlyRecordStore store;
+    private final Counter hits;
+    private final Counter misses;
+
+    public LocatorResultCache(ResultCacheConfig config,
+                              LocatorHintParser hintParser,
+                              DomFingerprintService fingerprintService,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.config = config;
+        this.hintParser = hintParser;
+        this.fingerprintService = fingerprintService;
+        this.objectMapper = objectMapper;
+        this.store = config.isEnabled()
+                ? new AppendOnlyRecordStore(Path.of(config.getPath()), config.getTtl(), config.getMaxBytes())
+                : null;
+        this.hits = meterRegistry.counter("locator.result.cache", "result", "hit");
+        this.misses = meterRegistry.counter("locator.result.cache", "result", "miss");
+    }
+
+    /**
+     * Cache key for a locator/description on a given document layout
+     */
+    public String keyFor(Document doc, String locator, String elementDescription) {
+        return new ContentHasher()
+                .update(hintParser.canonicalize(locator)).separator()
+                .update(normalizeDescription(elementDescription)).separator()
+                .update(fingerprintService.fingerprint(doc))
+                .hex();
+    }
+
+    /**
+     * Look up a previous LLM answer
+     */
+    public Optional<LocatorAnalysisResult> get(String key) {
+        if (store == null) {
+            return Optional.empty();
+        }
+        Optional<LocatorAnalysisResult> result = store.get(key).flatMap(record -> {
+            try {
+                return Optional.of(objectMapper.readValue(record.payload(), LocatorAnalysisResult.class));
+            } catch (Exception e) {
+                log.warn("Dropping unreadable cached result {}: {}", key, e.getMessage());
+                store.remove(key);
+                return Optional.empty();
+            }
+        });
+        (result.isPresent() ? hits : misses).increment();
+        return result;
+    }
+
+    /**
+     * Remember an LLM answer; only answers that located the element are cached
+     */
+    public void put(String key, LocatorAnalysisResult result) {
+        if (store == null || result == null || !Boolean.TRUE.equals(result.getElementFound())) {
+            return;
+        }
+        try {
+            store.put(key, objectMapper.writeValueAsBytes(result));
+        } catch (Exception e) {
+            log.warn("Failed to cache result {}: {}", key, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private String normalizeDescription(String elementDescription) {
+        if (elementDescription == null) {
+            return "";
+        }
+        return elementDescription.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,248 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.aiservice.LocatorAnalyzerStreamingAI;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.dto.ToolInvocationEvent;
+import dev.langchain4j.invocation.InvocationParameters;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.service.output.ServiceOutputParser;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Service running a locator analysis as a stream of progress events
+ *
+ * The analysis is queued on the analysis executor and the caller returns at once:
+ * preprocessing, local resolution and waiting for an LLM permit all happen in the
+ * background, after the client has been told the analysis is queued.
+ * Local answers (fast path, answer cache) are delivered as an immediate result.
+ * Otherwise the LLM conversation runs on the streaming chat model and reports each
+ * DomQueryTools call, every partial token and finally the parsed response.
+ *
+ * When an identical blocking analysis is already waiting on the LLM, the stream waits
+ * for its answer and delivers it as the result. Streams never lead a coalesced flight:
+ * a client can cancel them mid-conversation, which would strand the waiting requests.
+ *
+ * Suggested locators are verified against the page like blocking analyses (LocatorVerifier),
+ * but a stream does not take a follow-up LLM turn when none of them matches.
+ *
+ * The conversation holds a permit of the streaming backend's concurrency limit
+ * (LlmConcurrencyLimiters) for as long as the backend works on it. When the client goes
+ * away the analysis is recorded as cancelled and the LLM stream is cancelled; langchain4j
+ * hands out the stream's handle with its first token, so a conversation still inside a
+ * tool round trip stops at the next token, and only then gives its permit back (or when
+ * it completes or fails before that token).
+ */
+@Slf4j
+@Service
+public class LocatorStreamingAnalysisService {
+
+    private static final ServiceOutputParser OUTPUT_PARSER = new ServiceOutputParser();
+    private static final String FORMAT_INSTRUCTIONS =
+            OUTPUT_PARSER.outputFormatInstructions(LocatorAnalysisResult.class);
+
+    private final LocatorAnalyzerStreamingAI streamingAI;
+    private final HtmlPreprocessor htmlPreprocessor;
+    private final LocatorAnalysisService analysisService;
+    private final LocatorResultCache resultCache;
+    private final DomIndexService domIndexService;
+    private final CandidateExcerptBuilder excerptBuilder;
+    private final LocatorResponseMapper responseMapper;
+    private final LocatorMetrics metrics;
+    private final AnalysisCoalescer coalescer;
+    private final LlmConcurrencyLimiters concurrencyLimiters;
+    private final LocatorVerifier verifier;
+    private final LocatorHealingHistory healingHistory;
+    private final ExecutorService analysisExecutor;
+    private final String streamingBackend;
+    private final TokenCounter streamingTokenCounter;
+
+    public LocatorStreamingAnalysisService(LocatorAnalyzerStreamingAI streamingAI,
+                                           HtmlPreprocessor htmlPreprocessor,
+                                           LocatorAnalysisService analysisService,
+                                           LocatorResultCache resultCache,
+                                           DomIndexService domIndexService,
+                                           CandidateExcerptBuilder excerptBuilder,
+                                           LocatorResponseMapper responseMapper,
+                                           LocatorMetrics metrics,
+                                           AnalysisCoalescer coalescer,
+                                           LlmConcurrencyLimiters concurrencyLimiters,
+                                           LocatorVerifier verifier,
+                                           LocatorHealingHistory healingHistory,
+                                           @Qualifier("analysisExecutor") ExecutorService analysisExecutor,
+                                           TokenCounters tokenCounters,
+                                           @Value("${langchain4j.open-ai.streaming-chat-model.base-url}") String streamingBackend,
+                                           @Value("${langchain4j.open-ai.streaming-chat-model.model-name:}") String streamingModel) {
+        this.streamingAI = streamingAI;
+        this.htmlPreprocessor = htmlPreprocessor;
+        this.analysisService = analysisService;
+        this.resultCache = resultCache;
+        this.domIndexService = domIndexService;
+        this.excerptBuilder = excerptBuilder;
+        this.responseMapper = responseMapper;
+        this.metrics = metrics;
+        this.coalescer = coalescer;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.verifier = verifier;
+        this.healingHistory = healingHistory;
+        this.analysisExecutor = analysisExecutor;
+        this.streamingBackend = streamingBackend;
+        this.streamingTokenCounter = tokenCounters.forModel(streamingModel);
+    }
+
+    /**
+     * Queue a streamed analysis; returns immediately
+     *
+     * @param request A validated analysis request
+     * @param listener Receives onQueued, progress, then exactly one result or error
+     *                 (an error when the streaming backend has no free slot)
+     */
+    public void analyze(LocatorAnalysisRequest request, AnalysisStreamListener listener) {
+        listener.onQueued();
+        analysisExecutor.execute(() -> {
+            if (listener.isCancelled()) {
+                return;
+            }
+            try {
+                run(request, listener);
+            } catch (LlmSaturatedException e) {
+                metrics.recordError("stream", e);
+                log.warn("Streamed analysis rejected: {}", e.getMessage());
+                listener.onError(responseMapper.createErrorResponse(e.getMessage()));
+            } catch (Exception e) {
+                metrics.recordError("stream", e);
+                log.error("Error starting streamed analysis: {}", e.getMessage(), e);
+                listener.onError(responseMapper.createErrorResponse("Internal server error: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void run(LocatorAnalysisRequest request, AnalysisStreamListener listener) {
+        Document doc = htmlPreprocessor.preprocessHtml(request.getHtmlContent(), request.getLocator());
+        String locator = request.getLocator();
+        String elementDescription = request.getElementDescription();
+
+        LocatorMetrics.AnalysisSample sample = metrics.startAnalysis("streaming", locator);
+        Optional<LocatorAnalysisService.LocalResolution> local =
+                analysisService.resolveLocally(doc, locator, elementDescription, request.getPageUrl());
+        if (local.isPresent()) {
+            metrics.recordAnalysis(sample, local.get().source());
+            listener.onResult(responseMapper.toResponse(verifier.verify(doc, local.get().result())));
+            return;
+        }
+
+        String cacheKey = resultCache.keyFor(doc, locator, elementDescription);
+        LocatorAnalysisResult shared;
+        try {
+            shared = coalescer.joinIfInFlight(doc, cacheKey, request.getPageUrl());
+        } catch (RuntimeException e) {
+            metrics.recordAnalysis(sample, "error");
+            throw e;
+        }
+        if (shared != null) {
+            metrics.recordAnalysis(sample, "coalesced");
+            listener.onResult(responseMapper.toResponse(verifier.verify(doc, shared)));
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit;
+        try {
+            permit = concurrencyLimiters.acquire(streamingBackend);
+        } catch (LlmSaturatedException e) {
+            metrics.recordAnalysis(sample, "error");
+            throw e;
+        }
+        // The client may go away while the stream ends: whichever comes first is recorded
+        AtomicBoolean recorded = new AtomicBoolean();
+        Consumer<String> record = resolution -> {
+            if (recorded.compareAndSet(false, true)) {
+                metrics.recordAnalysis(sample, resolution);
+            }
+        };
+        AtomicReference<StreamingHandle> handle = new AtomicReference<>();
+        listener.onCancel(() -> {
+            record.accept("cancelled");
+            // Without a handle the backend keeps working until the next token, which releases the permit
+            StreamingHandle started = handle.get();
+            if (started != null) {
+                started.cancel();
+                permit.ignore();
+            }
+        });
+        if (listener.isCancelled()) {
+            permit.ignore();
+            log.info("Streamed analysis of {} cancelled by client before the LLM call", locator);
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+
+        try {
+            InvocationParameters parameters = DomQueryContext.invocationParameters(doc, domIndexService.indexFor(doc));
+            streamingAI.analyzeLocator(
+                            locator,
+                            elementDescription != null ? elementDescription : "target element",
+                            request.getPageUrl() != null ? request.getPageUrl() : "",
+                            excerptBuilder.build(doc, locator, elementDescription, streamingTokenCounter),
+                            FORMAT_INSTRUCTIONS,
+                            parameters)
+                    .onToolExecuted(execution -> listener.onToolInvocation(ToolInvocationEvent.builder()
+                            .tool(execution.request().name())
+                            .arguments(execution.request().arguments())
+                            .matchCount(DomQueryTools.matchCount(execution.result()))
+                            .build()))
+                    .onPartialResponseWithContext((partial, context) -> {
+                        handle.compareAndSet(null, context.streamingHandle());
+                        if (listener.isCancelled()) {
+                            context.streamingHandle().cancel();
+                            permit.ignore();
+                            log.info("Streamed analysis of {} cancelled by client", locator);
+                            return;
+                        }
+                        listener.onToken(partial.text());
+                    })
+                    .onCompleteResponse(chatResponse -> {
+                        permit.success();
+                        metrics.recordToolCalls(DomQueryContext.from(parameters));
+                        try {
+                            LocatorAnalysisResult result = (LocatorAnalysisResult) OUTPUT_PARSER.parseText(
+                                    LocatorAnalysisResult.class, chatResponse.aiMessage().text());
+                            LocatorVerifier.Verification verification = verifier.verify(doc, result);
+                            resultCache.put(cacheKey, verification.result());
+                            healingHistory.record(request.getPageUrl(), locator, verification);
+                            record.accept("llm");
+                            log.info("Streamed analysis of {} complete in {}ms",
+                                    locator, System.currentTimeMillis() - startTime);
+                            listener.onResult(responseMapper.toResponse(verification));
+                        } catch (Exception e) {
+                            record.accept("error");
+                            metrics.recordError("stream", e);
+                            log.error("Cannot parse streamed analysis of {}: {}", locator, e.getMessage());
+                            listener.onError(responseMapper.createErrorResponse(
+                                    "Could not parse LLM response: " + e.getMessage()));
+                        }
+                    })
+                    .onError(error -> {
+                        LlmConcurrencyLimiters.release(permit, error);
+                        record.accept("error");
+                        metrics.recordError("stream", error);
+                        log.error("Streamed analysis of {} failed: {}", locator, error.getMessage(), error);
+                        listener.onError(responseMapper.createErrorResponse("Internal server error: " + error.getMessage()));
+                    })
+                    .start();
+        } catch (RuntimeException e) {
+            permit.ignore();
+            record.accept("error");
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Service responsible for deriving Selenium locators for a known element
+ * Builds the same LocatorAnalysisResult shape the LLM returns, so locally resolved
+ * answers flow through LocatorResponseMapper unchanged
+ *
+ * Priority order matches the documented strategy: ID > NAME > LINK_TEXT > CSS > XPATH
+ */
+@Service
+public class LocatorSuggestionBuilder {
+
+    private static final Pattern CSS_IDENTIFIER = Pattern.compile("^[A-Za-z_][\\w-]*$");
+    private static final int MAX_LINK_TEXT_LENGTH = 60;
+
+    /**
+     * Build locator suggestions for an element
+     *
+     * @param doc The document the element belongs to (used for uniqueness checks)
+     * @param el The target element
+     * @return Result with every applicable locator type filled in
+     */
+    public LocatorAnalysisResult build(Document doc, Element el) {
+        LocatorAnalysisResult result = new LocatorAnalysisResult();
+        List<String> css = new ArrayList<>();
+        List<String> xpaths = new ArrayList<>();
+
+        String id = el.id();
+        if (StringUtils.hasText(id) && isUnique(doc, "id", id)) {
+            result.setPrimaryId(id);
+            css.add(cssForId(id));
+            xpaths.add("//*[@id=" + xpathLiteral(id) + "]");
+        }
+
+        String name = el.attr("name");
+        if (StringUtils.hasText(name) && isUnique(doc, "name", name)) {
+            result.setPrimaryName(name);
+            css.add(el.tagName() + "[name=" + cssLiteral(name) + "]");
+            xpaths.add("//" + el.tagName() + "[@name=" + xpathLiteral(name) + "]");
+        }
+
+        String testId = el.attr("data-testid");
+        if (StringUtils.hasText(testId) && isUnique(doc, "data-testid", testId)) {
+            css.add("[data-testid=" + cssLiteral(testId) + "]");
+            xpaths.add("//*[@data-testid=" + xpathLiteral(testId) + "]");
+        }
+
+        for (String className : el.classNames()) {
+            if (CSS_IDENTIFIER.matcher(className).matches() && doc.getElementsByClass(className).size() == 1) {
+                result.setPrimaryClassName(className);
+                css.add("." + className);
+                break;
+            }
+        }
+
+        if (doc.getElementsByTag(el.tagName()).size() == 1) {
+            result.setPrimaryTagName(el.tagName());
+        }
+
+        if (el.normalName().equals("a")) {
+            String linkText = el.text().trim();
+            if (StringUtils.hasText(linkText) && linkText.length() <= MAX_LINK_TEXT_LENGTH) {
+                result.setPrimaryLinkText(linkText);
+                result.setPrimaryPartialLinkText(linkText.length() > 20 ? linkText.substring(0, 20) : linkText);
+            }
+        }
+
+        if (css.isEmpty()) {
+            css.add(el.cssSelector());
+        }
+        if (xpaths.isEmpty()) {
+            xpaths.add(absoluteXPath(el));
+        }
+
+        result.setPrimaryCssSelector(css.get(0));
+        result.setAlternativeCssSelectors(new ArrayList<>(css.subList(1, css.size())));
+        result.setPrimaryXPath(xpaths.get(0));
+        result.setAlternativeXPaths(new ArrayList<>(xpaths.subList(1, xpaths.size())));
+        result.setElementFound(true);
+
+        if (result.getPrimaryId() != null) {
+            result.setRecommendedLocatorType("ID");
+            result.setRecommendedLocator(result.getPrimaryId());
+        } else if (result.getPrimaryName() != null) {
+            result.setRecommendedLocatorType("NAME");
+            result.setRecommendedLocator(result.getPrimaryName());
+        } else if (result.getPrimaryLinkText() != null) {
+            result.setRecommendedLocatorType("LINK_TEXT");
+            result.setRecommendedLocator(result.getPrimaryLinkText());
+        } else {
+            result.setRecommendedLocatorType("CSS_SELECTOR");
+            result.setRecommendedLocator(result.getPrimaryCssSelector());
+        }
+
+        return result;
+    }
+
+    /**
+     * Quote a value as an XPath string literal
+     */
+    public String xpathLiteral(String value) {
+        if (!value.contains("'")) {
+            return "'" + value + "'";
+        }
+        if (!value.contains("\"")) {
+            return "\"" + value + "\"";
+        }
+        return "concat('" + value.replace("'", "', \"'\", '") + "')";
+    }
+
+    /**
+     * Quote a value as a CSS attribute string literal
+     */
+    public String cssLiteral(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private String cssForId(String id) {
+        return CSS_IDENTIFIER.matcher(id).matches() ? "#" + id : "[id=" + cssLiteral(id) + "]";
+    }
+
+    private boolean isUnique(Document doc, String attr, String value) {
+        return doc.getElementsByAttributeValue(attr, value).size() == 1;
+    }
+
+    /**
+     * Positional XPath from the root, used only when nothing more stable exists
+     */
+    private String absoluteXPath(Element el) {
+        StringBuilder path = new StringBuilder();
+        for (Element current = el; current != null && !(current instanceof Document); current = current.parent()) {
+            int position = 1;
+            int sameTag = 0;
+            Element parent = current.parent();
+            if (parent != null) {
+                for (Element sibling : parent.children()) {
+                    if (sibling.normalName().equals(current.normalName())) {
+                        sameTag++;
+                        if (sibling == current) {
+                            position = sameTag;
+                        }
+                    }
+                }
+            }
+            String step = sameTag > 1 ? current.tagName() + "[" + position + "]" : current.tagName();
+            path.insert(0, "/" + step);
+        }
+        return path.toString();
+    }
+}
@@ -0,0 +1,352 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LocatorVerificationConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorVerification;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Selector;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Checks every locator of an analysis result against the page before it is returned
+ *
+ * All suggested locators (id, name, className, tagName, link texts, every CSS selector
+ * and XPath, and the recommendation) are evaluated concurrently on the analysis executor
+ * against the preprocessed document: simple ones through its DomIndex, CSS and XPath
+ * through CompiledSelectorCache. Each gets its match count, uniqueness and a robustness
+ * score. The result is rewritten so that:
+ * - locators that match nothing or do not parse are dropped
+ * - CSS selectors and XPaths are ordered by robustness (primary = most robust)
+ * - the recommendation is the most robust verified locator
+ *
+ * Metrics: locator.verification.locators{type, status=unique|ambiguous|no_match|invalid}
+ */
+@Slf4j
+@Service
+public class LocatorVerifier {
+
+    static final String ID = "ID";
+    static final String NAME = "NAME";
+    static final String CLASS_NAME = "CLASS_NAME";
+    static final String TAG_NAME = "TAG_NAME";
+    static final String LINK_TEXT = "LINK_TEXT";
+    static final String PARTIAL_LINK_TEXT = "PARTIAL_LINK_TEXT";
+    static final String CSS_SELECTOR = "CSS_SELECTOR";
+    static final String XPATH = "XPATH";
+
+    private static final Map<String, Integer> BASE_ROBUSTNESS = Map.of(
+            ID, 100, NAME, 85, CSS_SELECTOR, 70, LINK_TEXT, 60,
+            CLASS_NAME, 55, PARTIAL_LINK_TEXT, 45, XPATH, 40, TAG_NAME, 20);
+
+    private static final Pattern STABLE_ANCHOR = Pattern.compile(
+            "(^#|@id\\s*=|\\[id\\s*[~|^$*]?=|@name\\s*=|\\[name\\s*=|data-test|aria-label)");
+    private static final Pattern POSITIONAL = Pattern.compile("\\[\\s*\\d+\\s*]|:nth-|position\\(\\)|last\\(\\)|:first-|:last-");
+    private static final Pattern TEXT_BASED = Pattern.compile("text\\(\\)|contains\\(\\s*\\.|:contains");
+    // Framework-generated values: long digit runs, hex hashes (ember123, css-1x2y3z, react-select-5-input)
+    private static final Pattern GENERATED_VALUE = Pattern.compile(
+            "\\d{4,}|(?=[0-9a-f]*\\d)[0-9a-f]{8,}|\\b(?:ember|react-select|mui|css|jsx)-?[0-9a-z]*\\d",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern STEP = Pattern.compile("//?|\\s*>\\s*|\\s+(?=[\\w.#\\[*])");
+    private static final int MAX_PLAIN_STEPS = 3;
+
+    private final LocatorVerificationConfig config;
+    private final DomIndexService domIndexService;
+    private final CompiledSelectorCache selectorCache;
+    private final ExecutorService analysisExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public LocatorVerifier(LocatorVerificationConfig config,
+                           DomIndexService domIndexService,
+                           CompiledSelectorCache selectorCache,
+                           @Qualifier("analysisExecutor") ExecutorService analysisExecutor,
+                           MeterRegistry meterRegistry) {
+        this.config = config;
+        this.domIndexService = domIndexService;
+        this.selectorCache = selectorCache;
+        this.analysisExecutor = analysisExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Verify every locator of a result against the page
+     *
+     * @param doc The preprocessed (shared, read-only) document the result is for
+     * @param result The analysis result; not modified
+     * @return A verified copy of the result with the per-locator findings
+     */
+    public Verification verify(Document doc, LocatorAnalysisResult result) {
+        if (!config.isEnabled() || result == null) {
+            return new Verification(result, List.of(), List.of());
+        }
+
+        DomIndex index = domIndexService.indexFor(doc);
+        List<CompletableFuture<LocatorVerification>> checks = candidates(result).stream()
+                .map(c -> CompletableFuture.supplyAsync(() -> check(doc, index, c.type(), c.locator()), analysisExecutor))
+                .toList();
+
+        List<LocatorVerification> verified = new ArrayList<>();
+        List<LocatorVerification> rejected = new ArrayList<>();
+        for (CompletableFuture<LocatorVerification> check : checks) {
+            LocatorVerification v = check.join();
+            (v.getMatchCount() > 0 ? verified : rejected).add(v);
+            meterRegistry.counter("locator.verification.locators", "type", v.getType(), "status", status(v)).increment();
+        }
+        verified.sort(Comparator.comparingInt(LocatorVerification::getRobustness).reversed());
+        log.debug("Verified locators: {} match the page, {} rejected", verified.size(), rejected.size());
+
+        return new Verification(rewrite(result, verified, rejected), verified, rejected);
+    }
+
+    /**
+     * Instructions for a follow-up LLM turn after no suggested locator matched the page
+     */
+    public String followUpNote(Verification verification) {
+        String rejected = verification.rejected().stream()
+                .map(v -> "- " + v.getType() + " " + v.getLocator()
+                        + (v.getError() != null ? " (" + v.getError() + ")" : " (matches nothing)"))
+                .collect(Collectors.joining("\n"));
+        return "\n\nA previous answer suggested these locators, and none of them matches this page:\n"
+                + rejected
+                + "\nCheck every locator with the tools before returning it.";
+    }
+
+    /**
+     * Check a single locator on the calling thread (not counted in the verification metrics)
+     *
+     * @param doc The preprocessed (shared, read-only) document
+     * @param type Locator type, as in LocatorVerification
+     * @param locator The locator string
+     */
+    public LocatorVerification check(Document doc, String type, String locator) {
+        return check(doc, domIndexService.indexFor(doc), type, locator);
+    }
+
+    private LocatorVerification check(Document doc, DomIndex index, String type, String locator) {
+        int matches;
+        try {
+            matches = evaluate(doc, index, type, locator);
+        } catch (Selector.SelectorParseException | IllegalArgumentException e) {
+            // Unparseable selector (IllegalArgumentException: Jsoup's ValidationException, invalid By.className)
+            return LocatorVerification.builder().type(type).locator(locator).error(e.getMessage()).build();
+        }
+        return LocatorVerification.builder()
+                .type(type)
+                .locator(locator)
+                .matchCount(matches)
+                .unique(matches == 1)
+                .robustness(matches > 0 ? robustness(type, locator, matches) : 0)
+                .build();
+    }
+
+    private int evaluate(Document doc, DomIndex index, String type, String locator) {
+        return switch (type) {
+            case ID -> countExact(index.byAttribute("id", locator), "id", locator);
+            case NAME -> countExact(index.byAttribute("name", locator), "name", locator);
+            case CLASS_NAME -> {
+                if (locator.trim().contains(" ")) {
+                    throw new IllegalArgumentException("Compound class names are not permitted by By.className");
+                }
+                yield doc.getElementsByClass(locator.trim()).size();
+            }
+            case TAG_NAME -> index.byTags(locator.trim()).size();
+            case LINK_TEXT -> countLinks(index, locator, false);
+            case PARTIAL_LINK_TEXT -> countLinks(index, locator, true);
+            case CSS_SELECTOR -> index.select(locator).orElseGet(() -> selectorCache.select(doc, locator)).size();
+            case XPATH -> selectorCache.selectXpath(doc, locator).size();
+            default -> throw new IllegalArgumentException("Unknown locator type " + type);
+        };
+    }
+
+    private static int countExact(Elements candidates, String attribute, String value) {
+        int count = 0;
+        for (Element el : candidates) {
+            if (el.attr(attribute).equals(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countLinks(DomIndex index, String text, boolean partial) {
+        String wanted = text.trim();
+        int count = 0;
+        for (Element a : index.byTags("a")) {
+            String linkText = a.text().trim();
+            if (partial ? linkText.contains(wanted) : linkText.equals(wanted)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Robustness of a matching locator, 0-100
+     */
+    static int robustness(String type, String locator, int matches) {
+        int score = BASE_ROBUSTNESS.getOrDefault(type, 0);
+        boolean selector = type.equals(CSS_SELECTOR) || type.equals(XPATH);
+        if (selector) {
+            if (STABLE_ANCHOR.matcher(locator).find()) {
+                score += 10;
+            }
+            if (POSITIONAL.matcher(locator).find()) {
+                score -= 15;
+            }
+            if (TEXT_BASED.matcher(locator).find()) {
+                score -= 5;
+            }
+            if (type.equals(XPATH) && locator.startsWith("/") && !locator.startsWith("//")) {
+                score -= 25; // absolute path from the root
+            }
+            int steps = (int) STEP.matcher(locator.trim()).results().count();
+            score -= Math.min(20, Math.max(0, steps - MAX_PLAIN_STEPS) * 5);
+        }
+        if (GENERATED_VALUE.matcher(locator).find()) {
+            score -= 20;
+        }
+        if (matches > 1) {
+            score -= 40;
+        }
+        return Math.max(0, Math.min(100, score));
+    }
+
+    private static String status(LocatorVerification v) {
+        if (v.getError() != null) {
+            return "invalid";
+        }
+        return v.getMatchCount() == 0 ? "no_match" : v.isUnique() ? "unique" : "ambiguous";
+    }
+
+    private static List<Candidate> candidates(LocatorAnalysisResult result) {
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        add(candidates, ID, result.getPrimaryId());
+        add(candidates, NAME, result.getPrimaryName());
+        add(candidates, CLASS_NAME, result.getPrimaryClassName());
+        add(candidates, TAG_NAME, result.getPrimaryTagName());
+        add(candidates, LINK_TEXT, result.getPrimaryLinkText());
+        add(candidates, PARTIAL_LINK_TEXT, result.getPrimaryPartialLinkText());
+        add(candidates, CSS_SELECTOR, result.getPrimaryCssSelector());
+        if (result.getAlternativeCssSelectors() != null) {
+            result.getAlternativeCssSelectors().forEach(css -> add(candidates, CSS_SELECTOR, css));
+        }
+        add(candidates, XPATH, result.getPrimaryXPath());
+        if (result.getAlternativeXPaths() != null) {
+            result.getAlternativeXPaths().forEach(xpath -> add(candidates, XPATH, xpath));
+        }
+        if (result.getRecommendedLocatorType() != null) {
+            add(candidates, result.getRecommendedLocatorType().trim().toUpperCase(Locale.ROOT), result.getRecommendedLocator());
+        }
+        return new ArrayList<>(candidates.values());
+    }
+
+    private static void add(Map<String, Candidate> candidates, String type, String locator) {
+        if (StringUtils.hasText(locator) && BASE_ROBUSTNESS.containsKey(type)) {
+            candidates.putIfAbsent(type + '\u0000' + locator, new Candidate(type, locator));
+        }
+    }
+
+    /**
+     * Copy of the result holding only verified locators, most robust first
+     */
+    private static LocatorAnalysisResult rewrite(LocatorAnalysisResult result, List<LocatorVerification> verified,
+                                                 List<LocatorVerification> rejected) {
+        LocatorAnalysisResult copy = new LocatorAnalysisResult(
+                firstOf(verified, ID), firstOf(verified, NAME), firstOf(verified, CLASS_NAME),
+                firstOf(verified, TAG_NAME), firstOf(verified, LINK_TEXT), firstOf(verified, PARTIAL_LINK_TEXT),
+                null, null, null, null,
+                result.getConfidence(), result.getExplanation(), result.getElementFound(),
+                result.getRecommendedLocatorType(), result.getRecommendedLocator(), result.getWarnings());
+
+        List<String> css = allOf(verified, CSS_SELECTOR);
+        copy.setPrimaryCssSelector(css.isEmpty() ? null : css.get(0));
+        copy.setAlternativeCssSelectors(css.size() > 1 ? new ArrayList<>(css.subList(1, css.size())) : new ArrayList<>());
+        List<String> xpaths = allOf(verified, XPATH);
+        copy.setPrimaryXPath(xpaths.isEmpty() ? null : xpaths.get(0));
+        copy.setAlternativeXPaths(xpaths.size() > 1 ? new ArrayList<>(xpaths.subList(1, xpaths.size())) : new ArrayList<>());
+
+        List<String> notes = new ArrayList<>();
+        if (!rejected.isEmpty()) {
+            notes.add("Dropped locators that do not match the page: " + rejected.stream()
+                    .map(LocatorVerification::getLocator)
+                    .collect(Collectors.joining(", ")));
+        }
+        if (verified.isEmpty()) {
+            if (Boolean.TRUE.equals(result.getElementFound())) {
+                notes.add("None of the suggested locators matches the page");
+                copy.setElementFound(false);
+                copy.setConfidence(0);
+            }
+            copy.setRecommendedLocatorType(null);
+            copy.setRecommendedLocator(null);
+        } else {
+            LocatorVerification best = verified.get(0);
+            boolean recommendationKept = best.getType().equalsIgnoreCase(String.valueOf(result.getRecommendedLocatorType()))
+                    && best.getLocator().equals(result.getRecommendedLocator());
+            if (!recommendationKept) {
+                notes.add("Recommendation changed to the most robust verified locator " + best.getType() + " "
+                        + best.getLocator() + (result.getRecommendedLocator() != null
+                        ? " (was " + result.getRecommendedLocatorType() + " " + result.getRecommendedLocator() + ")" : ""));
+                copy.setRecommendedLocatorType(best.getType());
+                copy.setRecommendedLocator(best.getLocator());
+            }
+        }
+        if (!notes.isEmpty()) {
+            String joined = String.join("; ", notes);
+            copy.setWarnings(StringUtils.hasText(result.getWarnings()) ? result.getWarnings() + "; " + joined : joined);
+        }
+        return copy;
+    }
+
+    private static String firstOf(List<LocatorVerification> verified, String type) {
+        return verified.stream()
+                .filter(v -> v.getType().equals(type))
+                .map(LocatorVerification::getLocator)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static List<String> allOf(List<LocatorVerification> verified, String type) {
+        return verified.stream()
+                .filter(v -> v.getType().equals(type))
+                .map(LocatorVerification::getLocator)
+                .toList();
+    }
+
+    private record Candidate(String type, String locator) {
+    }
+
+    /**
+     * Outcome of verifying one result
+     *
+     * @param result Copy of the result with only verified locators, re-ranked
+     * @param verified Locators matching at least one element, most robust first
+     * @param rejected Locators matching nothing or failing to parse
+     */
+    public record Verification(LocatorAnalysisResult result, List<LocatorVerification> verified,
+                               List<LocatorVerification> rejected) {
+
+        /**
+         * Locators were suggested, yet none of them matches the page
+         */
+        public boolean nothingVerified() {
+            return !rejected.isEmpty() && verified.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simple.MySimpleSpringBootAgent.config.PageSessionConfig;
+import com.simple.MySimpleSpringBootAgent.dto.DomEdit;
+import com.simple.MySimpleSpringBootAgent.dto.PageSessionResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Page sessions: a baseline page registered once, later snapshots sent as edits against it
+ *
+ * Consecutive failures in a test usually come from the same page with small differences.
+ * Instead of re-uploading and re-parsing the whole page source, the client registers the
+ * page once and then sends each snapshot as DomEdits against the baseline source. The
+ * session retains the baseline source and its preprocessed, indexed document; snapshots
+ * are built by DomDeltaApplier, which reparses and re-indexes only the edited subtrees.
+ *
+ * Built snapshots are cached in HtmlDocumentCache (key: baseline hash + edits), so the same
+ * snapshot sent again - e.g. for a second failed locator - is not rebuilt. Sessions expire
+ * after locator.page-sessions.idle-timeout without use and are bounded by the estimated heap
+ * they retain: the baseline source plus its tracked document, index and noise spans.
+ *
+ * Metrics:
+ * - locator.session.snapshots{mode=unchanged|incremental|full}: how snapshots were built
+ * - html.delta.reparsed.chars: source characters parsed per snapshot
+ * - html.delta.edit.chars: replacement text per snapshot (what the client sent instead of the page)
+ * - page.sessions.*: session cache size and evictions
+ */
+@Slf4j
+@Service
+public class PageSessionService {
+
+    private static final String CACHE_NAME = "page.sessions";
+
+    private final PageSessionConfig config;
+    private final DomDeltaApplier deltaApplier;
+    private final HtmlDocumentCache documentCache;
+    private final HtmlPreprocessor htmlPreprocessor;
+    private final HtmlUtilityService htmlUtilityService;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, PageSession> sessions;
+
+    public PageSessionService(PageSessionConfig config,
+                              DomDeltaApplier deltaApplier,
+                              HtmlDocumentCache documentCache,
+                              HtmlPreprocessor htmlPreprocessor,
+                              HtmlUtilityService htmlUtilityService,
+                              MeterRegistry meterRegistry) {
+        this.config = config;
+        this.deltaApplier = deltaApplier;
+        this.documentCache = documentCache;
+        this.htmlPreprocessor = htmlPreprocessor;
+        this.htmlUtilityService = htmlUtilityService;
+        this.meterRegistry = meterRegistry;
+        this.sessions = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxRetainedBytes())
+                .weigher((String id, PageSession session) -> session.weight())
+                .expireAfterAccess(config.getIdleTimeout())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, CACHE_NAME);
+    }
+
+    /**
+     * Register a baseline page
+     *
+     * @param htmlContent The baseline page source
+     * @return The new session, or empty when page sessions are disabled
+     */
+    public Optional<PageSessionResponse> register(String htmlContent) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        DomDeltaApplier.Baseline baseline = deltaApplier.baseline(htmlContent, "session");
+        PageSession session = new PageSession(UUID.randomUUID().toString(),
+                htmlUtilityService.contentHash(htmlContent), baseline,
+                (int) Math.min(Integer.MAX_VALUE, baseline.estimateRetainedBytes()));
+        sessions.put(session.id(), session);
+
+        log.info("Registered page session {}: {} chars, {} elements, ~{} bytes retained", session.id(),
+                htmlContent.length(), baseline.index().size(), session.weight());
+        return Optional.of(PageSessionResponse.builder()
+                .sessionId(session.id())
+                .baseHash(session.baseHash())
+                .sourceLength(htmlContent.length())
+                .elements(baseline.index().size())
+                .build());
+    }
+
+    /**
+     * The preprocessed snapshot described by edits against the session's baseline
+     *
+     * @param sessionId The session
+     * @param baseHash Baseline hash the client computed the edits against
+     * @param edits Edits against the baseline source; empty = the baseline itself
+     * @param locator The failed locator (for logging)
+     * @return Shared, read-only preprocessed document, or empty when the session is unknown or expired
+     * @throws StaleBaselineException when baseHash is not the session's baseline
+     * @throws IllegalArgumentException for invalid edits
+     */
+    public Optional<Document> snapshot(String sessionId, String baseHash, List<DomEdit> edits, String locator) {
+        PageSession session = sessions.getIfPresent(sessionId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (!session.baseHash().equals(baseHash)) {
+            throw new StaleBaselineException("Session " + sessionId + " has baseline " + session.baseHash()
+                    + ", edits were made against " + baseHash);
+        }
+
+        DomDeltaApplier.Baseline baseline = session.baseline();
+        DomDeltaApplier.Plan plan = deltaApplier.plan(baseline, edits);
+        String mode = plan.unchanged() ? "unchanged" : plan.full() ? "full" : "incremental";
+        meterRegistry.counter("locator.session.snapshots", "mode", mode).increment();
+        summary("html.delta.reparsed.chars").record(plan.unchanged() ? 0 : plan.reparsedChars());
+        summary("html.delta.edit.chars").record(plan.edits().stream().mapToLong(e -> e.getText().length()).sum());
+        log.info("Snapshot of session {} for locator {}: {} edits, {} ({} of {} chars reparsed)", sessionId, locator,
+                plan.edits().size(), mode, plan.unchanged() ? 0 : plan.reparsedChars(), baseline.source().length());
+
+        if (plan.unchanged()) {
+            return Optional.of(baseline.document());
+        }
+        if (plan.full()) {
+            return Optional.of(htmlPreprocessor.preprocessHtml(deltaApplier.patchedSource(baseline, plan), locator));
+        }
+        // Keyed by the edits that reach the document, so snapshots differing only in script content share it
+        String key = "delta:" + session.baseHash() + ':' + editsHash(plan.targets().stream()
+                .flatMap(target -> target.edits().stream())
+                .toList());
+        return Optional.of(documentCache.getOrLoad(key, () -> deltaApplier.applyIncremental(baseline, plan)));
+    }
+
+    /**
+     * End a session, releasing its baseline
+     *
+     * @return Whether the session existed
+     */
+    public boolean close(String sessionId) {
+        return sessions.asMap().remove(sessionId) != null;
+    }
+
+    private static String editsHash(List<DomEdit> edits) {
+        ContentHasher hasher = new ContentHasher();
+        for (DomEdit edit : edits) {
+            hasher.update(edit.getStart()).update(edit.getEnd()).update(edit.getText().length()).update(edit.getText());
+        }
+        return hasher.hex();
+    }
+
+    private DistributionSummary summary(String name) {
+        return DistributionSummary.builder(name)
+                .baseUnit("chars")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A registered baseline
+     *
+     * @param id Session id
+     * @param baseHash Content hash of the baseline source
+     * @param baseline The retained baseline
+     * @param weight Estimated heap the baseline retains (bytes)
+     */
+    private record PageSession(String id, String baseHash, DomDeltaApplier.Baseline baseline, int weight) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Service responsible for decoding uploaded page sources
+ *
+ * Accepts identity, gzip and deflate (zlib) payloads. The encoding comes from the
+ * Content-Encoding header when present, otherwise it is sniffed from the magic bytes.
+ * Decoding is streaming: the decoded page is never materialized, it is fed straight
+ * into the parser through a size-limited stream.
+ *
+ * zstd is recognised but rejected - no zstd decoder ships with the JDK.
+ * Every rejection is a PageSourceException, so callers can answer 400 for these only.
+ */
+@Service
+@RequiredArgsConstructor
+public class PageSourceDecoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HtmlProcessingConfig config;
+
+    /**
+     * Read the (possibly compressed) request body, enforcing maxUploadBytes
+     *
+     * @param in The request body stream
+     * @return The wire bytes
+     * @throws PageSourceException when the body exceeds maxUploadBytes
+     */
+    public byte[] readWireBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > config.getMaxUploadBytes()) {
+                throw new PageSourceException("Upload exceeds " + config.getMaxUploadBytes() + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Open a decoding stream over the wire bytes
+     *
+     * @param wireBytes The uploaded bytes
+     * @param contentEncoding Declared encoding (gzip, deflate, identity) or null to sniff
+     * @return Stream of decoded page bytes that counts them and enforces maxDecodedBytes
+     *         (reading past it throws an IOException)
+     * @throws PageSourceException for unsupported encodings
+     */
+    public CountingInputStream decode(byte[] wireBytes, String contentEncoding) throws IOException {
+        InputStream raw = new ByteArrayInputStream(wireBytes);
+        String encoding = StringUtils.hasText(contentEncoding)
+                ? contentEncoding.trim().toLowerCase(Locale.ROOT)
+                : sniff(wireBytes);
+
+        InputStream decoded = switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(raw, BUFFER_SIZE);
+            case "deflate" -> new InflaterInputStream(raw);
+            case "identity" -> raw;
+            case "zstd" -> throw new PageSourceException(
+                    "zstd encoding is not supported, use gzip or deflate");
+            default -> throw new PageSourceException("Unsupported content encoding: " + contentEncoding);
+        };
+        return new CountingInputStream(decoded, config.getMaxDecodedBytes());
+    }
+
+    private String sniff(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0x1F && (bytes[1] & 0xFF) == 0x8B) {
+            return "gzip";
+        }
+        if (bytes.length >= 2 && (bytes[0] & 0x0F) == 0x08 && ((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF)) % 31 == 0) {
+            return "deflate";
+        }
+        if (bytes.length >= 4 && (bytes[0] & 0xFF) == 0x28 && (bytes[1] & 0xFF) == 0xB5
+                && (bytes[2] & 0xFF) == 0x2F && (bytes[3] & 0xFF) == 0xFD) {
+            return "zstd";
+        }
+        return "identity";
+    }
+
+    /**
+     * Input stream that counts bytes read and fails once a limit is exceeded
+     */
+    public static final class CountingInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        CountingInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        /**
+         * Decoded bytes read so far
+         */
+        public long count() {
+            return count;
+        }
+
+        private void advance(int read) throws IOException {
+            count += read;
+            if (count > limit) {
+                throw new IOException("Decoded page exceeds " + limit + " bytes");
+            }
+        }
+    }
+}
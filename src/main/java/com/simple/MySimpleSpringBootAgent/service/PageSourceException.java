@@ -0,0 +1,18 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+/**
+ * Thrown when an uploaded page source cannot be read: too large, unsupported
+ * content encoding or charset, or corrupt compressed data
+ */
+public class PageSourceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PageSourceException(String message) {
+        super(message);
+    }
+
+    public PageSourceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+/**
+ * Thrown when a snapshot's edits name a different baseline than the one its session retains
+ */
+public class StaleBaselineException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StaleBaselineException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,81 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer: many producers, one consumer
+ *
+ * Producers claim a sequence with a CAS on the tail and publish into that slot; they
+ * never block and never wait for the consumer - when the buffer is full the element is
+ * rejected. The single consumer takes published slots in sequence order, clears them
+ * and then advances the head, so a producer that sees free capacity always finds its
+ * slot empty.
+ */
+final class TelemetryRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity Minimum capacity; rounded up to a power of two
+     */
+    TelemetryRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Add an element without blocking
+     *
+     * @return false when the buffer is full and the element was dropped
+     */
+    boolean offer(E element) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        slots.lazySet((int) (sequence & mask), element);
+        return true;
+    }
+
+    /**
+     * Hand every published element to the consumer; only one thread may drain
+     *
+     * @return Number of elements drained
+     */
+    int drain(Consumer<E> consumer) {
+        int drained = 0;
+        long sequence = head;
+        while (true) {
+            int index = (int) (sequence & mask);
+            E element = slots.get(index);
+            if (element == null) {
+                // Empty, or claimed by a producer that has not published yet
+                return drained;
+            }
+            slots.lazySet(index, null);
+            head = ++sequence;
+            drained++;
+            consumer.accept(element);
+        }
+    }
+
+    /**
+     * Elements claimed but not yet drained (approximate under concurrency)
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,27 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+/**
+ * Counts model tokens for prompt budgeting
+ * Implementations must be thread-safe; see TokenCounterConfig for how one is chosen
+ */
+public interface TokenCounter {
+
+    /**
+     * Name of the encoding (e.g. cl100k_base), for logs and metrics
+     */
+    String name();
+
+    /**
+     * Number of tokens the text encodes to
+     */
+    int countTokens(String text);
+
+    /**
+     * Length in chars of the longest prefix of the text that fits in maxTokens
+     *
+     * @param text The text to fit
+     * @param maxTokens Token budget
+     * @return Prefix length; text.length() when the whole text fits
+     */
+    int prefixLengthWithin(String text, int maxTokens);
+}
@@ -0,0 +1,73 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token counters per chat model, so each model's prompt is budgeted in its own vocabulary
+ *
+ * The encoding for a model is, in order:
+ * - the one configured for it (e.g. locator.routing.tiers[n].token-encoding)
+ * - html.processing.token-encoding
+ * - the model's own encoding when jtokkit knows the model name, else cl100k_base
+ * "heuristic" selects HeuristicTokenCounter. Models sharing an encoding share a counter.
+ */
+public class TokenCounters {
+
+    static final String HEURISTIC = "heuristic";
+
+    private final String defaultEncoding;
+    private final EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+    private final Map<String, TokenCounter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultEncoding Encoding for every model without its own (blank = derive from the model name)
+     */
+    public TokenCounters(String defaultEncoding) {
+        this.defaultEncoding = defaultEncoding;
+    }
+
+    /**
+     * Counter for a model, using the default encoding when one is configured
+     */
+    public TokenCounter forModel(String modelName) {
+        return forModel(modelName, null);
+    }
+
+    /**
+     * Counter for a model
+     *
+     * @param modelName The model name (may be blank)
+     * @param encoding Encoding configured for this model (blank = the default)
+     * @return Shared counter for the resolved encoding
+     * @throws IllegalStateException if the configured encoding is unknown
+     */
+    public TokenCounter forModel(String modelName, String encoding) {
+        String name;
+        if (StringUtils.hasText(encoding)) {
+            name = encoding.trim();
+        } else if (StringUtils.hasText(defaultEncoding)) {
+            name = defaultEncoding.trim();
+        } else {
+            name = registry.getEncodingForModel(modelName != null ? modelName.trim() : "")
+                    .map(Encoding::getName)
+                    .orElse(EncodingType.CL100K_BASE.getName());
+        }
+        return counters.computeIfAbsent(name.toLowerCase(Locale.ROOT), this::create);
+    }
+
+    private TokenCounter create(String encoding) {
+        if (HEURISTIC.equals(encoding)) {
+            return new HeuristicTokenCounter();
+        }
+        return new BpeTokenCounter(registry.getEncoding(encoding)
+                .orElseThrow(() -> new IllegalStateException("Unknown token encoding: " + encoding)));
+    }
+}
@@ -0,0 +1,127 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+/**
+ * Compact text encoding of elements in DomQueryTools results
+ *
+ * One line per element: its handle, the tag and only the non-empty locator-relevant
+ * attributes, then the start of its text:
+ *
+ *   e42 <input id="q" name="q" type="search" placeholder="Search">
+ *   e57 <a class="nav-link" href="/cart">Basket (2)
+ *
+ * The handle (see DomIndex) lets the model ask for one element again with getElement.
+ * Lines are appended to one StringBuilder per result; nothing is formatted per element.
+ */
+public final class ToolOutputFormatter {
+
+    /**
+     * Attributes worth building a locator from, in output order
+     */
+    static final String[] LOCATOR_ATTRIBUTES = {
+            "id", "class", "name", "data-testid", "type", "role", "aria-label", "placeholder", "href"};
+
+    private static final int MAX_TEXT_LENGTH = 50;
+    private static final int MAX_VALUE_LENGTH = 60;
+    private static final int MAX_ANCESTORS = 3;
+    private static final int ESTIMATED_LINE_LENGTH = 96;
+
+    private ToolOutputFormatter() {
+    }
+
+    /**
+     * One element with its locator-relevant attributes
+     */
+    public static String formatElement(Element el, DomIndex index) {
+        StringBuilder sb = new StringBuilder(ESTIMATED_LINE_LENGTH);
+        appendElement(sb, el, index, false);
+        return sb.toString();
+    }
+
+    /**
+     * Up to limit elements under a "Found n elements:" header
+     */
+    public static String formatElements(Elements elements, int limit, DomIndex index) {
+        if (elements.isEmpty()) {
+            return "No elements found";
+        }
+
+        int shown = Math.min(elements.size(), limit);
+        StringBuilder sb = new StringBuilder(32 + shown * ESTIMATED_LINE_LENGTH);
+        sb.append("Found ").append(shown).append(" elements:");
+        for (int i = 0; i < shown; i++) {
+            sb.append('\n');
+            appendElement(sb, elements.get(i), index, false);
+        }
+        if (elements.size() > limit) {
+            sb.append("\n... and ").append(elements.size() - limit).append(" more elements");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One element with all its attributes, followed by its nearest ancestors
+     */
+    public static String formatDetails(Element el, DomIndex index) {
+        StringBuilder sb = new StringBuilder(ESTIMATED_LINE_LENGTH * (MAX_ANCESTORS + 2));
+        appendElement(sb, el, index, true);
+        Element ancestor = el.parent();
+        for (int i = 0; i < MAX_ANCESTORS && ancestor != null && !"#root".equals(ancestor.normalName()); i++) {
+            sb.append("\n  in ");
+            appendTag(sb, ancestor, index, false);
+            ancestor = ancestor.parent();
+        }
+        return sb.toString();
+    }
+
+    private static void appendElement(StringBuilder sb, Element el, DomIndex index, boolean allAttributes) {
+        appendTag(sb, el, index, allAttributes);
+        String text = el.text();
+        if (text.length() > MAX_TEXT_LENGTH) {
+            sb.append(text, 0, MAX_TEXT_LENGTH).append("...");
+        } else {
+            sb.append(text);
+        }
+    }
+
+    private static void appendTag(StringBuilder sb, Element el, DomIndex index, boolean allAttributes) {
+        int position = index != null ? index.positionOf(el) : -1;
+        if (position >= 0) {
+            sb.append('e').append(position).append(' ');
+        }
+        sb.append('<').append(el.normalName());
+        if (allAttributes) {
+            for (Attribute attr : el.attributes()) {
+                appendAttribute(sb, attr.getKey(), attr.getValue());
+            }
+        } else {
+            for (String name : LOCATOR_ATTRIBUTES) {
+                appendAttribute(sb, name, el.attr(name));
+            }
+        }
+        sb.append('>');
+    }
+
+    private static void appendAttribute(StringBuilder sb, String name, String value) {
+        if (value.isEmpty()) {
+            return;
+        }
+        sb.append(' ').append(name).append("=\"");
+        int end = Math.min(value.length(), MAX_VALUE_LENGTH);
+        for (int i = 0; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append("&quot;");
+            } else {
+                sb.append(c);
+            }
+        }
+        if (value.length() > MAX_VALUE_LENGTH) {
+            sb.append("...");
+        }
+        sb.append('"');
+    }
+}
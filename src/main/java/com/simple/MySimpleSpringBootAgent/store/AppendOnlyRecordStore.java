@@ -0,0 +1,441 @@
+package com.simple.MySimpleSpringBootAgent.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped key/value record store
+ *
+ * File layout: [int magic][int version], then one record after another (latest record for a key wins):
+ * [int crc32c][int keyLength][long writtenAtMillis][int payloadLength (-1 = tombstone)][key UTF-8][payload]
+ * The CRC covers everything in the record after itself.
+ *
+ * - Reads are served from a read-only memory mapping of the file, indexed in memory by key
+ * - Writes append to the end of the file; payloads past the mapped region are kept in memory,
+ *   and the mapping is only rebuilt once that unmapped tail outgrows REMAP_CHUNK
+ * - Replaced mappings are unmapped explicitly (under the write lock, so no reader holds them),
+ *   instead of lingering until GC - which also lets compaction replace the file on Windows
+ * - Records older than the TTL are invisible and dropped on compaction
+ * - Compaction rewrites live records (newest first, up to 75% of maxBytes) to a temp file
+ *   and atomically replaces the store when the file outgrows maxBytes or is mostly dead records
+ * - On open, the first record that is cut short or fails its CRC (crash mid-append) and
+ *   everything after it is truncated
+ *
+ * Durability: appends are never forced to disk. A JVM crash loses nothing already written,
+ * but an OS crash or power loss can drop the most recent records (recovered as a torn tail).
+ * Compaction forces the new file before it replaces the old one.
+ *
+ * Thread-safe. Intended for small payloads (KBs) and files well under 2GB.
+ */
+@Slf4j
+public class AppendOnlyRecordStore implements Closeable {
+
+    private static final int MAGIC = 0x4C525331; // "LRS1"
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int MAX_KEY_LENGTH = 64 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final long REMAP_CHUNK = 1024 * 1024;
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Explicit unmapping unavailable, mappings are released by GC: {}", e.getMessage());
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private final Path file;
+    private final Duration ttl;
+    private final long maxBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, IndexEntry> index = new HashMap<>();
+    private final Map<Long, byte[]> unmappedPayloads = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long liveBytes;
+
+    /**
+     * Record as returned to callers
+     */
+    public record StoredRecord(String key, byte[] payload, Instant writtenAt) {
+    }
+
+    private record IndexEntry(long payloadOffset, int payloadLength, long writtenAtMillis, int recordSize) {
+    }
+
+    /**
+     * Open (or create) the store
+     *
+     * @param file Backing file; parent directories are created
+     * @param ttl Records older than this are treated as absent
+     * @param maxBytes File size that triggers compaction
+     */
+    public AppendOnlyRecordStore(Path file, Duration ttl, long maxBytes) {
+        if (maxBytes <= 0 || maxBytes >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBytes must be between 1 and 2GB: " + maxBytes);
+        }
+        this.file = file;
+        this.ttl = ttl;
+        this.maxBytes = maxBytes;
+
+        lock.writeLock().lock();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            openAndLoad();
+            log.info("Opened record store {}: {} records, {} bytes", file, index.size(), size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open record store " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Latest live record for the key
+     */
+    public Optional<StoredRecord> get(String key) {
+        lock.readLock().lock();
+        try {
+            IndexEntry entry = index.get(key);
+            if (entry == null || isExpired(entry)) {
+                return Optional.empty();
+            }
+            return Optional.of(new StoredRecord(key, readPayload(entry), Instant.ofEpochMilli(entry.writtenAtMillis())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All live records, newest first
+     */
+    public List<StoredRecord> records() {
+        lock.readLock().lock();
+        try {
+            List<StoredRecord> records = new ArrayList<>(index.size());
+            for (Map.Entry<String, IndexEntry> e : index.entrySet()) {
+                if (!isExpired(e.getValue())) {
+                    records.add(new StoredRecord(e.getKey(), readPayload(e.getValue()),
+                            Instant.ofEpochMilli(e.getValue().writtenAtMillis())));
+                }
+            }
+            records.sort(Comparator.comparing(StoredRecord::writtenAt).reversed());
+            return records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append a new version of the record
+     */
+    public void put(String key, byte[] payload) {
+        append(key, payload);
+    }
+
+    /**
+     * Append a tombstone for the key
+     */
+    public void remove(String key) {
+        append(key, null);
+    }
+
+    /**
+     * Number of live (non-tombstoned) keys, including not yet compacted expired ones
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Current size of the backing file in bytes
+     */
+    public long fileSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the file with only live, unexpired records
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Compaction failed for " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            unmap();
+            if (channel != null && channel.isOpen()) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Error closing record store {}: {}", file, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key too long: " + keyBytes.length + " bytes");
+        }
+        int payloadLength = payload != null ? payload.length : -1;
+        long now = System.currentTimeMillis();
+        ByteBuffer buffer = encode(keyBytes, now, payloadLength, payload);
+        int recordSize = buffer.remaining();
+
+        lock.writeLock().lock();
+        try {
+            long offset = size;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            size += recordSize;
+            apply(key, offset, keyBytes.length, payloadLength, now, recordSize);
+            if (payload != null) {
+                unmappedPayloads.put(offset + HEADER_SIZE + keyBytes.length, payload);
+            }
+
+            if (size > maxBytes || (size > MIN_COMPACTION_SIZE && liveBytes < size / 2)) {
+                compactLocked();
+            } else if (size - mapped.capacity() > REMAP_CHUNK) {
+                remap();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to record store " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openAndLoad() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        liveBytes = 0;
+        size = channel.size();
+        if (size < FILE_HEADER_SIZE) {
+            writeFileHeader(channel);
+            size = FILE_HEADER_SIZE;
+        }
+        remap();
+
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(Integer.BYTES) != VERSION) {
+            Path previous = file.resolveSibling(file.getFileName() + ".unreadable");
+            log.warn("Record store {} has an unknown format, moving it to {} and starting empty", file, previous);
+            unmap();
+            channel.close();
+            Files.move(file, previous, StandardCopyOption.REPLACE_EXISTING);
+            openAndLoad();
+            return;
+        }
+
+        long pos = FILE_HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        while (pos + HEADER_SIZE <= size) {
+            int storedCrc = mapped.getInt((int) pos);
+            int keyLength = mapped.getInt((int) pos + Integer.BYTES);
+            long writtenAt = mapped.getLong((int) pos + 2 * Integer.BYTES);
+            int payloadLength = mapped.getInt((int) pos + 2 * Integer.BYTES + Long.BYTES);
+            long recordSize = (long) HEADER_SIZE + keyLength + Math.max(0, payloadLength);
+            if (keyLength < 0 || keyLength > MAX_KEY_LENGTH || payloadLength < -1 || pos + recordSize > size) {
+                break;
+            }
+            crc.reset();
+            crc.update(mapped.slice((int) pos + Integer.BYTES, (int) recordSize - Integer.BYTES));
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            mapped.get((int) pos + HEADER_SIZE, keyBytes);
+            apply(new String(keyBytes, StandardCharsets.UTF_8), pos, keyLength, payloadLength, writtenAt,
+                    (int) recordSize);
+            pos += recordSize;
+        }
+
+        if (pos < size) {
+            log.warn("Truncating torn tail of record store {} at offset {} (file size {})", file, pos, size);
+            channel.truncate(pos);
+            size = pos;
+            remap();
+        }
+    }
+
+    /**
+     * Encode one record, CRC included, ready to be written
+     */
+    private static ByteBuffer encode(byte[] keyBytes, long writtenAt, int payloadLength, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + Math.max(0, payloadLength));
+        buffer.putInt(0).putInt(keyBytes.length).putLong(writtenAt).putInt(payloadLength).put(keyBytes);
+        if (payload != null) {
+            buffer.put(payload);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), Integer.BYTES, buffer.capacity() - Integer.BYTES);
+        buffer.putInt(0, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFileHeader(FileChannel out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        out.truncate(0);
+        while (header.hasRemaining()) {
+            out.write(header, header.position());
+        }
+    }
+
+    private void apply(String key, long recordOffset, int keyLength, int payloadLength, long writtenAt, int recordSize) {
+        IndexEntry previous = payloadLength < 0
+                ? index.remove(key)
+                : index.put(key, new IndexEntry(recordOffset + HEADER_SIZE + keyLength, payloadLength, writtenAt, recordSize));
+        if (previous != null) {
+            liveBytes -= previous.recordSize();
+        }
+        if (payloadLength >= 0) {
+            liveBytes += recordSize;
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        long before = size;
+        List<Map.Entry<String, IndexEntry>> live = new ArrayList<>();
+        for (Map.Entry<String, IndexEntry> e : index.entrySet()) {
+            if (!isExpired(e.getValue())) {
+                live.add(e);
+            }
+        }
+        live.sort(Comparator.comparingLong((Map.Entry<String, IndexEntry> e) -> e.getValue().writtenAtMillis()).reversed());
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        long budget = maxBytes * 3 / 4;
+        long written = FILE_HEADER_SIZE;
+        int kept = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFileHeader(out);
+            for (Map.Entry<String, IndexEntry> e : live) {
+                IndexEntry entry = e.getValue();
+                if (written + entry.recordSize() > budget) {
+                    break;
+                }
+                ByteBuffer buffer = encode(e.getKey().getBytes(StandardCharsets.UTF_8), entry.writtenAtMillis(),
+                        entry.payloadLength(), readPayload(entry));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer, written + buffer.position());
+                }
+                written += entry.recordSize();
+                kept++;
+            }
+            out.force(true);
+        }
+
+        unmap();
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openAndLoad();
+
+        log.info("Compacted record store {}: {} -> {} bytes, kept {} of {} live records",
+                file, before, size, kept, live.size());
+    }
+
+    /**
+     * Map the whole file as it is now, releasing the previous mapping
+     */
+    private void remap() throws IOException {
+        unmap();
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        unmappedPayloads.clear();
+    }
+
+    /**
+     * Release the current mapping now rather than at GC; callers hold the write lock
+     */
+    private void unmap() {
+        MappedByteBuffer previous = mapped;
+        mapped = null;
+        if (previous != null && INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, previous);
+            } catch (ReflectiveOperationException e) {
+                log.debug("Could not unmap record store {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Payload bytes (a copy), from the mapping or, for records appended since it was built, memory
+     */
+    private byte[] readPayload(IndexEntry entry) {
+        if (entry.payloadOffset() + entry.payloadLength() > mapped.capacity()) {
+            return unmappedPayloads.get(entry.payloadOffset()).clone();
+        }
+        byte[] payload = new byte[entry.payloadLength()];
+        mapped.get((int) entry.payloadOffset(), payload);
+        return payload;
+    }
+
+    private boolean isExpired(IndexEntry entry) {
+        return ttl != null && !ttl.isZero()
+                && entry.writtenAtMillis() + ttl.toMillis() < System.currentTimeMillis();
+    }
+}
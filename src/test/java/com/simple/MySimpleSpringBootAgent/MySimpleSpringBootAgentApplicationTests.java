@@ -1,11 +1,26 @@
 package com.simple.MySimpleSpringBootAgent;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
 class MySimpleSpringBootAgentApplicationTests {
 
+	@TempDir
+	static Path dataDir;
+
+	// Keep the persistent stores out of the working directory
+	@DynamicPropertySource
+	static void storePaths(DynamicPropertyRegistry registry) {
+		registry.add("locator.result-cache.path", () -> dataDir.resolve("locator-result-cache.dat").toString());
+		registry.add("locator.healing-history.path", () -> dataDir.resolve("locator-healing-history.dat").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,124 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LlmConcurrencyConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final LlmConcurrencyConfig config = new LlmConcurrencyConfig();
+
+    @Test
+    void limitGrowsWhileLatencyStaysAtTheBaseline() {
+        config.setInitialLimit(4);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+
+        for (int round = 0; round < 20; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, limiter.limit());
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+        }
+
+        assertThat(limiter.limit()).isGreaterThan(4).isLessThanOrEqualTo(config.getMaxLimit());
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void samplesFromAnIdleBackendDoNotGrowTheLimit() {
+        config.setInitialLimit(8);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire(Duration.ZERO).success();
+        }
+
+        assertThat(limiter.limit()).isEqualTo(8);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() throws InterruptedException {
+        config.setInitialLimit(16);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        // Fast calls on an idle backend only establish the baseline
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(Duration.ZERO).success();
+        }
+
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 16);
+        TimeUnit.MILLISECONDS.sleep(50);
+        permits.get(15).success();
+
+        assertThat(limiter.limit()).isLessThan(16);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::ignore);
+    }
+
+    @Test
+    void overloadCutsTheLimitDownToTheMinimum() {
+        config.setInitialLimit(10);
+        config.setMinLimit(2);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+
+        limiter.acquire(Duration.ZERO).dropped();
+        assertThat(limiter.limit()).isEqualTo(9);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire(Duration.ZERO).dropped();
+        }
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsAfterWaitingMaxWaitForASlot() {
+        config.setInitialLimit(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(Duration.ZERO);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> limiter.acquire(Duration.ofMillis(100)))
+                .isInstanceOf(LlmSaturatedException.class)
+                .satisfies(e -> assertThat(((LlmSaturatedException) e).getRetryAfterSeconds()).isPositive());
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.rejected()).isEqualTo(1);
+        assertThat(limiter.waiting()).isZero();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        held.ignore();
+    }
+
+    @Test
+    void waiterGetsTheSlotOnceItIsReleased() throws Exception {
+        config.setInitialLimit(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(Duration.ZERO);
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiter =
+                CompletableFuture.supplyAsync(() -> limiter.acquire(Duration.ofSeconds(10)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (limiter.waiting() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(limiter.waiting()).isEqualTo(1);
+
+        held.ignore();
+        held.ignore(); // released once; a second release is a no-op
+
+        waiter.get(10, TimeUnit.SECONDS).ignore();
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.rejected()).isZero();
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquire(AdaptiveConcurrencyLimiter limiter, int count) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.acquire(Duration.ZERO));
+        }
+        return permits;
+    }
+}
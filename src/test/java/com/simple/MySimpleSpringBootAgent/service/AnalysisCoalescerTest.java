@@ -0,0 +1,211 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.LlmConcurrencyConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisCoalescerTest {
+
+    private static final String KEY = "answer-key";
+    private static final String URL = "https://shop.example/checkout";
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LlmConcurrencyConfig config = new LlmConcurrencyConfig();
+    private final AnalysisCoalescer coalescer = new AnalysisCoalescer(config, meterRegistry);
+    private final Document doc = Jsoup.parse("<button id='go'>Go</button>");
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void identicalConcurrentRequestsMakeOneLlmCall() throws Exception {
+        int requests = 16;
+        AtomicInteger llmCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        LocatorAnalysisResult answer = new LocatorAnalysisResult();
+        answer.setRecommendedLocator("#go");
+
+        List<Future<AnalysisCoalescer.Flight>> flights = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            flights.add(executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+                llmCalls.incrementAndGet();
+                await(release);
+                return answer;
+            })));
+        }
+        // Hold the leader's call until every other request has joined it
+        awaitCoalesced(requests - 1);
+        release.countDown();
+
+        int coalesced = 0;
+        for (Future<AnalysisCoalescer.Flight> flight : flights) {
+            AnalysisCoalescer.Flight result = flight.get(10, TimeUnit.SECONDS);
+            assertThat(result.result()).isSameAs(answer);
+            coalesced += result.coalesced() ? 1 : 0;
+        }
+        assertThat(llmCalls).hasValue(1);
+        assertThat(coalesced).isEqualTo(requests - 1);
+    }
+
+    @Test
+    void differentPageUrlsOrDocumentsDoNotShareACall() throws Exception {
+        AtomicInteger llmCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Document sameLayoutOtherText = Jsoup.parse("<button id='go'>Buy</button>");
+
+        List<Future<AnalysisCoalescer.Flight>> flights = List.of(
+                executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> call(llmCalls, release))),
+                executor.submit(() -> coalescer.execute(doc, KEY, URL + "?step=2", () -> call(llmCalls, release))),
+                executor.submit(() -> coalescer.execute(sameLayoutOtherText, KEY, URL, () -> call(llmCalls, release))));
+        while (llmCalls.get() < 3) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        for (Future<AnalysisCoalescer.Flight> flight : flights) {
+            assertThat(flight.get(10, TimeUnit.SECONDS).coalesced()).isFalse();
+        }
+        assertThat(llmCalls).hasValue(3);
+    }
+
+    @Test
+    void leaderFailureReachesFollowers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<AnalysisCoalescer.Flight> leader = executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalStateException("model unavailable");
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<AnalysisCoalescer.Flight> follower = executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+            throw new AssertionError("follower must not call the LLM");
+        }));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("model unavailable");
+        assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("model unavailable");
+    }
+
+    @Test
+    void interruptedLeaderDoesNotFailItsFollowers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        Future<AnalysisCoalescer.Flight> leader = executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+            leaderStarted.countDown();
+            try {
+                new CountDownLatch(1).await();
+                return new LocatorAnalysisResult();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("LLM call interrupted", e);
+            }
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        LocatorAnalysisResult answer = new LocatorAnalysisResult();
+        AtomicInteger followerCalls = new AtomicInteger();
+        Future<AnalysisCoalescer.Flight> follower = executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+            followerCalls.incrementAndGet();
+            return answer;
+        }));
+        awaitCoalesced(1);
+
+        // The way a batch stops its outstanding analyses
+        leader.cancel(true);
+
+        AnalysisCoalescer.Flight flight = follower.get(10, TimeUnit.SECONDS);
+        assertThat(flight.result()).isSameAs(answer);
+        assertThat(flight.coalesced()).isFalse();
+        assertThat(followerCalls).hasValue(1);
+        assertThat(coalescer.joinIfInFlight(doc, KEY, URL)).isNull();
+    }
+
+    @Test
+    void streamJoiningAnInterruptedLeaderRunsItsOwnCall() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        Future<AnalysisCoalescer.Flight> leader = executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+            leaderStarted.countDown();
+            try {
+                new CountDownLatch(1).await();
+                return new LocatorAnalysisResult();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("LLM call interrupted", e);
+            }
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<LocatorAnalysisResult> stream = executor.submit(() -> coalescer.joinIfInFlight(doc, KEY, URL));
+        awaitCoalesced(1);
+
+        leader.cancel(true);
+
+        // Interrupt flag cleared by the call, the cause still tells an interruption from a failure
+        assertThat(stream.get(10, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void followerWaitIsBounded() throws Exception {
+        config.setCoalescedMaxWait(Duration.ofMillis(100));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<AnalysisCoalescer.Flight> leader = executor.submit(() -> coalescer.execute(doc, KEY, URL, () -> {
+            leaderStarted.countDown();
+            await(release);
+            return new LocatorAnalysisResult();
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> coalescer.joinIfInFlight(doc, KEY, URL))
+                .isInstanceOf(LlmSaturatedException.class);
+
+        release.countDown();
+        assertThat(leader.get(10, TimeUnit.SECONDS).coalesced()).isFalse();
+        assertThat(coalescer.joinIfInFlight(doc, KEY, URL)).isNull();
+    }
+
+    private LocatorAnalysisResult call(AtomicInteger llmCalls, CountDownLatch release) {
+        llmCalls.incrementAndGet();
+        await(release);
+        return new LocatorAnalysisResult();
+    }
+
+    private void awaitCoalesced(int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.counter("locator.llm.coalesced").count() < followers && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(meterRegistry.counter("locator.llm.coalesced").count()).isEqualTo(followers);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
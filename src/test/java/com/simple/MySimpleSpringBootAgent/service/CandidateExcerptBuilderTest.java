@@ -0,0 +1,132 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandidateExcerptBuilderTest {
+
+    private static final String PAGE = """
+            <html><body><main id="app"><section class="checkout"><form id="pay">
+              <label for="card">Card</label>
+              <input id="card-number" name="card" data-hint="%s" placeholder="  Card   number ">
+              <input id="card-cvc" name="cvc">
+              <input id="card-expiry" name="expiry">
+              <input id="card-holder" name="holder">
+              <input id="card-zip" name="zip">
+              <button id="pay-now" class="btn primary" title='Say "pay" &amp; go'>Pay <b>now</b></button>
+            </form></section></main></body></html>
+            """.formatted("x".repeat(200));
+
+    private final HtmlProcessingConfig config = new HtmlProcessingConfig();
+    private final LocatorHintParser hintParser = new LocatorHintParser();
+    private final HtmlUtilityService htmlUtilityService = new HtmlUtilityService(new HeuristicTokenCounter());
+    private final CandidateExcerptBuilder builder = new CandidateExcerptBuilder(config, hintParser,
+            new LocatorFastPathResolver(config, hintParser, new LocatorSuggestionBuilder(),
+                    new CompiledSelectorCache(config, new SimpleMeterRegistry())),
+            htmlUtilityService);
+    private final Document doc = Jsoup.parse(PAGE);
+
+    @Test
+    void bestCandidateComesFirstWithItsContext() {
+        String excerpt = builder.build(doc, "//input[@id='card-numbr']", "card number field");
+
+        assertThat(excerpt).startsWith("""
+                <main id="app">
+                  <section class="checkout">
+                    <form id="pay">
+                      <label for="card">Card</label>
+                      <!-- candidate 1, score""");
+        assertThat(excerpt.lines().skip(5).findFirst()).hasValueSatisfying(line ->
+                assertThat(line).startsWith("      <input id=\"card-number\""));
+        assertThat(excerpt).contains("      <!-- 3 later siblings omitted -->\n    </form>\n  </section>\n</main>\n");
+    }
+
+    @Test
+    void candidatesAreRankedAndEachRenderedOnce() {
+        String excerpt = builder.build(doc, "//button[@id='pay-nw']", null);
+
+        assertThat(excerpt.indexOf("<!-- candidate 1")).isLessThan(excerpt.indexOf("<button id=\"pay-now\""));
+        assertThat(excerpt).containsOnlyOnce("<!-- candidate 1");
+        assertThat(excerpt).containsOnlyOnce("<button id=\"pay-now\"");
+        assertThat(excerpt).contains("<!-- 4 earlier siblings omitted -->");
+    }
+
+    @Test
+    void shortensAndEscapesAttributeValues() {
+        String excerpt = builder.build(doc, "//input[@id='card-numbr']", null);
+
+        assertThat(excerpt).contains("data-hint=\"" + "x".repeat(80) + "...\"");
+        assertThat(excerpt).doesNotContain("x".repeat(81));
+        assertThat(excerpt).contains("placeholder=\"Card number\"");
+
+        String button = builder.build(doc, "//button[@id='pay-nw']", null);
+        assertThat(button).contains("title=\"Say &quot;pay&quot; &amp; go\"");
+    }
+
+    @Test
+    void summarizesChildrenBeyondTheLimits() {
+        config.setMaxChildrenPreserved(2);
+
+        String excerpt = builder.build(doc, "#pay", null);
+
+        assertThat(excerpt).contains("<!-- 5 more child elements omitted -->");
+    }
+
+    @Test
+    void staysWithinTheTokenBudget() {
+        config.setMaxCandidates(20);
+        config.setMaxPromptHtmlTokens(120);
+
+        String excerpt = builder.build(manyButtons(), "button.buy", null);
+
+        assertThat(htmlUtilityService.countTokens(excerpt)).isLessThanOrEqualTo(120);
+        assertThat(excerpt).contains("<!-- candidate 1,").doesNotContain("<!-- candidate 20,");
+    }
+
+    @Test
+    void budgetsWithTheTargetModelsTokenizer() {
+        config.setMaxCandidates(20);
+        config.setMaxPromptHtmlTokens(160);
+        TokenCounter cl100k = new TokenCounters("").forModel("gpt-4");
+
+        String excerpt = builder.build(manyButtons(), "button.buy", null, cl100k);
+
+        assertThat(cl100k.countTokens(excerpt)).isLessThanOrEqualTo(160);
+        // The heuristic overestimates markup, so the same budget holds more candidates in cl100k tokens
+        assertThat(candidateCount(excerpt))
+                .isGreaterThan(candidateCount(builder.build(manyButtons(), "button.buy", null)));
+    }
+
+    @Test
+    void truncatesASingleCandidateLargerThanTheBudget() {
+        config.setMaxPromptHtmlTokens(40);
+
+        String excerpt = builder.build(doc, "#pay", null);
+
+        assertThat(htmlUtilityService.countTokens(excerpt)).isLessThanOrEqualTo(40);
+        assertThat(excerpt).startsWith("<main id=\"app\">");
+    }
+
+    @Test
+    void pointsToTheToolsWhenNothingMatches() {
+        assertThat(builder.build(doc, "#nothing-like-it", null)).isEqualTo(CandidateExcerptBuilder.NO_CANDIDATES);
+    }
+
+    private static Document manyButtons() {
+        StringBuilder page = new StringBuilder("<html><body>");
+        for (int i = 0; i < 20; i++) {
+            page.append("<section id='s").append(i).append("'><div><button class='buy'>Buy item ").append(i)
+                    .append("</button></div></section>");
+        }
+        return Jsoup.parse(page.append("</body></html>").toString());
+    }
+
+    private static long candidateCount(String excerpt) {
+        return excerpt.lines().filter(line -> line.contains("<!-- candidate ")).count();
+    }
+}
@@ -0,0 +1,130 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Selector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledSelectorCacheTest {
+
+    private static final List<String> XPATHS = List.of(
+            "//li", "//li[@class='item sale']", "//ul/li[1]", "//*[@id='go']", "//li[contains(text(),'Shirt')]");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CompiledSelectorCache cache = new CompiledSelectorCache(new HtmlProcessingConfig(), meterRegistry);
+
+    @Test
+    void invalidCssSelectorIsCompiledOnce() {
+        Document doc = Jsoup.parse("<p>x</p>");
+
+        assertThatThrownBy(() -> cache.select(doc, "div[")).isInstanceOf(Selector.SelectorParseException.class);
+        assertThatThrownBy(() -> cache.select(doc, "div[")).isInstanceOf(Selector.SelectorParseException.class);
+
+        assertThat(cacheGets("dom.selector.css", "miss")).isEqualTo(1);
+        assertThat(cacheGets("dom.selector.css", "hit")).isEqualTo(1);
+        assertThat(meterRegistry.find("dom.selector.stage").tag("kind", "css").tag("stage", "evaluate").timer())
+                .isNull();
+    }
+
+    @Test
+    void invalidXPathIsCompiledOnceAndReportsTheParserError() {
+        Document doc = Jsoup.parse("<p>x</p>");
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> cache.selectXpath(doc, "//p[@id="))
+                    .isInstanceOf(Selector.SelectorParseException.class)
+                    .hasMessageContaining("//p[@id=");
+        }
+
+        assertThat(cacheGets("dom.selector.xpath", "miss")).isEqualTo(1);
+        assertThat(cacheGets("dom.selector.xpath", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void cssMatchesJsoup() {
+        Document doc = page(3);
+
+        assertThat(cache.select(doc, "ul > li.item")).isEqualTo(doc.select("ul > li.item"));
+        assertThat(cache.select(doc, "ul > li.item")).isEqualTo(doc.select("ul > li.item"));
+        assertThat(cacheGets("dom.selector.css", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void pooledXPathsEvaluateConcurrentlyOnTwoDocuments() throws Exception {
+        List<Document> docs = List.of(page(3), page(7));
+        List<List<Elements>> expected = new ArrayList<>();
+        for (Document doc : docs) {
+            expected.add(XPATHS.stream().map(doc::selectXpath).toList());
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    for (int i = 0; i < 200; i++) {
+                        int d = (i + offset) % docs.size();
+                        int x = (i + offset) % XPATHS.size();
+                        if (!cache.selectXpath(docs.get(d), XPATHS.get(x)).equals(expected.get(d).get(x))) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS)).isZero();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each expression compiled once per cache entry; concurrent borrowers only add pooled copies
+        assertThat(cacheGets("dom.selector.xpath", "miss")).isEqualTo(XPATHS.size());
+    }
+
+    @Test
+    void xpathResultsAreTheDocumentsOwnElements() {
+        Document doc = page(2);
+
+        Elements items = cache.selectXpath(doc, "//li");
+
+        assertThat(items).hasSize(2);
+        for (Element item : items) {
+            assertThat(item.ownerDocument()).isSameAs(doc);
+        }
+    }
+
+    private double cacheGets(String cacheName, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", result).functionCounter().count();
+    }
+
+    private static Document page(int items) {
+        StringBuilder sb = new StringBuilder("<ul>");
+        for (int i = 0; i < items; i++) {
+            sb.append("<li class='item").append(i % 2 == 1 ? " sale" : "").append("'>Shirt ").append(i).append("</li>");
+        }
+        return Jsoup.parse(sb.append("</ul><button id='go'>Go</button>").toString());
+    }
+}
@@ -0,0 +1,233 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.config.PageSessionConfig;
+import com.simple.MySimpleSpringBootAgent.dto.DomEdit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DomDeltaApplierTest {
+
+    private static final String PAGE = """
+            <html>
+            <head><title>Checkout</title><script>var token = "a1";</script><style>p { color: red }</style></head>
+            <body>
+              <header id="top" class="Site-Header"><nav class="menu"><a href="/" class="link">Home</a> <a href="/cart" class="link">Cart</a></nav></header>
+              <main id="content">
+                <div id="banner"><!-- promo banner --><span>Free shipping</span></div>
+                <form id="checkout" name="checkout" class="form">
+                  <label for="email">E-mail address</label>
+                  <input id="email" name="email" type="email">
+                  <button id="submit" type="submit" class="btn btn-primary" data-testid="submit-order">Place order</button>
+                  <script>trackForm("checkout");</script>
+                </form>
+                <p class="note">Orders placed after <b>5pm</b> ship tomorrow.</p>
+                <ul class="items"><li class="item">Blue Shirt</li><li class="item sale">Red Shirt</li></ul>
+              </main>
+              <footer><span title="Copyright">Shop</span></footer>
+            </body>
+            </html>
+            """;
+
+    private final HtmlProcessingConfig htmlConfig = new HtmlProcessingConfig();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HtmlPreprocessor preprocessor = preprocessor();
+    private final DomIndexService domIndexService = new DomIndexService(htmlConfig);
+    private final DomDeltaApplier applier = new DomDeltaApplier(new PageSessionConfig(), preprocessor, domIndexService);
+    private final DomDeltaApplier.Baseline baseline = applier.baseline(PAGE, "test");
+
+    @AfterEach
+    void shutdown() {
+        preprocessor.shutdown();
+    }
+
+    static Stream<Arguments> editShapes() {
+        return Stream.of(
+                // Insertion between two children, parsed on its own
+                shape("insertion at a child boundary", "incremental",
+                        insertAfter("<li class=\"item\">Blue Shirt</li>", "<li class=\"item new\">Green Shirt</li>")),
+                shape("element removed at its boundaries", "incremental",
+                        replace("<li class=\"item sale\">Red Shirt</li>", "")),
+                // Cuts into two children: the whole list is reparsed
+                shape("cut into a child", "incremental",
+                        replace("Shirt</li><li class=\"item sale\">Red", "Shirt</li><li class=\"item\">Red")),
+                shape("attribute change", "incremental",
+                        replace("<input id=\"email\" name=\"email\"", "<input id=\"e-mail\" name=\"e-mail\"")),
+                // Content of removed noise: dropped, or reparsed when it adds markup
+                shape("text inside a script", "unchanged",
+                        replace("trackForm(\"checkout\")", "trackForm(\"checkout-v2\")")),
+                shape("text inside a head script", "unchanged", replace("\"a1\"", "\"b2\"")),
+                shape("text inside a comment", "unchanged", replace("promo banner", "summer sale")),
+                shape("markup added inside a comment", "incremental",
+                        replace("promo banner", "promo --><em class=\"promo\">Sale</em><!-- banner")),
+                // The button edit is inside the form's reparsed element and folds into it
+                shape("nested targets", "incremental",
+                        replace("class=\"form\"", "class=\"form wide\""),
+                        replace("Place order", "Pay now")),
+                shape("separate targets", "incremental",
+                        replace("<a href=\"/cart\" class=\"link\">Cart</a>", "<a href=\"/cart\" class=\"link\">Cart (1)</a>"),
+                        replace("<b>5pm</b>", "<b>6pm</b>"),
+                        replace("title=\"Copyright\"", "title=\"Legal\"")),
+                shape("head content", "full", replace("<title>Checkout</title>", "<title>Payment</title>")),
+                shape("body tag", "full", replace("<body>", "<body class=\"logged-in\">")),
+                shape("body content replaced up to its end tag", "incremental",
+                        replace("<footer><span title=\"Copyright\">Shop</span></footer>", "<footer>Shop</footer>")),
+                // Own text of the reparsed nodes' parent changes: indexed from scratch
+                shape("context own text", "incremental",
+                        replace(" ship tomorrow.", " ship <i>today</i>.")),
+                shape("context own text only", "incremental",
+                        replace("Orders placed after ", "Orders after ")));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("editShapes")
+    void snapshotMatchesPreprocessingThePatchedSource(String name, String mode, List<Function<String, DomEdit>> edits) {
+        List<DomEdit> domEdits = edits.stream().map(edit -> edit.apply(PAGE)).toList();
+        String patched = patch(PAGE, domEdits);
+
+        DomDeltaApplier.Plan plan = applier.plan(baseline, domEdits);
+        assertThat(plan.unchanged() ? "unchanged" : plan.full() ? "full" : "incremental").isEqualTo(mode);
+        assertThat(applier.patchedSource(baseline, plan)).isEqualTo(patched);
+
+        Document expected = preprocessor.preprocessHtml(patched, "test");
+        Document actual = snapshot(plan);
+
+        assertThat(actual.html()).isEqualTo(expected.html());
+        assertSameIndex(domIndexService.indexFor(actual), DomIndex.build(expected));
+    }
+
+    @Test
+    void nestedTargetsAreReparsedOnce() {
+        DomDeltaApplier.Plan plan = applier.plan(baseline, List.of(
+                replace("class=\"form\"", "class=\"form wide\"").apply(PAGE),
+                replace("Place order", "Pay now").apply(PAGE)));
+
+        assertThat(plan.targets()).singleElement()
+                .satisfies(target -> assertThat(target.edits()).hasSize(2));
+    }
+
+    @Test
+    void snapshotLeavesTheBaselineUntouched() {
+        String before = baseline.document().html();
+        DomDeltaApplier.Plan plan = applier.plan(baseline, List.of(replace("Blue Shirt", "Green Shirt").apply(PAGE)));
+
+        applier.applyIncremental(baseline, plan);
+
+        assertThat(baseline.document().html()).isEqualTo(before);
+        assertThat(domIndexService.indexFor(baseline.document())).isSameAs(baseline.index());
+    }
+
+    @Test
+    void rejectsOverlappingOrOutOfRangeEdits() {
+        assertThatThrownBy(() -> applier.plan(baseline, List.of(new DomEdit(10, 20, ""), new DomEdit(15, 25, ""))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> applier.plan(baseline, List.of(new DomEdit(0, PAGE.length() + 1, ""))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The snapshot the way PageSessionService builds it
+     */
+    private Document snapshot(DomDeltaApplier.Plan plan) {
+        if (plan.unchanged()) {
+            return baseline.document();
+        }
+        if (plan.full()) {
+            return preprocessor.preprocessHtml(applier.patchedSource(baseline, plan), "test");
+        }
+        return applier.applyIncremental(baseline, plan);
+    }
+
+    private static void assertSameIndex(DomIndex actual, DomIndex expected) {
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.byHandle("e" + i).outerHtml()).isEqualTo(expected.byHandle("e" + i).outerHtml());
+        }
+        assertSameElements(actual.byId("email"), expected.byId("email"));
+        assertSameElements(actual.byId("e-mail"), expected.byId("e-mail"));
+        assertSameElements(actual.byTags("li", "input", "b", "i", "em", "a"), expected.byTags("li", "input", "b", "i", "em", "a"));
+        assertSameElements(actual.byAttribute("class", "item"), expected.byAttribute("class", "item"));
+        assertSameElements(actual.byAttribute("title", "legal"), expected.byAttribute("title", "legal"));
+        for (String text : List.of("shirt", "ship", "today", "order", "pay now", "sale", "cart")) {
+            assertSameElements(actual.byOwnText(text), expected.byOwnText(text));
+        }
+        for (String selector : List.of("li.item", "li.new", ".form.wide", "[data-testid]", "input[name=e-mail]",
+                "#content", "em.promo", "a.link", "span[title]")) {
+            assertSameElements(actual.select(selector), expected.select(selector));
+        }
+    }
+
+    private static void assertSameElements(Optional<Elements> actual, Optional<Elements> expected) {
+        assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+        expected.ifPresent(elements -> assertSameElements(actual.get(), elements));
+    }
+
+    private static void assertSameElements(Element actual, Element expected) {
+        assertThat(actual != null ? actual.outerHtml() : null).isEqualTo(expected != null ? expected.outerHtml() : null);
+    }
+
+    private static void assertSameElements(Elements actual, Elements expected) {
+        assertThat(actual.stream().map(Element::outerHtml).toList())
+                .isEqualTo(expected.stream().map(Element::outerHtml).toList());
+    }
+
+    @SafeVarargs
+    private static Arguments shape(String name, String mode, Function<String, DomEdit>... edits) {
+        return Arguments.of(name, mode, List.of(edits));
+    }
+
+    private static Function<String, DomEdit> replace(String find, String text) {
+        return source -> {
+            int start = uniqueIndexOf(source, find);
+            return new DomEdit(start, start + find.length(), text);
+        };
+    }
+
+    private static Function<String, DomEdit> insertAfter(String find, String text) {
+        return source -> {
+            int at = uniqueIndexOf(source, find) + find.length();
+            return new DomEdit(at, at, text);
+        };
+    }
+
+    private static int uniqueIndexOf(String source, String find) {
+        int at = source.indexOf(find);
+        assertThat(at).as("'%s' in the page", find).isNotNegative();
+        assertThat(source.indexOf(find, at + 1)).as("'%s' is unique", find).isNegative();
+        return at;
+    }
+
+    private static String patch(String source, List<DomEdit> edits) {
+        List<DomEdit> descending = new ArrayList<>(edits);
+        descending.sort((a, b) -> Integer.compare(b.getStart(), a.getStart()));
+        StringBuilder sb = new StringBuilder(source);
+        for (DomEdit edit : descending) {
+            sb.replace(edit.getStart(), edit.getEnd(), edit.getText());
+        }
+        return sb.toString();
+    }
+
+    private HtmlPreprocessor preprocessor() {
+        HtmlUtilityService htmlUtilityService = new HtmlUtilityService(new HeuristicTokenCounter());
+        return new HtmlPreprocessor(htmlConfig,
+                new HtmlDocumentCache(htmlConfig, htmlUtilityService, meterRegistry, List.of()),
+                new PageSourceDecoder(htmlConfig), meterRegistry, new LocatorMetrics(meterRegistry));
+    }
+}
@@ -0,0 +1,112 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DomIndexTest {
+
+    private static final String PAGE = """
+            <html>
+            <head><title>Checkout</title></head>
+            <body>
+              <header id="top" class="Site-Header sticky">
+                <nav class="menu"><a href="/" class="link active">Home</a> <a href="/cart" class="link">Cart (2)</a></nav>
+              </header>
+              <main id="content">
+                <form id="checkout" name="checkout" class="form wide">
+                  <label for="email">E-mail address</label>
+                  <input id="email" name="email" type="email" placeholder=" Your email ">
+                  <input id="promo" name="promo" type="text" data-testid="promo-code" disabled>
+                  <button id="submit" type="submit" class="btn btn-primary" data-testid="Submit-Order">Place order</button>
+                  <button type="button" class="btn secondary">Cancel order</button>
+                </form>
+                <div id="content" class="duplicate">Second element with a duplicate id</div>
+                <p class="note">Orders placed after <b>5pm</b> ship tomorrow. Ship-to address required.</p>
+                <ul class="items"><li class="item">Blue Shirt</li><li class="item sale">Red Shirt</li></ul>
+              </main>
+              <footer><span title="Copyright">&copy; 2024 Shop</span></footer>
+            </body>
+            </html>
+            """;
+
+    private final Document doc = Jsoup.parse(PAGE);
+    private final DomIndex index = DomIndex.build(doc);
+
+    @Test
+    void indexesEveryElementInDocumentOrder() {
+        Elements all = doc.getAllElements();
+
+        assertThat(index.size()).isEqualTo(all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertThat(index.positionOf(all.get(i))).isEqualTo(i);
+            assertThat(index.byHandle("e" + i)).isSameAs(all.get(i));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"top", "email", "submit", "content", "missing", "EMAIL"})
+    void byIdMatchesJsoup(String id) {
+        assertThat(index.byId(id)).isSameAs(doc.selectFirst("#" + id));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"btn", "link", "item", "sale", "site-header", "SITE-HEADER", "menu", "missing"})
+    void byClassMatchesJsoup(String className) {
+        assertSameElements(index.select("." + className).orElseThrow(), doc.select("." + className));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"name", "type", "data-testid", "disabled", "placeholder", "href", "TITLE", "missing"})
+    void byAttributeNameMatchesJsoup(String name) {
+        assertSameElements(index.byAttribute(name, null), doc.select("[" + name + "]"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "type=submit", "type=SUBMIT", "data-testid=submit-order", "name=checkout",
+            "placeholder=your email", "href=/cart", "type=missing"})
+    void byAttributeValueMatchesJsoup(String pair) {
+        String name = pair.substring(0, pair.indexOf('='));
+        String value = pair.substring(pair.indexOf('=') + 1);
+
+        assertSameElements(index.byAttribute(name, value), doc.select("[" + name + "='" + value + "']"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"order", "Place order", "shirt", "ship", "Ship-to address", "2024", "cart (2)", "missing text"})
+    void byOwnTextMatchesJsoup(String text) {
+        assertSameElements(index.byOwnText(text).orElseThrow(), doc.select(":containsOwn(" + text + ")"));
+    }
+
+    @Test
+    void byOwnTextWithoutWordCharactersIsNotAnswered() {
+        assertThat(index.byOwnText(" ** ")).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "input", "input, button", "button.btn", "button.btn#submit", "input[name='email']",
+            "input[disabled]", "li.item.sale", "#content", "[data-testid]", "a.link, li.item"})
+    void simpleSelectorsMatchJsoup(String selector) {
+        assertSameElements(index.select(selector).orElseThrow(), doc.select(selector));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"form > input", "li:first-child", "div p", "input[name^=em]", "[type='']"})
+    void complexSelectorsAreLeftToJsoup(String selector) {
+        assertThat(index.select(selector)).isEmpty();
+    }
+
+    private static void assertSameElements(Elements actual, Elements expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isSameAs(expected.get(i));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import dev.langchain4j.invocation.InvocationParameters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DomQueryToolsTest {
+
+    private static final String PAGE = """
+            <html><body><form id="checkout">
+              <input id="email" name="email" type="email" placeholder="E-mail">
+              <ul class="items">
+                <li class="item">Blue Shirt</li><li class="item">Red Shirt</li><li class="item">Green Shirt</li>
+                <li class="item">Black Shirt</li><li class="item">White Shirt</li>
+              </ul>
+              <button id="submit" type="submit">Place order</button>
+            </form></body></html>
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HtmlProcessingConfig config = new HtmlProcessingConfig();
+    private final DomQueryTools tools = new DomQueryTools(new CompiledSelectorCache(config, meterRegistry),
+            new LocatorMetrics(meterRegistry));
+    private final Document doc = Jsoup.parse(PAGE);
+    private final DomIndexService domIndexService = new DomIndexService(config);
+
+    @Test
+    void repeatedCallIsAnsweredWithAReference() {
+        InvocationParameters parameters = parameters();
+
+        String first = tools.findByCss("li.item", parameters);
+        String repeat = tools.findByCss("li.item", parameters);
+
+        assertThat(first).startsWith("Found 5 elements:").contains("Blue Shirt", "White Shirt");
+        assertThat(repeat).isEqualTo("Same as previous result #1 (findByCss li.item) - 5 elements");
+        assertThat(DomQueryTools.matchCount(repeat)).isEqualTo(5);
+        assertThat(context(parameters).toolCalls()).isEqualTo(2);
+        assertThat(context(parameters).reusedResults()).isEqualTo(1);
+    }
+
+    @Test
+    void differentCallWithTheSameResultRefersToTheFirst() {
+        InvocationParameters parameters = parameters();
+
+        tools.findById("email", parameters);
+        String css = tools.findByCss("li.item", parameters);
+        String xpath = tools.findByXPath("//li[@class='item']", parameters);
+        String xpathAgain = tools.findByXPath("//li[@class='item']", parameters);
+
+        assertThat(css).startsWith("Found 5 elements:");
+        assertThat(xpath).isEqualTo("Same as previous result #2 (findByCss li.item) - 5 elements");
+        // Repeats of the second call point straight at the first occurrence
+        assertThat(xpathAgain).isEqualTo(xpath);
+        assertThat(context(parameters).reusedResults()).isEqualTo(2);
+    }
+
+    @Test
+    void shortResultsAreRepeatedInFull() {
+        InvocationParameters parameters = parameters();
+
+        String first = tools.findById("submit", parameters);
+        String repeat = tools.findById("submit", parameters);
+
+        assertThat(first).contains("<button id=\"submit\" type=\"submit\">Place order");
+        assertThat(repeat).isEqualTo(first);
+        assertThat(tools.findById("missing", parameters)).isEqualTo("Not found");
+        assertThat(tools.findById("missing", parameters)).isEqualTo("Not found");
+        assertThat(context(parameters).reusedResults()).isEqualTo(2);
+    }
+
+    @Test
+    void freshConversationDoesNotReuseAnswers() {
+        InvocationParameters first = parameters();
+        String listing = tools.findByCss("li.item", first);
+        tools.findByCss("li.item", first);
+
+        InvocationParameters second = parameters();
+
+        assertThat(tools.findByCss("li.item", second)).isEqualTo(listing);
+        assertThat(context(second).reusedResults()).isZero();
+        assertThat(context(second).toolCalls()).isEqualTo(1);
+        assertThat(context(first).reusedResults()).isEqualTo(1);
+    }
+
+    @Test
+    void referencesShortenLongArguments() {
+        InvocationParameters parameters = parameters();
+        String selector = "form#checkout > ul.items > li.item:not(.sold-out):not(.hidden):not([aria-hidden=true])";
+
+        tools.findByCss(selector, parameters);
+        String repeat = tools.findByCss(selector, parameters);
+
+        assertThat(repeat).isEqualTo("Same as previous result #1 (findByCss " + selector.substring(0, 60)
+                + "...) - 5 elements");
+        assertThat(DomQueryTools.matchCount(repeat)).isEqualTo(5);
+    }
+
+    @Test
+    void withoutAContextTheToolsSaySo() {
+        assertThat(tools.findById("email", null)).isEqualTo("Document not set");
+    }
+
+    private InvocationParameters parameters() {
+        return DomQueryContext.invocationParameters(doc, domIndexService.indexFor(doc));
+    }
+
+    private static DomQueryContext context(InvocationParameters parameters) {
+        return DomQueryContext.from(parameters);
+    }
+}
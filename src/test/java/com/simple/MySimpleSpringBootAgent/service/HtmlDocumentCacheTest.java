@@ -0,0 +1,70 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlDocumentCacheTest {
+
+    private static final String PAGE = "<html><body><div id='a' class='x'>Hello <b>world</b></div></body></html>";
+
+    @Test
+    void parsesEachSourceOnce() {
+        HtmlDocumentCache cache = cache(1024 * 1024, new ArrayList<>());
+        AtomicInteger parses = new AtomicInteger();
+
+        Document first = cache.getOrParse(PAGE, html -> {
+            parses.incrementAndGet();
+            return Jsoup.parse(html);
+        });
+        Document second = cache.getOrParse(PAGE, html -> {
+            parses.incrementAndGet();
+            return Jsoup.parse(html);
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(parses).hasValue(1);
+    }
+
+    @Test
+    void estimateGrowsWithTheDomNotJustTheSource() {
+        Document small = Jsoup.parse(PAGE);
+        Document large = Jsoup.parse("<div>" + "<span class='c'>t</span>".repeat(1000) + "</div>");
+
+        long smallBytes = HtmlDocumentCache.estimateRetainedBytes(small);
+        long largeBytes = HtmlDocumentCache.estimateRetainedBytes(large);
+
+        assertThat(largeBytes).isGreaterThan(smallBytes);
+        // 1000 elements with one attribute each retain far more than their ~24k chars of source
+        assertThat(largeBytes).isGreaterThan(2L * 24_000);
+    }
+
+    @Test
+    void evictedDocumentsAreReportedToListeners() {
+        List<Document> evicted = new ArrayList<>();
+        Document first = Jsoup.parse(PAGE);
+        long weight = HtmlDocumentCache.estimateRetainedBytes(first);
+        HtmlDocumentCache cache = cache(weight + weight / 2, List.of(evicted::add));
+
+        cache.getOrLoad("a", () -> first);
+        Document second = cache.getOrLoad("b", () -> Jsoup.parse(PAGE));
+
+        assertThat(evicted).hasSize(1);
+        assertThat(evicted.get(0)).isIn(first, second);
+    }
+
+    private static HtmlDocumentCache cache(long maxWeight, List<HtmlDocumentCache.EvictionListener> listeners) {
+        HtmlProcessingConfig config = new HtmlProcessingConfig();
+        config.setDocumentCacheMaxWeight(maxWeight);
+        return new HtmlDocumentCache(config, new HtmlUtilityService(new HeuristicTokenCounter()),
+                new SimpleMeterRegistry(), listeners);
+    }
+}
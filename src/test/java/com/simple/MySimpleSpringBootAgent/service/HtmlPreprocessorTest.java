@@ -0,0 +1,87 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlPreprocessorTest {
+
+    private final HtmlProcessingConfig config = new HtmlProcessingConfig();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HtmlPreprocessor preprocessor = preprocessor();
+
+    @AfterEach
+    void shutdown() {
+        preprocessor.shutdown();
+    }
+
+    @Test
+    void removesNoise() {
+        Document doc = preprocessor.preprocessHtml(page(0), "#go");
+
+        assertThat(doc.select("script, style")).isEmpty();
+        assertThat(doc.getElementById("go")).isNotNull();
+    }
+
+    @Test
+    void measuresAllocationOnPlatformThreads() {
+        preprocessor.preprocessHtml(page(1), "#go");
+
+        assertThat(allocated("json").count()).isEqualTo(1);
+        assertThat(allocated("json").totalAmount()).isPositive();
+    }
+
+    @Test
+    void samplesAllocationOfVirtualThreadsOnAPlatformThread() throws InterruptedException {
+        config.setAllocationSampleRate(2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                for (int i = 0; i < 4; i++) {
+                    assertThat(preprocessor.preprocessHtml(page(i), "#go").getElementById("go")).isNotNull();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }).join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(allocated("json").count()).isEqualTo(2);
+        assertThat(allocated("json").totalAmount()).isPositive();
+    }
+
+    @Test
+    void samplingCanBeTurnedOff() throws InterruptedException {
+        config.setAllocationSampleRate(0);
+
+        Thread.ofVirtual().start(() -> preprocessor.preprocessHtml(page(2), "#go")).join();
+
+        assertThat(meterRegistry.find("html.ingest.thread.allocated.bytes").summary()).isNull();
+    }
+
+    private DistributionSummary allocated(String path) {
+        return meterRegistry.get("html.ingest.thread.allocated.bytes").tag("path", path).summary();
+    }
+
+    private static String page(int variant) {
+        return "<html><head><script>var x = " + variant + ";</script><style>p{}</style></head>"
+                + "<body><p>Page " + variant + "</p><button id='go'>Go</button></body></html>";
+    }
+
+    private HtmlPreprocessor preprocessor() {
+        HtmlUtilityService htmlUtilityService = new HtmlUtilityService(new HeuristicTokenCounter());
+        return new HtmlPreprocessor(config,
+                new HtmlDocumentCache(config, htmlUtilityService, meterRegistry, List.of()),
+                new PageSourceDecoder(config), meterRegistry, new LocatorMetrics(meterRegistry));
+    }
+}
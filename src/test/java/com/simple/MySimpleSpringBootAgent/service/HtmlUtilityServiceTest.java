@@ -0,0 +1,78 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlUtilityServiceTest {
+
+    private static final String PAGE = "<main><form id=\"login\"><label>E-mail ✉</label>"
+            + "<input type=\"email\" name=\"email\" placeholder=\"élève@例え.jp\">"
+            + "<p>😀 Welcome back 👋🏽</p>"
+            + "<button type=\"submit\">Sign in</button></form></main>";
+
+    private final TokenCounter cl100k = new BpeTokenCounter(
+            Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE));
+    private final HtmlUtilityService service = new HtmlUtilityService(cl100k);
+
+    @Test
+    void truncationNeverExceedsTheBudget() {
+        for (TokenCounter counter : new TokenCounter[]{cl100k, new HeuristicTokenCounter()}) {
+            int total = service.countTokens(PAGE, counter);
+            for (int budget = 0; budget < total; budget++) {
+                String truncated = service.truncateToTokens(PAGE, budget, counter);
+
+                assertThat(service.countTokens(truncated, counter))
+                        .as("%s, budget %d: %s", counter.name(), budget, truncated)
+                        .isLessThanOrEqualTo(budget);
+                if (!truncated.isEmpty()) {
+                    assertThat(truncated).endsWith("<!-- Truncated -->");
+                }
+            }
+        }
+    }
+
+    @Test
+    void truncationNeverSplitsACharacter() {
+        for (TokenCounter counter : new TokenCounter[]{cl100k, new HeuristicTokenCounter()}) {
+            int total = service.countTokens(PAGE, counter);
+            for (int budget = 1; budget < total; budget++) {
+                String truncated = service.truncateToTokens(PAGE, budget, counter);
+
+                assertThat(truncated.codePoints()
+                        .noneMatch(c -> c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE))
+                        .as("%s, budget %d: unpaired surrogate in %s", counter.name(), budget, truncated).isTrue();
+                String kept = truncated.replace("\n<!-- Truncated -->", "");
+                assertThat(PAGE).startsWith(kept);
+            }
+        }
+    }
+
+    @Test
+    void textWithinTheBudgetIsUnchanged() {
+        int total = service.countTokens(PAGE);
+
+        assertThat(service.truncateToTokens(PAGE, total)).isSameAs(PAGE);
+        assertThat(service.truncateToTokens(PAGE, total - 1)).isNotEqualTo(PAGE);
+        assertThat(service.truncateToTokens("", 10)).isEmpty();
+    }
+
+    @Test
+    void truncationPrefersATagBoundary() {
+        String html = "<p>first paragraph</p><p>second paragraph here</p>";
+
+        assertThat(service.truncateSafely(html, html.length() - 3))
+                .isEqualTo("<p>first paragraph</p><p>second paragraph here\n<!-- Truncated -->");
+        assertThat(service.truncateSafely(html, 27)).isEqualTo("<p>first paragraph</p>\n<!-- Truncated -->");
+    }
+
+    @Test
+    void lengthTruncationKeepsSurrogatePairsWhole() {
+        String html = "ab😀cd";
+
+        assertThat(service.truncateSafely(html, 3)).isEqualTo("ab\n<!-- Truncated -->");
+        assertThat(service.truncateSafely(html, 4)).isEqualTo("ab😀\n<!-- Truncated -->");
+    }
+}
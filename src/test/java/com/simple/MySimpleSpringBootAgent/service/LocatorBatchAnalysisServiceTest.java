@@ -0,0 +1,109 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.BatchAnalysisConfig;
+import com.simple.MySimpleSpringBootAgent.dto.BatchLocatorAnalysisItem;
+import com.simple.MySimpleSpringBootAgent.dto.BatchLocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorQuery;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocatorBatchAnalysisServiceTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final HtmlPreprocessor htmlPreprocessor = mock(HtmlPreprocessor.class);
+    private final LocatorAnalysisService analysisService = mock(LocatorAnalysisService.class);
+    private final BatchAnalysisConfig config = new BatchAnalysisConfig();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void deliversEveryItem() {
+        when(htmlPreprocessor.preprocessHtml(anyString(), anyString())).thenReturn(new Document(""));
+        when(analysisService.analyze(any(Document.class), anyString(), any(), any()))
+                .thenReturn(LocatorAnalysisResponse.builder().build());
+        List<BatchLocatorAnalysisItem> items = new ArrayList<>();
+
+        service().analyzeBatch(request(10), items::add);
+
+        assertThat(items).extracting(BatchLocatorAnalysisItem::getIndex)
+                .containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    void cancelsRunningAnalysesWhenTheSinkFails() throws InterruptedException {
+        config.setMaxParallelism(3);
+        when(htmlPreprocessor.preprocessHtml(anyString(), anyString())).thenReturn(new Document(""));
+        CountDownLatch slowStarted = new CountDownLatch(2);
+        CountDownLatch slowInterrupted = new CountDownLatch(2);
+        AtomicInteger analyzed = new AtomicInteger();
+        when(analysisService.analyze(any(Document.class), anyString(), any(), any())).thenAnswer(invocation -> {
+            analyzed.incrementAndGet();
+            return LocatorAnalysisResponse.builder().build();
+        });
+        when(analysisService.analyze(any(Document.class), eq("#slow"), any(), any())).thenAnswer(invocation -> {
+            analyzed.incrementAndGet();
+            slowStarted.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+            } catch (InterruptedException e) {
+                slowInterrupted.countDown();
+            }
+            return LocatorAnalysisResponse.builder().build();
+        });
+
+        BatchLocatorAnalysisRequest request = request(10);
+        request.getLocators().get(0).setLocator("#slow");
+        request.getLocators().get(1).setLocator("#slow");
+
+        assertThatThrownBy(() -> service().analyzeBatch(request, item -> {
+            try {
+                assertThat(slowStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        })).isInstanceOf(UncheckedIOException.class);
+
+        assertThat(slowInterrupted.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(analyzed.get()).isEqualTo(3); // the two slow ones and the fast one that reached the sink
+    }
+
+    private LocatorBatchAnalysisService service() {
+        return new LocatorBatchAnalysisService(config, htmlPreprocessor, analysisService,
+                new LocatorResponseMapper(new LocatorResponseFormatter()), executor);
+    }
+
+    private static BatchLocatorAnalysisRequest request(int locators) {
+        List<LocatorQuery> queries = new ArrayList<>();
+        for (int i = 0; i < locators; i++) {
+            queries.add(LocatorQuery.builder().locator("#item-" + i).build());
+        }
+        return BatchLocatorAnalysisRequest.builder()
+                .htmlContent("<html><body></body></html>")
+                .locators(queries)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocatorFastPathResolverTest {
+
+    private static final Document PAGE = Jsoup.parse("""
+            <html><body>
+              <form id="login">
+                <input id="search-box" name="q" type="text" placeholder="Search">
+                <input id="user-name" name="user" type="text">
+                <button type="submit" class="btn primary">Submit</button>
+                <button type="button" class="btn">Submit</button>
+                <a href="/help">Help center</a>
+                <div data-testid="promo-banner" class="banner">Sale</div>
+              </form>
+            </body></html>
+            """);
+
+    private final HtmlProcessingConfig config = new HtmlProcessingConfig();
+    private final LocatorHintParser hintParser = new LocatorHintParser();
+    private final LocatorFastPathResolver resolver = new LocatorFastPathResolver(config, hintParser,
+            new LocatorSuggestionBuilder(), new CompiledSelectorCache(config, new SimpleMeterRegistry()));
+
+    @Test
+    void resolvesATypoInAnIdToTheUniqueElement() {
+        Optional<LocatorAnalysisResult> result = resolver.resolve(PAGE, "//input[@id='serch-box']", null);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getPrimaryId()).isEqualTo("search-box");
+        assertThat(result.get().getRecommendedLocatorType()).isEqualTo("ID");
+        assertThat(result.get().getRecommendedLocator()).isEqualTo("search-box");
+        assertThat(result.get().getConfidence()).isGreaterThanOrEqualTo(config.getFastPathConfidenceThreshold());
+        assertThat(result.get().getExplanation()).startsWith("Resolved locally without LLM").contains("id fuzzy match");
+    }
+
+    @Test
+    void resolvesAStrongAttributeMatch() {
+        // The locator itself no longer matches (stale class), but its data-testid still does
+        Optional<LocatorAnalysisResult> result =
+                resolver.resolve(PAGE, "//*[@data-testid='promo-banner' and @class='hero']", null);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getPrimaryCssSelector()).isEqualTo("[data-testid='promo-banner']");
+    }
+
+    @Test
+    void penalizesATagMismatch() {
+        assertThat(resolver.resolve(PAGE, "span[data-testid='promo-banner']", null)).isEmpty();
+    }
+
+    @Test
+    void declinesWhenCandidatesAreAmbiguous() {
+        assertThat(resolver.resolve(PAGE, "//button[text()='Submit']", null)).isEmpty();
+
+        List<LocatorFastPathResolver.ScoredCandidate> ranked = resolver.rankCandidates(PAGE,
+                "//button[text()='Submit']", hintParser.parse("//button[text()='Submit']"), null);
+        assertThat(ranked).hasSize(2);
+        assertThat(ranked.get(0).score()).isEqualTo(ranked.get(1).score());
+    }
+
+    @Test
+    void declinesWhenNothingMatches() {
+        assertThat(resolver.resolve(PAGE, "//input[@id='completely-different']", null)).isEmpty();
+        assertThat(resolver.resolve(PAGE, "//*", null)).isEmpty();
+    }
+
+    @Test
+    void declinesWhenDisabled() {
+        config.setFastPathEnabled(false);
+
+        assertThat(resolver.resolve(PAGE, "//input[@id='serch-box']", null)).isEmpty();
+    }
+
+    @Test
+    void suggestionsOnlyUseUniqueAttributes() {
+        LocatorSuggestionBuilder builder = new LocatorSuggestionBuilder();
+
+        LocatorAnalysisResult submit = builder.build(PAGE, PAGE.selectFirst("button.primary"));
+        assertThat(submit.getPrimaryId()).isNull();
+        assertThat(submit.getPrimaryClassName()).isEqualTo("primary");
+
+        LocatorAnalysisResult link = builder.build(PAGE, PAGE.selectFirst("a"));
+        assertThat(link.getPrimaryLinkText()).isEqualTo("Help center");
+        assertThat(link.getPrimaryTagName()).isEqualTo("a");
+    }
+}
@@ -0,0 +1,171 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simple.MySimpleSpringBootAgent.config.HealingHistoryConfig;
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.config.LocatorVerificationConfig;
+import com.simple.MySimpleSpringBootAgent.dto.HealingHistoryEntry;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorVerification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocatorHealingHistoryTest {
+
+    private static final String URL = "https://shop.example.com/orders/1234/edit";
+    private static final String LOCATOR = "#save-btn";
+
+    @TempDir
+    Path dir;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HtmlProcessingConfig htmlConfig = new HtmlProcessingConfig();
+    private final LocatorVerifier verifier = new LocatorVerifier(new LocatorVerificationConfig(),
+            new DomIndexService(htmlConfig), new CompiledSelectorCache(htmlConfig, meterRegistry),
+            executor, meterRegistry);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final HealingHistoryConfig config = new HealingHistoryConfig();
+    private final Document doc = Jsoup.parse("<form><button id='order-save'>Save</button></form>");
+    private LocatorHealingHistory history;
+
+    @BeforeEach
+    void open() {
+        config.setPath(dir.resolve("history.dat").toString());
+        config.setFlushInterval(Duration.ofHours(1)); // flushed explicitly by the tests
+        history = newHistory();
+    }
+
+    @AfterEach
+    void close() {
+        history.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void recordedReplacementAnswersLaterLookups() {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+
+        LocatorAnalysisResult result = history.lookup(doc, "https://shop.example.com/orders/5678/edit", LOCATOR)
+                .orElseThrow();
+
+        assertThat(result.getRecommendedLocatorType()).isEqualTo("ID");
+        assertThat(result.getRecommendedLocator()).isEqualTo("order-save");
+        assertThat(history.lookup(doc, URL, "#other")).isEmpty();
+    }
+
+    @Test
+    void replacementNoLongerUniqueIsNotUsed() {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+        Document changed = Jsoup.parse("<form><button id='submit'>Save</button></form>");
+
+        assertThat(history.lookup(changed, URL, LOCATOR)).isEmpty();
+    }
+
+    @Test
+    void hitsAreCountedInMemoryWithoutWritingTheStore() throws Exception {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+        long sizeAfterRecord = Files.size(dir.resolve("history.dat"));
+        byte[] contentAfterRecord = Files.readAllBytes(dir.resolve("history.dat"));
+
+        for (int i = 0; i < 5; i++) {
+            history.lookup(doc, URL, LOCATOR).orElseThrow();
+        }
+
+        assertThat(Files.size(dir.resolve("history.dat"))).isEqualTo(sizeAfterRecord);
+        assertThat(Files.readAllBytes(dir.resolve("history.dat"))).isEqualTo(contentAfterRecord);
+        assertThat(history.export(null)).singleElement()
+                .extracting(HealingHistoryEntry::getHitCount).isEqualTo(5L);
+    }
+
+    @Test
+    void flushedHitsSurviveAReopen() {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+        history.lookup(doc, URL, LOCATOR).orElseThrow();
+        history.lookup(doc, URL, LOCATOR).orElseThrow();
+
+        assertThat(history.flush()).isEqualTo(1);
+        assertThat(history.flush()).isZero();
+        history.close();
+        history = newHistory();
+
+        assertThat(history.export(null)).singleElement()
+                .extracting(HealingHistoryEntry::getHitCount).isEqualTo(2L);
+    }
+
+    @Test
+    void closeFlushesPendingHits() {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+        history.lookup(doc, URL, LOCATOR).orElseThrow();
+        history.close();
+        history = newHistory();
+
+        assertThat(history.export(null)).singleElement()
+                .extracting(HealingHistoryEntry::getHitCount).isEqualTo(1L);
+    }
+
+    @Test
+    void newReplacementResetsTheHitCount() {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+        history.lookup(doc, URL, LOCATOR).orElseThrow();
+
+        history.record(URL, LOCATOR, verification("CSS_SELECTOR", "form > button"));
+
+        HealingHistoryEntry entry = history.export(null).get(0);
+        assertThat(entry.getReplacement()).isEqualTo("form > button");
+        assertThat(entry.getHitCount()).isZero();
+        assertThat(history.flush()).isZero();
+    }
+
+    @Test
+    void pruneFlushesHitsBeforeJudgingAge() {
+        history.record(URL, LOCATOR, verification("ID", "order-save"));
+        history.lookup(doc, URL, LOCATOR).orElseThrow();
+
+        LocatorHealingHistory.PruneResult result = history.prune(Duration.ofDays(1));
+
+        assertThat(result.pruned()).isZero();
+        assertThat(result.remaining()).isEqualTo(1);
+        assertThat(history.export(null).get(0).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void urlPatternDropsSchemeQueryAndIdSegments() {
+        assertThat(LocatorHealingHistory.urlPattern("https://Shop.Example.com/orders/1234/edit?tab=2#top"))
+                .isEqualTo("shop.example.com/orders/*/edit");
+        assertThat(LocatorHealingHistory.urlPattern("http://shop.example.com/cart"))
+                .isEqualTo("shop.example.com/cart");
+    }
+
+    private LocatorHealingHistory newHistory() {
+        LocatorHealingHistory created = new LocatorHealingHistory(config, new LocatorHintParser(), verifier,
+                objectMapper, new SimpleMeterRegistry());
+        created.start();
+        return created;
+    }
+
+    private static LocatorVerifier.Verification verification(String type, String locator) {
+        LocatorVerification unique = LocatorVerification.builder()
+                .type(type)
+                .locator(locator)
+                .matchCount(1)
+                .unique(true)
+                .robustness(100)
+                .build();
+        return new LocatorVerifier.Verification(new LocatorAnalysisResult(), List.of(unique), List.of());
+    }
+}
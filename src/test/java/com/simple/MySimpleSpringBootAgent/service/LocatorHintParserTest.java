@@ -0,0 +1,105 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.dto.LocatorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocatorHintParserTest {
+
+    private final LocatorHintParser parser = new LocatorHintParser();
+
+    @Test
+    void detectsLocatorSyntax() {
+        assertThat(parser.detectType("//div[@id='a']")).isEqualTo(LocatorType.XPATH);
+        assertThat(parser.detectType("(//a)[2]")).isEqualTo(LocatorType.XPATH);
+        assertThat(parser.detectType("div.card > a#go")).isEqualTo(LocatorType.CSS_SELECTOR);
+        assertThat(parser.detectType("search-box")).isEqualTo(LocatorType.UNKNOWN);
+        assertThat(parser.detectType("Sign in")).isEqualTo(LocatorType.UNKNOWN);
+        assertThat(parser.detectType("  ")).isEqualTo(LocatorType.UNKNOWN);
+    }
+
+    @Test
+    void parsesTheLastXPathStepOnly() {
+        LocatorHints hints = parser.parse("//form[@id='login']//input[@name='user' and contains(@class,'wide')]");
+
+        assertThat(hints.type()).isEqualTo(LocatorType.XPATH);
+        assertThat(hints.tag()).isEqualTo("input");
+        assertThat(hints.id()).isNull();
+        assertThat(hints.name()).isEqualTo("user");
+        assertThat(hints.classes()).isEqualTo(Set.of("wide"));
+    }
+
+    @Test
+    void parsesXPathTextAndCustomAttributes() {
+        LocatorHints exact = parser.parse("//button[normalize-space()='Save' and @data-testid=\"save-btn\"]");
+        assertThat(exact.tag()).isEqualTo("button");
+        assertThat(exact.text()).isEqualTo("Save");
+        assertThat(exact.attributes()).isEqualTo(Map.of("data-testid", "save-btn"));
+
+        LocatorHints contains = parser.parse("//*[contains(text(),'Log out')]");
+        assertThat(contains.tag()).isNull();
+        assertThat(contains.text()).isEqualTo("Log out");
+    }
+
+    @Test
+    void caseFoldingIgnoresTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            LocatorHints hints = parser.parse("//INPUT[@ID='email' and @TITLE='E-mail']");
+
+            assertThat(hints.tag()).isEqualTo("input");
+            assertThat(hints.id()).isEqualTo("email");
+            assertThat(hints.attributes()).isEqualTo(Map.of("title", "E-mail"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void parsesTheLastCssCompound() {
+        LocatorHints hints = parser.parse("div.panel > button#submit.btn.primary[type='submit']");
+
+        assertThat(hints.type()).isEqualTo(LocatorType.CSS_SELECTOR);
+        assertThat(hints.tag()).isEqualTo("button");
+        assertThat(hints.id()).isEqualTo("submit");
+        assertThat(hints.classes()).containsExactlyInAnyOrder("btn", "primary");
+        assertThat(hints.attributes()).isEqualTo(Map.of("type", "submit"));
+    }
+
+    @Test
+    void ignoresDotsInsideCssAttributeValues() {
+        LocatorHints hints = parser.parse("a[href='/docs/v1.2'][aria-label=Docs]:contains(Read more)");
+
+        assertThat(hints.classes()).isEmpty();
+        assertThat(hints.attributes()).isEqualTo(Map.of("href", "/docs/v1.2", "aria-label", "Docs"));
+        assertThat(hints.text()).isEqualTo("Read more");
+    }
+
+    @Test
+    void treatsBareValuesAsIdNameOrText() {
+        LocatorHints token = parser.parse("search-box");
+        assertThat(token.id()).isEqualTo("search-box");
+        assertThat(token.name()).isEqualTo("search-box");
+        assertThat(token.text()).isNull();
+
+        LocatorHints text = parser.parse("Forgot password?");
+        assertThat(text.id()).isNull();
+        assertThat(text.text()).isEqualTo("Forgot password?");
+
+        assertThat(parser.parse("").isEmpty()).isTrue();
+    }
+
+    @Test
+    void canonicalizesWhitespaceAndQuotes() {
+        assertThat(parser.canonicalize("//*[ @id = \"a\" ]")).isEqualTo(parser.canonicalize("//*[@id='a']"));
+        assertThat(parser.canonicalize("//a[text()=\"it's\"]")).isEqualTo("//a[text()=\"it's\"]");
+        assertThat(parser.canonicalize("div   >  span.x")).isEqualTo("div>span.x");
+        assertThat(parser.canonicalize(null)).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.JobQueueConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisRequest;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorJobResponse;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorJobStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocatorJobServiceTest {
+
+    private final LocatorAnalysisService analysisService = mock(LocatorAnalysisService.class);
+    private final JobQueueConfig config = new JobQueueConfig();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private LocatorJobService service;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void submittedJobCompletesAndIsPollable() {
+        LocatorAnalysisResponse response = LocatorAnalysisResponse.builder().build();
+        when(analysisService.analyze(any(LocatorAnalysisRequest.class))).thenReturn(response);
+
+        LocatorJobResponse submitted = service().submit(request("<html></html>"));
+        assertThat(submitted.getStatus()).isEqualTo(LocatorJobStatus.QUEUED);
+
+        LocatorJobResponse polled = service.get(submitted.getJobId(), Duration.ofSeconds(5)).orElseThrow();
+        assertThat(polled.getStatus()).isEqualTo(LocatorJobStatus.COMPLETED);
+        assertThat(polled.getResult()).isSameAs(response);
+        assertThat(polled.getCompletedAt()).isNotNull();
+    }
+
+    @Test
+    void failedAnalysisIsReportedAsFailed() {
+        when(analysisService.analyze(any(LocatorAnalysisRequest.class))).thenThrow(new IllegalStateException("boom"));
+
+        String jobId = service().submit(request("<html></html>")).getJobId();
+
+        LocatorJobResponse polled = service.get(jobId, Duration.ofSeconds(5)).orElseThrow();
+        assertThat(polled.getStatus()).isEqualTo(LocatorJobStatus.FAILED);
+        assertThat(polled.getError()).contains("boom");
+    }
+
+    @Test
+    void unknownJobIsEmpty() {
+        assertThat(service().get("missing", Duration.ZERO)).isEmpty();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws InterruptedException {
+        config.setWorkers(1);
+        config.setQueueCapacity(1);
+        blockAnalyses();
+
+        service().submit(request("running"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        service.submit(request("queued"));
+
+        assertThatThrownBy(() -> service.submit(request("rejected")))
+                .isInstanceOf(JobRejectedException.class)
+                .satisfies(e -> assertThat(((JobRejectedException) e).getRetryAfterSeconds())
+                        .isGreaterThanOrEqualTo(config.getMinRetryAfterSeconds()));
+    }
+
+    @Test
+    void rejectsWhenPendingJobsHoldTooMuchSource() {
+        config.setMaxPendingBytes(100);
+        blockAnalyses();
+
+        // A single page larger than the bound still runs when nothing else is pending
+        service().submit(request("x".repeat(80)));
+
+        assertThatThrownBy(() -> service.submit(request("y")))
+                .isInstanceOf(JobRejectedException.class)
+                .hasMessageContaining("page source");
+    }
+
+    @Test
+    void runningJobsDoNotExpire() throws InterruptedException {
+        config.setResultTtl(Duration.ofMillis(50));
+        blockAnalyses();
+
+        String jobId = service().submit(request("<html></html>")).getJobId();
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertThat(service.get(jobId, Duration.ZERO)).isPresent();
+    }
+
+    @Test
+    void finishedJobsExpireAfterTheResultTtl() throws InterruptedException {
+        config.setResultTtl(Duration.ofMillis(100));
+        when(analysisService.analyze(any(LocatorAnalysisRequest.class)))
+                .thenReturn(LocatorAnalysisResponse.builder().build());
+
+        String jobId = service().submit(request("<html></html>")).getJobId();
+        assertThat(service.get(jobId, Duration.ofSeconds(5)).orElseThrow().getStatus())
+                .isEqualTo(LocatorJobStatus.COMPLETED);
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        assertThat(service.get(jobId, Duration.ZERO)).isEmpty();
+    }
+
+    private void blockAnalyses() {
+        when(analysisService.analyze(any(LocatorAnalysisRequest.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return LocatorAnalysisResponse.builder().build();
+        });
+    }
+
+    private LocatorJobService service() {
+        service = new LocatorJobService(config, analysisService, new SimpleMeterRegistry());
+        return service;
+    }
+
+    private static LocatorAnalysisRequest request(String html) {
+        return LocatorAnalysisRequest.builder()
+                .htmlContent(html)
+                .locator("#submit")
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.aiservice.LocatorAnalyzerAI;
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.config.LlmConcurrencyConfig;
+import com.simple.MySimpleSpringBootAgent.config.ModelRoutingConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import dev.langchain4j.invocation.InvocationParameters;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocatorModelRouterTest {
+
+    private static final String LOCATOR = "#save";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelRoutingConfig config = new ModelRoutingConfig();
+    private final LlmConcurrencyConfig concurrencyConfig = new LlmConcurrencyConfig();
+    private final LlmConcurrencyLimiters concurrencyLimiters = new LlmConcurrencyLimiters(concurrencyConfig, meterRegistry);
+    private final Document doc = Jsoup.parse("<button id='save-btn'>Save</button>");
+    private final DomIndexService domIndexService = new DomIndexService(new HtmlProcessingConfig());
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final List<InvocationParameters> parameters = new ArrayList<>();
+    private final TokenCounter defaultCounter = new HeuristicTokenCounter();
+    private final TokenCounters tokenCounters = new TokenCounters("");
+
+    static Stream<Arguments> unacceptableAnswers() {
+        return Stream.of(
+                Arguments.of("invalid", result(true, 95, "CSS_SELECTOR", null)),
+                Arguments.of("invalid", result(true, null, "ID", "save-btn")),
+                Arguments.of("invalid", result(true, 95, null, "save-btn")),
+                Arguments.of("not_found", result(false, 95, "NONE", null)),
+                Arguments.of("low_confidence", result(true, 69, "ID", "save-btn")));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("unacceptableAnswers")
+    void escalatesAnswersThatAreNotGoodEnough(String reason, LocatorAnalysisResult small) {
+        LocatorAnalysisResult large = result(true, 90, "ID", "save-btn");
+        LocatorModelRouter router = router(tier("small", small), tier("large", large));
+
+        assertThat(analyze(router)).isSameAs(large);
+
+        assertThat(calls).containsOnlyKeys("small", "large");
+        assertThat(escalations("small", reason)).isEqualTo(1);
+        assertThat(tierTimer("small", "escalated").count()).isEqualTo(1);
+        assertThat(tierTimer("large", "accepted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void acceptedAnswerStopsAtTheCheapestTier() {
+        LocatorAnalysisResult small = result(true, 70, "ID", "save-btn");
+        LocatorModelRouter router = router(tier("small", small), tier("large", result(true, 99, "ID", "x")));
+
+        assertThat(analyze(router)).isSameAs(small);
+
+        assertThat(calls).containsOnlyKeys("small");
+        assertThat(tierTimer("small", "accepted").count()).isEqualTo(1);
+        assertThat(meterRegistry.find("locator.routing.escalations").counter()).isNull();
+        assertThat(meterRegistry.find("locator.routing.tier").tag("tier", "large").timer()).isNull();
+    }
+
+    @Test
+    void notFoundIsAcceptedWhenNotEscalated() {
+        config.setEscalateWhenNotFound(false);
+        LocatorAnalysisResult small = result(false, 90, "NONE", null);
+        LocatorModelRouter router = router(tier("small", small), tier("large", result(true, 99, "ID", "x")));
+
+        assertThat(analyze(router)).isSameAs(small);
+        assertThat(calls).containsOnlyKeys("small");
+    }
+
+    @Test
+    void saturatedTierIsSkipped() {
+        concurrencyConfig.setInitialLimit(1);
+        concurrencyConfig.setMinLimit(1);
+        concurrencyConfig.setMaxLimit(1);
+        concurrencyConfig.setMaxQueueWait(Duration.ZERO);
+        LocatorAnalysisResult large = result(true, 90, "ID", "save-btn");
+        LocatorModelRouter router = router(tier("small", result(true, 99, "ID", "x")), tier("large", large));
+
+        AdaptiveConcurrencyLimiter.Permit busy = concurrencyLimiters.acquire(backend("small"));
+        try {
+            assertThat(analyze(router)).isSameAs(large);
+        } finally {
+            busy.ignore();
+        }
+
+        assertThat(calls).containsOnlyKeys("large");
+        assertThat(escalations("small", "saturated")).isEqualTo(1);
+        assertThat(tierTimer("small", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedCallEscalatesAsAnError() {
+        LocatorAnalysisResult large = result(true, 90, "ID", "save-btn");
+        LocatorModelRouter router = router(failingTier("small"), tier("large", large));
+
+        assertThat(analyze(router)).isSameAs(large);
+        assertThat(escalations("small", "error")).isEqualTo(1);
+    }
+
+    @Test
+    void lastTierFailureFallsBackToTheBestEarlierAnswer() {
+        LocatorAnalysisResult notFound = result(false, 95, "NONE", null);
+        LocatorAnalysisResult unsure = result(true, 40, "ID", "save-btn");
+        LocatorModelRouter router = router(tier("tiny", notFound), tier("small", unsure), failingTier("large"));
+
+        // A found element beats a more confident not-found answer
+        assertThat(analyze(router)).isSameAs(unsure);
+
+        assertThat(calls).containsOnlyKeys("tiny", "small", "large");
+        assertThat(escalations("tiny", "not_found")).isEqualTo(1);
+        assertThat(escalations("small", "low_confidence")).isEqualTo(1);
+        assertThat(tierTimer("large", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void lastTierFailureWithoutAnEarlierAnswerIsThrown() {
+        LocatorModelRouter router = router(failingTier("small"), failingTier("large"));
+
+        assertThatThrownBy(() -> analyze(router))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("large unavailable");
+        assertThat(tierTimer("large", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void exhaustedTiersReturnTheMostConfidentAnswer() {
+        LocatorAnalysisResult better = result(true, 60, "ID", "save-btn");
+        LocatorModelRouter router = router(tier("small", better), tier("large", result(true, 30, "ID", "x")));
+
+        assertThat(analyze(router)).isSameAs(better);
+        assertThat(tierTimer("large", "exhausted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void eachTierGetsItsOwnConversationAndExcerpt() {
+        TokenCounter cl100k = tokenCounters.forModel("gpt-4");
+        TokenCounter o200k = tokenCounters.forModel("gpt-4o");
+        List<String> excerpts = new ArrayList<>();
+        LocatorModelRouter router = router(
+                tier("small", cl100k, excerpts, result(true, 10, "ID", "x")),
+                tier("large", o200k, excerpts, result(true, 90, "ID", "save-btn")));
+
+        router.analyze(LOCATOR, "save button", "", TokenCounter::name, this::invocationParameters);
+
+        assertThat(excerpts).containsExactly("cl100k_base", "o200k_base");
+        assertThat(parameters).hasSize(2).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void withoutTiersTheDefaultAnalyzerAnswers() {
+        LocatorAnalysisResult answer = result(false, 10, "NONE", null);
+        List<String> excerpts = new ArrayList<>();
+        LocatorModelRouter router = router(tier("default", defaultCounter, excerpts, answer).analyzer());
+
+        assertThat(router.analyze(LOCATOR, "save button", "", TokenCounter::name, this::invocationParameters))
+                .isSameAs(answer);
+        assertThat(excerpts).containsExactly("heuristic");
+        assertThat(meterRegistry.find("locator.routing.tier").timer()).isNull();
+    }
+
+    private LocatorAnalysisResult analyze(LocatorModelRouter router) {
+        return router.analyze(LOCATOR, "save button", "https://shop.example/orders", counter -> "<button>",
+                this::invocationParameters);
+    }
+
+    private InvocationParameters invocationParameters() {
+        InvocationParameters created = DomQueryContext.invocationParameters(doc, domIndexService.indexFor(doc));
+        parameters.add(created);
+        return created;
+    }
+
+    private LocatorModelRouter router(LocatorModelRouter.RoutedTier... tiers) {
+        return new LocatorModelRouter(config, (locator, description, url, excerpt, params) -> {
+            throw new AssertionError("routed analyses must not reach the default analyzer");
+        }, new LocatorMetrics(meterRegistry), meterRegistry, concurrencyLimiters, defaultCounter,
+                "http://default", List.of(tiers));
+    }
+
+    private LocatorModelRouter router(LocatorAnalyzerAI defaultAnalyzer) {
+        return new LocatorModelRouter(config, defaultAnalyzer, new LocatorMetrics(meterRegistry), meterRegistry,
+                concurrencyLimiters, defaultCounter, "http://default", List.of());
+    }
+
+    private LocatorModelRouter.RoutedTier tier(String name, LocatorAnalysisResult answer) {
+        return tier(name, defaultCounter, new ArrayList<>(), answer);
+    }
+
+    private LocatorModelRouter.RoutedTier tier(String name, TokenCounter counter, List<String> excerpts,
+                                               LocatorAnalysisResult answer) {
+        return new LocatorModelRouter.RoutedTier(name, backend(name), (locator, description, url, excerpt, params) -> {
+            calls.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+            excerpts.add(excerpt);
+            return answer;
+        }, counter);
+    }
+
+    private LocatorModelRouter.RoutedTier failingTier(String name) {
+        return new LocatorModelRouter.RoutedTier(name, backend(name), (locator, description, url, excerpt, params) -> {
+            calls.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+            throw new IllegalStateException(name + " unavailable");
+        }, defaultCounter);
+    }
+
+    private double escalations(String from, String reason) {
+        return meterRegistry.get("locator.routing.escalations").tag("from", from).tag("reason", reason)
+                .counter().count();
+    }
+
+    private Timer tierTimer(String tier, String outcome) {
+        return meterRegistry.get("locator.routing.tier").tag("tier", tier).tag("outcome", outcome).timer();
+    }
+
+    private static String backend(String tier) {
+        return "http://" + tier + "/v1";
+    }
+
+    private static LocatorAnalysisResult result(Boolean found, Integer confidence, String type, String locator) {
+        LocatorAnalysisResult result = new LocatorAnalysisResult();
+        result.setElementFound(found);
+        result.setConfidence(confidence);
+        result.setRecommendedLocatorType(type);
+        result.setRecommendedLocator(locator);
+        return result;
+    }
+}
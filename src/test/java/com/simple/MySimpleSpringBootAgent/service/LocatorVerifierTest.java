@@ -0,0 +1,148 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import com.simple.MySimpleSpringBootAgent.config.LocatorVerificationConfig;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorAnalysisResult;
+import com.simple.MySimpleSpringBootAgent.dto.LocatorVerification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocatorVerifierTest {
+
+    private static final String PAGE = """
+            <html><body>
+              <nav><a href="/">Home</a> <a href="/a">Details</a> <a href="/b">Details</a></nav>
+              <form id="search">
+                <input id="email" name="email" class="field">
+                <input id="dup" name="q" class="field">
+                <input id="dup" name="q" class="field wide">
+                <button class="btn primary" data-testid="go">Go</button>
+                <button class="btn">Reset</button>
+              </form>
+            </body></html>
+            """;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HtmlProcessingConfig htmlConfig = new HtmlProcessingConfig();
+    private final LocatorVerifier verifier = new LocatorVerifier(new LocatorVerificationConfig(),
+            new DomIndexService(htmlConfig), new CompiledSelectorCache(htmlConfig, meterRegistry),
+            executor, meterRegistry);
+    private final Document doc = Jsoup.parse(PAGE);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "ID                | email                            | 1",
+            "ID                | dup                              | 2",
+            "ID                | missing                          | 0",
+            "NAME              | email                            | 1",
+            "NAME              | q                                | 2",
+            "NAME              | missing                          | 0",
+            "CLASS_NAME        | primary                          | 1",
+            "CLASS_NAME        | field                            | 3",
+            "CLASS_NAME        | missing                          | 0",
+            "TAG_NAME          | form                             | 1",
+            "TAG_NAME          | input                            | 3",
+            "TAG_NAME          | table                            | 0",
+            "LINK_TEXT         | Home                             | 1",
+            "LINK_TEXT         | Details                          | 2",
+            "LINK_TEXT         | Detail                           | 0",
+            "PARTIAL_LINK_TEXT | Hom                              | 1",
+            "PARTIAL_LINK_TEXT | Detail                           | 2",
+            "PARTIAL_LINK_TEXT | Contact                          | 0",
+            "CSS_SELECTOR      | #email                           | 1",
+            "CSS_SELECTOR      | form > input.field               | 3",
+            "CSS_SELECTOR      | button[data-testid=missing]      | 0",
+            "XPATH             | //input[@id='email']             | 1",
+            "XPATH             | //button[contains(@class,'btn')] | 2",
+            "XPATH             | //table                          | 0"})
+    void countsMatchesPerLocatorType(String type, String locator, int matches) {
+        LocatorVerification v = verifier.check(doc, type, locator);
+
+        assertThat(v.getError()).isNull();
+        assertThat(v.getMatchCount()).isEqualTo(matches);
+        assertThat(v.isUnique()).isEqualTo(matches == 1);
+        if (matches == 0) {
+            assertThat(v.getRobustness()).isZero();
+        } else if (matches == 1) {
+            assertThat(v.getRobustness()).isPositive();
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "CLASS_NAME   | btn primary",
+            "CSS_SELECTOR | input[",
+            "XPATH        | //input[@id="})
+    void reportsUnparseableLocators(String type, String locator) {
+        LocatorVerification v = verifier.check(doc, type, locator);
+
+        assertThat(v.getError()).isNotBlank();
+        assertThat(v.getMatchCount()).isZero();
+    }
+
+    @Test
+    void ambiguousLocatorsRankBelowUniqueOnes() {
+        int unique = verifier.check(doc, LocatorVerifier.CSS_SELECTOR, "#email").getRobustness();
+        int ambiguous = verifier.check(doc, LocatorVerifier.CSS_SELECTOR, "input.field").getRobustness();
+
+        assertThat(unique).isGreaterThan(ambiguous);
+    }
+
+    @Test
+    void dropsUnmatchedLocatorsAndRecommendsTheMostRobust() {
+        LocatorAnalysisResult result = new LocatorAnalysisResult();
+        result.setPrimaryCssSelector("form > input:nth-child(1)");
+        result.setAlternativeCssSelectors(List.of("#email", "#gone"));
+        result.setPrimaryXPath("//table");
+        result.setElementFound(true);
+        result.setRecommendedLocatorType("CSS_SELECTOR");
+        result.setRecommendedLocator("form > input:nth-child(1)");
+
+        LocatorVerifier.Verification verification = verifier.verify(doc, result);
+
+        assertThat(verification.nothingVerified()).isFalse();
+        assertThat(verification.rejected()).extracting(LocatorVerification::getLocator)
+                .containsExactlyInAnyOrder("#gone", "//table");
+        assertThat(verification.result().getPrimaryCssSelector()).isEqualTo("#email");
+        assertThat(verification.result().getAlternativeCssSelectors()).containsExactly("form > input:nth-child(1)");
+        assertThat(verification.result().getPrimaryXPath()).isNull();
+        assertThat(verification.result().getRecommendedLocator()).isEqualTo("#email");
+        assertThat(verification.result().getWarnings()).contains("#gone", "//table");
+        assertThat(result.getPrimaryCssSelector()).isEqualTo("form > input:nth-child(1)"); // input untouched
+    }
+
+    @Test
+    void nothingVerifiedClearsTheRecommendation() {
+        LocatorAnalysisResult result = new LocatorAnalysisResult();
+        result.setPrimaryId("missing");
+        result.setElementFound(true);
+        result.setConfidence(90);
+        result.setRecommendedLocatorType("ID");
+        result.setRecommendedLocator("missing");
+
+        LocatorVerifier.Verification verification = verifier.verify(doc, result);
+
+        assertThat(verification.nothingVerified()).isTrue();
+        assertThat(verification.result().getElementFound()).isFalse();
+        assertThat(verification.result().getConfidence()).isZero();
+        assertThat(verification.result().getRecommendedLocator()).isNull();
+        assertThat(verifier.followUpNote(verification)).contains("ID missing (matches nothing)");
+    }
+}
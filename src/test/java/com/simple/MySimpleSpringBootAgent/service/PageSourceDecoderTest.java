@@ -0,0 +1,111 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.simple.MySimpleSpringBootAgent.config.HtmlProcessingConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageSourceDecoderTest {
+
+    private static final String PAGE = "<html><body><button id='go'>Go</button></body></html>";
+
+    private final HtmlProcessingConfig config = new HtmlProcessingConfig();
+    private final PageSourceDecoder decoder = new PageSourceDecoder(config);
+
+    @Test
+    void sniffsAndDecodesGzipDeflateAndIdentity() throws IOException {
+        byte[] page = PAGE.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(decodeAll(gzip(page), null)).isEqualTo(PAGE);
+        assertThat(decodeAll(deflate(page), null)).isEqualTo(PAGE);
+        assertThat(decodeAll(page, null)).isEqualTo(PAGE);
+        assertThat(decodeAll(gzip(page), "GZIP")).isEqualTo(PAGE);
+    }
+
+    @Test
+    void rejectsUnsupportedEncodings() {
+        byte[] zstdMagic = {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0, 0};
+
+        assertThatThrownBy(() -> decoder.decode(zstdMagic, null))
+                .isInstanceOf(PageSourceException.class)
+                .hasMessageContaining("zstd");
+        assertThatThrownBy(() -> decoder.decode(new byte[]{1}, "br"))
+                .isInstanceOf(PageSourceException.class)
+                .hasMessageContaining("br");
+    }
+
+    @Test
+    void rejectsUploadsOverTheWireLimit() {
+        config.setMaxUploadBytes(1000);
+
+        assertThatThrownBy(() -> decoder.readWireBytes(new ByteArrayInputStream(new byte[1001])))
+                .isInstanceOf(PageSourceException.class)
+                .hasMessageContaining("1000");
+    }
+
+    @Test
+    void acceptsUploadsAtTheWireLimit() throws IOException {
+        config.setMaxUploadBytes(1000);
+
+        assertThat(decoder.readWireBytes(new ByteArrayInputStream(new byte[1000]))).hasSize(1000);
+    }
+
+    @Test
+    void stopsAZipBombAtTheDecodedLimit() throws IOException {
+        config.setMaxDecodedBytes(1024 * 1024);
+        byte[] bomb = gzip(new byte[64 * 1024 * 1024]); // 64MB of zeros, ~64KB on the wire
+        assertThat((long) bomb.length).isLessThan(config.getMaxUploadBytes());
+
+        try (PageSourceDecoder.CountingInputStream in = decoder.decode(bomb, null)) {
+            byte[] buffer = new byte[8192];
+            assertThatThrownBy(() -> {
+                while (in.read(buffer) != -1) {
+                    // drain
+                }
+            }).isInstanceOf(IOException.class).hasMessageContaining("exceeds");
+            assertThat(in.count()).isLessThanOrEqualTo(config.getMaxDecodedBytes() + buffer.length);
+        }
+    }
+
+    @Test
+    void countsDecodedBytes() throws IOException {
+        byte[] page = PAGE.getBytes(StandardCharsets.UTF_8);
+
+        try (PageSourceDecoder.CountingInputStream in = decoder.decode(gzip(page), null)) {
+            in.readAllBytes();
+            assertThat(in.count()).isEqualTo(page.length);
+        }
+    }
+
+    private String decodeAll(byte[] wire, String encoding) throws IOException {
+        try (InputStream in = decoder.decode(wire, encoding)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,138 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new TelemetryRingBuffer<>(5).capacity()).isEqualTo(8);
+        assertThat(new TelemetryRingBuffer<>(8).capacity()).isEqualTo(8);
+        assertThat(new TelemetryRingBuffer<>(0).capacity()).isEqualTo(2);
+    }
+
+    @Test
+    void drainsInOfferOrderAcrossWraparound() {
+        TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+
+        // Ten rounds of three push the sequence well past the slot array several times
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(buffer.offer(round * 3 + i)).isTrue();
+            }
+            assertThat(buffer.size()).isEqualTo(3);
+            assertThat(buffer.drain(drained::add)).isEqualTo(3);
+            assertThat(buffer.size()).isZero();
+        }
+
+        assertThat(drained).hasSize(30);
+        for (int i = 0; i < drained.size(); i++) {
+            assertThat(drained.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void rejectsWhenFullAndAcceptsAgainAfterDraining() {
+        TelemetryRingBuffer<String> buffer = new TelemetryRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer("e" + i)).isTrue();
+        }
+
+        assertThat(buffer.offer("dropped")).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        List<String> drained = new ArrayList<>();
+        buffer.drain(drained::add);
+        assertThat(drained).containsExactly("e0", "e1", "e2", "e3");
+        assertThat(buffer.offer("e4")).isTrue();
+    }
+
+    @Test
+    void emptyBufferDrainsNothing() {
+        TelemetryRingBuffer<String> buffer = new TelemetryRingBuffer<>(4);
+
+        assertThat(buffer.drain(e -> { throw new AssertionError("unexpected " + e); })).isZero();
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() throws Exception {
+        int producers = 8;
+        int perProducer = 20_000;
+        TelemetryRingBuffer<Long> buffer = new TelemetryRingBuffer<>(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean producing = new AtomicBoolean(true);
+        Set<Long> drained = new HashSet<>();
+        List<Long> perProducerLast = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            perProducerLast.add(-1L);
+        }
+        AtomicBoolean outOfOrder = new AtomicBoolean();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        if (buffer.offer(producer << 32 | i)) {
+                            accepted.incrementAndGet();
+                        } else {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            // Single consumer, draining while the producers run
+            Thread consumer = Thread.ofPlatform().start(() -> {
+                while (producing.get() || buffer.size() > 0) {
+                    buffer.drain(e -> {
+                        int producer = (int) (e >>> 32);
+                        long sequence = e & 0xFFFFFFFFL;
+                        if (sequence <= perProducerLast.get(producer)) {
+                            outOfOrder.set(true);
+                        }
+                        perProducerLast.set(producer, sequence);
+                        drained.add(e);
+                    });
+                    Thread.onSpinWait();
+                }
+            });
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            producing.set(false);
+            consumer.join(TimeUnit.SECONDS.toMillis(30));
+
+            assertThat(consumer.isAlive()).isFalse();
+            assertThat(accepted.get() + rejected.get()).isEqualTo(producers * perProducer);
+            assertThat(drained).hasSize(accepted.get());
+            assertThat(outOfOrder).isFalse();
+            assertThat(buffer.size()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
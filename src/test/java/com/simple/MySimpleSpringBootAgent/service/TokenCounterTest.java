@@ -0,0 +1,117 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenCounterTest {
+
+    private static final String BUTTON = "<button id=\"pay-now\" class=\"btn primary\">Pay now</button>";
+    private static final String FORM = "<form id=\"login\"><input type=\"email\" name=\"email\" placeholder=\"E-mail\">"
+            + "<button type=\"submit\">Sign in</button></form>";
+    private static final String LIST = "<ul class=\"items\"><li class=\"item\">Blue Shirt</li>"
+            + "<li class=\"item sale\">Red Shirt</li></ul>";
+
+    private final TokenCounter cl100k = new BpeTokenCounter(
+            Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE));
+    private final TokenCounter heuristic = new HeuristicTokenCounter();
+
+    // Reference counts from tiktoken's cl100k_base
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', textBlock = """
+            tiktoken is great!                                              | 6
+            Hello, world!                                                   | 4
+            <div>                                                           | 2
+            <button id="pay-now" class="btn primary">Pay now</button>       | 16
+            """)
+    void bpeCountsMatchCl100k(String text, int tokens) {
+        assertThat(cl100k.countTokens(text)).isEqualTo(tokens);
+    }
+
+    @Test
+    void bpeCountsMinifiedHtml() {
+        assertThat(cl100k.countTokens(FORM)).isEqualTo(31);
+        assertThat(cl100k.countTokens(LIST)).isEqualTo(28);
+        assertThat(cl100k.countTokens(BUTTON + FORM)).isEqualTo(16 + 31);
+    }
+
+    @Test
+    void specialTokenMarkersAreCountedAsText() {
+        assertThat(cl100k.countTokens("<|endoftext|>")).isEqualTo(7);
+        assertThat(cl100k.countTokens(null)).isZero();
+        assertThat(cl100k.countTokens("")).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {BUTTON, FORM, LIST})
+    void heuristicOverestimatesMinifiedHtmlWithinAFactorOfTwo(String html) {
+        int reference = cl100k.countTokens(html);
+
+        assertThat(heuristic.countTokens(html)).isBetween(reference, 2 * reference);
+    }
+
+    @Test
+    void heuristicCountsWordRunsAndPunctuation() {
+        assertThat(heuristic.countTokens("<div>")).isEqualTo(3);
+        assertThat(heuristic.countTokens("placeholder")).isEqualTo(3);
+        assertThat(heuristic.countTokens("  a \n b  ")).isEqualTo(2);
+        assertThat(heuristic.countTokens(null)).isZero();
+    }
+
+    @Test
+    void prefixesFitTheBudget() {
+        for (TokenCounter counter : new TokenCounter[]{cl100k, heuristic}) {
+            int total = counter.countTokens(FORM);
+            assertThat(counter.prefixLengthWithin(FORM, total)).isEqualTo(FORM.length());
+            assertThat(counter.prefixLengthWithin(FORM, 0)).isZero();
+            for (int budget = 1; budget < total; budget++) {
+                int length = counter.prefixLengthWithin(FORM, budget);
+                assertThat(length).isLessThan(FORM.length());
+                assertThat(counter.countTokens(FORM.substring(0, length))).isLessThanOrEqualTo(budget);
+            }
+        }
+    }
+
+    @Test
+    void prefixesKeepSurrogatePairsWhole() {
+        String emoji = "<p>😀😀😀</p>";
+        for (TokenCounter counter : new TokenCounter[]{cl100k, heuristic}) {
+            for (int budget = 1; budget <= counter.countTokens(emoji); budget++) {
+                int length = counter.prefixLengthWithin(emoji, budget);
+                assertThat(Character.isHighSurrogate(emoji.charAt(length - 1)))
+                        .as("%s cut at %d for budget %d", counter.name(), length, budget).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void countersResolvePerModel() {
+        TokenCounters counters = new TokenCounters("");
+
+        assertThat(counters.forModel("gpt-4o").name()).isEqualTo("o200k_base");
+        assertThat(counters.forModel("gpt-4").name()).isEqualTo("cl100k_base");
+        assertThat(counters.forModel("qwen/qwen3-vl-4b").name()).isEqualTo("cl100k_base");
+        assertThat(counters.forModel(null).name()).isEqualTo("cl100k_base");
+        assertThat(counters.forModel("gpt-4o", "heuristic")).isInstanceOf(HeuristicTokenCounter.class);
+        assertThat(counters.forModel("qwen/qwen3-vl-4b", "O200K_BASE").name()).isEqualTo("o200k_base");
+        // Models sharing an encoding share the counter
+        assertThat(counters.forModel("gpt-4o")).isSameAs(counters.forModel("qwen/qwen3-vl-4b", "o200k_base"));
+    }
+
+    @Test
+    void configuredEncodingAppliesToModelsWithoutTheirOwn() {
+        TokenCounters counters = new TokenCounters("heuristic");
+
+        assertThat(counters.forModel("gpt-4o")).isInstanceOf(HeuristicTokenCounter.class);
+        assertThat(counters.forModel("gpt-4o", "o200k_base").name()).isEqualTo("o200k_base");
+        assertThatThrownBy(() -> counters.forModel("gpt-4o", "nonsense"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("nonsense");
+    }
+}
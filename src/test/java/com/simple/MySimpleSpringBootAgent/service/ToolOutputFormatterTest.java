@@ -0,0 +1,93 @@
+package com.simple.MySimpleSpringBootAgent.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolOutputFormatterTest {
+
+    private final Document doc = Jsoup.parse("""
+            <main id="app"><section class="checkout"><form id="pay" data-step="2">
+              <input id="card" name="card" type="text" style="width: 10em" placeholder="Card number">
+              <a class="link" href="/terms" title='Say "yes"'>Read the terms and conditions of sale before paying for the order</a>
+              <button data-testid="%s">Pay</button>
+            </form></section></main>
+            """.formatted("x".repeat(70)));
+    private final DomIndex index = DomIndex.build(doc);
+
+    @Test
+    void handlesNameTheIndexedElement() {
+        Element card = doc.getElementById("card");
+
+        String line = ToolOutputFormatter.formatElement(card, index);
+
+        String handle = line.substring(0, line.indexOf(' '));
+        assertThat(handle).isEqualTo("e" + index.positionOf(card));
+        assertThat(index.byHandle(handle)).isSameAs(card);
+        assertThat(line).isEqualTo(handle + " <input id=\"card\" name=\"card\" type=\"text\" placeholder=\"Card number\">");
+        assertThat(DomQueryTools.matchCount(line)).isEqualTo(1);
+    }
+
+    @Test
+    void withoutAnIndexThereAreNoHandles() {
+        assertThat(ToolOutputFormatter.formatElement(doc.getElementById("card"), null))
+                .startsWith("<input id=\"card\"");
+    }
+
+    @Test
+    void longTextsAndValuesAreTruncatedAndQuotesEscaped() {
+        String link = ToolOutputFormatter.formatElement(doc.selectFirst("a"), index);
+        String button = ToolOutputFormatter.formatElement(doc.selectFirst("button"), index);
+
+        assertThat(link).endsWith("<a class=\"link\" href=\"/terms\">Read the terms and conditions of sale before payin...");
+        assertThat(button).contains("data-testid=\"" + "x".repeat(60) + "...\">Pay");
+        assertThat(ToolOutputFormatter.formatDetails(doc.selectFirst("a"), index))
+                .contains("title=\"Say &quot;yes&quot;\"");
+    }
+
+    @Test
+    void listsAreCappedAndReportTheTotal() {
+        Elements elements = doc.select("main, section, form, input, a, button");
+
+        String listing = ToolOutputFormatter.formatElements(elements, 4, index);
+
+        assertThat(listing.lines()).hasSize(6);
+        assertThat(listing).startsWith("Found 4 elements:\ne").endsWith("\n... and 2 more elements");
+        assertThat(listing.lines().skip(1).limit(4)).allMatch(line -> line.matches("e\\d+ <\\w+.*"));
+        assertThat(DomQueryTools.matchCount(listing)).isEqualTo(6);
+        assertThat(DomQueryTools.matchCount(ToolOutputFormatter.formatElements(elements, 10, index))).isEqualTo(6);
+    }
+
+    @Test
+    void emptyListSaysSo() {
+        String listing = ToolOutputFormatter.formatElements(new Elements(), 10, index);
+
+        assertThat(listing).isEqualTo("No elements found");
+        assertThat(DomQueryTools.matchCount(listing)).isZero();
+    }
+
+    @Test
+    void detailsShowAllAttributesAndUpToThreeAncestors() {
+        Element card = doc.getElementById("card");
+
+        String details = ToolOutputFormatter.formatDetails(card, index);
+
+        assertThat(details.lines().findFirst()).hasValueSatisfying(line -> assertThat(line)
+                .contains("style=\"width: 10em\"", "placeholder=\"Card number\""));
+        assertThat(details.lines().skip(1)).containsExactly(
+                "  in e" + index.positionOf(card.parent()) + " <form id=\"pay\">",
+                "  in e" + index.positionOf(card.parent().parent()) + " <section class=\"checkout\">",
+                "  in e" + index.positionOf(doc.getElementById("app")) + " <main id=\"app\">");
+        assertThat(DomQueryTools.matchCount(details)).isEqualTo(1);
+    }
+
+    @Test
+    void errorMessagesHaveNoMatchCount() {
+        assertThat(DomQueryTools.matchCount("Invalid selector: unexpected token")).isEqualTo(-1);
+        assertThat(DomQueryTools.matchCount(null)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,209 @@
+package com.simple.MySimpleSpringBootAgent.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppendOnlyRecordStoreTest {
+
+    private static final Duration NO_TTL = Duration.ZERO;
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void latestRecordForAKeyWins() {
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            store.put("a", bytes("one"));
+            store.put("b", bytes("two"));
+            store.put("a", bytes("three"));
+
+            assertThat(text(store, "a")).isEqualTo("three");
+            assertThat(text(store, "b")).isEqualTo("two");
+            assertThat(store.get("missing")).isEmpty();
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.records()).extracting(AppendOnlyRecordStore.StoredRecord::key)
+                    .containsExactlyInAnyOrder("a", "b");
+        }
+    }
+
+    @Test
+    void tombstonesHideRecords() {
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            store.put("a", bytes("one"));
+            store.remove("a");
+
+            assertThat(store.get("a")).isEmpty();
+            assertThat(store.size()).isZero();
+        }
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(store.get("a")).isEmpty();
+        }
+    }
+
+    @Test
+    void recordsSurviveReopening() {
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            store.put("key-é", bytes("café"));
+            store.put("empty", new byte[0]);
+        }
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(text(store, "key-é")).isEqualTo("café");
+            assertThat(store.get("empty")).get().extracting(AppendOnlyRecordStore.StoredRecord::payload)
+                    .isEqualTo(new byte[0]);
+        }
+    }
+
+    @Test
+    void readsRecordsAppendedPastTheMappedRegion() {
+        byte[] payload = new byte[64 * 1024];
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            // ~3MB, so the mapping is rebuilt a few times and some records are read from the unmapped tail
+            for (int i = 0; i < 48; i++) {
+                payload[0] = (byte) i;
+                store.put("k" + i, payload);
+            }
+            for (int i = 0; i < 48; i++) {
+                assertThat(store.get("k" + i).orElseThrow().payload()[0]).isEqualTo((byte) i);
+            }
+        }
+    }
+
+    @Test
+    void truncatesATornTail() throws IOException {
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            store.put("a", bytes("one"));
+            store.put("b", bytes("two"));
+        }
+        long intact = Files.size(file());
+        try (RandomAccessFile raf = new RandomAccessFile(file().toFile(), "rw")) {
+            raf.setLength(intact - 2); // crash mid-append of "b"
+        }
+
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(text(store, "a")).isEqualTo("one");
+            assertThat(store.get("b")).isEmpty();
+
+            store.put("c", bytes("three"));
+        }
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(text(store, "a")).isEqualTo("one");
+            assertThat(text(store, "c")).isEqualTo("three");
+        }
+    }
+
+    @Test
+    void truncatesAtARecordThatFailsItsChecksum() throws IOException {
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            store.put("a", bytes("one"));
+            store.put("b", bytes("two"));
+            store.put("c", bytes("three"));
+        }
+        long size = Files.size(file());
+        try (RandomAccessFile raf = new RandomAccessFile(file().toFile(), "rw")) {
+            // Flip a payload byte of "b": lengths still line up, only the CRC can tell
+            long bPayload = size - (20 + 1 + 5) - 3;
+            raf.seek(bPayload);
+            raf.write('X');
+        }
+
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(text(store, "a")).isEqualTo("one");
+            assertThat(store.get("b")).isEmpty();
+            assertThat(store.get("c")).isEmpty();
+            assertThat(store.fileSize()).isEqualTo(Files.size(file()));
+        }
+    }
+
+    @Test
+    void setsAsideFilesInAnUnknownFormat() throws IOException {
+        Files.write(file(), bytes("not a record store at all"));
+
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(store.size()).isZero();
+            store.put("a", bytes("one"));
+            assertThat(text(store, "a")).isEqualTo("one");
+        }
+        assertThat(dir.resolve("store.dat.unreadable")).exists();
+    }
+
+    @Test
+    void compactionKeepsOnlyLatestLiveRecords() {
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            for (int i = 0; i < 100; i++) {
+                store.put("a", bytes("version " + i));
+            }
+            store.put("b", bytes("kept"));
+            store.put("c", bytes("gone"));
+            store.remove("c");
+            long before = store.fileSize();
+
+            store.compact();
+
+            assertThat(store.fileSize()).isLessThan(before / 10);
+            assertThat(text(store, "a")).isEqualTo("version 99");
+            assertThat(text(store, "b")).isEqualTo("kept");
+            assertThat(store.get("c")).isEmpty();
+
+            store.put("d", bytes("after"));
+        }
+        try (AppendOnlyRecordStore store = open(MAX_BYTES)) {
+            assertThat(store.size()).isEqualTo(3);
+            assertThat(text(store, "d")).isEqualTo("after");
+        }
+    }
+
+    @Test
+    void outgrowingMaxBytesCompactsToTheNewestRecords() {
+        byte[] payload = new byte[1000];
+        try (AppendOnlyRecordStore store = open(10_000)) {
+            for (int i = 0; i < 30; i++) {
+                store.put("k" + i, payload);
+            }
+
+            assertThat(store.fileSize()).isLessThanOrEqualTo(10_000);
+            assertThat(store.get("k29")).isPresent();
+            assertThat(store.get("k0")).isEmpty();
+        }
+    }
+
+    @Test
+    void expiredRecordsAreInvisibleAndDroppedOnCompaction() throws InterruptedException {
+        try (AppendOnlyRecordStore store = new AppendOnlyRecordStore(file(), Duration.ofMillis(50), MAX_BYTES)) {
+            store.put("a", bytes("one"));
+            Thread.sleep(100);
+            store.put("b", bytes("two"));
+
+            assertThat(store.get("a")).isEmpty();
+            assertThat(store.records()).extracting(AppendOnlyRecordStore.StoredRecord::key).containsExactly("b");
+
+            store.compact();
+            assertThat(store.size()).isEqualTo(1);
+        }
+    }
+
+    private AppendOnlyRecordStore open(long maxBytes) {
+        return new AppendOnlyRecordStore(file(), NO_TTL, maxBytes);
+    }
+
+    private Path file() {
+        return dir.resolve("store.dat");
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(AppendOnlyRecordStore store, String key) {
+        return store.get(key).map(r -> new String(r.payload(), StandardCharsets.UTF_8)).orElse(null);
+    }
+}